@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.jms.BytesMessage;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+import javax.jms.TextMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the archives and files written by PayloadsExporter, the TAR.GZ archive being read back block by block
+ *
+ * @author Denis Forveille
+ *
+ */
+public class PayloadsExporterTest {
+
+   private static final int TAR_BLOCK_SIZE = 512;
+
+   private Path             dir;
+
+   @Before
+   public void createDirectory() throws IOException {
+      dir = Files.createTempDirectory("jtb-payloads");
+   }
+
+   @After
+   public void deleteDirectory() throws IOException {
+      try (Stream<Path> paths = Files.walk(dir)) {
+         paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+      }
+   }
+
+   @Test
+   public void writesAValidTarArchive() throws Exception {
+      Path target = dir.resolve("payloads.tar.gz");
+      PayloadsExporter exporter = new PayloadsExporter(PayloadExportTargetType.TAR_GZ, target, "p", false, false);
+      assertTrue(exporter.export(message(TextMessage.class, "ID:1", null, "hello")));
+      byte[] bytes = new byte[TAR_BLOCK_SIZE + 1];
+      bytes[TAR_BLOCK_SIZE] = 42;
+      assertTrue(exporter.export(message(BytesMessage.class, "ID:2", null, bytes)));
+      assertEquals(2, exporter.finish());
+
+      byte[] tar = gunzip(target);
+      assertEquals(0, tar.length % TAR_BLOCK_SIZE);
+
+      Map<String, byte[]> entries = readTar(tar);
+      assertEquals(Arrays.asList("p_ID_1.txt", "p_ID_2.bin"), new ArrayList<>(entries.keySet()));
+      assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), entries.get("p_ID_1.txt"));
+      assertArrayEquals(bytes, entries.get("p_ID_2.bin"));
+
+      // 2 headers, 1 + 2 data blocks and the 2 end of archive blocks
+      assertEquals(7 * TAR_BLOCK_SIZE, tar.length);
+   }
+
+   @Test
+   public void writesTheHeadersNextToThePayloads() throws Exception {
+      Path target = dir.resolve("payloads.tar.gz");
+      PayloadsExporter exporter = new PayloadsExporter(PayloadExportTargetType.TAR_GZ, target, "p", false, true);
+      Message m = message(TextMessage.class, "ID:1", "C1", "hello");
+      m.setStringProperty("zprop", "z");
+      m.setStringProperty("aprop", "a");
+      exporter.export(m);
+      exporter.finish();
+
+      Map<String, byte[]> entries = readTar(gunzip(target));
+      assertEquals(Arrays.asList("p_ID_1.txt", "p_ID_1.properties"), new ArrayList<>(entries.keySet()));
+      String headers = new String(entries.get("p_ID_1.properties"), StandardCharsets.UTF_8);
+      assertTrue(headers, headers.contains("JMSMessageID=ID:1"));
+      assertTrue(headers, headers.contains("JMSCorrelationID=C1"));
+      assertTrue(headers, headers.indexOf("aprop=a") < headers.indexOf("zprop=z"));
+   }
+
+   @Test
+   public void shortensTheNamesTooLongForTheTarHeader() throws Exception {
+      Path target = dir.resolve("payloads.tar.gz");
+      PayloadsExporter exporter = new PayloadsExporter(PayloadExportTargetType.TAR_GZ, target, "p", false, true);
+      String longID = String.join("", Collections.nCopies(100, "X"));
+      exporter.export(message(TextMessage.class, longID, null, "1"));
+      exporter.export(message(TextMessage.class, longID + "Y", null, "2"));
+      exporter.finish();
+
+      Map<String, byte[]> entries = readTar(gunzip(target));
+      assertEquals(Arrays.asList("p_msg.txt", "p_msg.properties", "p_msg_1.txt", "p_msg_1.properties"),
+                   new ArrayList<>(entries.keySet()));
+   }
+
+   @Test
+   public void makesTheNamesBuiltOnTheCorrelationIDUnique() throws Exception {
+      Path target = dir.resolve("payloads.zip");
+      PayloadsExporter exporter = new PayloadsExporter(PayloadExportTargetType.ZIP, target, "p", true, false);
+      exporter.export(message(TextMessage.class, "ID:1", "C1", "first"));
+      exporter.export(message(TextMessage.class, "ID:2", "C1", "second"));
+      exporter.finish();
+
+      Map<String, byte[]> entries = readZip(target);
+      assertEquals(Arrays.asList("p_C1.txt", "p_C1_1.txt"), new ArrayList<>(entries.keySet()));
+      assertArrayEquals("second".getBytes(StandardCharsets.UTF_8), entries.get("p_C1_1.txt"));
+   }
+
+   @Test
+   public void skipsTheMessagesWithoutExportablePayload() throws Exception {
+      Path target = dir.resolve("payloads.zip");
+      PayloadsExporter exporter = new PayloadsExporter(PayloadExportTargetType.ZIP, target, "p", false, false);
+      assertFalse(exporter.export(message(ObjectMessage.class, "ID:1", null, null)));
+      assertTrue(exporter.export(message(TextMessage.class, "ID:2", null, null)));
+      assertEquals(1, exporter.finish());
+
+      Map<String, byte[]> entries = readZip(target);
+      assertEquals(Collections.singletonList("p_ID_2.txt"), new ArrayList<>(entries.keySet()));
+      assertEquals(0, entries.get("p_ID_2.txt").length);
+   }
+
+   @Test
+   public void writesOneFilePerPayloadInADirectory() throws Exception {
+      Path target = dir.resolve("payloads");
+      PayloadsExporter exporter = new PayloadsExporter(PayloadExportTargetType.DIRECTORY, target, "p", false, true);
+      for (int i = 0; i < 200; i++) {
+         exporter.export(message(TextMessage.class, "ID:" + i, null, "payload " + i));
+      }
+      assertEquals(200, exporter.finish());
+
+      try (Stream<Path> files = Files.list(target)) {
+         assertEquals(400, files.count());
+      }
+      assertEquals("payload 123", new String(Files.readAllBytes(target.resolve("p_ID_123.txt")), StandardCharsets.UTF_8));
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private static byte[] gunzip(Path archive) throws IOException {
+      try (InputStream is = new GZIPInputStream(Files.newInputStream(archive))) {
+         return readAll(is);
+      }
+   }
+
+   // Entries of a ustar archive, checking the headers, the padding and the end of archive blocks
+   private static Map<String, byte[]> readTar(byte[] tar) {
+      Map<String, byte[]> entries = new LinkedHashMap<>();
+      int pos = 0;
+      while (true) {
+         byte[] header = Arrays.copyOfRange(tar, pos, pos + TAR_BLOCK_SIZE);
+         if (isZero(header)) {
+            assertTrue("second end of archive block", isZero(Arrays.copyOfRange(tar, pos + TAR_BLOCK_SIZE, tar.length)));
+            assertEquals(pos + 2 * TAR_BLOCK_SIZE, tar.length);
+            return entries;
+         }
+
+         assertEquals("ustar\0", new String(header, 257, 6, StandardCharsets.US_ASCII));
+         assertEquals('0', header[156]);
+         long checksum = 0;
+         for (int i = 0; i < TAR_BLOCK_SIZE; i++) {
+            checksum += (i >= 148 && i < 156) ? ' ' : header[i] & 0xFF;
+         }
+         assertEquals(checksum, octal(header, 148, 7));
+
+         String name = new String(header, 0, 100, StandardCharsets.US_ASCII).replaceAll("\0.*", "");
+         int size = (int) octal(header, 124, 12);
+         pos += TAR_BLOCK_SIZE;
+         entries.put(name, Arrays.copyOfRange(tar, pos, pos + size));
+         assertTrue("padding of " + name, isZero(Arrays.copyOfRange(tar, pos + size, pos + blocks(size))));
+         pos += blocks(size);
+      }
+   }
+
+   private static Map<String, byte[]> readZip(Path archive) throws IOException {
+      Map<String, byte[]> entries = new LinkedHashMap<>();
+      try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(archive))) {
+         ZipEntry entry;
+         while ((entry = zis.getNextEntry()) != null) {
+            entries.put(entry.getName(), readAll(zis));
+         }
+      }
+      return entries;
+   }
+
+   private static byte[] readAll(InputStream is) throws IOException {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = is.read(buffer)) != -1) {
+         baos.write(buffer, 0, n);
+      }
+      return baos.toByteArray();
+   }
+
+   private static long octal(byte[] header, int offset, int length) {
+      return Long.parseLong(new String(header, offset, length, StandardCharsets.US_ASCII).trim(), 8);
+   }
+
+   private static int blocks(int size) {
+      return (size + TAR_BLOCK_SIZE - 1) / TAR_BLOCK_SIZE * TAR_BLOCK_SIZE;
+   }
+
+   private static boolean isZero(byte[] block) {
+      for (byte b : block) {
+         if (b != 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   // Message with the given payload, whose properties are stored by the setters
+   private static Message message(Class<? extends Message> type, String messageID, String correlationID, Object payload) {
+      Map<String, Object> properties = new LinkedHashMap<>();
+      ClassLoader cl = PayloadsExporterTest.class.getClassLoader();
+      return (Message) Proxy.newProxyInstance(cl, new Class<?>[] { type }, (p, method, args) -> {
+         switch (method.getName()) {
+            case "getJMSMessageID":
+               return messageID;
+            case "getJMSCorrelationID":
+               return correlationID;
+            case "getText":
+               return payload;
+            case "getBodyLength":
+               return (long) ((byte[]) payload).length;
+            case "readBytes":
+               byte[] b = (byte[]) payload;
+               System.arraycopy(b, 0, args[0], 0, b.length);
+               return b.length;
+            case "setStringProperty":
+               properties.put((String) args[0], args[1]);
+               return null;
+            case "getPropertyNames":
+               return Collections.enumeration(properties.keySet());
+            case "getObjectProperty":
+               return properties.get(args[0]);
+            default:
+               if (method.getReturnType() == int.class) {
+                  return 0;
+               }
+               if (method.getReturnType() == long.class) {
+                  return 0L;
+               }
+               if (method.getReturnType() == boolean.class) {
+                  return false;
+               }
+               return null;
+         }
+      });
+   }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.titou10.jtb.jms.model.JTBMessageTemplate;
+import org.titou10.jtb.jms.model.JTBMessageType;
+import org.titou10.jtb.jms.model.JTBProperty;
+import org.titou10.jtb.jms.qm.JMSPropertyKind;
+import org.titou10.jtb.jms.util.JTBDeliveryMode;
+
+/**
+ * Tests of the queue snapshot files written by QueueSnapshotWriter and read by QueueSnapshotReader
+ *
+ * @author Denis Forveille
+ *
+ */
+public class QueueSnapshotFormatTest {
+
+   private Path file;
+
+   @Before
+   public void createFile() throws IOException {
+      file = Files.createTempFile("jtb", QueueSnapshotFormat.FILE_EXTENSION);
+   }
+
+   @After
+   public void deleteFile() throws IOException {
+      Files.deleteIfExists(file);
+   }
+
+   @Test
+   public void readsBackWhatHasBeenWritten() throws IOException {
+      checkRoundTrip(false);
+   }
+
+   @Test
+   public void readsBackWhatHasBeenWrittenCompressed() throws IOException {
+      checkRoundTrip(true);
+   }
+
+   @Test
+   public void seeksToAMessageWithTheIndex() throws IOException {
+      write(false, 5);
+
+      try (QueueSnapshotReader reader = new QueueSnapshotReader(file)) {
+         reader.seek(3);
+         assertEquals("ID:3", reader.next().getJmsMessageID());
+         assertEquals("ID:4", reader.next().getJmsMessageID());
+         assertNull(reader.next());
+
+         reader.seek(0);
+         assertEquals("ID:0", reader.next().getJmsMessageID());
+
+         reader.seek(5);
+         assertNull(reader.next());
+      }
+   }
+
+   @Test
+   public void readsAFileWithoutIndexUpToItsLastCompleteMessage() throws IOException {
+      write(true, 3);
+      long lastRecordOffset = readIndex(2);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+         channel.truncate(lastRecordOffset + 10);
+      }
+
+      try (QueueSnapshotReader reader = new QueueSnapshotReader(file)) {
+         assertEquals(-1, reader.getNbRecords());
+         assertEquals("ID:0", reader.next().getJmsMessageID());
+         assertEquals("ID:1", reader.next().getJmsMessageID());
+         assertNull(reader.next());
+         try {
+            reader.seek(1);
+            fail("IOException expected");
+         } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("has no index"));
+         }
+      }
+   }
+
+   @Test
+   public void rejectsANegativeLength() throws IOException {
+      write(false, 2);
+      overwriteLengths(readIndex(1), -1, 10);
+      checkCorrupted(1, "negative message length");
+   }
+
+   @Test
+   public void rejectsARawLengthDifferentFromTheLengthOfAnUncompressedMessage() throws IOException {
+      write(false, 2);
+      overwriteLengths(readIndex(0), 10, Integer.MAX_VALUE);
+      checkCorrupted(0, "invalid message length");
+   }
+
+   @Test
+   public void rejectsARawLengthOutOfReachOfDeflate() throws IOException {
+      write(true, 2);
+      overwriteLengths(readIndex(0), 10, Integer.MAX_VALUE);
+      checkCorrupted(0, "invalid message length");
+   }
+
+   @Test
+   public void rejectsALengthExceedingTheSizeOfTheFile() throws IOException {
+      write(false, 2);
+      overwriteLengths(readIndex(1), 1_000_000, 1_000_000);
+      checkCorrupted(1, "exceeds the size of the file");
+   }
+
+   @Test
+   public void rejectsTheObjectPayloadsOfUnexpectedClasses() throws IOException {
+      JTBMessageTemplate t = new JTBMessageTemplate();
+      t.setJtbMessageType(JTBMessageType.OBJECT);
+      t.setPayloadObject(URI.create("http://localhost"));
+      try (QueueSnapshotWriter writer = new QueueSnapshotWriter(file, "session", "Q1", false)) {
+         writer.append(t);
+      }
+
+      try (QueueSnapshotReader reader = new QueueSnapshotReader(file)) {
+         reader.next();
+         fail("IOException expected");
+      } catch (IOException e) {
+         assertTrue(e.getMessage(), e.getMessage().contains("ObjectMessage payload rejected"));
+      }
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private void checkRoundTrip(boolean compressed) throws IOException {
+      List<JTBMessageTemplate> templates = new ArrayList<>();
+      templates.add(template(JTBMessageType.TEXT, "ID:text", "Some text \u00e9"));
+      templates.add(template(JTBMessageType.BYTES, "ID:bytes", new byte[] { 0, 1, 2, (byte) 0xFF }));
+      Map<String, Object> map = new HashMap<>();
+      map.put("string", "s");
+      map.put("int", 42);
+      map.put("double", 4.2d);
+      map.put("bytes", new byte[] { 3 });
+      templates.add(template(JTBMessageType.MAP, "ID:map", map));
+      templates.add(template(JTBMessageType.OBJECT, "ID:object", new ArrayList<>(Arrays.asList("a", "b"))));
+      templates.add(template(JTBMessageType.TEXT, "ID:empty", null));
+
+      try (QueueSnapshotWriter writer = new QueueSnapshotWriter(file, "session", "Q1", compressed)) {
+         for (JTBMessageTemplate t : templates) {
+            writer.append(t);
+         }
+         assertEquals(templates.size(), writer.getNbRecords());
+      }
+
+      try (QueueSnapshotReader reader = new QueueSnapshotReader(file)) {
+         assertEquals("session", reader.getSessionName());
+         assertEquals("Q1", reader.getQueueName());
+         assertEquals(templates.size(), reader.getNbRecords());
+
+         for (JTBMessageTemplate expected : templates) {
+            JTBMessageTemplate t = reader.next();
+            assertEquals(expected.getJtbMessageType(), t.getJtbMessageType());
+            assertEquals(expected.getJmsMessageID(), t.getJmsMessageID());
+            assertEquals("C1", t.getJmsCorrelationID());
+            assertNull(t.getJmsType());
+            assertEquals(Long.valueOf(1234L), t.getJmsTimestamp());
+            assertNull(t.getJmsExpiration());
+            assertEquals(Integer.valueOf(7), t.getPriority());
+            assertEquals(JTBDeliveryMode.PERSISTENT, t.getDeliveryMode());
+            assertEquals(2, t.getJtbProperties().size());
+            assertEquals("p1", t.getJtbProperties().get(0).getName());
+            assertEquals(JMSPropertyKind.STRING, t.getJtbProperties().get(0).getKind());
+            assertEquals("v1", t.getJtbProperties().get(0).getValue());
+            assertEquals(Long.valueOf(99L), t.getJtbProperties().get(1).getValue());
+            assertEquals(expected.getPayloadText(), t.getPayloadText());
+            assertArrayEquals(expected.getPayloadBytes(), t.getPayloadBytes());
+            assertEquals(expected.getPayloadObject(), t.getPayloadObject());
+         }
+         assertNull(reader.next());
+      }
+
+      // Map payload
+      try (QueueSnapshotReader reader = new QueueSnapshotReader(file)) {
+         reader.next();
+         reader.next();
+         Map<String, Object> readMap = reader.next().getPayloadMap();
+         assertEquals(map.keySet(), readMap.keySet());
+         assertEquals(42, readMap.get("int"));
+         assertEquals(4.2d, readMap.get("double"));
+         assertArrayEquals(new byte[] { 3 }, (byte[]) readMap.get("bytes"));
+      }
+   }
+
+   private void write(boolean compressed, int nbMessages) throws IOException {
+      try (QueueSnapshotWriter writer = new QueueSnapshotWriter(file, "session", "Q1", compressed)) {
+         for (int i = 0; i < nbMessages; i++) {
+            writer.append(template(JTBMessageType.TEXT, "ID:" + i, "Message " + i));
+         }
+      }
+   }
+
+   private void checkCorrupted(int recordIndex, String reason) throws IOException {
+      try (QueueSnapshotReader reader = new QueueSnapshotReader(file)) {
+         for (int i = 0; i < recordIndex; i++) {
+            reader.next();
+         }
+         reader.next();
+         fail("IOException expected");
+      } catch (IOException e) {
+         assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupted snapshot"));
+         assertTrue(e.getMessage(), e.getMessage().contains(reason));
+      }
+   }
+
+   // Offset of a record, read from the index
+   private long readIndex(int recordIndex) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         ByteBuffer bb = ByteBuffer.allocate(8);
+         channel.read(bb, channel.size() - QueueSnapshotFormat.TRAILER_SIZE);
+         bb.flip();
+         long indexOffset = bb.getLong();
+         bb.clear();
+         channel.read(bb, indexOffset + (8L * recordIndex));
+         bb.flip();
+         return bb.getLong();
+      }
+   }
+
+   private void overwriteLengths(long recordOffset, int length, int rawLength) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+         ByteBuffer bb = ByteBuffer.allocate(8);
+         bb.putInt(length).putInt(rawLength).flip();
+         channel.write(bb, recordOffset);
+      }
+   }
+
+   private static JTBMessageTemplate template(JTBMessageType type, String messageID, Object payload) {
+      JTBMessageTemplate t = new JTBMessageTemplate();
+      t.setJtbMessageType(type);
+      t.setJmsMessageID(messageID);
+      t.setJmsCorrelationID("C1");
+      t.setJmsTimestamp(1234L);
+      t.setPriority(7);
+      t.setDeliveryMode(JTBDeliveryMode.PERSISTENT);
+      List<JTBProperty> jtbProperties = new ArrayList<>();
+      jtbProperties.add(new JTBProperty("p1", "v1", JMSPropertyKind.STRING));
+      jtbProperties.add(new JTBProperty("p2", 99L, JMSPropertyKind.LONG));
+      t.setJtbProperties(jtbProperties);
+
+      switch (type) {
+         case TEXT:
+            t.setPayloadText((String) payload);
+            break;
+         case BYTES:
+            t.setPayloadBytes((byte[]) payload);
+            break;
+         case MAP:
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = (Map<String, Object>) payload;
+            t.setPayloadMap(map);
+            break;
+         default:
+            t.setPayloadObject((Serializable) payload);
+            break;
+      }
+      return t;
+   }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.jms.qm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.titou10.jtb.jms.qm.ManagementRequestBatch.ReplyReader;
+import org.titou10.jtb.jms.qm.ManagementRequestBatch.RequestWriter;
+
+/**
+ * Tests of the correlation of the replies with the requests in ManagementRequestBatch, against an in memory management queue
+ *
+ * @author Denis Forveille
+ *
+ */
+public class ManagementRequestBatchTest {
+
+   private static final List<String>  RESOURCES  = Arrays.asList("Q1", "Q2");
+   private static final String[]      ATTRIBUTES = { "depth", "consumers" };
+   private static final List<Object>  EXPECTED   = Arrays.asList("Q1.depth", "Q1.consumers", "Q2.depth", "Q2.consumers");
+
+   private static final RequestWriter WRITER     = (request, resourceName, attribute) -> {
+                                                    request.setStringProperty("resource", resourceName);
+                                                    request.setStringProperty("attribute", attribute);
+                                                 };
+   private static final ReplyReader   READER     = reply -> reply.getStringProperty("value");
+
+   private ManagementQueueStandIn     server;
+
+   @Before
+   public void createServer() {
+      server = new ManagementQueueStandIn();
+   }
+
+   @Test
+   public void matchesTheRepliesOnTheirCorrelationID() throws Exception {
+      server.reverseOrder = true;
+
+      List<Object> values = getAttributes();
+
+      assertEquals(EXPECTED, values);
+      assertTrue(server.cleanedUp());
+   }
+
+   @Test
+   public void matchesTheRepliesInOrderWithoutCorrelationID() throws Exception {
+      server.copyCorrelationID = false;
+
+      assertEquals(EXPECTED, getAttributes());
+   }
+
+   @Test
+   public void ignoresDuplicateReplies() throws Exception {
+      server.reverseOrder = true;
+      server.duplicateFirstReply = true;
+
+      assertEquals(EXPECTED, getAttributes());
+   }
+
+   @Test
+   public void correlationIDsAreUniquePerBatch() throws Exception {
+      getAttributes();
+      getAttributes();
+
+      assertEquals(8, server.correlationIDs.size());
+      assertEquals(8, server.correlationIDs.stream().distinct().count());
+   }
+
+   @Test
+   public void failsWhenRepliesAreMissing() throws Exception {
+      server.nbRepliesLost = 1;
+
+      try {
+         getAttributes();
+         fail("JMSException expected");
+      } catch (JMSException e) {
+         assertTrue(e.getMessage(), e.getMessage().startsWith("Only 3 replies received out of 4"));
+      }
+      assertTrue(server.cleanedUp());
+   }
+
+   @Test
+   public void sendsNothingWithoutResources() throws Exception {
+      List<Object> values = ManagementRequestBatch.getAttributes(server.session,
+                                                                 server.managementQueue,
+                                                                 Collections.emptyList(),
+                                                                 ATTRIBUTES,
+                                                                 WRITER,
+                                                                 READER,
+                                                                 100);
+
+      assertTrue(values.isEmpty());
+      assertTrue(server.correlationIDs.isEmpty());
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private List<Object> getAttributes() throws Exception {
+      return ManagementRequestBatch.getAttributes(server.session,
+                                                  server.managementQueue,
+                                                  RESOURCES,
+                                                  ATTRIBUTES,
+                                                  WRITER,
+                                                  READER,
+                                                  100);
+   }
+
+   // JMS Session whose producer plays the role of the management server: each request is answered when it is sent
+   private static final class ManagementQueueStandIn {
+
+      private final Queue          managementQueue   = proxy(Queue.class, new HashMap<>());
+      private final Session        session;
+      private final List<String>   correlationIDs    = new ArrayList<>();
+      private final Deque<Message> replies           = new ArrayDeque<>();
+
+      private boolean              copyCorrelationID = true;
+      private boolean              reverseOrder;
+      private boolean              duplicateFirstReply;
+      private int                  nbRepliesLost;
+
+      private int                  nbOpened;
+      private int                  nbClosed;
+      private int                  nbDeleted;
+
+      private ManagementQueueStandIn() {
+         MessageConsumer consumer = (MessageConsumer) Proxy
+                  .newProxyInstance(getClass().getClassLoader(), new Class<?>[] { MessageConsumer.class }, (p, method, args) -> {
+                     switch (method.getName()) {
+                        case "receive":
+                           return replies.poll();
+                        case "close":
+                           nbClosed++;
+                           return null;
+                        default:
+                           throw new UnsupportedOperationException(method.getName());
+                     }
+                  });
+         MessageProducer producer = (MessageProducer) Proxy
+                  .newProxyInstance(getClass().getClassLoader(), new Class<?>[] { MessageProducer.class }, (p, method, args) -> {
+                     switch (method.getName()) {
+                        case "send":
+                           reply((Message) args[0]);
+                           return null;
+                        case "setDeliveryMode":
+                           return null;
+                        case "close":
+                           nbClosed++;
+                           return null;
+                        default:
+                           throw new UnsupportedOperationException(method.getName());
+                     }
+                  });
+         TemporaryQueue replyQueue = (TemporaryQueue) Proxy
+                  .newProxyInstance(getClass().getClassLoader(), new Class<?>[] { TemporaryQueue.class }, (p, method, args) -> {
+                     if (method.getName().equals("delete")) {
+                        nbDeleted++;
+                        return null;
+                     }
+                     throw new UnsupportedOperationException(method.getName());
+                  });
+         session = (Session) Proxy
+                  .newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class }, (p, method, args) -> {
+                     switch (method.getName()) {
+                        case "createTemporaryQueue":
+                           return replyQueue;
+                        case "createConsumer":
+                           nbOpened++;
+                           return consumer;
+                        case "createProducer":
+                           nbOpened++;
+                           return producer;
+                        case "createMessage":
+                           return proxy(Message.class, new HashMap<>());
+                        default:
+                           throw new UnsupportedOperationException(method.getName());
+                     }
+                  });
+      }
+
+      private void reply(Message request) throws JMSException {
+         correlationIDs.add(request.getJMSCorrelationID());
+         if (nbRepliesLost > 0) {
+            nbRepliesLost--;
+            return;
+         }
+
+         Message reply = proxy(Message.class, new HashMap<>());
+         String value = request.getStringProperty("resource") + "." + request.getStringProperty("attribute");
+         reply.setStringProperty("value", value);
+         if (copyCorrelationID) {
+            reply.setJMSCorrelationID(request.getJMSCorrelationID());
+         }
+         if (reverseOrder) {
+            replies.addFirst(reply);
+         } else {
+            replies.addLast(reply);
+         }
+         if (duplicateFirstReply && correlationIDs.size() == 1) {
+            replies.addFirst(reply);
+         }
+      }
+
+      private boolean cleanedUp() {
+         return (nbOpened == 2) && (nbClosed == 2) && (nbDeleted == 1);
+      }
+   }
+
+   // JMS object whose setters store the values returned by the getters
+   // Properties are stored as "<Type>Property:<name>"
+   @SuppressWarnings("unchecked")
+   private static <T> T proxy(Class<T> type, Map<String, Object> values) {
+      ClassLoader cl = ManagementRequestBatchTest.class.getClassLoader();
+      return (T) Proxy.newProxyInstance(cl, new Class<?>[] { type }, (p, method, args) -> {
+         String name = method.getName();
+         if (name.startsWith("set") && (args != null)) {
+            values.put(args.length == 2 ? name.substring(3) + ":" + args[0] : name.substring(3), args[args.length - 1]);
+            return null;
+         }
+         if (name.startsWith("get")) {
+            return values.get(args == null ? name.substring(3) : name.substring(3) + ":" + args[0]);
+         }
+         if (name.equals("hashCode")) {
+            return System.identityHashCode(p);
+         }
+         if (name.equals("equals")) {
+            return p == args[0];
+         }
+         if (name.equals("toString")) {
+            return type.getSimpleName() + values;
+         }
+         throw new UnsupportedOperationException(name);
+      });
+   }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ui.navigator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import org.titou10.jtb.jms.model.JTBDestination;
+import org.titou10.jtb.jms.model.JTBQueue;
+import org.titou10.jtb.jms.model.JTBTopic;
+
+/**
+ * Tests of the grouping of the destinations in NodeDestinationFolder
+ *
+ * @author Denis Forveille
+ *
+ */
+public class NodeDestinationFolderTest {
+
+   @Test
+   public void listsASmallNumberOfDestinationsWithoutGrouping() {
+      SortedSet<JTBQueue> queues = queues("APP.A.Q", 300);
+      queues.addAll(queues("APP.B.Q", 200));
+      NodeDestinationFolder folder = new NodeDestinationFolder("Queues", null, queues);
+
+      assertTrue(folder.hasChildren());
+      assertEquals(500, folder.getNbDestinations());
+      SortedSet<NodeAbstract> children = folder.getChildren();
+      assertEquals(500, children.size());
+      for (NodeAbstract child : children) {
+         assertTrue(child instanceof NodeJTBQueue);
+         assertSame(folder, child.getParentNode());
+      }
+      assertEquals("APP.A.Q0000", children.first().getName());
+
+      // Built once
+      assertSame(children, folder.getChildren());
+   }
+
+   @Test
+   public void hasNoChildrenWithoutDestinations() {
+      NodeDestinationFolder folder = new NodeDestinationFolder("Queues", null, new TreeSet<JTBQueue>());
+      assertFalse(folder.hasChildren());
+      assertTrue(folder.getChildren().isEmpty());
+   }
+
+   @Test
+   public void groupsTheDestinationsByNameSegments() {
+      SortedSet<JTBQueue> queues = queues("APP.A.Q", 300);
+      queues.addAll(queues("APP.B.Q", 300));
+      queues.add(new JTBQueue(null, "APP.C.Q", true));
+      NodeDestinationFolder folder = new NodeDestinationFolder("Queues", null, queues);
+
+      // "APP." is the only group at the first level and is skipped. "APP.C." has only one destination
+      List<String> names = names(folder.getChildren());
+      assertEquals(Arrays.asList("APP.A.*", "APP.B.*", "APP.C.Q"), names);
+
+      NodeDestinationFolder group = (NodeDestinationFolder) folder.getChildren().first();
+      assertEquals(300, group.getNbDestinations());
+      assertSame(folder, group.getParentNode());
+      assertEquals(300, group.getChildren().size());
+      assertEquals("APP.A.Q0000", group.getChildren().first().getName());
+   }
+
+   @Test
+   public void groupsTheNamesWithSlashes() {
+      SortedSet<JTBTopic> topics = new TreeSet<>();
+      for (int i = 0; i < 600; i++) {
+         topics.add(new JTBTopic(null, (i % 2 == 0 ? "sport/" : "news/") + i));
+      }
+      NodeDestinationFolder folder = new NodeDestinationFolder("Topics", null, topics);
+
+      assertEquals(Arrays.asList("news/*", "sport/*"), names(folder.getChildren()));
+      NodeAbstract leaf = folder.getChildren().first().getChildren().first();
+      assertTrue(leaf instanceof NodeJTBTopic);
+   }
+
+   @Test
+   public void splitsTheDestinationsThatCanNotBeGroupedInPages() {
+      // Names ending with a separator are not grouped
+      SortedSet<JTBQueue> queues = queues("Q", 1000);
+      queues.add(new JTBQueue(null, "Q.", true));
+      NodeDestinationFolder folder = new NodeDestinationFolder("Queues", null, queues);
+
+      // A last page with only one destination is replaced by the destination
+      assertEquals(Arrays.asList("Q. .. Q0498", "Q0499 .. Q0998", "Q0999"), names(folder.getChildren()));
+
+      NodeDestinationFolder page = (NodeDestinationFolder) folder.getChildren().first();
+      assertEquals(500, page.getNbDestinations());
+      assertEquals(500, page.getChildren().size());
+      assertTrue(page.getChildren().first() instanceof NodeJTBQueue);
+   }
+
+   @Test
+   public void findsTheNodeOfADestination() {
+      SortedSet<JTBQueue> queues = queues("APP.A.Q", 300);
+      queues.addAll(queues("APP.B.Q", 300));
+      queues.addAll(queues("Q", 1000));
+      NodeDestinationFolder folder = new NodeDestinationFolder("Queues", null, queues);
+
+      JTBDestination inGroup = find(queues, "APP.B.Q0123");
+      NodeAbstract node = folder.findNode(inGroup);
+      assertSame(inGroup, node.getBusinessObject());
+      assertEquals("APP.B.*", node.getParentNode().getName());
+
+      JTBDestination inPage = find(queues, "Q0789");
+      node = folder.findNode(inPage);
+      assertSame(inPage, node.getBusinessObject());
+      assertEquals("Q0500 .. Q0999", node.getParentNode().getName());
+
+      assertNull(folder.findNode(new JTBQueue(null, "APP.A.unknown", true)));
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private static SortedSet<JTBQueue> queues(String prefix, int nb) {
+      SortedSet<JTBQueue> queues = new TreeSet<>();
+      for (int i = 0; i < nb; i++) {
+         queues.add(new JTBQueue(null, String.format("%s%04d", prefix, i), true));
+      }
+      return queues;
+   }
+
+   private static JTBDestination find(SortedSet<? extends JTBDestination> jtbDestinations, String name) {
+      for (JTBDestination jtbDestination : jtbDestinations) {
+         if (jtbDestination.getName().equals(name)) {
+            return jtbDestination;
+         }
+      }
+      return null;
+   }
+
+   private static List<String> names(SortedSet<NodeAbstract> nodes) {
+      List<String> names = new ArrayList<>();
+      for (NodeAbstract node : nodes) {
+         names.add(node.getName());
+      }
+      return names;
+   }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests of DestinationFilterMatcher
+ *
+ * @author Denis Forveille
+ *
+ */
+public class DestinationFilterMatcherTest {
+
+   private static final String[] NAMES = { "", "Q", "Q1", "Q.A", "QXA", "DEV.QUEUE.1", "DEV.QUEUE.10", "PROD.QUEUE.1",
+                                           "SYSTEM.ADMIN.COMMAND.QUEUE", "queue", "a*b", "ab", "axxb" };
+
+   @Test
+   public void returnsNoMatcherWithoutFilter() {
+      assertNull(DestinationFilterMatcher.compile(null));
+   }
+
+   @Test
+   public void keepsTheFilterPattern() {
+      assertEquals("Q*;*.1", DestinationFilterMatcher.compile("Q*;*.1").getFilterPattern());
+   }
+
+   @Test
+   public void matchesTheExactNames() {
+      DestinationFilterMatcher m = DestinationFilterMatcher.compile("Q.A;Q1");
+      assertTrue(m.matches("Q.A"));
+      assertTrue(m.matches("Q1"));
+      assertFalse(m.matches("QXA"));
+      assertFalse(m.matches("Q"));
+      assertFalse(m.matches("Q11"));
+   }
+
+   @Test
+   public void matchesThePrefixesSuffixesAndParts() {
+      DestinationFilterMatcher m = DestinationFilterMatcher.compile("DEV.*;*.10;*ADMIN*");
+      assertTrue(m.matches("DEV.QUEUE.1"));
+      assertTrue(m.matches("DEV."));
+      assertTrue(m.matches("PROD.QUEUE.10"));
+      assertTrue(m.matches("SYSTEM.ADMIN.COMMAND.QUEUE"));
+      assertFalse(m.matches("DEVQUEUE"));
+      assertFalse(m.matches("PROD.QUEUE.1"));
+   }
+
+   @Test
+   public void matchesEverythingWithAStar() {
+      DestinationFilterMatcher m = DestinationFilterMatcher.compile("Q1;*");
+      assertTrue(m.matches(""));
+      assertTrue(m.matches("anything"));
+   }
+
+   @Test
+   public void matchesTheOtherPatternsWithARegex() {
+      DestinationFilterMatcher m = DestinationFilterMatcher.compile("DEV.QUEUE.?;a*b");
+      assertTrue(m.matches("DEV.QUEUE.1"));
+      assertFalse(m.matches("DEV.QUEUE.10"));
+      assertFalse(m.matches("DEVXQUEUE.1"));
+      assertTrue(m.matches("ab"));
+      assertTrue(m.matches("axxb"));
+      assertFalse(m.matches("abc"));
+   }
+
+   @Test
+   public void matchesLikeThePreviousRegexFilter() {
+      String[] filters = { "Q", "Q*", "*1", "*QUEUE*", "*", "**", "Q.A", "Q?A", "DEV.*.1", "DEV.QUEUE.1?;PROD*", "a*b;Q1", "Q;",
+                           ";", "", "*.A;SYSTEM.*;queue", "Q[0-9];DEV*", "Q+" };
+      for (String filter : filters) {
+         DestinationFilterMatcher m = DestinationFilterMatcher.compile(filter);
+         String regex = filter.replaceAll(";", "|").replaceAll("\\.", "\\\\.").replaceAll("\\?", ".").replaceAll("\\*", ".*");
+         for (String name : NAMES) {
+            assertEquals("'" + filter + "' on '" + name + "'", name.matches(regex), m.matches(name));
+         }
+      }
+   }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.CancellationException;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+import org.titou10.jtb.util.PrettyPrinter.BoundedWriter;
+
+/**
+ * Tests of PrettyPrinter
+ *
+ * @author Denis Forveille
+ *
+ */
+public class PrettyPrinterTest {
+
+   // ---
+   // XML
+   // ---
+
+   @Test
+   public void indentsTheElements() throws Exception {
+      String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><r:a xmlns:r=\"urn:r\" xmlns=\"urn:d\"><b r:k=\"1&amp;&quot;\"/>"
+                   + "<c><d>text</d></c><!-- comment --><?pi data?></r:a>";
+
+      String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<r:a xmlns:r=\"urn:r\" xmlns=\"urn:d\">\n"
+                        + "  <b r:k=\"1&amp;&quot;\"/>\n" + "  <c>\n" + "    <d>text</d>\n" + "  </c>\n" + "  <!-- comment -->\n"
+                        + "  <?pi data?>\n" + "</r:a>";
+      assertEquals(expected, formatXml(xml));
+   }
+
+   @Test
+   public void replacesTheIndentation() throws Exception {
+      String xml = "<a>\n\t\t<b>x</b>   \n      <c/>\n</a>";
+
+      assertEquals("<a>\n   <b>x</b>\n   <c/>\n</a>", formatXml(xml, 3));
+   }
+
+   @Test
+   public void keepsTheWhitespacesNextToText() throws Exception {
+      String xml = "<a><b>  x  y  </b><c>\n x\n</c></a>";
+
+      assertEquals("<a>\n  <b>  x  y  </b>\n  <c>\n x\n</c>\n</a>", formatXml(xml));
+   }
+
+   @Test
+   public void keepsTheEscapedCharacters() throws Exception {
+      String xml = "<a>&lt;b&gt; &amp; \"q\"</a>";
+
+      assertEquals(xml, formatXml(xml));
+   }
+
+   @Test
+   public void keepsTheCDATASections() throws Exception {
+      String xml = "<a><b><![CDATA[<x> & ]]]></b><c> t <![CDATA[ y ]]></c></a>";
+
+      String formatted = formatXml(xml);
+      assertEquals("<a>\n  <b><![CDATA[<x> & ]]]></b>\n  <c> t <![CDATA[ y ]]></c>\n</a>", formatted);
+      assertTrue(PrettyPrinter.isSameXml(xml, formatted));
+   }
+
+   @Test
+   public void keepsWhatHasBeenFormattedBeforeAnError() throws Exception {
+      StringWriter sw = new StringWriter();
+      try {
+         PrettyPrinter.formatXml(new StringReader("<a><b>x</b><c>"), sw, 2, null);
+         fail("XMLStreamException expected");
+      } catch (XMLStreamException e) {
+         assertEquals("<a>\n  <b>x</b>\n  <c", sw.toString());
+      }
+   }
+
+   @Test
+   public void stopsWhenTheOutputIsFull() throws Exception {
+      BoundedWriter bw = new BoundedWriter(10);
+      try {
+         PrettyPrinter.formatXml(new StringReader("<a><b>some text</b></a>"), bw, 2, null);
+         fail("IOException expected");
+      } catch (IOException e) {
+         assertTrue(bw.isTruncated());
+         assertEquals(10, bw.length());
+         assertEquals("<a>\n  <b>s", bw.toString());
+      }
+   }
+
+   @Test(expected = CancellationException.class)
+   public void canBeCancelled() throws Exception {
+      StringBuilder sb = new StringBuilder("<a>");
+      for (int i = 0; i < 1000; i++) {
+         sb.append("<b/>");
+      }
+      sb.append("</a>");
+
+      PrettyPrinter.formatXml(new StringReader(sb.toString()), new StringWriter(), 2, () -> true);
+   }
+
+   // ------------------
+   // XML - Same content
+   // ------------------
+
+   @Test
+   public void ignoresTheIndentationWhenComparing() {
+      assertTrue(PrettyPrinter.isSameXml("<a><b x=\"1\">t</b><c/></a>", "<a>\n  <b x=\"1\">t</b>\n  <c></c>\n</a>"));
+   }
+
+   @Test
+   public void detectsDifferentContents() {
+      assertFalse(PrettyPrinter.isSameXml("<a><b>t</b></a>", "<a><b>t </b></a>"));
+      assertFalse(PrettyPrinter.isSameXml("<a><b x=\"1\"/></a>", "<a><b x=\"2\"/></a>"));
+      assertFalse(PrettyPrinter.isSameXml("<a><b/></a>", "<a><c/></a>"));
+      assertFalse(PrettyPrinter.isSameXml("<a>x<b/></a>", "<a>x\n  <b/></a>"));
+      assertFalse(PrettyPrinter.isSameXml("<a><b/></a>", "<a><b/>"));
+   }
+
+   @Test
+   public void tellsCDATASectionsFromText() {
+      assertFalse(PrettyPrinter.isSameXml("<a><![CDATA[<x>]]></a>", "<a>&lt;x&gt;</a>"));
+      assertFalse(PrettyPrinter.isSameXml("<a><![CDATA[x]]>y</a>", "<a>x<![CDATA[y]]></a>"));
+
+      // Only the boundaries between kinds of text matter
+      assertTrue(PrettyPrinter.isSameXml("<a><![CDATA[xy]]></a>", "<a><![CDATA[x]]><![CDATA[y]]></a>"));
+   }
+
+   // ----
+   // JSON
+   // ----
+
+   @Test
+   public void indentsJson() throws Exception {
+      String json = "{\"a\":[1,2.50,{\"b\":null,\"t\":true}],\"c\":\"x\\\"y\\u00e9\",\"d\":{},\"e\":[]}";
+
+      String expected = "{\n" + "   \"a\": [\n" + "      1,\n" + "      2.50,\n" + "      {\n" + "         \"b\": null,\n"
+                        + "         \"t\": true\n" + "      }\n" + "   ],\n" + "   \"c\": \"x\\\"yé\",\n" + "   \"d\": {},\n"
+                        + "   \"e\": []\n" + "}";
+      StringWriter sw = new StringWriter();
+      PrettyPrinter.formatJson(new StringReader(json), sw, 3, null);
+      assertEquals(expected, sw.toString());
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private static String formatXml(String xml) throws Exception {
+      return formatXml(xml, 2);
+   }
+
+   private static String formatXml(String xml, int indent) throws Exception {
+      StringWriter sw = new StringWriter();
+      PrettyPrinter.formatXml(new StringReader(xml), sw, indent, null);
+      return sw.toString();
+   }
+}
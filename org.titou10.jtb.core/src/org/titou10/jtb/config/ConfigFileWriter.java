@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.ui.JTBStatusReporter;
+
+/**
+ * Write-behind persistence of a JAXB configuration file.<br>
+ * The configuration is marshalled when the write is requested, on the requesting thread, so that the background job never reads
+ * a configuration being modified. Write requests made within a short delay are coalesced into one write of the last snapshot,
+ * done in a background job. The file is written to a temporary file that then replaces the real one, so that a crash while
+ * writing never leaves a truncated configuration file.<br>
+ * Pending writes are flushed when the application stops (flushAll)
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class ConfigFileWriter {
+
+   private static final Logger                 log      = LoggerFactory.getLogger(ConfigFileWriter.class);
+
+   private static final long                   DELAY_MS = 500;
+   private static final String                 ENC      = "UTF-8";
+   private static final String                 TMP_EXT  = ".tmp";
+
+   private static final List<ConfigFileWriter> WRITERS  = new CopyOnWriteArrayList<>();
+
+   // Used to tell the user that a write failed. Not set when running headless
+   private static volatile JTBStatusReporter   statusReporter;
+
+   private final String                        fileName;
+   private final IFile                         iFile;
+   private final JAXBContext                   jaxbContext;
+   private final Supplier<Object>              content;
+
+   private final Object                        lock     = new Object();
+   private final Job                           job;
+   private final AtomicReference<byte[]>       pending  = new AtomicReference<>();
+   private volatile boolean                    errorReported;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   /**
+    * @param content
+    *           returns the JAXB root object to marshal. Called from the thread requesting the write
+    */
+   public ConfigFileWriter(String fileName, IFile iFile, JAXBContext jaxbContext, Supplier<Object> content) {
+      this.fileName = fileName;
+      this.iFile = iFile;
+      this.jaxbContext = jaxbContext;
+      this.content = content;
+
+      this.job = new Job("Write '" + fileName + "'") {
+         @Override
+         protected IStatus run(IProgressMonitor monitor) {
+            try {
+               write();
+               errorReported = false;
+            } catch (Exception e) {
+               // Will be retried on next request or on flush
+               reportError(e);
+            }
+            return Status.OK_STATUS;
+         }
+      };
+      this.job.setSystem(true);
+
+      WRITERS.add(this);
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   /**
+    * Set the reporter used to tell the user that a background write failed
+    */
+   public static void setStatusReporter(JTBStatusReporter jtbStatusReporter) {
+      statusReporter = jtbStatusReporter;
+   }
+
+   /**
+    * Request the file to be written soon, in background
+    */
+   public void requestWrite() {
+      log.debug("Write of '{}' requested", fileName);
+      byte[] data;
+      try {
+         data = marshal();
+      } catch (JAXBException | RuntimeException e) {
+         reportError(e);
+         return;
+      }
+      pending.set(data);
+      job.schedule(DELAY_MS);
+   }
+
+   /**
+    * Write the file now if a write is pending. Waits for a write in progress
+    */
+   public void flush() throws CoreException, IOException {
+      job.cancel();
+      write();
+   }
+
+   /**
+    * Flush all the pending writes. Called when the application stops
+    */
+   public static void flushAll() {
+      for (ConfigFileWriter writer : WRITERS) {
+         try {
+            writer.flush();
+         } catch (Exception e) {
+            log.error("Exception occurred when writing '" + writer.fileName + "'", e);
+         }
+      }
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private byte[] marshal() throws JAXBException {
+      Marshaller m = jaxbContext.createMarshaller();
+      m.setProperty(Marshaller.JAXB_ENCODING, ENC);
+      m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+      m.marshal(content.get(), baos);
+      return baos.toByteArray();
+   }
+
+   private void write() throws CoreException, IOException {
+      synchronized (lock) {
+         byte[] data = pending.getAndSet(null);
+         if (data == null) {
+            return;
+         }
+
+         try {
+            log.info("Writing file '{}'", fileName);
+
+            Path path = iFile.getLocation().toFile().toPath();
+            Path tmp = path.resolveSibling(path.getFileName() + TMP_EXT);
+
+            try (FileChannel fc = FileChannel.open(tmp,
+                                                   StandardOpenOption.CREATE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING,
+                                                   StandardOpenOption.WRITE)) {
+               ByteBuffer bb = ByteBuffer.wrap(data);
+               while (bb.hasRemaining()) {
+                  fc.write(bb);
+               }
+               fc.force(true);
+            }
+            try {
+               Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+               Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            // Keep the workspace in sync with the file system
+            iFile.refreshLocal(IResource.DEPTH_ZERO, null);
+
+         } catch (CoreException | IOException | RuntimeException e) {
+            // Keep it for the next attempt, unless a newer snapshot has been requested in the meantime
+            pending.compareAndSet(null, data);
+            throw e;
+         }
+      }
+   }
+
+   // Tell the user once, until a write succeeds
+   private void reportError(Exception e) {
+      JTBStatusReporter reporter = statusReporter;
+      if ((reporter == null) || (errorReported)) {
+         log.error("Exception occurred when writing '" + fileName + "'", e);
+      } else {
+         errorReported = true;
+         reporter.showError("A problem occurred when saving the configuration file '" + fileName
+                            + "'. The last changes are not saved yet", e, fileName);
+      }
+   }
+}
@@ -17,11 +17,11 @@
 package org.titou10.jtb.config;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
@@ -30,9 +30,16 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.SortedSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -48,7 +55,6 @@ import javax.net.ssl.SSLSession;
 import javax.net.ssl.TrustManager;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 
 import org.eclipse.core.filesystem.EFS;
@@ -176,7 +182,9 @@ public class ConfigManager {
    private JAXBContext                  jcConfig;
    private IFile                        configIFile;
    private Config                       config;
+   private ConfigFileWriter             configFileWriter;
    private int                          nbExternalConnectors;
+   private boolean                      headless              = false;
 
    // Business Data
    private Map<String, MetaQManager>    metaQManagers         = new HashMap<>();
@@ -185,6 +193,11 @@ public class ConfigManager {
    private List<JTBSession>             jtbSessions           = new ArrayList<>();
    private List<ExternalConnector>      ecWithPreferencePages = new ArrayList<>();
 
+   // Startup timing report
+   private Map<String, Long>            startupTimings        = new LinkedHashMap<>();
+   private String                       startupStepName;
+   private long                         startupStepStart;
+
    // -----------------
    // Lifecycle Methods
    // -----------------
@@ -214,10 +227,13 @@ public class ConfigManager {
          context.applicationRunning(); // Close e4 initial splash screen
       }
 
+      // Configuration files are written in background: failures are reported from there
+      ConfigFileWriter.setStatusReporter(jtbStatusReporter);
+
       // ------------------------------------------------------
       // Open eclipse project
       // ------------------------------------------------------
-      scd.setProgress("Opening JMSToolBox Project...");
+      startupStep(scd, "Opening JMSToolBox Project...");
       try {
          jtbProject = createOrOpenProject();
       } catch (CoreException e) {
@@ -234,27 +250,25 @@ public class ConfigManager {
       // --------------------------------------------------------------
       // Initializes preferences (Must be done after jtbProject is set)
       // --------------------------------------------------------------
-      scd.setProgress("Loading Preferences...");
+      startupStep(scd, "Loading Preferences...");
       ps = jtbPreferenceStoreProvider.get();
 
       // ---------------------------------------------------------------------------------
       // Configuration files + Variables + Scripts + Visualizers + Templates + Preferences
       // ---------------------------------------------------------------------------------
 
-      scd.setProgress("Loading Config File...");
+      startupStep(scd, "Loading Config File...");
 
       // Load and parse Config file
       try {
-         jcConfig = JAXBContext.newInstance(Config.class);
-         configIFile = loadConfigurationFile();
-         config = parseConfigurationFile(configIFile.getContents());
+         loadAndParseConfigurationFile();
       } catch (CoreException | JAXBException e) {
          jtbStatusReporter.showError("An exception occurred while parsing Config file", Utils.getCause(e), "");
          return;
       }
 
       // Initialise variables
-      scd.setProgress("Loading Variables...");
+      startupStep(scd, "Loading Variables...");
       int nbVariables = 0;
       try {
          variablesManager = variablesManagerProvider.get();
@@ -265,7 +279,7 @@ public class ConfigManager {
       }
 
       // Initialise scripts
-      scd.setProgress("Loading Scripts...");
+      startupStep(scd, "Loading Scripts...");
       int nbScripts = 0;
       try {
          scriptsManager = scriptsManagerProvider.get();
@@ -276,7 +290,7 @@ public class ConfigManager {
       }
 
       // Initialise visualizers
-      scd.setProgress("Loading Visualisers...");
+      startupStep(scd, "Loading Visualisers...");
       int nbVisualizers = 0;
       try {
          visualizersManager = visualizersManagerProvider.get();
@@ -287,7 +301,7 @@ public class ConfigManager {
       }
 
       // Initialise templates
-      scd.setProgress("Loading Templates...");
+      startupStep(scd, "Loading Templates...");
       int nbTemplates = 0;
       try {
          templatesManager = templatesManagerProvider.get();
@@ -298,7 +312,7 @@ public class ConfigManager {
       }
 
       // Initialise ColumnsSets
-      scd.setProgress("Loading Columns Sets...");
+      startupStep(scd, "Loading Columns Sets...");
       int nbColumnsSets = 0;
       try {
          csManager = csManagerProvider.get();
@@ -309,7 +323,7 @@ public class ConfigManager {
       }
 
       // Initialise Session Types
-      scd.setProgress("Loading Session Types...");
+      startupStep(scd, "Loading Session Types...");
       int nbSessionTypes = 0;
       try {
          sessionTypeManager = sessionTypeManagerProvider.get();
@@ -327,11 +341,8 @@ public class ConfigManager {
       // ----------------------------------------
       // Build working QManagers from Config file
       // ----------------------------------------
-      scd.setProgress("Building working QManager..");
-      metaQManagers = new HashMap<>();
-      for (QManagerDef qManagerDef : config.getQManagerDef()) {
-         metaQManagers.put(qManagerDef.getId(), new MetaQManager(qManagerDef));
-      }
+      startupStep(scd, "Building working QManager..");
+      buildMetaQManagers();
 
       // ---------------------
       // QM Plugins Extensions
@@ -339,15 +350,15 @@ public class ConfigManager {
 
       try {
          // Discover Extensions/Plugins installed with the application
-         scd.setProgress("Discovering Plugins...");
+         startupStep(scd, "Discovering Plugins...");
          discoverQMPlugins();
 
          // For each Extensions/Plugins, create a resource bundle to handle classparth with the associated jars files
-         scd.setProgress("Creating Resource Bundles...");
+         startupStep(scd, "Creating Resource Bundles...");
          createResourceBundles(jtbStatusReporter);
 
          // Instantiate plugins
-         scd.setProgress("Instantiating Q Managers...");
+         startupStep(scd, "Instantiating Q Managers...");
          instantiateQManagers();
 
       } catch (InvalidRegistryObjectException | BundleException | IOException e) {
@@ -356,39 +367,15 @@ public class ConfigManager {
       }
 
       // Instantiate JTBSession corresponding to the sessions
-      scd.setProgress("Initializing JTBSessions...");
-      for (SessionDef sessionDef : config.getSessionDef()) {
-         log.debug("SessionDef found: {}", sessionDef.getName());
-
-         // Find the related Q Manager
-         MetaQManager mdqm = metaQManagers.get(sessionDef.getQManagerDef());
-         if (mdqm != null) {
-            jtbSessions.add(new JTBSession(ps, sessionDef, mdqm));
-         } else {
-            log.warn("Config file contains a SessionDef '{}' with QManager '{}' that does correspond to a loaded plugin. Ignoring it.",
-                     sessionDef.getName(),
-                     sessionDef.getQManagerDef());
-         }
-      }
-
-      // Build QManager Lists
-      for (MetaQManager mdqm : metaQManagers.values()) {
-         if (mdqm.getIce() != null) {
-            installedPlugins.add(mdqm);
-         }
-         if (mdqm.getQmanager() != null) {
-            runningQManagers.add(mdqm.getQmanager());
-         }
-      }
-      Collections.sort(installedPlugins);
-      Collections.sort(runningQManagers);
+      startupStep(scd, "Initializing JTBSessions...");
+      buildJTBSessions();
 
       // -----------------------------
       // Connectors Plugins Extensions
       // -----------------------------
       // Discover Connectors Plugins installed with the application
       try {
-         scd.setProgress("Discover and initialize Connectors...");
+         startupStep(scd, "Discover and initialize Connectors...");
          discoverAndInitializeConnectorsPlugins();
       } catch (Exception e) {
          // This is not a reason to not start..
@@ -401,6 +388,7 @@ public class ConfigManager {
       // ---------------------
       // Information Message
       // ---------------------
+      startupStep(scd, null);
       Version v = FrameworkUtil.getBundle(ConfigManager.class).getVersion();
 
       log.debug("");
@@ -418,6 +406,107 @@ public class ConfigManager {
       log.info("{}", String.format("* - %3d templates root folders", nbTemplates));
       log.info("{}", String.format("* - %3d columns sets", nbColumnsSets));
       log.info("{}", String.format("* - %3d session types", nbSessionTypes));
+      logStartupTimings();
+      logSystemInformation();
+   }
+
+   /**
+    * Headless bootstrap: initialize only what is required by the external connectors (REST...). No SWT resources are used
+    * 
+    * Called by the HeadlessApplication instead of the @PostContextCreate method used when running with the workbench
+    */
+   public void initHeadless() throws Exception {
+      long start = System.currentTimeMillis();
+      System.out.println("Initializing JMSToolBox (headless).");
+
+      headless = true;
+
+      startupStep(null, "Opening JMSToolBox Project...");
+      jtbProject = createOrOpenProject();
+      initSLF4J();
+
+      startupStep(null, "Loading Preferences...");
+      ps = jtbPreferenceStoreProvider.get();
+
+      startupStep(null, "Loading Config File...");
+      loadAndParseConfigurationFile();
+
+      startupStep(null, "Loading Variables...");
+      variablesManager = variablesManagerProvider.get();
+      int nbVariables = variablesManager.getVariables().size();
+
+      startupStep(null, "Loading Scripts...");
+      scriptsManager = scriptsManagerProvider.get();
+      int nbScripts = scriptsManager.getNbScripts();
+
+      startupStep(null, "Loading Templates...");
+      templatesManager = templatesManagerProvider.get();
+      int nbTemplates = templatesManager.getNbTemplates();
+
+      relaxSSLSecurityIfRequired(null);
+
+      startupStep(null, "Building working QManager..");
+      buildMetaQManagers();
+      startupStep(null, "Discovering Plugins...");
+      discoverQMPlugins();
+      startupStep(null, "Creating Resource Bundles...");
+      createResourceBundles(null);
+      startupStep(null, "Instantiating Q Managers...");
+      instantiateQManagers();
+
+      startupStep(null, "Initializing JTBSessions...");
+      buildJTBSessions();
+
+      startupStep(null, "Discover and initialize Connectors...");
+      discoverAndInitializeConnectorsPlugins();
+      startupStep(null, null);
+
+      Version v = FrameworkUtil.getBundle(ConfigManager.class).getVersion();
+
+      log.debug("");
+      log.info(STARS);
+      log.info("{}",
+               String.format("* JMSToolBox v%d.%d.%d (headless) successfully initialized in %d ms with:",
+                             v.getMajor(),
+                             v.getMinor(),
+                             v.getMicro(),
+                             System.currentTimeMillis() - start));
+      log.info("{}", String.format("* - %3d running plugins", runningQManagers.size()));
+      log.info("{}", String.format("* - %3d external connector plugins", nbExternalConnectors));
+      log.info("{}", String.format("* - %3d sessions", jtbSessions.size()));
+      log.info("{}", String.format("* - %3d scripts", nbScripts));
+      log.info("{}", String.format("* - %3d variables", nbVariables));
+      log.info("{}", String.format("* - %3d templates root folders", nbTemplates));
+      logStartupTimings();
+      logSystemInformation();
+   }
+
+   // Close the current startup step, records its duration and start a new one if stepName is not null
+   private void startupStep(SplashScreenDialog scd, String stepName) {
+      long now = System.nanoTime();
+      if (startupStepName != null) {
+         startupTimings.put(startupStepName, TimeUnit.NANOSECONDS.toMillis(now - startupStepStart));
+      }
+      startupStepName = stepName;
+      startupStepStart = now;
+      if ((scd != null) && (stepName != null)) {
+         scd.setProgress(stepName);
+      }
+   }
+
+   private void logStartupTimings() {
+      long total = 0;
+      for (Long ms : startupTimings.values()) {
+         total += ms;
+      }
+      log.info("*");
+      log.info("{}", String.format("* Startup Timings (%d ms):", total));
+      for (Entry<String, Long> e : startupTimings.entrySet()) {
+         log.info("{}", String.format("* - %-40s %6d ms", e.getKey(), e.getValue()));
+      }
+   }
+
+   private void logSystemInformation() {
       log.info("*");
       log.info("* System Information:");
       log.info("* - OS   : Name={} Version={} Arch={}",
@@ -454,11 +543,16 @@ public class ConfigManager {
 
       Job.getJobManager().cancel(Constants.JTB_JOBS_FAMILY);
 
+      // Write the configuration files still pending
+      ConfigFileWriter.flushAll();
+
       for (JTBSession jtbSession : jtbSessions) {
          jtbSession.disconnectAll();
       }
 
-      SWTResourceManager.dispose();
+      if (!headless) {
+         SWTResourceManager.dispose();
+      }
       log.info("Shutdown completed.");
    }
 
@@ -493,7 +587,13 @@ public class ConfigManager {
 
             log.warn("Using the TrustEverythingSSLTrustManager TrustManager: No server certificate will be validated");
          } catch (NoSuchAlgorithmException | KeyManagementException e) {
-            jtbStatusReporter.showError("An exception occurred while using the TrustAllCertificatesManager", Utils.getCause(e), "");
+            if (jtbStatusReporter == null) {
+               log.error("An exception occurred while using the TrustAllCertificatesManager", e);
+            } else {
+               jtbStatusReporter.showError("An exception occurred while using the TrustAllCertificatesManager",
+                                           Utils.getCause(e),
+                                           "");
+            }
             return;
          }
       }
@@ -533,9 +633,12 @@ public class ConfigManager {
             ExternalConnector ec = (ExternalConnector) o;
 
             // Get PP before initializing in case init goes bad, this way user can change the port for example..
-            PreferencePage pp = ec.getPreferencePage();
-            if (pp != null) {
-               ecWithPreferencePages.add(ec);
+            // No preference pages when running headless
+            if (!headless) {
+               PreferencePage pp = ec.getPreferencePage();
+               if (pp != null) {
+                  ecWithPreferencePages.add(ec);
+               }
             }
 
             nbExternalConnectors++;
@@ -596,13 +699,28 @@ public class ConfigManager {
             try {
                fileName = JarUtils.createBundle(workDirectry, pluginId, qManagerDef.getJar());
             } catch (Exception e) {
-               jtbStatusReporter.showError("An exception occurred while initializig the application : " + e.getMessage(), null);
+               if (jtbStatusReporter == null) {
+                  log.error("An exception occurred while creating the resource bundle for '{}'", pluginId, e);
+               } else {
+                  jtbStatusReporter.showError("An exception occurred while initializig the application : " + e.getMessage(), null);
+               }
                // return;
                continue;
             }
             if (fileName != null) {
-               Bundle resourceBundle = ctx.installBundle("file:" + fileName);
-               resourceBundle.start();
+               // Reuse the bundle installed by a previous launch, update it only if its jar has been rebuilt since then
+               String location = "file:" + fileName;
+               Bundle resourceBundle = ctx.getBundle(location);
+               if (resourceBundle == null) {
+                  resourceBundle = ctx.installBundle(location);
+               } else {
+                  if (resourceBundle.getLastModified() < new File(fileName).lastModified()) {
+                     log.debug("Resource bundle for '{}' has been rebuilt. Updating it", pluginId);
+                     resourceBundle.update();
+                  }
+               }
+               // The bundle will be activated when a class is first loaded from it, ie when the Q Manager is used
+               resourceBundle.start(Bundle.START_ACTIVATION_POLICY);
                log.debug("State of resource bundle after start {}", resourceBundle.getState());
             }
          } else {
@@ -612,6 +730,41 @@ public class ConfigManager {
       }
    }
 
+   private void buildMetaQManagers() {
+      metaQManagers = new HashMap<>();
+      for (QManagerDef qManagerDef : config.getQManagerDef()) {
+         metaQManagers.put(qManagerDef.getId(), new MetaQManager(qManagerDef));
+      }
+   }
+
+   private void buildJTBSessions() {
+      for (SessionDef sessionDef : config.getSessionDef()) {
+         log.debug("SessionDef found: {}", sessionDef.getName());
+
+         // Find the related Q Manager
+         MetaQManager mdqm = metaQManagers.get(sessionDef.getQManagerDef());
+         if (mdqm != null) {
+            jtbSessions.add(new JTBSession(ps, sessionDef, mdqm));
+         } else {
+            log.warn("Config file contains a SessionDef '{}' with QManager '{}' that does correspond to a loaded plugin. Ignoring it.",
+                     sessionDef.getName(),
+                     sessionDef.getQManagerDef());
+         }
+      }
+
+      // Build QManager Lists
+      for (MetaQManager mdqm : metaQManagers.values()) {
+         if (mdqm.getIce() != null) {
+            installedPlugins.add(mdqm);
+         }
+         if (mdqm.getQmanager() != null) {
+            runningQManagers.add(mdqm.getQmanager());
+         }
+      }
+      Collections.sort(installedPlugins);
+      Collections.sort(runningQManagers);
+   }
+
    private void instantiateQManagers() {
 
       BundleContext ctx = InternalPlatform.getDefault().getBundleContext();
@@ -624,24 +777,47 @@ public class ConfigManager {
       // }
       // }
 
-      for (MetaQManager wqm : metaQManagers.values()) {
-         IConfigurationElement ice = wqm.getIce();
+      // Instantiate the plugins in parallel: each one loads and initializes its own client jars
+      Map<MetaQManager, Future<Object>> futures = new LinkedHashMap<>();
+      int nbThreads = Math.max(1, Math.min(metaQManagers.size(), Runtime.getRuntime().availableProcessors()));
+      ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+      try {
+         for (MetaQManager wqm : metaQManagers.values()) {
+            IConfigurationElement ice = wqm.getIce();
 
-         // Do not try to instantiate plugins that are not active..
-         if (ice == null) {
-            log.debug("OSGI Bundle not active. id: '{}' classname: '{}'", wqm.getId(), wqm.getPluginClassName());
-            continue;
+            // Do not try to instantiate plugins that are not active..
+            if (ice == null) {
+               log.debug("OSGI Bundle not active. id: '{}' classname: '{}'", wqm.getId(), wqm.getPluginClassName());
+               continue;
+            }
+
+            log.info("About to instantiate QM. id: '{}' classname: '{}'", wqm.getId(), wqm.getPluginClassName());
+
+            futures.put(wqm, executor.submit(() -> {
+               long start = System.currentTimeMillis();
+               Object o = ice.createExecutableExtension(Constants.JTB_EXTENSION_POINT_QM_CLASS_ATTR);
+               log.debug("QM '{}' instantiated in {} ms", wqm.getId(), System.currentTimeMillis() - start);
+               return o;
+            }));
          }
+      } finally {
+         executor.shutdown();
+      }
 
-         log.info("About to instantiate QM. id: '{}' classname: '{}'", wqm.getId(), wqm.getPluginClassName());
+      for (Entry<MetaQManager, Future<Object>> e : futures.entrySet()) {
+         MetaQManager wqm = e.getKey();
 
          // Instanciate QManager
          Object o;
          try {
-            o = ice.createExecutableExtension(Constants.JTB_EXTENSION_POINT_QM_CLASS_ATTR);
+            o = e.getValue().get();
+         } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while instatiating '{}'. Skip it", wqm.getId());
+            continue;
+         } catch (ExecutionException ee) {
             // Yes, we catch Error to capture compilation errors dues to invalid/missing jars..
-         } catch (Error | CoreException e) {
-            log.error("Problem when instatiating '{}'. Skip it", ice.getNamespaceIdentifier(), e);
+            log.error("Problem when instatiating '{}'. Skip it", wqm.getId(), ee.getCause());
             continue;
          }
          if (o instanceof QManager) {
@@ -716,7 +892,7 @@ public class ConfigManager {
    // Session Managment
    // -----------------
 
-   public void sessionAdd(QManager qManager, SessionDef newSessionDef) throws JAXBException, CoreException, IOException {
+   public void sessionAdd(QManager qManager, SessionDef newSessionDef) {
       log.debug("sessionAdd '{}' for Queue Manager '{}'", newSessionDef.getName(), qManager.getName());
 
       // Find the QManager def corresponding to the QManager
@@ -735,7 +911,7 @@ public class ConfigManager {
       Collections.sort(jtbSessions);
    }
 
-   public void sessionFilterApply(JTBSession jtbSession, boolean apply) throws JAXBException, CoreException, IOException {
+   public void sessionFilterApply(JTBSession jtbSession, boolean apply) {
       log.debug("sessionEdit");
 
       SessionDef sd = jtbSession.getSessionDef();
@@ -749,8 +925,7 @@ public class ConfigManager {
       writeConfigurationFile();
    }
 
-   public void sessionFilterApply(JTBSession jtbSession, String filterPattern, boolean apply) throws JAXBException, CoreException,
-                                                                                              IOException {
+   public void sessionFilterApply(JTBSession jtbSession, String filterPattern, boolean apply) {
       log.debug("sessionEdit");
 
       SessionDef sd = jtbSession.getSessionDef();
@@ -765,7 +940,7 @@ public class ConfigManager {
       writeConfigurationFile();
    }
 
-   public void writeConfig() throws JAXBException, CoreException, IOException {
+   public void writeConfig() {
       log.debug("writeConfig");
       writeConfigurationFile();
    }
@@ -785,7 +960,7 @@ public class ConfigManager {
       return null;
    }
 
-   public void sessionRemove(JTBSession jtbSession) throws JAXBException, CoreException, IOException {
+   public void sessionRemove(JTBSession jtbSession) throws IOException {
       log.debug("sessionRemove {}", jtbSession);
 
       // Remove the session from the defintions of sessions
@@ -804,7 +979,7 @@ public class ConfigManager {
       ps.save();
    }
 
-   public void sessionDuplicate(JTBSession sourceJTBSession, String newName) throws JAXBException, CoreException, IOException {
+   public void sessionDuplicate(JTBSession sourceJTBSession, String newName) {
       log.debug("sessionDuplicate {} to '{}'", sourceJTBSession, newName);
 
       SessionDef sourceSessionDef = sourceJTBSession.getSessionDef();
@@ -882,7 +1057,7 @@ public class ConfigManager {
    // Configuration File
    // ------------------
 
-   public boolean importSessionConfig(InputStream is) throws JAXBException, CoreException, IOException {
+   public boolean importSessionConfig(InputStream is) throws JAXBException {
 
       config = parseConfigurationFile(is);
 
@@ -896,8 +1071,7 @@ public class ConfigManager {
       return true;
    }
 
-   public boolean configurationSave(MetaQManager metaQManager, SortedSet<String> jarNames) throws JAXBException, CoreException,
-                                                                                           IOException {
+   public boolean configurationSave(MetaQManager metaQManager, SortedSet<String> jarNames) {
 
       QManagerDef qManagerDef = metaQManager.getqManagerDef();
 
@@ -912,6 +1086,13 @@ public class ConfigManager {
       return true;
    }
 
+   private void loadAndParseConfigurationFile() throws CoreException, JAXBException {
+      jcConfig = JAXBContext.newInstance(Config.class);
+      configIFile = loadConfigurationFile();
+      config = parseConfigurationFile(configIFile.getContents());
+      configFileWriter = new ConfigFileWriter(Constants.JTB_CONFIG_FILE_NAME, configIFile, jcConfig, () -> config);
+   }
+
    private IFile loadConfigurationFile() {
 
       IFile file = jtbProject.getFile(Constants.JTB_CONFIG_FILE_NAME);
@@ -935,26 +1116,9 @@ public class ConfigManager {
       return (Config) u.unmarshal(is);
    }
 
-   // Write Config File
-   private void writeConfigurationFile() throws JAXBException, CoreException, IOException {
-      log.info("configurationWriteFile file '{}'", Constants.JTB_CONFIG_FILE_NAME);
-
-      Marshaller m = jcConfig.createMarshaller();
-      m.setProperty(Marshaller.JAXB_ENCODING, ENC);
-      m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
-      StringWriter sw = new StringWriter(2048);
-      m.marshal(config, sw);
-
-      // TODO Add the logic to temporarily save the previous file in case of crash while saving
-
-      try (InputStream is = new ByteArrayInputStream(sw.toString().getBytes(ENC));) {
-         configIFile.setContents(is, false, false, null);
-      } catch (UnsupportedEncodingException e) {
-         // Impossible
-         log.error("UnsupportedEncodingException", e);
-         return;
-      }
+   // Write Config File, in background
+   private void writeConfigurationFile() {
+      configFileWriter.requestWrite();
    }
 
    // ---------------
@@ -963,6 +1127,9 @@ public class ConfigManager {
    public void exportConfig(EnumSet<ImportExportType> exportTypes, String exportFileName) throws IOException, CoreException {
       log.debug("exportConfig: {} - {}", exportFileName, exportTypes);
 
+      // The files are read from disk
+      ConfigFileWriter.flushAll();
+
       if (!(exportFileName.endsWith(".zip"))) {
          exportFileName += ".zip";
       }
@@ -1105,6 +1272,10 @@ public class ConfigManager {
       if (noFileProcessed) {
          return null;
       }
+
+      // A restart may follow
+      ConfigFileWriter.flushAll();
+
       return restartRequired;
    }
 
@@ -1124,4 +1295,8 @@ public class ConfigManager {
       return jtbProject;
    }
 
+   public boolean isHeadless() {
+      return headless;
+   }
+
 }
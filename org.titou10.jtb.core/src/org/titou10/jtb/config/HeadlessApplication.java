@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.config;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * Headless JMSToolBox application: no workbench, no SWT. Only the configuration, the Q Managers plugins, the templates, variables
+ * and scripts are initialized, then the external connectors (REST...) are started
+ *
+ * Launch with "-application org.titou10.jtb.core.headless"
+ *
+ * @author Denis Forveille
+ *
+ */
+public class HeadlessApplication implements IApplication {
+
+   private final CountDownLatch stopLatch = new CountDownLatch(1);
+
+   private IEclipseContext      ctx;
+   private ConfigManager        cm;
+
+   @Override
+   public Object start(IApplicationContext context) throws Exception {
+
+      // Build an e4 context backed by the OSGi services, without any workbench
+      Bundle bundle = FrameworkUtil.getBundle(HeadlessApplication.class);
+      IEclipseContext serviceCtx = EclipseContextFactory.getServiceContext(bundle.getBundleContext());
+      ctx = serviceCtx.createChild("JMSToolBox Headless");
+
+      cm = ContextInjectionFactory.make(ConfigManager.class, ctx);
+      try {
+         cm.initHeadless();
+      } catch (Exception e) {
+         System.err.println("An exception occurred while initializing JMSToolBox: " + e.getMessage());
+         e.printStackTrace();
+         ctx.dispose();
+         return Integer.valueOf(1);
+      }
+
+      context.applicationRunning();
+
+      // Wait for the framework to stop the application
+      stopLatch.await();
+
+      cm.shutdown();
+      ctx.dispose();
+
+      return IApplication.EXIT_OK;
+   }
+
+   @Override
+   public void stop() {
+      stopLatch.countDown();
+   }
+
+}
@@ -96,7 +96,12 @@ public class JTBPreferenceStore extends EventManager implements IPersistentPrefe
       setDefault(Constants.PREF_CLEAR_LOGS_EXECUTION, Constants.PREF_CLEAR_LOGS_EXECUTION_DEFAULT);
       setDefault(Constants.PREF_MAX_MESSAGES_TOPIC, Constants.PREF_MAX_MESSAGES_TOPIC_DEFAULT);
       setDefault(Constants.PREF_CONN_CLIENT_ID_PREFIX, Constants.PREF_CONN_CLIENT_ID_PREFIX_DEFAULT);
+      setDefault(Constants.PREF_CONN_AUTO_RECONNECT, Constants.PREF_CONN_AUTO_RECONNECT_DEFAULT);
+      setDefault(Constants.PREF_CONN_HEALTH_CHECK_INTERVAL, Constants.PREF_CONN_HEALTH_CHECK_INTERVAL_DEFAULT);
+      setDefault(Constants.PREF_CONN_RECONNECT_MAX_DELAY, Constants.PREF_CONN_RECONNECT_MAX_DELAY_DEFAULT);
+      setDefault(Constants.PREF_CONN_CONNECT_TIMEOUT, Constants.PREF_CONN_CONNECT_TIMEOUT_DEFAULT);
       setDefault(Constants.PREF_XML_INDENT, Constants.PREF_XML_INDENT_DEFAULT);
+      setDefault(Constants.PREF_XML_FORMAT_MAX_KB, Constants.PREF_XML_FORMAT_MAX_KB_DEFAULT);
       setDefault(Constants.PREF_SYNCHRONIZE_SESSIONS_MESSAGES, Constants.PREF_SYNCHRONIZE_SESSIONS_MESSAGES_DEFAULT);
       setDefault(Constants.PREF_MESSAGE_TAB_DISPLAY, Constants.PREF_MESSAGE_TAB_DISPLAY_DEFAULT);
       setDefault(Constants.PREF_COLUMNSSET_DEFAULT_NAME, Constants.JTB_COLUMNSSETS_SYSTEM_CS_NAME);
@@ -59,6 +59,9 @@ public class MainWindowCloseAddon implements IWindowCloseHandler {
    @Override
    public boolean close(MWindow window) {
 
+      // Write the configuration files still pending
+      ConfigFileWriter.flushAll();
+
       // Close Script Manager Dialog if it exists
       List<MWindow> children = application.getChildren();
       for (MWindow w : children) {
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.e4.core.di.annotations.Creatable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.jms.model.JTBConnection;
+import org.titou10.jtb.jms.model.JTBSession;
+import org.titou10.jtb.jms.model.JTBSessionClientType;
+import org.titou10.jtb.util.Constants;
+
+/**
+ * Connect several sessions concurrently
+ * 
+ * Each session is connected in its own thread, with a timeout per session that starts when its connection attempt starts. A
+ * session that does not answer in time is reported as failed without blocking the others. The connection attempt itself can not
+ * always be interrupted (it depends on the Q Manager client library): in this case it continues in background and the session
+ * may end up connected later
+ * 
+ * @author Denis Forveille
+ *
+ */
+@Creatable
+@Singleton
+public class SessionsConnectManager {
+
+   private static final Logger log             = LoggerFactory.getLogger(SessionsConnectManager.class);
+
+   private static final int    MAX_PARALLELISM = 8;
+   private static final long   POLL_DELAY_MS   = 100;
+
+   @Inject
+   private JTBPreferenceStore  ps;
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   /**
+    * Connect the sessions given in parameter, concurrently
+    * 
+    * @return the sessions that failed to connect with the cause of the failure. A TimeoutException is associated to the sessions
+    *         that did not connect in time
+    */
+   public Map<JTBSession, Throwable> connect(List<JTBSession> jtbSessions,
+                                             JTBSessionClientType jtbSessionClientType,
+                                             IProgressMonitor monitor) {
+      log.debug("connect {} sessions for {}", jtbSessions.size(), jtbSessionClientType);
+
+      Map<JTBSession, Throwable> failures = new LinkedHashMap<>();
+
+      // Only consider sessions not already connected
+      List<JTBSession> toConnect = new ArrayList<>(jtbSessions.size());
+      for (JTBSession jtbSession : jtbSessions) {
+         if (!jtbSession.getJTBConnection(jtbSessionClientType).isConnected()) {
+            toConnect.add(jtbSession);
+         }
+      }
+      if (toConnect.isEmpty()) {
+         return failures;
+      }
+
+      long timeoutMs = TimeUnit.SECONDS.toMillis(ps.getInt(Constants.PREF_CONN_CONNECT_TIMEOUT));
+      SubMonitor subMonitor = SubMonitor.convert(monitor == null ? new NullProgressMonitor() : monitor,
+                                                 "Connecting sessions",
+                                                 toConnect.size());
+
+      AtomicInteger threadNumber = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(Math.min(toConnect.size(), MAX_PARALLELISM), r -> {
+         Thread t = new Thread(r, "JTB-Connect-" + threadNumber.incrementAndGet());
+         t.setDaemon(true);
+         return t;
+      });
+
+      try {
+         List<ConnectTask> tasks = new ArrayList<>(toConnect.size());
+         for (JTBSession jtbSession : toConnect) {
+            ConnectTask task = new ConnectTask(jtbSession, jtbSession.getJTBConnection(jtbSessionClientType));
+            task.future = executor.submit(task);
+            tasks.add(task);
+         }
+
+         // Wait for all connection attempts to finish, fail or timeout
+         List<ConnectTask> pending = new ArrayList<>(tasks);
+         while (!pending.isEmpty()) {
+            if (subMonitor.isCanceled()) {
+               for (ConnectTask task : pending) {
+                  task.future.cancel(true);
+                  failures.put(task.jtbSession, new InterruptedException("Connection cancelled"));
+               }
+               break;
+            }
+
+            long now = System.currentTimeMillis();
+            for (ConnectTask task : new ArrayList<>(pending)) {
+               JTBSession jtbSession = task.jtbSession;
+               if (task.future.isDone()) {
+                  try {
+                     task.future.get();
+                     log.debug("Session '{}' connected in {}ms", jtbSession.getName(), task.elapsed(now));
+                  } catch (ExecutionException e) {
+                     log.warn("Session '{}' failed to connect: {}", jtbSession.getName(), e.getCause().getMessage());
+                     failures.put(jtbSession, e.getCause());
+                  } catch (InterruptedException | CancellationException e) {
+                     failures.put(jtbSession, e);
+                  }
+               } else {
+                  if (!task.isTimedOut(now, timeoutMs)) {
+                     continue;
+                  }
+                  log.warn("Session '{}' did not connect within {}s", jtbSession.getName(), timeoutMs / 1000);
+                  task.future.cancel(true);
+                  failures.put(jtbSession,
+                               new TimeoutException("Session '" + jtbSession.getName() + "' did not connect within "
+                                                    + (timeoutMs / 1000) + " seconds"));
+               }
+               pending.remove(task);
+               subMonitor.worked(1);
+            }
+
+            if (!pending.isEmpty()) {
+               try {
+                  Thread.sleep(POLL_DELAY_MS);
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  subMonitor.setCanceled(true);
+               }
+            }
+         }
+      } finally {
+         // Do not wait for the connections that timed out
+         executor.shutdownNow();
+      }
+
+      log.info("{} sessions connected, {} failures", toConnect.size() - failures.size(), failures.size());
+      return failures;
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private static final class ConnectTask implements Callable<Void> {
+      private final JTBSession    jtbSession;
+      private final JTBConnection jtbConnection;
+      private final AtomicLong    startTime = new AtomicLong();
+      private Future<Void>        future;
+
+      private ConnectTask(JTBSession jtbSession, JTBConnection jtbConnection) {
+         this.jtbSession = jtbSession;
+         this.jtbConnection = jtbConnection;
+      }
+
+      @Override
+      public Void call() throws Exception {
+         startTime.set(System.currentTimeMillis());
+         jtbConnection.connect();
+         return null;
+      }
+
+      // The timeout starts when the attempt really starts, not when it is queued
+      private boolean isTimedOut(long now, long timeoutMs) {
+         long start = startTime.get();
+         return (start != 0) && (now - start > timeoutMs);
+      }
+
+      private long elapsed(long now) {
+         return now - startTime.get();
+      }
+   }
+}
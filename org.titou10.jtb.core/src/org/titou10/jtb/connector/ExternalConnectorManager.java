@@ -17,10 +17,14 @@
 package org.titou10.jtb.connector;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.xml.bind.JAXBException;
@@ -35,12 +39,16 @@ import org.titou10.jtb.connector.ex.EmptyMessageException;
 import org.titou10.jtb.connector.ex.ExecutionException;
 import org.titou10.jtb.connector.ex.UnknownDestinationException;
 import org.titou10.jtb.connector.ex.UnknownQueueException;
+import org.titou10.jtb.connector.ex.UnknownScriptException;
+import org.titou10.jtb.connector.ex.UnknownScriptJobException;
 import org.titou10.jtb.connector.ex.UnknownSessionException;
 import org.titou10.jtb.connector.ex.UnknownTemplateException;
 import org.titou10.jtb.connector.transport.Destination;
 import org.titou10.jtb.connector.transport.Destination.Type;
 import org.titou10.jtb.connector.transport.MessageInput;
+import org.titou10.jtb.connector.transport.MessageInput.MessageInputType;
 import org.titou10.jtb.connector.transport.MessageOutput;
+import org.titou10.jtb.connector.transport.ScriptJobOutput;
 import org.titou10.jtb.jms.model.JTBConnection;
 import org.titou10.jtb.jms.model.JTBDestination;
 import org.titou10.jtb.jms.model.JTBMessage;
@@ -50,6 +58,9 @@ import org.titou10.jtb.jms.model.JTBSession;
 import org.titou10.jtb.jms.model.JTBSessionClientType;
 import org.titou10.jtb.jms.model.JTBTopic;
 import org.titou10.jtb.script.ScriptExecutionEngine;
+import org.titou10.jtb.script.ScriptJob;
+import org.titou10.jtb.script.ScriptJobsManager;
+import org.titou10.jtb.script.ScriptValidationException;
 import org.titou10.jtb.template.TemplatesManager;
 import org.titou10.jtb.variable.VariablesManager;
 
@@ -64,6 +75,7 @@ public class ExternalConnectorManager {
    private static final Logger   log         = LoggerFactory.getLogger(ExternalConnectorManager.class);
 
    private static final String   UNSPECIFIED = "<unspecified>";
+   private static final int      BUFFER_SIZE = 64 * 1024;
 
    @Inject
    private ConfigManager         cm;
@@ -80,12 +92,21 @@ public class ExternalConnectorManager {
    @Inject
    private ScriptExecutionEngine scriptExecutionEngine;
 
+   @Inject
+   private ScriptJobsManager     scriptJobsManager;
+
    // -------------------------------
    // Helpers
    // -------------------------------
    public IPreferenceStore getIPreferenceStore() {
       return ps;
    }
+
+   // True when JMSToolBox runs without the workbench (ie no UI, no SWT)
+   public boolean isHeadless() {
+      return cm.isHeadless();
+   }
+
    // ----------------------------
    // Services related to Sessions
    // ----------------------------
@@ -121,6 +142,14 @@ public class ExternalConnectorManager {
                                                                                               UnknownSessionException,
                                                                                               UnknownDestinationException,
                                                                                               UnknownQueueException {
+      return browseMessages(sessionName, queueName, limit, "");
+   }
+
+   public List<MessageOutput> browseMessages(String sessionName,
+                                             String queueName,
+                                             int limit,
+                                             String selector) throws ExecutionException, UnknownSessionException,
+                                                              UnknownDestinationException, UnknownQueueException {
 
       // Get JTBConnection
       JTBConnection jtbConnection = getJTBConnection(sessionName);
@@ -136,7 +165,7 @@ public class ExternalConnectorManager {
       List<MessageOutput> messages = new ArrayList<>();
 
       try {
-         List<JTBMessage> jtbMessages = jtbConnection.browseQueue(jtbQueue, limit, "", "");
+         List<JTBMessage> jtbMessages = jtbConnection.browseQueue(jtbQueue, limit, "", selector == null ? "" : selector);
          for (JTBMessage jtbMessage : jtbMessages) {
             messages.add(new MessageOutput(jtbMessage, null));
          }
@@ -148,6 +177,39 @@ public class ExternalConnectorManager {
 
    }
 
+   // Browse the messages of a queue one at a time, without keeping them in memory. Returns the number of messages browsed
+   // The session and the queue are checked before the first message is passed to the visitor
+   public int browseMessages(String sessionName,
+                             String queueName,
+                             int limit,
+                             String selector,
+                             MessageOutputVisitor visitor) throws ExecutionException, UnknownSessionException,
+                                                           UnknownDestinationException, UnknownQueueException {
+
+      // Get JTBConnection
+      JTBConnection jtbConnection = getJTBConnection(sessionName);
+      try {
+         jtbConnection.connect();
+      } catch (Exception e) {
+         log.error("Exception when browsing messages in queue '{}::{}'", sessionName, queueName, e);
+         throw new ExecutionException(e);
+      }
+
+      JTBQueue jtbQueue = getJTBQueue(jtbConnection, queueName);
+
+      int max = limit == 0 ? Integer.MAX_VALUE : limit;
+      AtomicInteger nbMessages = new AtomicInteger();
+      try {
+         return jtbConnection.browseQueue(jtbQueue, selector == null ? "" : selector, message -> {
+            visitor.visit(new MessageOutput(new JTBMessage(jtbQueue, message), null));
+            return nbMessages.incrementAndGet() < max;
+         });
+      } catch (Exception e) {
+         log.error("Exception when browsing messages in queue '{}::{}'", sessionName, queueName, e);
+         throw new ExecutionException(e);
+      }
+   }
+
    public List<MessageOutput> removeMessages(String sessionName, String queueName, int limit) throws ExecutionException,
                                                                                               UnknownSessionException,
                                                                                               UnknownDestinationException,
@@ -183,6 +245,15 @@ public class ExternalConnectorManager {
                                                                                                   UnknownSessionException,
                                                                                                   UnknownDestinationException,
                                                                                                   EmptyMessageException {
+      postMessage(sessionName, destinationName, messageInput, null);
+   }
+
+   // Post a message whose payload is read from a stream. The payload is written to the message by chunks
+   public void postMessage(String sessionName,
+                           String destinationName,
+                           MessageInput messageInput,
+                           InputStream payload) throws ExecutionException, UnknownSessionException, UnknownDestinationException,
+                                                EmptyMessageException {
       log.debug("postMessage");
 
       if (messageInput == null) {
@@ -191,6 +262,12 @@ public class ExternalConnectorManager {
       if (messageInput.getType() == null) {
          throw new EmptyMessageException();
       }
+      if ((payload != null) && (messageInput.getType() != MessageInputType.TEXT)
+          && (messageInput.getType() != MessageInputType.BYTES)) {
+         // Would be silently dropped
+         throw new IllegalArgumentException("A payload stream is only supported for TEXT and BYTES messages, not for "
+                                            + messageInput.getType() + " messages");
+      }
 
       // Get JTBConnection
       JTBConnection jtbConnection = getJTBConnection(sessionName);
@@ -205,9 +282,24 @@ public class ExternalConnectorManager {
       JTBDestination jtbDestination = getJTBDestination(jtbConnection, destinationName);
 
       try {
+         // Text payload received as a stream
+         if ((payload != null) && (messageInput.getType() == MessageInputType.TEXT)) {
+            messageInput.setPayloadText(new String(payload.readAllBytes(), StandardCharsets.UTF_8));
+         }
+
          // Create a JTBMessage from the MessageInput received
          JTBMessage jtbMessage = messageInput.toJTBMessage(jtbConnection, jtbDestination);
 
+         // Bytes payload received as a stream
+         if ((payload != null) && (messageInput.getType() == MessageInputType.BYTES)) {
+            BytesMessage bm = (BytesMessage) jtbMessage.getJmsMessage();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = payload.read(buffer)) != -1) {
+               bm.writeBytes(buffer, 0, n);
+            }
+         }
+
          // Post Message
          jtbConnection.sendMessage(jtbMessage);
       } catch (Exception e) {
@@ -308,6 +400,42 @@ public class ExternalConnectorManager {
       return scriptExecutionEngine.executeScriptNoUI(scriptName, simulation, nbMessagesMax);
    }
 
+   public ScriptJobOutput submitScript(String scriptName, boolean simulation, int nbMessagesMax) throws UnknownScriptException {
+      log.debug("submitScript scriptName {} simulation? {} nbMessagesMax {}", scriptName, simulation, nbMessagesMax);
+      try {
+         return new ScriptJobOutput(scriptJobsManager.submitScript(scriptName, simulation, nbMessagesMax));
+      } catch (ScriptValidationException e) {
+         throw new UnknownScriptException(scriptName);
+      }
+   }
+
+   public List<ScriptJobOutput> getScriptJobs() {
+      log.debug("getScriptJobs");
+      List<ScriptJobOutput> res = new ArrayList<>();
+      for (ScriptJob scriptJob : scriptJobsManager.getScriptJobs()) {
+         res.add(new ScriptJobOutput(scriptJob));
+      }
+      return res;
+   }
+
+   public ScriptJobOutput getScriptJob(String jobId) throws UnknownScriptJobException {
+      log.debug("getScriptJob jobId {}", jobId);
+      ScriptJob scriptJob = scriptJobsManager.getScriptJob(jobId);
+      if (scriptJob == null) {
+         throw new UnknownScriptJobException(jobId);
+      }
+      return new ScriptJobOutput(scriptJob);
+   }
+
+   public ScriptJobOutput cancelScriptJob(String jobId) throws UnknownScriptJobException {
+      log.debug("cancelScriptJob jobId {}", jobId);
+      ScriptJob scriptJob = scriptJobsManager.cancelScriptJob(jobId);
+      if (scriptJob == null) {
+         throw new UnknownScriptJobException(jobId);
+      }
+      return new ScriptJobOutput(scriptJob);
+   }
+
    // ----------------------------
    // Helpers
    // ----------------------------
@@ -368,4 +496,13 @@ public class ExternalConnectorManager {
          throw new ExecutionException(e);
       }
    }
+
+   // ----------------------------
+   // Browse visitor
+   // ----------------------------
+
+   @FunctionalInterface
+   public interface MessageOutputVisitor {
+      void visit(MessageOutput messageOutput) throws Exception;
+   }
 }
@@ -19,6 +19,7 @@ package org.titou10.jtb.connector.transport;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.MapMessage;
 import javax.jms.Message;
@@ -42,6 +43,7 @@ public class MessageInput {
 
    public enum MessageInputType {
                                  TEXT,
+                                 BYTES,
                                  MAP,
                                  MESSAGE
    }
@@ -60,6 +62,7 @@ public class MessageInput {
    private String              jmsCorrelationID;
    private String              payloadText;
    private Map<String, String> payloadMap;
+   private byte[]              payloadBytesBase64;
    private Map<String, String> properties;
 
    public JTBMessage toJTBMessage(JTBConnection jtbConnection, JTBDestination jtbDestination) throws JMSException {
@@ -93,6 +96,13 @@ public class MessageInput {
             }
             break;
 
+         case BYTES:
+            if (payloadBytesBase64 != null) {
+               BytesMessage bm = (BytesMessage) jmsMessage;
+               bm.writeBytes(payloadBytesBase64);
+            }
+            break;
+
          case MAP:
             if (payloadMap != null) {
                MapMessage mm = (MapMessage) jmsMessage;
@@ -136,6 +146,8 @@ public class MessageInput {
       builder.append(payloadText);
       builder.append(", payloadMap=");
       builder.append(payloadMap);
+      builder.append(", payloadBytesBase64 length=");
+      builder.append(payloadBytesBase64 == null ? null : payloadBytesBase64.length);
       builder.append(", properties=");
       builder.append(properties);
       builder.append("]");
@@ -225,6 +237,14 @@ public class MessageInput {
       this.payloadMap = payloadMap;
    }
 
+   public byte[] getPayloadBytesBase64() {
+      return payloadBytesBase64;
+   }
+
+   public void setPayloadBytesBase64(byte[] payloadBytesBase64) {
+      this.payloadBytesBase64 = payloadBytesBase64;
+   }
+
    public String getReplyTo() {
       return replyTo;
    }
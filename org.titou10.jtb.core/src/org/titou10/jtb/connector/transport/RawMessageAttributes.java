@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.connector.transport;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.titou10.jtb.connector.transport.MessageInput.MessageInputType;
+import org.titou10.jtb.jms.util.JTBDeliveryMode;
+
+/**
+ * Attributes (JMS headers) of a message whose payload is exchanged "raw", ie not embedded in a JSON/XML document, with an External
+ * Connector
+ * 
+ * The attribute names are usable as is as HTTP header names
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class RawMessageAttributes {
+
+   public static final String MESSAGE_TYPE       = "JTB-MessageType";
+
+   public static final String JMS_MESSAGE_ID     = "JMSMessageID";
+   public static final String JMS_TIMESTAMP      = "JMSTimestamp";
+   public static final String JMS_TYPE           = "JMSType";
+   public static final String JMS_CORRELATION_ID = "JMSCorrelationID";
+   public static final String JMS_PRIORITY       = "JMSPriority";
+   public static final String JMS_DELIVERY_MODE  = "JMSDeliveryMode";
+   public static final String JMS_REPLY_TO       = "JMSReplyTo";
+   public static final String JMS_EXPIRATION     = "JMSExpiration";
+   public static final String JMS_DELIVERY_TIME  = "JMSDeliveryTime";
+
+   // Producer side only
+   public static final String JMS_TIME_TO_LIVE   = "JMSTimeToLive";
+   public static final String JMS_DELIVERY_DELAY = "JMSDeliveryDelay";
+
+   private RawMessageAttributes() {
+      // NOP
+   }
+
+   // Attributes of a message read from a destination. Null values are not included
+   public static Map<String, String> fromMessageOutput(MessageOutput messageOutput) {
+      Map<String, String> attributes = new LinkedHashMap<>();
+      put(attributes, MESSAGE_TYPE, messageOutput.getJtbMessageType());
+      put(attributes, JMS_MESSAGE_ID, messageOutput.getJmsMessageID());
+      put(attributes, JMS_TIMESTAMP, messageOutput.getJmsTimestamp());
+      put(attributes, JMS_TYPE, messageOutput.getJmsType());
+      put(attributes, JMS_CORRELATION_ID, messageOutput.getJmsCorrelationID());
+      put(attributes, JMS_PRIORITY, messageOutput.getJmsPriority());
+      put(attributes, JMS_DELIVERY_MODE, messageOutput.getJmsDeliveryMode());
+      put(attributes, JMS_REPLY_TO, messageOutput.getJmsReplyTo());
+      put(attributes, JMS_EXPIRATION, messageOutput.getJmsExpiration());
+      put(attributes, JMS_DELIVERY_TIME, messageOutput.getJmsDeliveryTime());
+      return attributes;
+   }
+
+   // Build a MessageInput from the attributes and properties received with a raw payload. Default type is BYTES
+   public static MessageInput toMessageInput(Map<String, String> attributes, Map<String, String> properties) {
+      MessageInput messageInput = new MessageInput();
+
+      String type = attributes.get(MESSAGE_TYPE);
+      messageInput.setType(type == null ? MessageInputType.BYTES : MessageInputType.valueOf(type.trim().toUpperCase()));
+
+      String deliveryMode = attributes.get(JMS_DELIVERY_MODE);
+      if (deliveryMode != null) {
+         messageInput.setDeliveryMode(JTBDeliveryMode.valueOf(deliveryMode.trim().toUpperCase()));
+      }
+      messageInput.setPriority(toInteger(attributes.get(JMS_PRIORITY)));
+      messageInput.setTimeToLive(toLong(attributes.get(JMS_TIME_TO_LIVE)));
+      messageInput.setDeliveryDelay(toLong(attributes.get(JMS_DELIVERY_DELAY)));
+      messageInput.setReplyTo(attributes.get(JMS_REPLY_TO));
+      messageInput.setJmsType(attributes.get(JMS_TYPE));
+      messageInput.setJmsCorrelationID(attributes.get(JMS_CORRELATION_ID));
+
+      if ((properties != null) && (!properties.isEmpty())) {
+         messageInput.setProperties(properties);
+      }
+
+      return messageInput;
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private static void put(Map<String, String> attributes, String name, Object value) {
+      if (value != null) {
+         attributes.put(name, value.toString());
+      }
+   }
+
+   private static Integer toInteger(String value) {
+      return value == null ? null : Integer.valueOf(value.trim());
+   }
+
+   private static Long toLong(String value) {
+      return value == null ? null : Long.valueOf(value.trim());
+   }
+}
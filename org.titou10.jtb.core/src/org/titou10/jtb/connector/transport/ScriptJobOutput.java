@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.connector.transport;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.titou10.jtb.script.ScriptJob;
+import org.titou10.jtb.util.Utils;
+
+/**
+ * Status of a script executed asynchronously, exposed to an External Connector
+ * 
+ * @author Denis Forveille
+ *
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement
+public class ScriptJobOutput {
+
+   private String  jobId;
+   private String  scriptName;
+   private Boolean simulation;
+   private Integer nbMessagesMax;
+   private String  status;
+   private Integer nbMessages;
+   private Double  messagesPerSecond;
+   private String  currentStep;
+   private String  submitTimestamp;
+   private String  startTimestamp;
+   private String  endTimestamp;
+   private String  errorMessage;
+
+   // ------------
+   // Constructors
+   // ------------
+   public ScriptJobOutput() {
+   }
+
+   public ScriptJobOutput(ScriptJob scriptJob) {
+      this.jobId = scriptJob.getId();
+      this.scriptName = scriptJob.getScriptName();
+      this.simulation = scriptJob.isSimulation();
+      this.nbMessagesMax = scriptJob.getNbMessagesMax();
+      this.status = scriptJob.getStatus().name();
+      this.nbMessages = scriptJob.getNbMessagePost();
+      this.messagesPerSecond = scriptJob.getRate();
+      this.currentStep = scriptJob.getCurrentStep();
+      this.errorMessage = scriptJob.getErrorMessage();
+
+      this.submitTimestamp = Utils.formatTimestamp(scriptJob.getSubmitTime(), false);
+      if (scriptJob.getStartTime() != 0) {
+         this.startTimestamp = Utils.formatTimestamp(scriptJob.getStartTime(), false);
+      }
+      if (scriptJob.getEndTime() != 0) {
+         this.endTimestamp = Utils.formatTimestamp(scriptJob.getEndTime(), false);
+      }
+   }
+
+   // ------------------------
+   // toString()
+   // ------------------------
+
+   @Override
+   public String toString() {
+      StringBuilder builder = new StringBuilder(256);
+      builder.append("ScriptJobOutput [jobId=");
+      builder.append(jobId);
+      builder.append(", scriptName=");
+      builder.append(scriptName);
+      builder.append(", status=");
+      builder.append(status);
+      builder.append(", nbMessages=");
+      builder.append(nbMessages);
+      builder.append(", currentStep=");
+      builder.append(currentStep);
+      builder.append("]");
+      return builder.toString();
+   }
+
+   // ------------------------
+   // Standard Getters/Setters
+   // ------------------------
+
+   public String getJobId() {
+      return jobId;
+   }
+
+   public void setJobId(String jobId) {
+      this.jobId = jobId;
+   }
+
+   public String getScriptName() {
+      return scriptName;
+   }
+
+   public void setScriptName(String scriptName) {
+      this.scriptName = scriptName;
+   }
+
+   public Boolean getSimulation() {
+      return simulation;
+   }
+
+   public void setSimulation(Boolean simulation) {
+      this.simulation = simulation;
+   }
+
+   public Integer getNbMessagesMax() {
+      return nbMessagesMax;
+   }
+
+   public void setNbMessagesMax(Integer nbMessagesMax) {
+      this.nbMessagesMax = nbMessagesMax;
+   }
+
+   public String getStatus() {
+      return status;
+   }
+
+   public void setStatus(String status) {
+      this.status = status;
+   }
+
+   public Integer getNbMessages() {
+      return nbMessages;
+   }
+
+   public void setNbMessages(Integer nbMessages) {
+      this.nbMessages = nbMessages;
+   }
+
+   public Double getMessagesPerSecond() {
+      return messagesPerSecond;
+   }
+
+   public void setMessagesPerSecond(Double messagesPerSecond) {
+      this.messagesPerSecond = messagesPerSecond;
+   }
+
+   public String getCurrentStep() {
+      return currentStep;
+   }
+
+   public void setCurrentStep(String currentStep) {
+      this.currentStep = currentStep;
+   }
+
+   public String getSubmitTimestamp() {
+      return submitTimestamp;
+   }
+
+   public void setSubmitTimestamp(String submitTimestamp) {
+      this.submitTimestamp = submitTimestamp;
+   }
+
+   public String getStartTimestamp() {
+      return startTimestamp;
+   }
+
+   public void setStartTimestamp(String startTimestamp) {
+      this.startTimestamp = startTimestamp;
+   }
+
+   public String getEndTimestamp() {
+      return endTimestamp;
+   }
+
+   public void setEndTimestamp(String endTimestamp) {
+      this.endTimestamp = endTimestamp;
+   }
+
+   public String getErrorMessage() {
+      return errorMessage;
+   }
+
+   public void setErrorMessage(String errorMessage) {
+      this.errorMessage = errorMessage;
+   }
+
+}
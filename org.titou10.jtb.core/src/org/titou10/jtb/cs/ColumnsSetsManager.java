@@ -17,10 +17,8 @@
 package org.titou10.jtb.cs;
 
 import java.io.ByteArrayInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -39,7 +37,6 @@ import javax.jms.MapMessage;
 import javax.jms.Message;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 
 import org.eclipse.core.resources.IFile;
@@ -47,6 +44,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.e4.core.di.annotations.Creatable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.titou10.jtb.config.ConfigFileWriter;
 import org.titou10.jtb.config.ConfigManager;
 import org.titou10.jtb.config.JTBPreferenceStore;
 import org.titou10.jtb.config.gen.SessionDef;
@@ -92,6 +90,7 @@ public class ColumnsSetsManager {
    private JAXBContext                       jcColumnsSets;
    private IFile                             columnsSetsIFile;
    private ColumnsSets                       columnsSetsDef;
+   private ConfigFileWriter                  columnsSetsFileWriter;
 
    private List<ColumnsSet>                  columnsSets;
 
@@ -115,6 +114,10 @@ public class ColumnsSetsManager {
          }
       }
       this.columnsSetsDef = parseConfigFile(this.columnsSetsIFile.getContents());
+      columnsSetsFileWriter = new ConfigFileWriter(Constants.JTB_COLUMNSSETS_CONFIG_FILE_NAME,
+                                                   columnsSetsIFile,
+                                                   jcColumnsSets,
+                                                   () -> columnsSetsDef);
 
       // Build list of Columns Sets
       reloadConfig();
@@ -126,7 +129,7 @@ public class ColumnsSetsManager {
    // Columns Sets
    // ------------
 
-   public void importConfig(InputStream is) throws JAXBException, CoreException, FileNotFoundException {
+   public void importConfig(InputStream is) throws JAXBException {
       log.debug("importConfig");
 
       ColumnsSets newCS = parseConfigFile(is);
@@ -155,7 +158,7 @@ public class ColumnsSetsManager {
       reloadConfig();
    }
 
-   public void saveConfig() throws JAXBException, CoreException {
+   public void saveConfig() {
       log.debug("saveColumnsSet");
 
       columnsSetsDef.getColumnsSet().clear();
@@ -406,25 +409,9 @@ public class ColumnsSetsManager {
       return (ColumnsSets) u.unmarshal(is);
    }
 
-   // Write config File
-   private void writeConfigFile() throws JAXBException, CoreException {
-      log.info("Writing ColumnsSets file '{}'", Constants.JTB_COLUMNSSETS_CONFIG_FILE_NAME);
-
-      Marshaller m = jcColumnsSets.createMarshaller();
-      m.setProperty(Marshaller.JAXB_ENCODING, ENC);
-      m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
-      StringWriter sw = new StringWriter(2048);
-      m.marshal(columnsSetsDef, sw);
-
-      // TODO Add the logic to temporarily save the previous file in case of crash while saving
-
-      try (InputStream is = new ByteArrayInputStream(sw.toString().getBytes(ENC))) {
-         columnsSetsIFile.setContents(is, false, false, null);
-      } catch (IOException e) {
-         log.error("IOException", e);
-         return;
-      }
+   // Write config File, in background
+   private void writeConfigFile() {
+      columnsSetsFileWriter.requestWrite();
    }
 
    public final static class ColumnsSetsComparator implements Comparator<ColumnsSet> {
@@ -23,9 +23,7 @@ import java.util.Map.Entry;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.xml.bind.JAXBException;
 
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.e4.core.di.annotations.CanExecute;
 import org.eclipse.e4.core.di.annotations.Execute;
 import org.eclipse.e4.core.di.annotations.Optional;
@@ -41,7 +39,6 @@ import org.titou10.jtb.cs.gen.ColumnKind;
 import org.titou10.jtb.cs.gen.ColumnsSet;
 import org.titou10.jtb.cs.gen.UserPropertyOrigin;
 import org.titou10.jtb.cs.gen.UserPropertyType;
-import org.titou10.jtb.ui.JTBStatusReporter;
 import org.titou10.jtb.util.Constants;
 import org.titou10.jtb.util.Utils;
 
@@ -61,9 +58,6 @@ public class ColumnsSetsAddPropertyHandler {
    @Inject
    private ColumnsSetsManager  csManager;
 
-   @Inject
-   private JTBStatusReporter   jtbStatusReporter;
-
    @Execute
    public void execute(@Named(IServiceConstants.ACTIVE_SELECTION) @Optional List<Map.Entry<?, Object>> selection,
                        @Named(Constants.CURRENT_COLUMNSSET) ColumnsSet columnsSet) {
@@ -109,12 +103,7 @@ public class ColumnsSetsAddPropertyHandler {
       }
 
       // Save CS config
-      try {
-         csManager.saveConfig();
-      } catch (JAXBException | CoreException e1) {
-         jtbStatusReporter.showError("A problem occurred while saving the columns set configuration file", e1, "");
-         return;
-      }
+      csManager.saveConfig();
 
       // Tell the Message Browser to rebuild the view
       eventBroker.send(Constants.EVENT_REBUILD_VIEW_NEW_CS, "");
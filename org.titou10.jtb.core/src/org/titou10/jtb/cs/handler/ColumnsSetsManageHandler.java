@@ -17,9 +17,7 @@
 package org.titou10.jtb.cs.handler;
 
 import javax.inject.Inject;
-import javax.xml.bind.JAXBException;
 
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.e4.core.di.annotations.Execute;
 import org.eclipse.jface.window.Window;
 import org.eclipse.swt.widgets.Shell;
@@ -27,7 +25,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.cs.ColumnsSetsManager;
 import org.titou10.jtb.cs.dialog.ColumnsSetsManagerDialog;
-import org.titou10.jtb.ui.JTBStatusReporter;
 
 /**
  * Manage the ColumnsSets
@@ -41,9 +38,6 @@ public class ColumnsSetsManageHandler {
    @Inject
    private ColumnsSetsManager  csManager;
 
-   @Inject
-   private JTBStatusReporter   jtbStatusReporter;
-
    @Execute
    public void execute(Shell shell) {
       log.debug("execute");
@@ -55,12 +49,7 @@ public class ColumnsSetsManageHandler {
          return;
       }
 
-      try {
-         csManager.saveConfig();
-      } catch (CoreException | JAXBException e) {
-         jtbStatusReporter.showError("Save unsuccessful", e, "");
-         return;
-      }
+      csManager.saveConfig();
    }
 
 }
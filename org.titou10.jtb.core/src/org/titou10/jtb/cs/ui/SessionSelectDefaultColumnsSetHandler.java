@@ -69,11 +69,7 @@ public class SessionSelectDefaultColumnsSetHandler {
          }
 
          // Save state in config
-         try {
-            cm.writeConfig();
-         } catch (Exception e) {
-            jtbStatusReporter.showError("Problem while saving default columns set", e, jtbSession.getName());
-         }
+         cm.writeConfig();
       } else {
          // Set the default at the destination Level
          try {
@@ -87,6 +87,7 @@ import org.titou10.jtb.ui.hex.HexViewer;
 import org.titou10.jtb.ui.hex.IDataProvider;
 import org.titou10.jtb.util.Constants;
 import org.titou10.jtb.util.FormatUtils;
+import org.titou10.jtb.util.PrettyPrinter;
 import org.titou10.jtb.util.Utils;
 import org.titou10.jtb.variable.VariablesManager;
 import org.titou10.jtb.variable.dialog.VariableContentAdapter;
@@ -418,7 +419,20 @@ public abstract class MessageDialogAbstract extends Dialog {
       btnFormatXML.setFont(boldFont);
       btnFormatXML.setToolTipText("Format as XML");
       btnFormatXML.addSelectionListener(SelectionListener.widgetSelectedAdapter(e -> {
-         txtPayload.setText(FormatUtils.xmlPrettyFormat(ps, txtPayload.getText(), true));
+         // The formatted text replaces the payload only if it holds exactly the same xml content
+         String payload = txtPayload.getText();
+         String formatted = FormatUtils.xmlPrettyFormat(ps, payload, true);
+         if (formatted.equals(payload)) {
+            return;
+         }
+         if (!PrettyPrinter.isSameXml(payload, formatted)) {
+            MessageDialog.openWarning(getShell(),
+                                      "Format as XML",
+                                      "The payload can not be formatted without changing its content (eg text mixed with tags)."
+                                                + " It is kept as is");
+            return;
+         }
+         txtPayload.setText(formatted);
       }));
 
       btnFormatJSON = new Button(cFormat, SWT.CENTER | SWT.NO_FOCUS);
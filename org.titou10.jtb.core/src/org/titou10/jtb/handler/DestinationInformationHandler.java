@@ -19,7 +19,6 @@ package org.titou10.jtb.handler;
 import java.util.Map;
 
 import javax.inject.Named;
-import javax.jms.Connection;
 
 import org.eclipse.e4.core.di.annotations.CanExecute;
 import org.eclipse.e4.core.di.annotations.Execute;
@@ -31,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.dialog.DestinationInformationDialog;
 import org.titou10.jtb.jms.model.JTBDestination;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.ui.navigator.NodeAbstract;
 import org.titou10.jtb.ui.navigator.NodeJTBQueue;
@@ -53,14 +53,14 @@ public class DestinationInformationHandler {
 
       JTBDestination jtbDestination = (JTBDestination) nodeAbstract.getBusinessObject();
       QManager qm = jtbDestination.getJtbConnection().getQm();
-      Connection jmsConnection = jtbDestination.getJtbConnection().getJmsConnection();
+      ConnectionContext connectionContext = jtbDestination.getJtbConnection().getConnectionContext();
       String destinationName = jtbDestination.getName();
 
       Map<String, Object> destinationInformation;
       if (jtbDestination.isJTBQueue()) {
-         destinationInformation = qm.getQueueInformation(jmsConnection, destinationName);
+         destinationInformation = qm.getQueueInformation(connectionContext, destinationName);
       } else {
-         destinationInformation = qm.getTopicInformation(jmsConnection, destinationName);
+         destinationInformation = qm.getTopicInformation(connectionContext, destinationName);
       }
 
       DestinationInformationDialog dialog = new DestinationInformationDialog(shell, jtbDestination, destinationInformation);
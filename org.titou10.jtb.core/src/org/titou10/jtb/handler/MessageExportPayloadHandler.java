@@ -16,6 +16,8 @@
  */
 package org.titou10.jtb.handler;
 
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -30,9 +32,12 @@ import org.eclipse.e4.core.di.annotations.Execute;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.ui.model.application.ui.menu.MMenuItem;
 import org.eclipse.e4.ui.services.IServiceConstants;
+import org.eclipse.jface.window.Window;
 import org.eclipse.swt.widgets.Shell;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.titou10.jtb.ie.PayloadsExportJob;
+import org.titou10.jtb.ie.dialog.PayloadsExportDialog;
 import org.titou10.jtb.jms.model.JTBDestination;
 import org.titou10.jtb.jms.model.JTBMessage;
 import org.titou10.jtb.jms.model.JTBMessageTemplate;
@@ -57,6 +62,25 @@ public class MessageExportPayloadHandler {
    public void execute(Shell shell, @Named(IServiceConstants.ACTIVE_SELECTION) @Optional List<JTBMessage> selection) {
       log.debug("execute");
 
+      // More than one message: export all the payloads at once in background
+      if (selection.size() > 1) {
+         PayloadsExportDialog dialog = new PayloadsExportDialog(shell, selection.size() + " messages selected");
+         if (dialog.open() != Window.OK) {
+            return;
+         }
+
+         PayloadsExportJob job = new PayloadsExportJob(jtbStatusReporter,
+                                                       dialog.getTargetType(),
+                                                       Paths.get(dialog.getTargetName()),
+                                                       dialog.getFileNamePrefix(),
+                                                       dialog.isUseCorrelationID(),
+                                                       dialog.isWithHeaders());
+         job.setJtbMessages(new ArrayList<>(selection));
+         job.setUser(true);
+         job.schedule();
+         return;
+      }
+
       // Show the "save as" dialog
       try {
          for (JTBMessage jtbMessage : selection) {
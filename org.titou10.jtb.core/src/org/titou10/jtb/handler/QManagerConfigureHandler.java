@@ -33,7 +33,6 @@ import org.titou10.jtb.config.ConfigManager;
 import org.titou10.jtb.config.MetaQManager;
 import org.titou10.jtb.config.gen.QManagerDef;
 import org.titou10.jtb.dialog.QManagerConfigurationDialog;
-import org.titou10.jtb.ui.JTBStatusReporter;
 
 /**
  * Configure a Queue Manager
@@ -48,9 +47,6 @@ public class QManagerConfigureHandler {
    @Inject
    private ConfigManager       cm;
 
-   @Inject
-   private JTBStatusReporter   jtbStatusReporter;
-
    @Execute
    public void execute(Shell shell, IWorkbench workbench, @Named(IServiceConstants.ACTIVE_SELECTION) MetaQManager metaQManager) {
       log.debug("execute");
@@ -87,17 +83,12 @@ public class QManagerConfigureHandler {
       }
 
       // Save Configuration
-      try {
-         boolean res = cm.configurationSave(metaQManager, newJarsLIst);
-         if (res) {
-            MessageDialog.openWarning(shell,
-                                      "Restart Warning",
-                                      "The configuration has been successfully changed. \nThe application will now restart.");
-            workbench.restart();
-         }
-      } catch (Exception e) {
-         jtbStatusReporter.showError("Saving unsuccessful", e, "");
-         return;
+      boolean res = cm.configurationSave(metaQManager, newJarsLIst);
+      if (res) {
+         MessageDialog.openWarning(shell,
+                                   "Restart Warning",
+                                   "The configuration has been successfully changed. \nThe application will now restart.");
+         workbench.restart();
       }
 
    }
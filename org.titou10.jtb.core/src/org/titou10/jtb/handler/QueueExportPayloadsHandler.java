@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.handler;
+
+import java.nio.file.Paths;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.eclipse.e4.core.di.annotations.CanExecute;
+import org.eclipse.e4.core.di.annotations.Execute;
+import org.eclipse.e4.core.di.annotations.Optional;
+import org.eclipse.e4.ui.model.application.ui.menu.MMenuItem;
+import org.eclipse.e4.ui.services.IServiceConstants;
+import org.eclipse.jface.window.Window;
+import org.eclipse.swt.widgets.Shell;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.ie.PayloadsExportJob;
+import org.titou10.jtb.ie.dialog.PayloadsExportDialog;
+import org.titou10.jtb.jms.model.JTBDestination;
+import org.titou10.jtb.jms.model.JTBObject;
+import org.titou10.jtb.jms.model.JTBQueue;
+import org.titou10.jtb.ui.JTBStatusReporter;
+import org.titou10.jtb.ui.navigator.NodeJTBQueue;
+import org.titou10.jtb.util.Constants;
+import org.titou10.jtb.util.Utils;
+
+/**
+ * Manage the "Export all Payloads" command: export the payloads of all the messages of a Queue in background
+ * 
+ * @author Denis Forveille
+ * 
+ */
+public class QueueExportPayloadsHandler {
+
+   private static final Logger log = LoggerFactory.getLogger(QueueExportPayloadsHandler.class);
+
+   @Inject
+   private JTBStatusReporter   jtbStatusReporter;
+
+   // This can be called in two contexts depending on parameter "queueOrMessage":
+   // - right click on a session = QUEUE : -> use selection
+   // - right click on message browser = MESSAGE : -> use tabJTBQueue
+
+   @Execute
+   public void execute(Shell shell,
+                       @Named(Constants.COMMAND_CONTEXT_PARAM) String context,
+                       @Named(IServiceConstants.ACTIVE_SELECTION) @Optional JTBObject selection,
+                       @Named(Constants.CURRENT_TAB_JTBDESTINATION) @Optional JTBDestination jtbDestination) {
+      log.debug("execute");
+
+      JTBQueue jtbQueue;
+      switch (context) {
+         case Constants.COMMAND_CONTEXT_PARAM_QUEUE:
+            NodeJTBQueue nodeJTBQueue = (NodeJTBQueue) selection;
+            jtbQueue = (JTBQueue) nodeJTBQueue.getBusinessObject();
+            break;
+         case Constants.COMMAND_CONTEXT_PARAM_MESSAGE:
+            jtbQueue = jtbDestination.getAsJTBQueue();
+            break;
+         default:
+            log.error("Invalid value : {}", context);
+            return;
+      }
+
+      PayloadsExportDialog dialog = new PayloadsExportDialog(shell, "All the messages of queue '" + jtbQueue.getName() + "'");
+      if (dialog.open() != Window.OK) {
+         return;
+      }
+
+      PayloadsExportJob job = new PayloadsExportJob(jtbStatusReporter,
+                                                    dialog.getTargetType(),
+                                                    Paths.get(dialog.getTargetName()),
+                                                    dialog.getFileNamePrefix(),
+                                                    dialog.isUseCorrelationID(),
+                                                    dialog.isWithHeaders());
+      job.setJtbQueue(jtbQueue);
+      job.setUser(true);
+      job.schedule();
+   }
+
+   @CanExecute
+   public boolean canExecute(@Named(Constants.COMMAND_CONTEXT_PARAM) String context,
+                             @Named(IServiceConstants.ACTIVE_SELECTION) @Optional JTBObject selection,
+                             @Named(Constants.CURRENT_TAB_JTBDESTINATION) @Optional JTBDestination jtbDestination,
+                             @Optional MMenuItem menuItem) {
+
+      switch (context) {
+         case Constants.COMMAND_CONTEXT_PARAM_QUEUE:
+            // Show menu on Queues that can be browsed only
+            if (selection instanceof NodeJTBQueue) {
+               NodeJTBQueue nodeJTBQueue = (NodeJTBQueue) selection;
+               JTBQueue jtbQueue = (JTBQueue) nodeJTBQueue.getBusinessObject();
+               if (jtbQueue.isBrowsable()) {
+                  return Utils.enableMenu(menuItem);
+               }
+            }
+            return Utils.disableMenu(menuItem);
+
+         case Constants.COMMAND_CONTEXT_PARAM_MESSAGE:
+            // Show menu on Queues that can be browsed only
+            if ((jtbDestination != null) && (jtbDestination.isJTBQueue())) {
+               if (jtbDestination.getAsJTBQueue().isBrowsable()) {
+                  return Utils.enableMenu(menuItem);
+               }
+            }
+            return Utils.disableMenu(menuItem);
+
+         default:
+            log.error("Invalid value : {}", context);
+            return Utils.disableMenu(menuItem);
+      }
+   }
+}
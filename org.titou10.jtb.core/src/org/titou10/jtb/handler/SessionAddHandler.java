@@ -34,7 +34,6 @@ import org.titou10.jtb.config.gen.PropertyKind;
 import org.titou10.jtb.config.gen.SessionDef;
 import org.titou10.jtb.dialog.SessionAddOrEditDialog;
 import org.titou10.jtb.sessiontype.SessionTypeManager;
-import org.titou10.jtb.ui.JTBStatusReporter;
 import org.titou10.jtb.ui.UIProperty;
 import org.titou10.jtb.util.Constants;
 
@@ -51,9 +50,6 @@ public class SessionAddHandler {
    @Inject
    private IEventBroker        eventBroker;
 
-   @Inject
-   private JTBStatusReporter   jtbStatusReporter;
-
    @Inject
    private ConfigManager       cm;
 
@@ -105,18 +101,12 @@ public class SessionAddHandler {
          newSessionDef.setProperties(x);
       }
 
-      try {
-         cm.sessionAdd(dialog.getQueueManagerSelected(), newSessionDef);
-
-         // Refresh Session Browser asynchronously
-         eventBroker.post(Constants.EVENT_REFRESH_SESSION_BROWSER, true);
+      cm.sessionAdd(dialog.getQueueManagerSelected(), newSessionDef);
 
-         // Confirmation message
-         MessageDialog.openInformation(shell, "Success", "The session has been successfully added.");
+      // Refresh Session Browser asynchronously
+      eventBroker.post(Constants.EVENT_REFRESH_SESSION_BROWSER, true);
 
-      } catch (Exception e) {
-         jtbStatusReporter.showError("Session Add or Update unsuccessful", e, newSessionDef.getName());
-         return;
-      }
+      // Confirmation message
+      MessageDialog.openInformation(shell, "Success", "The session has been successfully added.");
    }
 }
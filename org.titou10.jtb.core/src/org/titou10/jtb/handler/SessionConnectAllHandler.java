@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.e4.core.di.annotations.CanExecute;
+import org.eclipse.e4.core.di.annotations.Execute;
+import org.eclipse.e4.core.di.annotations.Optional;
+import org.eclipse.e4.core.services.events.IEventBroker;
+import org.eclipse.e4.ui.model.application.ui.menu.MMenuItem;
+import org.eclipse.e4.ui.services.IServiceConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.config.SessionsConnectManager;
+import org.titou10.jtb.jms.model.JTBSession;
+import org.titou10.jtb.jms.model.JTBSessionClientType;
+import org.titou10.jtb.ui.JTBStatusReporter;
+import org.titou10.jtb.ui.navigator.NodeAbstract;
+import org.titou10.jtb.ui.navigator.NodeFolder;
+import org.titou10.jtb.ui.navigator.NodeJTBSession;
+import org.titou10.jtb.util.Constants;
+import org.titou10.jtb.util.Utils;
+
+/**
+ * Manage the "Session Connect All" command: connect concurrently all the sessions of a folder
+ * 
+ * Sessions that prompt for credentials are not connected by this command
+ * 
+ * @author Denis Forveille
+ * 
+ */
+public class SessionConnectAllHandler {
+
+   private static final Logger    log = LoggerFactory.getLogger(SessionConnectAllHandler.class);
+
+   @Inject
+   private IEventBroker           eventBroker;
+
+   @Inject
+   private JTBStatusReporter      jtbStatusReporter;
+
+   @Inject
+   private SessionsConnectManager sessionsConnectManager;
+
+   @Execute
+   public void execute(final @Named(IServiceConstants.ACTIVE_SELECTION) @Optional NodeFolder<?> nodeFolder) {
+      log.debug("execute. Selection : {}", nodeFolder);
+
+      final List<NodeJTBSession> nodes = getNodesToConnect(nodeFolder);
+      if (nodes.isEmpty()) {
+         return;
+      }
+
+      final List<JTBSession> jtbSessions = new ArrayList<>(nodes.size());
+      for (NodeJTBSession nodeJTBSession : nodes) {
+         jtbSessions.add((JTBSession) nodeJTBSession.getBusinessObject());
+      }
+
+      Job job = new Job("Connecting sessions of folder '" + nodeFolder.getName() + "'") {
+
+         @Override
+         protected IStatus run(IProgressMonitor monitor) {
+            Map<JTBSession, Throwable> failures = sessionsConnectManager.connect(jtbSessions, JTBSessionClientType.GUI, monitor);
+
+            // Refresh Session Browser for the sessions connected
+            for (NodeJTBSession nodeJTBSession : nodes) {
+               if (!failures.containsKey(nodeJTBSession.getBusinessObject())) {
+                  eventBroker.post(Constants.EVENT_REFRESH_SESSION_BROWSER, nodeJTBSession);
+               }
+            }
+
+            if (!failures.isEmpty()) {
+               StringBuilder sb = new StringBuilder(256);
+               for (Map.Entry<JTBSession, Throwable> e : failures.entrySet()) {
+                  sb.append("\n - ").append(e.getKey().getName()).append(": ").append(Utils.getCause(e.getValue()).getMessage());
+               }
+               jtbStatusReporter.showError(failures.size() + " session(s) could not be connected:" + sb.toString(), null);
+            }
+
+            return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+         }
+
+         @Override
+         public boolean belongsTo(Object family) {
+            return Constants.JTB_JOBS_FAMILY.equals(family);
+         }
+      };
+      job.setUser(true);
+      job.schedule();
+   }
+
+   @CanExecute
+   public boolean canExecute(@Named(IServiceConstants.ACTIVE_SELECTION) @Optional Object selection, @Optional MMenuItem menuItem) {
+
+      // Show menu on Folders of Sessions with at least one session to connect
+      if (selection instanceof NodeFolder) {
+         if (!getNodesToConnect((NodeFolder<?>) selection).isEmpty()) {
+            return Utils.enableMenu(menuItem);
+         }
+      }
+
+      return Utils.disableMenu(menuItem);
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private List<NodeJTBSession> getNodesToConnect(NodeFolder<?> nodeFolder) {
+      List<NodeJTBSession> res = new ArrayList<>();
+      if (nodeFolder == null) {
+         return res;
+      }
+      for (NodeAbstract nodeAbstract : nodeFolder.getChildren()) {
+         if (!(nodeAbstract instanceof NodeJTBSession)) {
+            continue;
+         }
+         NodeJTBSession nodeJTBSession = (NodeJTBSession) nodeAbstract;
+         JTBSession jtbSession = (JTBSession) nodeJTBSession.getBusinessObject();
+         if (!jtbSession.isConnectable()) {
+            continue;
+         }
+         if (Utils.isTrue(jtbSession.getSessionDef().isPromptForCredentials())) {
+            continue;
+         }
+         if (jtbSession.getJTBConnection(JTBSessionClientType.GUI).isConnected()) {
+            continue;
+         }
+         res.add(nodeJTBSession);
+      }
+      return res;
+   }
+}
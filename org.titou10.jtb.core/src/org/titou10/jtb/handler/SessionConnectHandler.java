@@ -16,13 +16,10 @@
  */
 package org.titou10.jtb.handler;
 
-import java.io.IOException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.xml.bind.JAXBException;
 
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.e4.core.di.annotations.CanExecute;
 import org.eclipse.e4.core.di.annotations.Execute;
 import org.eclipse.e4.core.di.annotations.Optional;
@@ -88,18 +85,13 @@ public class SessionConnectHandler {
          sessionDef.setActivePassword(dialog.getPassword());
 
          // Handle remember actions
-         try {
-            if (dialog.isRememberUserid()) {
-               sessionDef.setUserid(dialog.getUserID());
-               cm.writeConfig();
-            }
-            if (dialog.isRememberPassword()) {
-               sessionDef.setPassword(dialog.getPassword());
-               cm.writeConfig();
-            }
-         } catch (JAXBException | CoreException | IOException e) {
-            jtbStatusReporter.showError("Exception when writing configuration file", Utils.getCause(e), jtbSession.getName());
-            return;
+         if (dialog.isRememberUserid()) {
+            sessionDef.setUserid(dialog.getUserID());
+            cm.writeConfig();
+         }
+         if (dialog.isRememberPassword()) {
+            sessionDef.setPassword(dialog.getPassword());
+            cm.writeConfig();
          }
       }
 
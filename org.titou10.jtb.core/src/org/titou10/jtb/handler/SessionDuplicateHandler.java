@@ -33,7 +33,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.ConfigManager;
 import org.titou10.jtb.jms.model.JTBSession;
-import org.titou10.jtb.ui.JTBStatusReporter;
 import org.titou10.jtb.ui.navigator.NodeJTBSession;
 import org.titou10.jtb.util.Constants;
 import org.titou10.jtb.util.Utils;
@@ -51,9 +50,6 @@ public class SessionDuplicateHandler {
    @Inject
    private IEventBroker        eventBroker;
 
-   @Inject
-   private JTBStatusReporter   jtbStatusReporter;
-
    @Inject
    private ConfigManager       cm;
 
@@ -72,19 +68,13 @@ public class SessionDuplicateHandler {
          return;
       }
 
-      try {
-         cm.sessionDuplicate(jtbSession, newName);
-
-         // Refresh Session Browser asynchronously
-         eventBroker.post(Constants.EVENT_REFRESH_SESSION_BROWSER, true);
+      cm.sessionDuplicate(jtbSession, newName);
 
-         // Confirmation message
-         MessageDialog.openInformation(shell, "Success", "The session has been successfully duplicated.");
+      // Refresh Session Browser asynchronously
+      eventBroker.post(Constants.EVENT_REFRESH_SESSION_BROWSER, true);
 
-      } catch (Exception e) {
-         jtbStatusReporter.showError("Problem when duplicating Session", e, "An error occurred when duplicating the session");
-         return;
-      }
+      // Confirmation message
+      MessageDialog.openInformation(shell, "Success", "The session has been successfully duplicated.");
    }
 
    @CanExecute
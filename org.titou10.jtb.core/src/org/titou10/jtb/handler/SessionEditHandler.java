@@ -41,7 +41,6 @@ import org.titou10.jtb.config.gen.SessionDef;
 import org.titou10.jtb.dialog.SessionAddOrEditDialog;
 import org.titou10.jtb.jms.model.JTBSession;
 import org.titou10.jtb.sessiontype.SessionTypeManager;
-import org.titou10.jtb.ui.JTBStatusReporter;
 import org.titou10.jtb.ui.UIProperty;
 import org.titou10.jtb.ui.navigator.NodeJTBSession;
 import org.titou10.jtb.util.Constants;
@@ -60,9 +59,6 @@ public class SessionEditHandler {
    @Inject
    private IEventBroker        eventBroker;
 
-   @Inject
-   private JTBStatusReporter   jtbStatusReporter;
-
    @Inject
    private ConfigManager       cm;
 
@@ -134,20 +130,15 @@ public class SessionEditHandler {
          sessionDef.setProperties(x);
       }
 
-      try {
-         cm.writeConfig();
+      cm.writeConfig();
 
-         // Refresh Session Browser asynchronously
-         eventBroker.post(Constants.EVENT_REFRESH_SESSION_BROWSER, true);
+      // Refresh Session Browser asynchronously
+      eventBroker.post(Constants.EVENT_REFRESH_SESSION_BROWSER, true);
 
-         // Refresh Content partsasynchronously
-         eventBroker.post(Constants.EVENT_REFRESH_BACKGROUND_COLOR, "useless");
+      // Refresh Content partsasynchronously
+      eventBroker.post(Constants.EVENT_REFRESH_BACKGROUND_COLOR, "useless");
 
-         MessageDialog.openInformation(shell, "Success", "The session has been successfully updated.");
-      } catch (Exception e) {
-         jtbStatusReporter.showError("Problem while saving session", e, jtbSession.getName());
-         return;
-      }
+      MessageDialog.openInformation(shell, "Success", "The session has been successfully updated.");
    }
 
    @CanExecute
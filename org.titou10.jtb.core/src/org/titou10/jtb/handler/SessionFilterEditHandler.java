@@ -34,7 +34,6 @@ import org.titou10.jtb.config.ConfigManager;
 import org.titou10.jtb.jms.model.JTBConnection;
 import org.titou10.jtb.jms.model.JTBSession;
 import org.titou10.jtb.jms.model.JTBSessionClientType;
-import org.titou10.jtb.ui.JTBStatusReporter;
 import org.titou10.jtb.ui.navigator.NodeJTBSession;
 import org.titou10.jtb.util.Constants;
 import org.titou10.jtb.util.Utils;
@@ -52,9 +51,6 @@ public class SessionFilterEditHandler {
    @Inject
    private IEventBroker        eventBroker;
 
-   @Inject
-   private JTBStatusReporter   jtbStatusReporter;
-
    @Inject
    private ConfigManager       cm;
 
@@ -91,13 +87,7 @@ public class SessionFilterEditHandler {
       jtbConnection.updateFilterData(pattern, apply);
 
       // Save state in config
-      try {
-         cm.sessionFilterApply(jtbSession, pattern, apply);
-
-      } catch (Exception e) {
-         jtbStatusReporter.showError("Problem while saving filter", e, jtbSession.getName());
-         return;
-      }
+      cm.sessionFilterApply(jtbSession, pattern, apply);
 
       // Refresh Session Browser asynchronously
       eventBroker.post(Constants.EVENT_REFRESH_SESSION_BROWSER, true);
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.jms.model.JTBConnection.MessageVisitor;
+import org.titou10.jtb.jms.model.JTBMessage;
+import org.titou10.jtb.jms.model.JTBQueue;
+import org.titou10.jtb.ui.JTBStatusReporter;
+import org.titou10.jtb.util.Constants;
+
+/**
+ * Job that exports the payloads of a list of Messages or of all the Messages of a Queue
+ * 
+ * @author Denis Forveille
+ *
+ */
+public class PayloadsExportJob extends Job {
+
+   private static final Logger           log           = LoggerFactory.getLogger(PayloadsExportJob.class);
+
+   private static final int              PROGRESS_STEP = 100;
+
+   private final JTBStatusReporter       jtbStatusReporter;
+
+   private final PayloadExportTargetType targetType;
+   private final Path                    target;
+   private final String                  fileNamePrefix;
+   private final boolean                 useCorrelationID;
+   private final boolean                 withHeaders;
+
+   private List<JTBMessage>              jtbMessages;
+   private JTBQueue                      jtbQueue;
+
+   private int                           nbMessages;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   public PayloadsExportJob(JTBStatusReporter jtbStatusReporter,
+                            PayloadExportTargetType targetType,
+                            Path target,
+                            String fileNamePrefix,
+                            boolean useCorrelationID,
+                            boolean withHeaders) {
+      super("Export payloads to '" + target + "'");
+      this.jtbStatusReporter = jtbStatusReporter;
+
+      this.targetType = targetType;
+      this.target = target;
+      this.fileNamePrefix = fileNamePrefix;
+      this.useCorrelationID = useCorrelationID;
+      this.withHeaders = withHeaders;
+   }
+
+   // ---------------
+   // Getters/Setters
+   // ---------------
+
+   public void setJtbMessages(List<JTBMessage> jtbMessages) {
+      this.jtbMessages = jtbMessages;
+   }
+
+   public void setJtbQueue(JTBQueue jtbQueue) {
+      this.jtbQueue = jtbQueue;
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   @Override
+   protected IStatus run(IProgressMonitor monitor) {
+      log.debug("Exporting payloads to '{}' ({})", target, targetType);
+
+      monitor.beginTask(getName(), jtbMessages == null ? IProgressMonitor.UNKNOWN : jtbMessages.size());
+
+      PayloadsExporter exporter = null;
+      try {
+         exporter = new PayloadsExporter(targetType, target, fileNamePrefix, useCorrelationID, withHeaders);
+
+         // Messages are read and handed to the writers one at a time
+         final PayloadsExporter payloadsExporter = exporter;
+         MessageVisitor visitor = message -> {
+            if (monitor.isCanceled()) {
+               return false;
+            }
+            payloadsExporter.export(message);
+            monitor.worked(1);
+            if (++nbMessages % PROGRESS_STEP == 0) {
+               monitor.subTask(nbMessages + " messages exported");
+            }
+            return true;
+         };
+
+         if (jtbMessages != null) {
+            for (JTBMessage jtbMessage : jtbMessages) {
+               if (!visitor.visit(jtbMessage.getJmsMessage())) {
+                  break;
+               }
+            }
+         } else {
+            jtbQueue.getJtbConnection().browseQueue(jtbQueue, visitor);
+         }
+
+         if (monitor.isCanceled()) {
+            exporter.abort();
+            return Status.CANCEL_STATUS;
+         }
+
+         int nbExported = exporter.finish();
+         jtbStatusReporter.showInfo(nbExported + " payload(s) exported to '" + target + "'", null);
+
+      } catch (Exception e) {
+         if (exporter != null) {
+            exporter.abort();
+         }
+         jtbStatusReporter.showError("A problem occurred when exporting the payloads", e, target.toString());
+      } finally {
+         monitor.done();
+      }
+
+      return Status.OK_STATUS;
+   }
+
+   @Override
+   protected void canceling() {
+      log.debug("Canceling '{}'", getName());
+      super.canceling();
+   }
+
+   @Override
+   public boolean belongsTo(Object family) {
+      if (family instanceof String) {
+         return Constants.JTB_JOBS_FAMILY.equals(family);
+      }
+      return false;
+   }
+
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.util.Utils;
+
+/**
+ * Export the payloads of Messages, one file per Message, to a directory or to an archive
+ * 
+ * The Messages are passed one by one by the caller, which extracts their payload and hands them to the writers through a bounded
+ * queue: only a few Messages are held in memory at any time whatever the number of Messages exported.<br>
+ * - Directory: files are written in parallel by a pool of writers<br>
+ * - ZIP and TAR.GZ archives: one writer compresses the entries while the caller reads the next Messages
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class PayloadsExporter {
+
+   private static final Logger              log            = LoggerFactory.getLogger(PayloadsExporter.class);
+
+   private static final int                 QUEUE_CAPACITY = 64;
+   private static final int                 NB_WRITERS     = Math.min(8, Runtime.getRuntime().availableProcessors() + 1);
+
+   private static final String              EXT_TEXT       = ".txt";
+   private static final String              EXT_BYTES      = ".bin";
+   private static final String              EXT_HEADERS    = ".properties";
+   private static final String              CR             = System.lineSeparator();
+
+   private static final int                 TAR_BLOCK_SIZE = 512;
+   private static final int                 TAR_NAME_MAX   = 100;
+   private static final byte[]              TAR_ZERO_BLOCK = new byte[TAR_BLOCK_SIZE];
+
+   private static final Entry               END_OF_EXPORT  = new Entry(null, null, null, null);
+
+   private final PayloadExportTargetType    targetType;
+   private final Path                       target;
+   private final String                     fileNamePrefix;
+   private final boolean                    useCorrelationID;
+   private final boolean                    withHeaders;
+
+   private final Set<String>                fileNames      = new HashSet<>();
+   private final AtomicReference<Exception> writeError     = new AtomicReference<>();
+   private final long                       exportTimeSecs = System.currentTimeMillis() / 1000;
+
+   private int                              nbExported;
+   private int                              nbSkipped;
+
+   // Directory
+   private ThreadPoolExecutor               writers;
+
+   // Archives
+   private OutputStream                     archiveOS;
+   private BlockingQueue<Entry>             entries;
+   private Thread                           archiveWriter;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   public PayloadsExporter(PayloadExportTargetType targetType,
+                           Path target,
+                           String fileNamePrefix,
+                           boolean useCorrelationID,
+                           boolean withHeaders) throws IOException {
+      this.targetType = targetType;
+      this.target = target;
+      this.fileNamePrefix = fileNamePrefix;
+      this.useCorrelationID = useCorrelationID;
+      this.withHeaders = withHeaders;
+
+      switch (targetType) {
+         case DIRECTORY:
+            Files.createDirectories(target);
+            writers = new ThreadPoolExecutor(NB_WRITERS,
+                                             NB_WRITERS,
+                                             0L,
+                                             TimeUnit.MILLISECONDS,
+                                             new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                                             new ThreadPoolExecutor.CallerRunsPolicy());
+            break;
+
+         case ZIP:
+            archiveOS = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(target)));
+            startArchiveWriter();
+            break;
+
+         case TAR_GZ:
+            archiveOS = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(target)), 64 * 1024);
+            startArchiveWriter();
+            break;
+      }
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   /**
+    * Export the payload of one Message. Blocks when the writers are late
+    * 
+    * @return false if the Message has no payload that can be exported (Object, Stream Messages...)
+    */
+   public boolean export(Message message) throws JMSException, IOException, InterruptedException {
+      checkWriteError();
+
+      String extension;
+      byte[] payload;
+      if (message instanceof TextMessage) {
+         String text = ((TextMessage) message).getText();
+         extension = EXT_TEXT;
+         payload = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+      } else if (message instanceof BytesMessage) {
+         BytesMessage bytesMessage = (BytesMessage) message;
+         extension = EXT_BYTES;
+         payload = new byte[(int) bytesMessage.getBodyLength()];
+         bytesMessage.reset();
+         bytesMessage.readBytes(payload);
+      } else if (message instanceof MapMessage) {
+         MapMessage mapMessage = (MapMessage) message;
+         StringBuilder sb = new StringBuilder(512);
+         Enumeration<?> mapNames = mapMessage.getMapNames();
+         while (mapNames.hasMoreElements()) {
+            String key = (String) mapNames.nextElement();
+            sb.append(key).append("=").append(mapMessage.getObject(key)).append(CR);
+         }
+         extension = EXT_TEXT;
+         payload = sb.toString().getBytes(StandardCharsets.UTF_8);
+      } else {
+         nbSkipped++;
+         return false;
+      }
+
+      String baseName = buildBaseName(message);
+      Entry entry = new Entry(baseName + extension,
+                              payload,
+                              withHeaders ? baseName + EXT_HEADERS : null,
+                              withHeaders ? buildHeaders(message) : null);
+
+      if (writers != null) {
+         writers.execute(() -> writeFile(entry));
+      } else {
+         entries.put(entry);
+      }
+
+      nbExported++;
+      return true;
+   }
+
+   /**
+    * Wait for the writers to finish and close the archive
+    * 
+    * @return the number of payloads exported
+    */
+   public int finish() throws IOException, InterruptedException {
+      try {
+         if (writers != null) {
+            writers.shutdown();
+            writers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+         } else {
+            entries.put(END_OF_EXPORT);
+            archiveWriter.join();
+            checkWriteError();
+            if (targetType == PayloadExportTargetType.TAR_GZ) {
+               archiveOS.write(TAR_ZERO_BLOCK);
+               archiveOS.write(TAR_ZERO_BLOCK);
+            }
+         }
+      } finally {
+         if (archiveOS != null) {
+            archiveOS.close();
+         }
+      }
+      checkWriteError();
+
+      log.info("{} payloads exported to '{}'. {} messages without payload skipped", nbExported, target, nbSkipped);
+      return nbExported;
+   }
+
+   /**
+    * Stop the export as soon as possible. What has already been written is kept
+    */
+   public void abort() {
+      log.warn("Export of payloads to '{}' aborted after {} messages", target, nbExported);
+      try {
+         if (writers != null) {
+            writers.shutdownNow();
+            writers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+         } else {
+            archiveWriter.interrupt();
+            archiveWriter.join();
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      } finally {
+         if (archiveOS != null) {
+            try {
+               archiveOS.close();
+            } catch (IOException e) {
+               log.warn("Exception occurred when closing '{}'", target, e);
+            }
+         }
+      }
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private String buildBaseName(Message message) throws JMSException {
+      String messageID = useCorrelationID ? null : message.getJMSMessageID();
+      String baseName = Utils.buildFileName(fileNamePrefix, "", message.getJMSCorrelationID(), messageID);
+
+      // Tar headers only hold short names
+      if ((targetType == PayloadExportTargetType.TAR_GZ) && (baseName.length() > TAR_NAME_MAX - EXT_HEADERS.length() - 8)) {
+         baseName = Utils.buildFileName(fileNamePrefix, "", null, null);
+      }
+
+      // Names built on JMSCorrelationID are not unique
+      if (!fileNames.add(baseName)) {
+         baseName = baseName + "_" + (nbExported + nbSkipped);
+         fileNames.add(baseName);
+      }
+      return baseName;
+   }
+
+   private static byte[] buildHeaders(Message message) throws JMSException {
+      StringBuilder sb = new StringBuilder(512);
+      appendHeader(sb, "JMSMessageID", message.getJMSMessageID());
+      appendHeader(sb, "JMSCorrelationID", message.getJMSCorrelationID());
+      appendHeader(sb, "JMSType", message.getJMSType());
+      appendHeader(sb, "JMSDestination", Utils.getDestinationName(message.getJMSDestination()));
+      appendHeader(sb, "JMSReplyTo", Utils.getDestinationName(message.getJMSReplyTo()));
+      appendHeader(sb, "JMSDeliveryMode", message.getJMSDeliveryMode());
+      appendHeader(sb, "JMSPriority", message.getJMSPriority());
+      appendHeader(sb, "JMSTimestamp", Utils.formatTimestamp(message.getJMSTimestamp(), true));
+      appendHeader(sb, "JMSExpiration", Utils.formatTimestamp(message.getJMSExpiration(), true));
+      appendHeader(sb, "JMSRedelivered", message.getJMSRedelivered());
+
+      Map<String, Object> properties = new TreeMap<>();
+      Enumeration<?> e = message.getPropertyNames();
+      while (e.hasMoreElements()) {
+         String name = (String) e.nextElement();
+         properties.put(name, message.getObjectProperty(name));
+      }
+      for (Map.Entry<String, Object> property : properties.entrySet()) {
+         appendHeader(sb, property.getKey(), property.getValue());
+      }
+
+      return sb.toString().getBytes(StandardCharsets.UTF_8);
+   }
+
+   private static void appendHeader(StringBuilder sb, String name, Object value) {
+      sb.append(name).append("=");
+      if (value != null) {
+         sb.append(value);
+      }
+      sb.append(CR);
+   }
+
+   private void checkWriteError() throws IOException {
+      Exception e = writeError.get();
+      if (e != null) {
+         throw new IOException("A problem occurred when writing the payloads to '" + target + "': " + e.getMessage(), e);
+      }
+   }
+
+   // Directory
+
+   private void writeFile(Entry entry) {
+      if (writeError.get() != null) {
+         return;
+      }
+      try {
+         Files.write(target.resolve(entry.fileName), entry.payload);
+         if (entry.headersFileName != null) {
+            Files.write(target.resolve(entry.headersFileName), entry.headers);
+         }
+      } catch (IOException e) {
+         writeError.compareAndSet(null, e);
+      }
+   }
+
+   // Archives
+
+   private void startArchiveWriter() {
+      entries = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+      archiveWriter = new Thread(this::writeArchive, "JTB Payloads Export");
+      archiveWriter.setDaemon(true);
+      archiveWriter.start();
+   }
+
+   private void writeArchive() {
+      try {
+         while (true) {
+            Entry entry = entries.take();
+            if (entry == END_OF_EXPORT) {
+               return;
+            }
+            // After an error, keep on consuming the entries to not block the caller
+            if (writeError.get() != null) {
+               continue;
+            }
+            try {
+               writeArchiveEntry(entry.fileName, entry.payload);
+               if (entry.headersFileName != null) {
+                  writeArchiveEntry(entry.headersFileName, entry.headers);
+               }
+            } catch (IOException e) {
+               writeError.compareAndSet(null, e);
+            }
+         }
+      } catch (InterruptedException e) {
+         // Export aborted
+      }
+   }
+
+   private void writeArchiveEntry(String name, byte[] data) throws IOException {
+      if (targetType == PayloadExportTargetType.ZIP) {
+         ZipOutputStream zos = (ZipOutputStream) archiveOS;
+         zos.putNextEntry(new ZipEntry(name));
+         zos.write(data);
+         zos.closeEntry();
+         return;
+      }
+
+      // ustar header
+      byte[] header = new byte[TAR_BLOCK_SIZE];
+      byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+      System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, TAR_NAME_MAX));
+      writeOctal(header, 100, 8, 0644); // mode
+      writeOctal(header, 108, 8, 0); // uid
+      writeOctal(header, 116, 8, 0); // gid
+      writeOctal(header, 124, 12, data.length);
+      writeOctal(header, 136, 12, exportTimeSecs);
+      Arrays.fill(header, 148, 156, (byte) ' '); // checksum is computed with spaces in its own field
+      header[156] = '0'; // regular file
+      System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+      header[263] = '0';
+      header[264] = '0';
+      long checksum = 0;
+      for (byte b : header) {
+         checksum += b & 0xFF;
+      }
+      writeOctal(header, 148, 7, checksum);
+
+      archiveOS.write(header);
+      archiveOS.write(data);
+      int padding = (TAR_BLOCK_SIZE - (data.length % TAR_BLOCK_SIZE)) % TAR_BLOCK_SIZE;
+      archiveOS.write(TAR_ZERO_BLOCK, 0, padding);
+   }
+
+   // Zero padded octal number followed by a NUL
+   private static void writeOctal(byte[] buffer, int offset, int length, long value) {
+      String octal = Long.toOctalString(value);
+      int nbDigits = length - 1;
+      for (int i = 0; i < nbDigits; i++) {
+         int pos = octal.length() - nbDigits + i;
+         buffer[offset + i] = (byte) (pos < 0 ? '0' : octal.charAt(pos));
+      }
+      buffer[offset + nbDigits] = 0;
+   }
+
+   private static final class Entry {
+      private final String fileName;
+      private final byte[] payload;
+      private final String headersFileName;
+      private final byte[] headers;
+
+      private Entry(String fileName, byte[] payload, String headersFileName, byte[] headers) {
+         this.fileName = fileName;
+         this.payload = payload;
+         this.headersFileName = headersFileName;
+         this.headers = headers;
+      }
+   }
+
+}
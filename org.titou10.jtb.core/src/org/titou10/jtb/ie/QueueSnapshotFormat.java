@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.titou10.jtb.jms.model.JTBMessageTemplate;
+import org.titou10.jtb.jms.model.JTBMessageType;
+import org.titou10.jtb.jms.model.JTBProperty;
+import org.titou10.jtb.jms.qm.JMSPropertyKind;
+import org.titou10.jtb.jms.util.JTBDeliveryMode;
+
+/**
+ * 
+ * Binary layout of a queue snapshot file
+ * 
+ * <pre>
+ * Header : magic "JTBSNAP" + version (8 bytes), flags (1 byte), creation time (long), session name, queue name
+ * Records: stored length (int), raw length (int), record (deflated if the file is compressed), repeated
+ * Index  : offset of each record (long), written when the file is closed
+ * Trailer: index offset (long), number of records (int), magic "JTBSIDX" + version (8 bytes)
+ * </pre>
+ * 
+ * A file without a valid trailer (export interrupted...) can still be read sequentially up to its last complete record
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class QueueSnapshotFormat {
+
+   public static final String FILE_EXTENSION  = ".jtbsnap";
+
+   static final byte[]        HEADER_MAGIC    = { 'J', 'T', 'B', 'S', 'N', 'A', 'P', 1 };
+   static final byte[]        TRAILER_MAGIC   = { 'J', 'T', 'B', 'S', 'I', 'D', 'X', 1 };
+   static final int           TRAILER_SIZE    = 8 + 4 + 8;
+
+   static final byte          FLAG_COMPRESSED = 0x01;
+
+   static final int           BUFFER_SIZE     = 256 * 1024;
+
+   // Snapshot files may come from elsewhere: the payload of ObjectMessages is only deserialized with JDK value types or
+   // application classes, never with the JDK or library classes used to build deserialization exploits
+   private static final ObjectInputFilter OBJECT_FILTER = ObjectInputFilter.Config
+            .createFilter("maxdepth=64;maxrefs=100000;java.lang.*;java.util.*;java.util.concurrent.*;"
+                          + "java.util.concurrent.atomic.*;java.util.concurrent.locks.*;java.math.*;java.time.*;"
+                          + "!java.**;!javax.**;!jdk.**;!sun.**;!com.sun.**;!org.apache.commons.collections.**;"
+                          + "!org.apache.commons.collections4.**;!org.apache.commons.beanutils.**;!org.codehaus.groovy.**;"
+                          + "!org.springframework.**;!org.hibernate.**");
+
+   // Typed values
+   private static final byte  NULL            = 0;
+   private static final byte  STRING          = 1;
+   private static final byte  BOOLEAN         = 2;
+   private static final byte  BYTE            = 3;
+   private static final byte  SHORT           = 4;
+   private static final byte  INT             = 5;
+   private static final byte  LONG            = 6;
+   private static final byte  FLOAT           = 7;
+   private static final byte  DOUBLE          = 8;
+   private static final byte  CHAR            = 9;
+   private static final byte  BYTES           = 10;
+
+   // -------
+   // Records
+   // -------
+
+   static void writeRecord(DataOutput out, JTBMessageTemplate t) throws IOException {
+      out.writeByte(t.getJtbMessageType().ordinal());
+
+      writeString(out, t.getJmsMessageID());
+      writeString(out, t.getJmsCorrelationID());
+      writeString(out, t.getJmsType());
+      writeString(out, t.getReplyToDestinationName());
+      writeLong(out, t.getJmsTimestamp());
+      writeLong(out, t.getJmsExpiration());
+      writeLong(out, t.getJmsDeliveryTime());
+      writeLong(out, t.getTimeToLive());
+      writeLong(out, t.getDeliveryDelay());
+      out.writeInt(t.getPriority() == null ? -1 : t.getPriority());
+      out.writeInt(t.getDeliveryMode() == null ? -1 : t.getDeliveryMode().intValue());
+
+      List<JTBProperty> jtbProperties = t.getJtbProperties();
+      if (jtbProperties == null) {
+         out.writeInt(0);
+      } else {
+         out.writeInt(jtbProperties.size());
+         for (JTBProperty jtbProperty : jtbProperties) {
+            writeString(out, jtbProperty.getName());
+            writeString(out, jtbProperty.getKind() == null ? null : jtbProperty.getKind().name());
+            writeValue(out, jtbProperty.getValue());
+         }
+      }
+
+      switch (t.getJtbMessageType()) {
+         case TEXT:
+            writeString(out, t.getPayloadText());
+            break;
+
+         case BYTES:
+            writeBytes(out, t.getPayloadBytes());
+            break;
+
+         case MAP:
+            Map<String, Object> payloadMap = t.getPayloadMap();
+            out.writeInt(payloadMap == null ? -1 : payloadMap.size());
+            if (payloadMap != null) {
+               for (Map.Entry<String, Object> e : payloadMap.entrySet()) {
+                  writeString(out, e.getKey());
+                  writeValue(out, e.getValue());
+               }
+            }
+            break;
+
+         case OBJECT:
+            Serializable payloadObject = t.getPayloadObject();
+            if (payloadObject == null) {
+               writeBytes(out, null);
+            } else {
+               ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+               try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                  oos.writeObject(payloadObject);
+               }
+               writeBytes(out, baos.toByteArray());
+            }
+            break;
+
+         default:
+            break;
+      }
+   }
+
+   static JTBMessageTemplate readRecord(DataInput in) throws IOException {
+      JTBMessageTemplate t = new JTBMessageTemplate();
+      t.setJtbMessageType(JTBMessageType.values()[in.readByte()]);
+
+      t.setJmsMessageID(readString(in));
+      t.setJmsCorrelationID(readString(in));
+      t.setJmsType(readString(in));
+      t.setReplyToDestinationName(readString(in));
+      t.setJmsTimestamp(readLong(in));
+      t.setJmsExpiration(readLong(in));
+      t.setJmsDeliveryTime(readLong(in));
+      t.setTimeToLive(readLong(in));
+      t.setDeliveryDelay(readLong(in));
+      int priority = in.readInt();
+      t.setPriority(priority == -1 ? null : priority);
+      int deliveryMode = in.readInt();
+      t.setDeliveryMode(deliveryMode == -1 ? null : JTBDeliveryMode.fromValue(deliveryMode));
+
+      int nbProperties = in.readInt();
+      List<JTBProperty> jtbProperties = new ArrayList<>(nbProperties);
+      for (int i = 0; i < nbProperties; i++) {
+         String name = readString(in);
+         String kind = readString(in);
+         Object value = readValue(in);
+         jtbProperties.add(new JTBProperty(name, value, kind == null ? null : JMSPropertyKind.valueOf(kind)));
+      }
+      t.setJtbProperties(jtbProperties);
+
+      switch (t.getJtbMessageType()) {
+         case TEXT:
+            t.setPayloadText(readString(in));
+            break;
+
+         case BYTES:
+            t.setPayloadBytes(readBytes(in));
+            break;
+
+         case MAP:
+            int nbEntries = in.readInt();
+            if (nbEntries >= 0) {
+               Map<String, Object> payloadMap = new HashMap<>(nbEntries * 2);
+               for (int i = 0; i < nbEntries; i++) {
+                  payloadMap.put(readString(in), readValue(in));
+               }
+               t.setPayloadMap(payloadMap);
+            }
+            break;
+
+         case OBJECT:
+            byte[] b = readBytes(in);
+            if (b != null) {
+               // Same limitation as the templates: the class of the object must be visible from here
+               try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(b))) {
+                  ois.setObjectInputFilter(OBJECT_FILTER);
+                  t.setPayloadObject((Serializable) ois.readObject());
+               } catch (ClassNotFoundException e) {
+                  throw new IOException("Class of the ObjectMessage payload not found: " + e.getMessage(), e);
+               } catch (InvalidClassException e) {
+                  throw new IOException("ObjectMessage payload rejected: " + e.getMessage(), e);
+               }
+            }
+            break;
+
+         default:
+            break;
+      }
+
+      return t;
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   static void writeString(DataOutput out, String s) throws IOException {
+      writeBytes(out, s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+   }
+
+   static String readString(DataInput in) throws IOException {
+      byte[] b = readBytes(in);
+      return b == null ? null : new String(b, StandardCharsets.UTF_8);
+   }
+
+   private static void writeBytes(DataOutput out, byte[] b) throws IOException {
+      if (b == null) {
+         out.writeInt(-1);
+      } else {
+         out.writeInt(b.length);
+         out.write(b);
+      }
+   }
+
+   private static byte[] readBytes(DataInput in) throws IOException {
+      int length = in.readInt();
+      if (length < 0) {
+         return null;
+      }
+      byte[] b = new byte[length];
+      in.readFully(b);
+      return b;
+   }
+
+   private static void writeLong(DataOutput out, Long l) throws IOException {
+      out.writeBoolean(l != null);
+      if (l != null) {
+         out.writeLong(l);
+      }
+   }
+
+   private static Long readLong(DataInput in) throws IOException {
+      return in.readBoolean() ? in.readLong() : null;
+   }
+
+   private static void writeValue(DataOutput out, Object o) throws IOException {
+      if (o == null) {
+         out.writeByte(NULL);
+      } else if (o instanceof String) {
+         out.writeByte(STRING);
+         writeString(out, (String) o);
+      } else if (o instanceof Boolean) {
+         out.writeByte(BOOLEAN);
+         out.writeBoolean((Boolean) o);
+      } else if (o instanceof Byte) {
+         out.writeByte(BYTE);
+         out.writeByte((Byte) o);
+      } else if (o instanceof Short) {
+         out.writeByte(SHORT);
+         out.writeShort((Short) o);
+      } else if (o instanceof Integer) {
+         out.writeByte(INT);
+         out.writeInt((Integer) o);
+      } else if (o instanceof Long) {
+         out.writeByte(LONG);
+         out.writeLong((Long) o);
+      } else if (o instanceof Float) {
+         out.writeByte(FLOAT);
+         out.writeFloat((Float) o);
+      } else if (o instanceof Double) {
+         out.writeByte(DOUBLE);
+         out.writeDouble((Double) o);
+      } else if (o instanceof Character) {
+         out.writeByte(CHAR);
+         out.writeChar((Character) o);
+      } else if (o instanceof byte[]) {
+         out.writeByte(BYTES);
+         writeBytes(out, (byte[]) o);
+      } else {
+         // Not a JMS type, keep its text representation
+         out.writeByte(STRING);
+         writeString(out, o.toString());
+      }
+   }
+
+   private static Object readValue(DataInput in) throws IOException {
+      byte type = in.readByte();
+      switch (type) {
+         case NULL:
+            return null;
+         case STRING:
+            return readString(in);
+         case BOOLEAN:
+            return in.readBoolean();
+         case BYTE:
+            return in.readByte();
+         case SHORT:
+            return in.readShort();
+         case INT:
+            return in.readInt();
+         case LONG:
+            return in.readLong();
+         case FLOAT:
+            return in.readFloat();
+         case DOUBLE:
+            return in.readDouble();
+         case CHAR:
+            return in.readChar();
+         case BYTES:
+            return readBytes(in);
+         default:
+            throw new IOException("Invalid value type in snapshot file: " + type);
+      }
+   }
+
+   // ------------------
+   // Pure Utility Class
+   // ------------------
+   private QueueSnapshotFormat() {
+      // NOP
+   }
+}
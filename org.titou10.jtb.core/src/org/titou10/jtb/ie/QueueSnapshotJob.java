@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie;
+
+import java.nio.file.Path;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.jms.model.JTBMessage;
+import org.titou10.jtb.jms.model.JTBMessageTemplate;
+import org.titou10.jtb.jms.model.JTBMessageType;
+import org.titou10.jtb.jms.model.JTBQueue;
+import org.titou10.jtb.ui.JTBStatusReporter;
+import org.titou10.jtb.util.Constants;
+
+/**
+ * Job that writes all the Messages of a Queue to a queue snapshot file
+ * 
+ * @author Denis Forveille
+ *
+ */
+public class QueueSnapshotJob extends Job {
+
+   private static final Logger     log           = LoggerFactory.getLogger(QueueSnapshotJob.class);
+
+   private static final int        PROGRESS_STEP = 1000;
+
+   private final JTBStatusReporter jtbStatusReporter;
+
+   private final JTBQueue          jtbQueue;
+   private final Path              target;
+   private final boolean           compressed;
+
+   private int                     nbSkipped;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   public QueueSnapshotJob(JTBStatusReporter jtbStatusReporter, JTBQueue jtbQueue, Path target, boolean compressed) {
+      super("Snapshot of queue '" + jtbQueue.getName() + "' to '" + target + "'");
+      this.jtbStatusReporter = jtbStatusReporter;
+
+      this.jtbQueue = jtbQueue;
+      this.target = target;
+      this.compressed = compressed;
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   @Override
+   protected IStatus run(IProgressMonitor monitor) {
+      log.debug("Snapshot of queue '{}' to '{}'. compressed? {}", jtbQueue.getName(), target, compressed);
+
+      monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+
+      try (QueueSnapshotWriter writer = new QueueSnapshotWriter(target,
+                                                                jtbQueue.getJtbConnection().getSessionName(),
+                                                                jtbQueue.getName(),
+                                                                compressed)) {
+
+         // Messages are written as they are browsed, nothing is kept in memory
+         jtbQueue.getJtbConnection().browseQueue(jtbQueue, message -> {
+            if (monitor.isCanceled()) {
+               return false;
+            }
+            JTBMessage jtbMessage = new JTBMessage(jtbQueue, message);
+            if (jtbMessage.getJtbMessageType() == JTBMessageType.STREAM) {
+               nbSkipped++;
+               return true;
+            }
+            writer.append(new JTBMessageTemplate(jtbMessage));
+            if (writer.getNbRecords() % PROGRESS_STEP == 0) {
+               monitor.subTask(writer.getNbRecords() + " messages written");
+            }
+            return true;
+         });
+
+         if (monitor.isCanceled()) {
+            jtbStatusReporter.showInfo("Snapshot canceled. " + writer.getNbRecords() + " message(s) written to '" + target + "'",
+                                       null);
+            return Status.CANCEL_STATUS;
+         }
+
+         StringBuilder sb = new StringBuilder(128);
+         sb.append(writer.getNbRecords()).append(" message(s) written to '").append(target).append("'");
+         if (nbSkipped > 0) {
+            sb.append(" (").append(nbSkipped).append(" STREAM message(s) skipped)");
+         }
+         jtbStatusReporter.showInfo(sb.toString(), null);
+
+      } catch (Exception e) {
+         jtbStatusReporter.showError("A problem occurred when writing the snapshot", e, target.toString());
+      } finally {
+         monitor.done();
+      }
+
+      return Status.OK_STATUS;
+   }
+
+   @Override
+   protected void canceling() {
+      log.debug("Canceling '{}'", getName());
+      super.canceling();
+   }
+
+   @Override
+   public boolean belongsTo(Object family) {
+      if (family instanceof String) {
+         return Constants.JTB_JOBS_FAMILY.equals(family);
+      }
+      return false;
+   }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.jms.model.JTBMessageTemplate;
+
+/**
+ * Read Messages from a queue snapshot file, sequentially or from a given Message when the file has an index
+ * 
+ * @see QueueSnapshotFormat
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class QueueSnapshotReader implements Closeable {
+
+   private static final Logger log                  = LoggerFactory.getLogger(QueueSnapshotReader.class);
+
+   // Deflate can not compress more than about 1032:1
+   private static final int    MAX_INFLATE_RATIO    = 1032;
+   private static final int    MAX_INFLATE_OVERHEAD = 64;
+
+   private final Path          path;
+   private final FileChannel   channel;
+
+   private final boolean       compressed;
+   private final long          creationTime;
+   private final String        sessionName;
+   private final String        queueName;
+
+   private final long          recordsEnd;
+   private final long          indexOffset;
+   private final int           nbRecords;
+
+   private final Inflater      inflater;
+   private byte[]              readBuffer   = new byte[8192];
+   private byte[]              recordBuffer = new byte[8192];
+
+   private DataInputStream     in;
+   private long                position;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   public QueueSnapshotReader(Path path) throws IOException {
+      this.path = path;
+      this.channel = FileChannel.open(path, StandardOpenOption.READ);
+      try {
+         // Header. Not buffered, the channel position is then the offset of the first record
+         DataInputStream hin = new DataInputStream(Channels.newInputStream(channel));
+         byte[] magic = new byte[QueueSnapshotFormat.HEADER_MAGIC.length];
+         hin.readFully(magic);
+         if (!Arrays.equals(magic, QueueSnapshotFormat.HEADER_MAGIC)) {
+            throw new IOException("'" + path + "' is not a JMSToolBox queue snapshot file");
+         }
+         this.compressed = (hin.readByte() & QueueSnapshotFormat.FLAG_COMPRESSED) != 0;
+         this.creationTime = hin.readLong();
+         this.sessionName = QueueSnapshotFormat.readString(hin);
+         this.queueName = QueueSnapshotFormat.readString(hin);
+         long firstRecordOffset = channel.position();
+
+         // Trailer and index, if the file has been closed properly
+         long size = channel.size();
+         long trailerIndexOffset = -1;
+         int trailerNbRecords = -1;
+         if (size >= firstRecordOffset + QueueSnapshotFormat.TRAILER_SIZE) {
+            ByteBuffer bb = ByteBuffer.allocate(QueueSnapshotFormat.TRAILER_SIZE);
+            channel.read(bb, size - QueueSnapshotFormat.TRAILER_SIZE);
+            bb.flip();
+            long io = bb.getLong();
+            int nb = bb.getInt();
+            byte[] trailerMagic = new byte[QueueSnapshotFormat.TRAILER_MAGIC.length];
+            bb.get(trailerMagic);
+            if ((Arrays.equals(trailerMagic, QueueSnapshotFormat.TRAILER_MAGIC))
+                && (io + (8L * nb) + QueueSnapshotFormat.TRAILER_SIZE == size)) {
+               trailerIndexOffset = io;
+               trailerNbRecords = nb;
+            }
+         }
+         if (trailerIndexOffset < 0) {
+            log.warn("Snapshot '{}' has no index. It will be read sequentially up to its last complete message", path);
+         }
+         this.indexOffset = trailerIndexOffset;
+         this.nbRecords = trailerNbRecords;
+         this.recordsEnd = trailerIndexOffset < 0 ? size : trailerIndexOffset;
+
+         this.inflater = compressed ? new Inflater() : null;
+
+         positionAt(firstRecordOffset);
+      } catch (IOException | RuntimeException e) {
+         channel.close();
+         throw e;
+      }
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   /**
+    * @return the next Message, or null at the end of the file
+    */
+   public JTBMessageTemplate next() throws IOException {
+      if (position + 8 > recordsEnd) {
+         return null;
+      }
+
+      int length = in.readInt();
+      int rawLength = in.readInt();
+
+      // Validate the lengths before allocating anything
+      if ((length < 0) || (rawLength < 0)) {
+         throw corrupted("negative message length");
+      }
+      if (compressed ? rawLength > ((long) length * MAX_INFLATE_RATIO) + MAX_INFLATE_OVERHEAD : rawLength != length) {
+         throw corrupted("invalid message length");
+      }
+      if (position + 8 + length > recordsEnd) {
+         if (indexOffset >= 0) {
+            throw corrupted("message length exceeds the size of the file");
+         }
+         log.warn("Snapshot '{}': last message is incomplete and is ignored", path);
+         position = recordsEnd;
+         return null;
+      }
+      if (readBuffer.length < length) {
+         readBuffer = new byte[Math.max(length, readBuffer.length * 2)];
+      }
+      in.readFully(readBuffer, 0, length);
+      position += 8 + length;
+
+      byte[] data = readBuffer;
+      if (compressed) {
+         if (recordBuffer.length < rawLength) {
+            recordBuffer = new byte[Math.max(rawLength, recordBuffer.length * 2)];
+         }
+         inflater.reset();
+         inflater.setInput(readBuffer, 0, length);
+         try {
+            int n = 0;
+            while (n < rawLength) {
+               int inflated = inflater.inflate(recordBuffer, n, rawLength - n);
+               if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                  break;
+               }
+               n += inflated;
+            }
+            if (n != rawLength) {
+               throw corrupted("invalid compressed message");
+            }
+         } catch (DataFormatException e) {
+            throw new IOException("Corrupted snapshot '" + path + "': " + e.getMessage(), e);
+         }
+         data = recordBuffer;
+      }
+
+      return QueueSnapshotFormat.readRecord(new DataInputStream(new ByteArrayInputStream(data, 0, rawLength)));
+   }
+
+   /**
+    * Position the reader on a given Message. Only possible when the file has an index
+    */
+   public void seek(int recordIndex) throws IOException {
+      if (nbRecords < 0) {
+         throw new IOException("Snapshot '" + path + "' has no index");
+      }
+      if (recordIndex >= nbRecords) {
+         positionAt(recordsEnd);
+         return;
+      }
+      ByteBuffer bb = ByteBuffer.allocate(8);
+      channel.read(bb, indexOffset + (8L * recordIndex));
+      bb.flip();
+      positionAt(bb.getLong());
+   }
+
+   @Override
+   public void close() throws IOException {
+      channel.close();
+      if (inflater != null) {
+         inflater.end();
+      }
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private IOException corrupted(String reason) {
+      return new IOException("Corrupted snapshot '" + path + "': " + reason);
+   }
+
+   private void positionAt(long offset) throws IOException {
+      channel.position(offset);
+      in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), QueueSnapshotFormat.BUFFER_SIZE));
+      position = offset;
+   }
+
+   // ---------------
+   // Getters/Setters
+   // ---------------
+
+   /**
+    * @return the number of Messages in the file, -1 if unknown (file without index)
+    */
+   public int getNbRecords() {
+      return nbRecords;
+   }
+
+   public long getCreationTime() {
+      return creationTime;
+   }
+
+   public String getSessionName() {
+      return sessionName;
+   }
+
+   public String getQueueName() {
+      return queueName;
+   }
+
+}
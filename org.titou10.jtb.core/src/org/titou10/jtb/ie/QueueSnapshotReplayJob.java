@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Message;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.jms.model.JTBConnection;
+import org.titou10.jtb.jms.model.JTBDestination;
+import org.titou10.jtb.jms.model.JTBMessage;
+import org.titou10.jtb.jms.model.JTBMessageTemplate;
+import org.titou10.jtb.ui.JTBStatusReporter;
+import org.titou10.jtb.util.Constants;
+
+/**
+ * Job that sends the Messages of a queue snapshot file to a destination, at a given rate
+ * 
+ * @author Denis Forveille
+ *
+ */
+public class QueueSnapshotReplayJob extends Job {
+
+   private static final Logger     log            = LoggerFactory.getLogger(QueueSnapshotReplayJob.class);
+
+   private static final int        MAX_BATCH_SIZE = 100;
+
+   private final JTBStatusReporter jtbStatusReporter;
+
+   private final Path              source;
+   private final JTBDestination    jtbDestination;
+   private final int               firstMessage;
+   private final int               messagesPerSecond;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   /**
+    * @param firstMessage
+    *           index of the first Message to send, starting at 0
+    * @param messagesPerSecond
+    *           max number of Messages sent per second, 0 = no limit
+    */
+   public QueueSnapshotReplayJob(JTBStatusReporter jtbStatusReporter,
+                                 Path source,
+                                 JTBDestination jtbDestination,
+                                 int firstMessage,
+                                 int messagesPerSecond) {
+      super("Replay of '" + source + "' to '" + jtbDestination.getName() + "'");
+      this.jtbStatusReporter = jtbStatusReporter;
+
+      this.source = source;
+      this.jtbDestination = jtbDestination;
+      this.firstMessage = firstMessage;
+      this.messagesPerSecond = messagesPerSecond;
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   @Override
+   protected IStatus run(IProgressMonitor monitor) {
+      log.debug("Replay of '{}' to '{}'. firstMessage: {} messagesPerSecond: {}",
+                source,
+                jtbDestination.getName(),
+                firstMessage,
+                messagesPerSecond);
+
+      JTBConnection jtbConnection = jtbDestination.getJtbConnection();
+
+      // With a rate, send ~10 batches per second to keep the flow regular
+      int batchSize = messagesPerSecond == 0 ? MAX_BATCH_SIZE : Math.min(MAX_BATCH_SIZE, Math.max(1, messagesPerSecond / 10));
+
+      int nbSent = 0;
+      try (QueueSnapshotReader reader = new QueueSnapshotReader(source)) {
+
+         int nbRecords = reader.getNbRecords();
+         monitor.beginTask(getName(), nbRecords < 0 ? IProgressMonitor.UNKNOWN : Math.max(0, nbRecords - firstMessage));
+
+         // Without an index, the first messages are read and ignored
+         if (firstMessage > 0) {
+            if (nbRecords < 0) {
+               for (int i = 0; i < firstMessage; i++) {
+                  if (reader.next() == null) {
+                     break;
+                  }
+               }
+            } else {
+               reader.seek(firstMessage);
+            }
+         }
+
+         List<JTBMessage> batch = new ArrayList<>(batchSize);
+         long start = System.nanoTime();
+         JTBMessageTemplate template;
+         do {
+            if (monitor.isCanceled()) {
+               break;
+            }
+
+            template = reader.next();
+            if (template != null) {
+               Message m = jtbConnection.createJMSMessage(template.getJtbMessageType());
+               batch.add(template.toJTBMessage(jtbDestination, m));
+            }
+
+            if ((batch.size() == batchSize) || ((template == null) && (!batch.isEmpty()))) {
+               jtbConnection.sendMessages(batch, jtbDestination);
+               nbSent += batch.size();
+               monitor.worked(batch.size());
+               monitor.subTask(nbSent + " messages sent");
+               batch.clear();
+
+               if (messagesPerSecond > 0) {
+                  long wait = start + (nbSent * TimeUnit.SECONDS.toNanos(1) / messagesPerSecond) - System.nanoTime();
+                  if (wait > 0) {
+                     TimeUnit.NANOSECONDS.sleep(wait);
+                  }
+               }
+            }
+         } while (template != null);
+
+         if (monitor.isCanceled()) {
+            jtbStatusReporter.showInfo("Replay canceled. " + nbSent + " message(s) sent to '" + jtbDestination.getName() + "'",
+                                       null);
+            return Status.CANCEL_STATUS;
+         }
+
+         jtbStatusReporter.showInfo(nbSent + " message(s) sent to '" + jtbDestination.getName() + "'", null);
+
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         return Status.CANCEL_STATUS;
+      } catch (Exception e) {
+         jtbStatusReporter.showError("A problem occurred when replaying the snapshot after " + nbSent + " message(s) sent",
+                                     e,
+                                     jtbDestination.getName());
+      } finally {
+         monitor.done();
+      }
+
+      return Status.OK_STATUS;
+   }
+
+   @Override
+   protected void canceling() {
+      log.debug("Canceling '{}'", getName());
+      super.canceling();
+   }
+
+   @Override
+   public boolean belongsTo(Object family) {
+      if (family instanceof String) {
+         return Constants.JTB_JOBS_FAMILY.equals(family);
+      }
+      return false;
+   }
+
+}
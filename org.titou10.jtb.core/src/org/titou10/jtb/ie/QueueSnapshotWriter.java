@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.jms.model.JTBMessageTemplate;
+
+/**
+ * Write Messages to a queue snapshot file, one record after the other. The index is written when the file is closed
+ * 
+ * @see QueueSnapshotFormat
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class QueueSnapshotWriter implements Closeable {
+
+   private static final Logger    log          = LoggerFactory.getLogger(QueueSnapshotWriter.class);
+
+   private final Path             path;
+   private final boolean          compressed;
+
+   private final DataOutputStream out;
+   private final RecordBuffer     recordBuffer = new RecordBuffer();
+   private final DataOutputStream recordOut    = new DataOutputStream(recordBuffer);
+   private final Deflater         deflater;
+   private byte[]                 deflateBuffer;
+
+   private long                   position;
+   private long[]                 offsets      = new long[1024];
+   private int                    nbRecords;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   public QueueSnapshotWriter(Path path, String sessionName, String queueName, boolean compressed) throws IOException {
+      this.path = path;
+      this.compressed = compressed;
+      this.deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+      this.deflateBuffer = compressed ? new byte[8192] : null;
+
+      this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), QueueSnapshotFormat.BUFFER_SIZE));
+      out.write(QueueSnapshotFormat.HEADER_MAGIC);
+      out.writeByte(compressed ? QueueSnapshotFormat.FLAG_COMPRESSED : 0);
+      out.writeLong(System.currentTimeMillis());
+      QueueSnapshotFormat.writeString(out, sessionName);
+      QueueSnapshotFormat.writeString(out, queueName);
+      position = out.size();
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   public void append(JTBMessageTemplate jtbMessageTemplate) throws IOException {
+      recordBuffer.reset();
+      QueueSnapshotFormat.writeRecord(recordOut, jtbMessageTemplate);
+
+      int rawLength = recordBuffer.size();
+      byte[] data = recordBuffer.getBuffer();
+      int length = rawLength;
+
+      if (compressed) {
+         deflater.reset();
+         deflater.setInput(data, 0, rawLength);
+         deflater.finish();
+         length = 0;
+         while (!deflater.finished()) {
+            if (length == deflateBuffer.length) {
+               deflateBuffer = Arrays.copyOf(deflateBuffer, deflateBuffer.length * 2);
+            }
+            length += deflater.deflate(deflateBuffer, length, deflateBuffer.length - length);
+         }
+         data = deflateBuffer;
+      }
+
+      if (nbRecords == offsets.length) {
+         offsets = Arrays.copyOf(offsets, nbRecords * 2);
+      }
+      offsets[nbRecords++] = position;
+
+      out.writeInt(length);
+      out.writeInt(rawLength);
+      out.write(data, 0, length);
+      position += 8 + length;
+   }
+
+   public int getNbRecords() {
+      return nbRecords;
+   }
+
+   @Override
+   public void close() throws IOException {
+      try {
+         // Index + Trailer
+         long indexOffset = position;
+         for (int i = 0; i < nbRecords; i++) {
+            out.writeLong(offsets[i]);
+         }
+         out.writeLong(indexOffset);
+         out.writeInt(nbRecords);
+         out.write(QueueSnapshotFormat.TRAILER_MAGIC);
+      } finally {
+         out.close();
+         if (deflater != null) {
+            deflater.end();
+         }
+      }
+      log.info("Snapshot '{}' closed. {} messages", path, nbRecords);
+   }
+
+   // Gives access to the internal buffer, to avoid a copy per record
+   private static final class RecordBuffer extends ByteArrayOutputStream {
+      private RecordBuffer() {
+         super(8192);
+      }
+
+      private byte[] getBuffer() {
+         return buf;
+      }
+   }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie.dialog;
+
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.titou10.jtb.ie.PayloadExportTargetType;
+import org.titou10.jtb.util.Utils;
+
+/**
+ * 
+ * Manage the Payloads Export Dialog
+ * 
+ * @author Denis Forveille
+ *
+ */
+public class PayloadsExportDialog extends Dialog {
+
+   private static final String     DEFAULT_PREFIX = "payload";
+   private static final String[]   NAMED_AFTER    = { "_<JMSMessageID>", "_<JMSCorrelationID>" };
+
+   private final String            description;
+
+   private PayloadExportTargetType targetType     = PayloadExportTargetType.DIRECTORY;
+   private String                  targetName;
+   private String                  fileNamePrefix;
+   private boolean                 useCorrelationID;
+   private boolean                 withHeaders;
+
+   private Text                    textTargetName;
+   private Text                    textFileNamePrefix;
+   private Combo                   comboNamedAfter;
+   private Button                  btnWithHeaders;
+
+   public PayloadsExportDialog(Shell parentShell, String description) {
+      super(parentShell);
+      setShellStyle(SWT.RESIZE | SWT.TITLE | SWT.PRIMARY_MODAL);
+
+      this.description = description;
+   }
+
+   @Override
+   protected void configureShell(Shell newShell) {
+      super.configureShell(newShell);
+      newShell.setText("Export Payloads");
+   }
+
+   @Override
+   protected Point getInitialSize() {
+      Point p = super.getInitialSize();
+      return new Point(600, p.y);
+   }
+
+   @Override
+   protected void createButtonsForButtonBar(Composite parent) {
+      createButton(parent, IDialogConstants.OK_ID, "Export", true);
+      createButton(parent, IDialogConstants.CANCEL_ID, "Cancel", false);
+   }
+
+   @Override
+   protected Control createDialogArea(Composite parent) {
+      Composite container = (Composite) super.createDialogArea(parent);
+      container.setLayout(new GridLayout(3, false));
+
+      Label lblDescription = new Label(container, SWT.NONE);
+      lblDescription.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, true, false, 3, 1));
+      lblDescription.setText(description);
+
+      // Target
+
+      Label lblExportTo = new Label(container, SWT.NONE);
+      lblExportTo.setLayoutData(new GridData(SWT.RIGHT, SWT.CENTER, false, false, 1, 1));
+      lblExportTo.setText("Export to:");
+
+      Composite cTargetType = new Composite(container, SWT.NONE);
+      cTargetType.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, true, false, 2, 1));
+      cTargetType.setLayout(new GridLayout(PayloadExportTargetType.values().length, false));
+
+      for (PayloadExportTargetType type : PayloadExportTargetType.values()) {
+         Button btnTargetType = new Button(cTargetType, SWT.RADIO);
+         btnTargetType.setText(type.getLabel());
+         btnTargetType.setSelection(type == targetType);
+         btnTargetType.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+               if (btnTargetType.getSelection()) {
+                  targetType = type;
+               }
+            }
+         });
+      }
+
+      Label lblTarget = new Label(container, SWT.NONE);
+      lblTarget.setLayoutData(new GridData(SWT.RIGHT, SWT.CENTER, false, false, 1, 1));
+      lblTarget.setText("Directory/File:");
+
+      textTargetName = new Text(container, SWT.BORDER);
+      textTargetName.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 1, 1));
+
+      Button btnBrowse = new Button(container, SWT.NONE);
+      btnBrowse.setText("Browse...");
+
+      // File names
+
+      Label lblFileNames = new Label(container, SWT.NONE);
+      lblFileNames.setLayoutData(new GridData(SWT.RIGHT, SWT.CENTER, false, false, 1, 1));
+      lblFileNames.setText("File names:");
+
+      Composite cFileNames = new Composite(container, SWT.NONE);
+      cFileNames.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+      GridLayout gl = new GridLayout(2, false);
+      gl.marginWidth = 0;
+      cFileNames.setLayout(gl);
+
+      textFileNamePrefix = new Text(cFileNames, SWT.BORDER);
+      textFileNamePrefix.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 1, 1));
+      textFileNamePrefix.setText(DEFAULT_PREFIX);
+
+      comboNamedAfter = new Combo(cFileNames, SWT.DROP_DOWN | SWT.READ_ONLY);
+      comboNamedAfter.setItems(NAMED_AFTER);
+      comboNamedAfter.select(0);
+
+      btnWithHeaders = new Button(container, SWT.CHECK);
+      btnWithHeaders.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, true, false, 3, 1));
+      btnWithHeaders.setText("Also export the JMS headers and properties of each message in a \".properties\" file");
+
+      // Behavior
+
+      btnBrowse.addSelectionListener(new SelectionAdapter() {
+         @Override
+         public void widgetSelected(SelectionEvent e) {
+            String name;
+            if (targetType == PayloadExportTargetType.DIRECTORY) {
+               DirectoryDialog directoryDialog = new DirectoryDialog(getShell(), SWT.NONE);
+               directoryDialog.setText("Select the directory where to export the payloads");
+               name = directoryDialog.open();
+            } else {
+               FileDialog fileDialog = new FileDialog(getShell(), SWT.SAVE);
+               fileDialog.setText("Specify a name for the archive");
+               fileDialog.setFilterExtensions(new String[] { "*" + targetType.getExtension() });
+               fileDialog.setFileName(DEFAULT_PREFIX + "s" + targetType.getExtension());
+               fileDialog.setOverwrite(true);
+               name = fileDialog.open();
+            }
+            if (name == null) {
+               return;
+            }
+            textTargetName.setText(name.trim());
+         }
+      });
+
+      return container;
+   }
+
+   @Override
+   protected void okPressed() {
+
+      targetName = textTargetName.getText().trim();
+      if (Utils.isEmpty(targetName)) {
+         MessageDialog.openError(getShell(), "Invalid Target", "The directory or file name is mandatory");
+         return;
+      }
+      if ((targetType != PayloadExportTargetType.DIRECTORY) && (!targetName.endsWith(targetType.getExtension()))) {
+         targetName = targetName + targetType.getExtension();
+      }
+
+      fileNamePrefix = textFileNamePrefix.getText().trim();
+      if (Utils.isEmpty(fileNamePrefix)) {
+         fileNamePrefix = DEFAULT_PREFIX;
+      }
+
+      useCorrelationID = comboNamedAfter.getSelectionIndex() == 1;
+      withHeaders = btnWithHeaders.getSelection();
+
+      super.okPressed();
+   }
+
+   // ------------------------
+   // Standard Getters/Setters
+   // ------------------------
+
+   public PayloadExportTargetType getTargetType() {
+      return targetType;
+   }
+
+   public String getTargetName() {
+      return targetName;
+   }
+
+   public String getFileNamePrefix() {
+      return fileNamePrefix;
+   }
+
+   public boolean isUseCorrelationID() {
+      return useCorrelationID;
+   }
+
+   public boolean isWithHeaders() {
+      return withHeaders;
+   }
+
+}
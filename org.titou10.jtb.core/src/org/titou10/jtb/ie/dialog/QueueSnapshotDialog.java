@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie.dialog;
+
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.titou10.jtb.ie.QueueSnapshotFormat;
+import org.titou10.jtb.util.Utils;
+
+/**
+ * 
+ * Manage the Queue Snapshot Dialog
+ * 
+ * @author Denis Forveille
+ *
+ */
+public class QueueSnapshotDialog extends Dialog {
+
+   private final String queueName;
+
+   private String       fileName;
+   private boolean      compressed = true;
+
+   private Text         textFileName;
+   private Button       btnCompressed;
+
+   public QueueSnapshotDialog(Shell parentShell, String queueName) {
+      super(parentShell);
+      setShellStyle(SWT.RESIZE | SWT.TITLE | SWT.PRIMARY_MODAL);
+
+      this.queueName = queueName;
+   }
+
+   @Override
+   protected void configureShell(Shell newShell) {
+      super.configureShell(newShell);
+      newShell.setText("Queue Snapshot");
+   }
+
+   @Override
+   protected Point getInitialSize() {
+      Point p = super.getInitialSize();
+      return new Point(600, p.y);
+   }
+
+   @Override
+   protected void createButtonsForButtonBar(Composite parent) {
+      createButton(parent, IDialogConstants.OK_ID, "Write", true);
+      createButton(parent, IDialogConstants.CANCEL_ID, "Cancel", false);
+   }
+
+   @Override
+   protected Control createDialogArea(Composite parent) {
+      Composite container = (Composite) super.createDialogArea(parent);
+      container.setLayout(new GridLayout(3, false));
+
+      Label lblDescription = new Label(container, SWT.NONE);
+      lblDescription.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, true, false, 3, 1));
+      lblDescription.setText("Write all the messages of queue '" + queueName + "' to a snapshot file");
+
+      Label lblFile = new Label(container, SWT.NONE);
+      lblFile.setLayoutData(new GridData(SWT.RIGHT, SWT.CENTER, false, false, 1, 1));
+      lblFile.setText("File:");
+
+      textFileName = new Text(container, SWT.BORDER);
+      textFileName.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 1, 1));
+
+      Button btnBrowse = new Button(container, SWT.NONE);
+      btnBrowse.setText("Browse...");
+
+      btnCompressed = new Button(container, SWT.CHECK);
+      btnCompressed.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, true, false, 3, 1));
+      btnCompressed.setText("Compress the messages (smaller file, slower)");
+      btnCompressed.setSelection(compressed);
+
+      // Behavior
+
+      btnBrowse.addSelectionListener(new SelectionAdapter() {
+         @Override
+         public void widgetSelected(SelectionEvent e) {
+            FileDialog fileDialog = new FileDialog(getShell(), SWT.SAVE);
+            fileDialog.setText("Specify a name for the snapshot file");
+            fileDialog.setFilterExtensions(new String[] { "*" + QueueSnapshotFormat.FILE_EXTENSION });
+            fileDialog.setFileName(queueName + QueueSnapshotFormat.FILE_EXTENSION);
+            fileDialog.setOverwrite(true);
+            String name = fileDialog.open();
+            if (name == null) {
+               return;
+            }
+            textFileName.setText(name.trim());
+         }
+      });
+
+      return container;
+   }
+
+   @Override
+   protected void okPressed() {
+
+      fileName = textFileName.getText().trim();
+      if (Utils.isEmpty(fileName)) {
+         MessageDialog.openError(getShell(), "Invalid File", "The file name is mandatory");
+         return;
+      }
+      if (!fileName.endsWith(QueueSnapshotFormat.FILE_EXTENSION)) {
+         fileName = fileName + QueueSnapshotFormat.FILE_EXTENSION;
+      }
+
+      compressed = btnCompressed.getSelection();
+
+      super.okPressed();
+   }
+
+   // ------------------------
+   // Standard Getters/Setters
+   // ------------------------
+
+   public String getFileName() {
+      return fileName;
+   }
+
+   public boolean isCompressed() {
+      return compressed;
+   }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ie.dialog;
+
+import java.nio.file.Paths;
+
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Spinner;
+import org.eclipse.swt.widgets.Text;
+import org.titou10.jtb.ie.QueueSnapshotFormat;
+import org.titou10.jtb.ie.QueueSnapshotReader;
+import org.titou10.jtb.util.Utils;
+
+/**
+ * 
+ * Manage the Queue Snapshot Replay Dialog
+ * 
+ * @author Denis Forveille
+ *
+ */
+public class QueueSnapshotReplayDialog extends Dialog {
+
+   private final String destinationName;
+
+   private String       fileName;
+   private int          firstMessage;
+   private int          messagesPerSecond;
+
+   private Text         textFileName;
+   private Label        lblSnapshotInfo;
+   private Spinner      spinnerFirstMessage;
+   private Spinner      spinnerMessagesPerSecond;
+
+   public QueueSnapshotReplayDialog(Shell parentShell, String destinationName) {
+      super(parentShell);
+      setShellStyle(SWT.RESIZE | SWT.TITLE | SWT.PRIMARY_MODAL);
+
+      this.destinationName = destinationName;
+   }
+
+   @Override
+   protected void configureShell(Shell newShell) {
+      super.configureShell(newShell);
+      newShell.setText("Replay a Queue Snapshot");
+   }
+
+   @Override
+   protected Point getInitialSize() {
+      Point p = super.getInitialSize();
+      return new Point(600, p.y);
+   }
+
+   @Override
+   protected void createButtonsForButtonBar(Composite parent) {
+      createButton(parent, IDialogConstants.OK_ID, "Replay", true);
+      createButton(parent, IDialogConstants.CANCEL_ID, "Cancel", false);
+   }
+
+   @Override
+   protected Control createDialogArea(Composite parent) {
+      Composite container = (Composite) super.createDialogArea(parent);
+      container.setLayout(new GridLayout(3, false));
+
+      Label lblDescription = new Label(container, SWT.NONE);
+      lblDescription.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, true, false, 3, 1));
+      lblDescription.setText("Send the messages of a snapshot file to '" + destinationName + "'");
+
+      Label lblFile = new Label(container, SWT.NONE);
+      lblFile.setLayoutData(new GridData(SWT.RIGHT, SWT.CENTER, false, false, 1, 1));
+      lblFile.setText("File:");
+
+      textFileName = new Text(container, SWT.BORDER | SWT.READ_ONLY);
+      textFileName.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 1, 1));
+
+      Button btnBrowse = new Button(container, SWT.NONE);
+      btnBrowse.setText("Browse...");
+
+      new Label(container, SWT.NONE);
+      lblSnapshotInfo = new Label(container, SWT.NONE);
+      lblSnapshotInfo.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+
+      Label lblFirstMessage = new Label(container, SWT.NONE);
+      lblFirstMessage.setLayoutData(new GridData(SWT.RIGHT, SWT.CENTER, false, false, 1, 1));
+      lblFirstMessage.setText("Start at message #:");
+
+      spinnerFirstMessage = new Spinner(container, SWT.BORDER | SWT.RIGHT);
+      spinnerFirstMessage.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, false, false, 2, 1));
+      spinnerFirstMessage.setMinimum(1);
+      spinnerFirstMessage.setMaximum(Integer.MAX_VALUE);
+      spinnerFirstMessage.setPageIncrement(1000);
+      spinnerFirstMessage.setSelection(1);
+
+      Label lblMessagesPerSecond = new Label(container, SWT.NONE);
+      lblMessagesPerSecond.setLayoutData(new GridData(SWT.RIGHT, SWT.CENTER, false, false, 1, 1));
+      lblMessagesPerSecond.setText("Messages per second:");
+
+      spinnerMessagesPerSecond = new Spinner(container, SWT.BORDER | SWT.RIGHT);
+      spinnerMessagesPerSecond.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, false, false, 2, 1));
+      spinnerMessagesPerSecond.setToolTipText("Max number of messages sent per second.\n0=no limit");
+      spinnerMessagesPerSecond.setMinimum(0);
+      spinnerMessagesPerSecond.setMaximum(999999);
+      spinnerMessagesPerSecond.setPageIncrement(100);
+      spinnerMessagesPerSecond.setSelection(0);
+
+      // Behavior
+
+      btnBrowse.addSelectionListener(new SelectionAdapter() {
+         @Override
+         public void widgetSelected(SelectionEvent e) {
+            FileDialog fileDialog = new FileDialog(getShell(), SWT.OPEN);
+            fileDialog.setText("Select the snapshot file to replay");
+            fileDialog.setFilterExtensions(new String[] { "*" + QueueSnapshotFormat.FILE_EXTENSION, "*" });
+            String name = fileDialog.open();
+            if (name == null) {
+               return;
+            }
+            showSnapshotInfo(name.trim());
+         }
+      });
+
+      return container;
+   }
+
+   @Override
+   protected void okPressed() {
+
+      fileName = textFileName.getText().trim();
+      if (Utils.isEmpty(fileName)) {
+         MessageDialog.openError(getShell(), "Invalid File", "Please select a snapshot file");
+         return;
+      }
+
+      firstMessage = spinnerFirstMessage.getSelection() - 1;
+      messagesPerSecond = spinnerMessagesPerSecond.getSelection();
+
+      super.okPressed();
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private void showSnapshotInfo(String name) {
+      try (QueueSnapshotReader reader = new QueueSnapshotReader(Paths.get(name))) {
+         StringBuilder sb = new StringBuilder(128);
+         sb.append("Queue '").append(reader.getQueueName()).append("' of session '").append(reader.getSessionName());
+         sb.append("', taken on ").append(Utils.formatTimestamp(reader.getCreationTime(), false));
+         if (reader.getNbRecords() >= 0) {
+            sb.append(": ").append(reader.getNbRecords()).append(" message(s)");
+            spinnerFirstMessage.setMaximum(Math.max(1, reader.getNbRecords()));
+         } else {
+            sb.append(" (incomplete file)");
+            spinnerFirstMessage.setMaximum(Integer.MAX_VALUE);
+         }
+         textFileName.setText(name);
+         lblSnapshotInfo.setText(sb.toString());
+      } catch (Exception e) {
+         MessageDialog.openError(getShell(), "Invalid File", e.getMessage());
+      }
+   }
+
+   // ------------------------
+   // Standard Getters/Setters
+   // ------------------------
+
+   public String getFileName() {
+      return fileName;
+   }
+
+   public int getFirstMessage() {
+      return firstMessage;
+   }
+
+   public int getMessagesPerSecond() {
+      return messagesPerSecond;
+   }
+
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jms.BytesMessage;
 import javax.jms.Connection;
@@ -36,26 +37,27 @@ import javax.jms.MapMessage;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageEOFException;
+import javax.jms.MessageListener;
 import javax.jms.MessageProducer;
 import javax.jms.ObjectMessage;
-import javax.jms.Queue;
 import javax.jms.QueueBrowser;
 import javax.jms.Session;
 import javax.jms.StreamMessage;
 import javax.jms.TextMessage;
-import javax.jms.Topic;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.JTBPreferenceStore;
 import org.titou10.jtb.config.gen.DestinationFilter;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QueueData;
 import org.titou10.jtb.jms.qm.TopicData;
 import org.titou10.jtb.ui.part.content.TopicListener;
 import org.titou10.jtb.util.Constants;
+import org.titou10.jtb.util.DestinationFilterMatcher;
 import org.titou10.jtb.util.Utils;
 
 /**
@@ -67,46 +69,57 @@ import org.titou10.jtb.util.Utils;
  */
 public class JTBConnection {
 
-   private static final Logger  log                           = LoggerFactory.getLogger(JTBConnection.class);
+   private static final Logger            log                           = LoggerFactory.getLogger(JTBConnection.class);
 
-   private static final Long    RECEIVE_MAX_WAIT_REMOVE       = 1 * 100L;                                    // 1 secs
-   private static final Long    RECEIVE_MAX_WAIT_REMOVE_ID    = 30 * 1000L;                                  // 30 seconds
+   private static final Long              RECEIVE_MAX_WAIT_REMOVE       = 1 * 100L;                                    // 1 secs
+   private static final Long              RECEIVE_MAX_WAIT_REMOVE_ID    = 30 * 1000L;                                  // 30 seconds
 
-   private static final String  UNKNOWN                       = "Unknown";
-   private static final String  JMSMESSAGEID_STD_PREFIX       = "ID:";
-   private static final int     JMSMESSAGEID_STD_PREFIX_START = JMSMESSAGEID_STD_PREFIX.length();
+   private static final String            UNKNOWN                       = "Unknown";
+   private static final String            JMSMESSAGEID_STD_PREFIX       = "ID:";
+   private static final int               JMSMESSAGEID_STD_PREFIX_START = JMSMESSAGEID_STD_PREFIX.length();
 
    // Global unique ID for the session
-   private static long          CONN_CLIENT_ID                = System.currentTimeMillis();
+   private static final AtomicLong        CONN_CLIENT_ID                = new AtomicLong(System.currentTimeMillis());
 
-   private JTBSessionClientType jtbSessionClientType;
-   private SessionDef           sessionDef;
-   private QManager             qm;
-   private JTBPreferenceStore   ps;
+   private JTBSessionClientType           jtbSessionClientType;
+   private SessionDef                     sessionDef;
+   private QManager                       qm;
+   private JTBPreferenceStore             ps;
 
    // JMS Provider Information
-   private boolean              connected;
-   private Connection           jmsConnection;
-   private Session              jmsSession;
-   private Map<String, Session> jmsAsynchronousSessions       = new HashMap<>();
+   private boolean                        connected;
+   private ConnectionContext              connectionContext;
+   private Connection                     jmsConnection;
+   private Session                        jmsSession;
+   private Map<String, Session>           jmsAsynchronousSessions       = new HashMap<>();
+
+   // Connection health monitoring
+   private JTBConnectionSupervisor        supervisor;
+   private Map<String, TopicSubscription> topicSubscriptions            = new HashMap<>();
 
    // Connection Metadata
-   private String               metaJMSVersion                = UNKNOWN;
-   private String               metaJMSProviderName           = UNKNOWN;
-   private List<String>         metaJMSPropertyNames          = new ArrayList<>(16);
-   private String               metaProviderVersion           = UNKNOWN;
+   private String                         metaJMSVersion                = UNKNOWN;
+   private String                         metaJMSProviderName           = UNKNOWN;
+   private List<String>                   metaJMSPropertyNames          = new ArrayList<>(16);
+   private String                         metaProviderVersion           = UNKNOWN;
 
    // Children
-   private SortedSet<JTBQueue>  jtbQueues;
-   private SortedSet<JTBTopic>  jtbTopics;
+   private SortedSet<JTBQueue>            jtbQueues;
+   private SortedSet<JTBTopic>            jtbTopics;
+
+   private SortedSet<JTBQueue>            jtbQueuesFiltered;
+   private SortedSet<JTBTopic>            jtbTopicsFiltered;
+
+   // Destinations by name, queues take precedence over topics with the same name
+   private Map<String, JTBDestination>    jtbDestinationsByName         = new HashMap<>();
 
-   private SortedSet<JTBQueue>  jtbQueuesFiltered;
-   private SortedSet<JTBTopic>  jtbTopicsFiltered;
+   // Incremented each time the destinations to display change
+   private volatile int                   destinationsVersion;
 
    // Destination filter
-   private String               filterPattern;
-   private boolean              apply;
-   private String               filterRegexPattern;
+   private String                         filterPattern;
+   private boolean                        apply;
+   private DestinationFilterMatcher       filterMatcher;
 
    // ------------------------
    // Constructor
@@ -170,42 +183,66 @@ public class JTBConnection {
 
    public void updateFilterData(String filterPattern, boolean apply) {
       this.filterPattern = filterPattern;
+      destinationsVersion++;
 
       if (filterPattern == null) {
          this.apply = false;
-         this.filterRegexPattern = null;
       } else {
          this.apply = apply;
-         filterRegexPattern = filterPattern.replaceAll(";", "|");
-         filterRegexPattern = filterRegexPattern.replaceAll("\\.", "\\\\.").replaceAll("\\?", ".").replaceAll("\\*", ".*");
       }
 
+      // Recompute the filtered destinations only if the filter changed
+      if ((filterMatcher != null) && (filterMatcher.getFilterPattern().equals(filterPattern))) {
+         return;
+      }
+      filterMatcher = DestinationFilterMatcher.compile(filterPattern);
+
       buildFilteredSortedSet();
    }
 
    private void buildFilteredSortedSet() {
+      destinationsVersion++;
 
       jtbQueuesFiltered.clear();
       jtbTopicsFiltered.clear();
 
-      if (filterRegexPattern == null) {
+      if (filterMatcher == null) {
          jtbQueuesFiltered.addAll(jtbQueues);
          jtbTopicsFiltered.addAll(jtbTopics);
          return;
       }
       for (JTBQueue jtbQueue : jtbQueues) {
-         if (jtbQueue.getName().matches(filterRegexPattern)) {
+         if (filterMatcher.matches(jtbQueue.getName())) {
             jtbQueuesFiltered.add(jtbQueue);
          }
       }
 
       for (JTBTopic jtbTopic : jtbTopics) {
-         if (jtbTopic.getName().matches(filterRegexPattern)) {
+         if (filterMatcher.matches(jtbTopic.getName())) {
             jtbTopicsFiltered.add(jtbTopic);
          }
       }
    }
 
+   // Add a destination to the lists, the name index and the filtered lists
+   private synchronized void addJTBQueue(JTBQueue jtbQueue) {
+      destinationsVersion++;
+      jtbQueues.add(jtbQueue);
+      jtbDestinationsByName.put(jtbQueue.getName(), jtbQueue);
+      if ((filterMatcher == null) || (filterMatcher.matches(jtbQueue.getName()))) {
+         jtbQueuesFiltered.add(jtbQueue);
+      }
+   }
+
+   private synchronized void addJTBTopic(JTBTopic jtbTopic) {
+      destinationsVersion++;
+      jtbTopics.add(jtbTopic);
+      jtbDestinationsByName.putIfAbsent(jtbTopic.getName(), jtbTopic);
+      if ((filterMatcher == null) || (filterMatcher.matches(jtbTopic.getName()))) {
+         jtbTopicsFiltered.add(jtbTopic);
+      }
+   }
+
    public SortedSet<JTBQueue> getJtbQueuesToDisplay() {
       if (jtbSessionClientType.isUseFiltering()) {
          if (apply) {
@@ -232,6 +269,10 @@ public class JTBConnection {
       this.filterPattern = filterPattern;
    }
 
+   public int getDestinationsVersion() {
+      return destinationsVersion;
+   }
+
    public boolean isFilterApplied() {
       if (jtbSessionClientType.isUseFiltering()) {
          return apply;
@@ -250,91 +291,262 @@ public class JTBConnection {
    // }
    // }
 
-   @SuppressWarnings("unchecked")
-   public void connect() throws Exception {
+   public synchronized void connect() throws Exception {
       log.debug("connect '{}'", this);
       if (this.isConnected()) {
          return;
       }
 
       boolean showSystemObjects = ps.getBoolean(Constants.PREF_SHOW_SYSTEM_OBJECTS);
-      String clientIdPrefix = ps.getString(Constants.PREF_CONN_CLIENT_ID_PREFIX);
-
-      // Must be a unique Name as JMS API restricts duplicate usage
-      String clientId = clientIdPrefix + "-" + CONN_CLIENT_ID++;
 
       // Create JMS connection
-      jmsConnection = qm.connect(sessionDef, showSystemObjects, clientId);
-      jmsSession = jmsConnection.createSession(true, Session.SESSION_TRANSACTED);
-      ConnectionMetaData meta = jmsConnection.getMetaData();
-      metaJMSProviderName = meta.getJMSProviderName();
-      metaProviderVersion = meta.getProviderVersion();
-      metaJMSVersion = meta.getJMSVersion();
-      metaJMSPropertyNames = Collections.list(meta.getJMSXPropertyNames());
-      Collections.sort(metaJMSPropertyNames);
+      useJMSConnection(openJMSConnection(showSystemObjects));
 
       // Build lists of destinations
-      DestinationData dd = qm.discoverDestinations(jmsConnection, showSystemObjects);
+      DestinationData dd = qm.discoverDestinations(connectionContext, showSystemObjects);
+      // JMS handles are created on first use
       for (QueueData qData : dd.getListQueueData()) {
-         log.debug("jmsSession.createQueue '{}'", qData.getName());
-         Queue jmsQ = jmsSession.createQueue(qData.getName());
-         jtbQueues.add(new JTBQueue(this, qData.getName(), jmsQ, qData.isBrowsable()));
+         addJTBQueue(new JTBQueue(this, qData.getName(), qData.isBrowsable()));
       }
 
       for (TopicData tData : dd.getListTopicData()) {
-         log.debug("jmsSession.createTopic '{}'", tData.getName());
-         Topic jmsTopic = jmsSession.createTopic(tData.getName());
-         jtbTopics.add(new JTBTopic(this, tData.getName(), jmsTopic));
+         addJTBTopic(new JTBTopic(this, tData.getName()));
       }
-
-      buildFilteredSortedSet();
+      log.debug("'{}' : {} queues and {} topics discovered", this, jtbQueues.size(), jtbTopics.size());
 
       connected = true;
+
+      // Watch the connection health
+      if (ps.getBoolean(Constants.PREF_CONN_AUTO_RECONNECT)) {
+         supervisor = new JTBConnectionSupervisor(this,
+                                                  ps.getInt(Constants.PREF_CONN_HEALTH_CHECK_INTERVAL),
+                                                  ps.getInt(Constants.PREF_CONN_RECONNECT_MAX_DELAY));
+         supervisor.start();
+      }
+   }
+
+   // Open a new JMS connection and its session. The state of this object is not changed, so no need to hold the lock
+   @SuppressWarnings("unchecked")
+   private OpenedConnection openJMSConnection(boolean showSystemObjects) throws Exception {
+      String clientIdPrefix = ps.getString(Constants.PREF_CONN_CLIENT_ID_PREFIX);
+
+      // Must be a unique Name as JMS API restricts duplicate usage
+      String clientId = clientIdPrefix + "-" + CONN_CLIENT_ID.incrementAndGet();
+
+      ConnectionContext newConnectionContext = qm.connect(sessionDef, showSystemObjects, clientId);
+      try {
+         Connection newJmsConnection = newConnectionContext.getJmsConnection();
+         OpenedConnection oc = new OpenedConnection(newConnectionContext,
+                                                    newJmsConnection.createSession(true, Session.SESSION_TRANSACTED));
+         ConnectionMetaData meta = newJmsConnection.getMetaData();
+         oc.metaJMSProviderName = meta.getJMSProviderName();
+         oc.metaProviderVersion = meta.getProviderVersion();
+         oc.metaJMSVersion = meta.getJMSVersion();
+         oc.metaJMSPropertyNames = Collections.list(meta.getJMSXPropertyNames());
+         Collections.sort(oc.metaJMSPropertyNames);
+
+         // Be notified when the Q Manager detects a problem with the connection
+         if (ps.getBoolean(Constants.PREF_CONN_AUTO_RECONNECT)) {
+            try {
+               newJmsConnection.setExceptionListener(e -> onConnectionException(e));
+            } catch (JMSException | RuntimeException e) {
+               // Some providers (JEE containers...) do not allow this
+               log.warn("Unable to register an ExceptionListener on the connection for '{}': {}", getSessionName(), e.getMessage());
+            }
+         }
+         return oc;
+      } catch (Exception e) {
+         closeQuietly(newConnectionContext);
+         throw e;
+      }
+   }
+
+   // Make a connection returned by openJMSConnection the current connection. Must be called with the lock held
+   private void useJMSConnection(OpenedConnection oc) {
+      connectionContext = oc.connectionContext;
+      jmsConnection = oc.connectionContext.getJmsConnection();
+      jmsSession = oc.jmsSession;
+      metaJMSProviderName = oc.metaJMSProviderName;
+      metaProviderVersion = oc.metaProviderVersion;
+      metaJMSVersion = oc.metaJMSVersion;
+      metaJMSPropertyNames = oc.metaJMSPropertyNames;
+   }
+
+   private void closeQuietly(ConnectionContext ctx) {
+      try {
+         qm.close(ctx);
+      } catch (Exception e) {
+         log.debug("Exception occurred when closing a connection. Ignoring: {}", e.getMessage());
+      }
+   }
+
+   // ------------------------
+   // Connection Health
+   // ------------------------
+
+   public boolean isReconnecting() {
+      JTBConnectionSupervisor s = supervisor;
+      return (s != null) && s.isFailed();
+   }
+
+   private void onConnectionException(JMSException e) {
+      log.warn("Problem reported on the connection for session '{}': {}", getSessionName(), e.getMessage());
+      JTBConnectionSupervisor s = supervisor;
+      if (s != null) {
+         s.connectionFailed();
+      }
+   }
+
+   // Lightweight check of the connection: open and close a session, a round trip to the server for most Q Managers
+   boolean ping() {
+      Connection c = jmsConnection;
+      if (c == null) {
+         return false;
+      }
+      try {
+         Session s = c.createSession(false, Session.AUTO_ACKNOWLEDGE);
+         s.close();
+         return true;
+      } catch (Exception e) {
+         log.warn("Health check failed for session '{}': {}", getSessionName(), e.getMessage());
+         return false;
+      }
+   }
+
+   // Re-establish a broken connection, keeping the destinations already known and restoring the topic subscriptions
+   // Closing the broken connection and opening the new one may block until the connection timeout of the Q Manager. This is done
+   // without holding the lock so that the other operations (disconnect, send...) fail fast in the meantime instead of blocking
+   boolean reconnect() {
+      ConnectionContext brokenConnectionContext;
+      synchronized (this) {
+         if (!connected) {
+            // Disconnected by the user in the meantime
+            return true;
+         }
+         brokenConnectionContext = connectionContext;
+         jmsAsynchronousSessions.clear();
+      }
+
+      // Close the broken connection
+      closeQuietly(brokenConnectionContext);
+
+      // Q Managers supporting multiple hosts try host, host2 and host3 in turn
+      boolean showSystemObjects = ps.getBoolean(Constants.PREF_SHOW_SYSTEM_OBJECTS);
+      OpenedConnection oc;
+      try {
+         oc = openJMSConnection(showSystemObjects);
+      } catch (Exception e) {
+         log.warn("Reconnection of session '{}' failed: {}", getSessionName(), e.getMessage());
+         return false;
+      }
+
+      // As in connect(), discover the destinations with the new context: some Q Managers keep per connection data from there
+      DestinationData dd;
+      try {
+         dd = qm.discoverDestinations(oc.connectionContext, showSystemObjects);
+      } catch (Exception e) {
+         log.warn("Discovery of destinations after reconnection of session '{}' failed: {}", getSessionName(), e.getMessage());
+         closeQuietly(oc.connectionContext);
+         return false;
+      }
+
+      synchronized (this) {
+         if ((!connected) || (connectionContext != brokenConnectionContext)) {
+            // Disconnected or connected again by the user in the meantime: the new connection is not needed
+            closeQuietly(oc.connectionContext);
+            return true;
+         }
+
+         useJMSConnection(oc);
+
+         // The JMS handles of the destinations already known will be recreated on next use
+         for (JTBQueue jtbQueue : jtbQueues) {
+            jtbQueue.resetJmsDestination();
+         }
+         for (JTBTopic jtbTopic : jtbTopics) {
+            jtbTopic.resetJmsDestination();
+         }
+         addNewDestinations(dd);
+
+         // Restore topic subscriptions
+         for (TopicSubscription ts : topicSubscriptions.values()) {
+            try {
+               ts.messageConsumer = openTopicConsumer(ts.jtbTopic, ts.messageListener, ts.selector);
+               log.debug("Subscription to '{}' restored", ts.jtbTopic);
+            } catch (Exception e) {
+               log.warn("Unable to restore the subscription to '{}': {}", ts.jtbTopic, e.getMessage());
+            }
+         }
+      }
+
+      return true;
+   }
+
+   // Create the JMS handle of a destination, called on first use of the destination
+   synchronized Destination createJmsDestination(JTBDestination jtbDestination) throws JMSException {
+      if (jtbDestination.isJTBQueue()) {
+         log.debug("jmsSession.createQueue '{}'", jtbDestination.getName());
+         return jmsSession.createQueue(jtbDestination.getName());
+      }
+      log.debug("jmsSession.createTopic '{}'", jtbDestination.getName());
+      return jmsSession.createTopic(jtbDestination.getName());
    }
 
    public void rescanDestinations() throws Exception {
       log.debug("rescanDestinations : '{}'", this);
-      if (!(this.isConnected())) {
-         // Should never occur
-         return;
+      ConnectionContext ctx;
+      synchronized (this) {
+         if (!(this.isConnected())) {
+            // Should never occur
+            return;
+         }
+         ctx = connectionContext;
       }
 
       boolean showSystemObjects = ps.getBoolean(Constants.PREF_SHOW_SYSTEM_OBJECTS);
-      DestinationData dd = qm.discoverDestinations(jmsConnection, showSystemObjects);
+      DestinationData dd = qm.discoverDestinations(ctx, showSystemObjects);
 
-      // Only process additions
+      synchronized (this) {
+         if (connected) {
+            addNewDestinations(dd);
+         }
+      }
+   }
+
+   // Only process additions. The filtered lists are updated incrementally. Must be called with the lock held
+   private void addNewDestinations(DestinationData dd) {
       for (QueueData qData : dd.getListQueueData()) {
          JTBDestination dest = getJTBDestinationByName(qData.getName());
          if (dest == null) {
-            log.debug("new Queue: jmsSession.createQueue '{}'", qData.getName());
-            Queue jmsQ = jmsSession.createQueue(qData.getName());
-            jtbQueues.add(new JTBQueue(this, qData.getName(), jmsQ, qData.isBrowsable()));
+            log.debug("New Queue: '{}'", qData.getName());
+            addJTBQueue(new JTBQueue(this, qData.getName(), qData.isBrowsable()));
          }
       }
 
       for (TopicData tData : dd.getListTopicData()) {
          JTBDestination dest = getJTBDestinationByName(tData.getName());
          if (dest == null) {
-            log.debug("New Topic: jmsSession.createTopic '{}'", tData.getName());
-            Topic jmsTopic = jmsSession.createTopic(tData.getName());
-            jtbTopics.add(new JTBTopic(this, tData.getName(), jmsTopic));
+            log.debug("New Topic: '{}'", tData.getName());
+            addJTBTopic(new JTBTopic(this, tData.getName()));
          }
       }
-
-      buildFilteredSortedSet();
-
    }
 
-   public void disconnect() throws JMSException {
+   public synchronized void disconnect() throws JMSException {
       log.debug("disconnect : '{}'", this);
       if (!(this.isConnected())) {
          return;
       }
 
+      if (supervisor != null) {
+         supervisor.stop();
+         supervisor = null;
+      }
+
       // No need to close sessions, producers etc . They will be closed when closing connection
       try {
          jmsConnection.stop();
-         qm.close(jmsConnection);
+         qm.close(connectionContext);
       } catch (Exception e) {
          log.warn("Exception occured when disconnecting. Ignoring: {}", e.getMessage());
       }
@@ -343,11 +555,14 @@ public class JTBConnection {
       // jmsSessionAsynchronous = null;
       jmsSession = null;
       jmsAsynchronousSessions.clear();
+      topicSubscriptions.clear();
 
       jtbQueues.clear();
       jtbQueuesFiltered.clear();
       jtbTopics.clear();
       jtbTopicsFiltered.clear();
+      jtbDestinationsByName.clear();
+      destinationsVersion++;
 
       metaJMSVersion = UNKNOWN;
       metaJMSProviderName = UNKNOWN;
@@ -359,7 +574,7 @@ public class JTBConnection {
    // Create/Remove Messages
    // ----------------------
 
-   public Message createJMSMessage(JTBMessageType jtbMessageType) throws JMSException {
+   public synchronized Message createJMSMessage(JTBMessageType jtbMessageType) throws JMSException {
       log.debug("createJMSMessage {}", jtbMessageType);
       switch (jtbMessageType) {
          case TEXT:
@@ -576,41 +791,76 @@ public class JTBConnection {
       return nb;
    }
 
-   public void sendMessage(JTBMessage jtbMessage, JTBDestination jtbDestination) throws JMSException {
+   public synchronized void sendMessage(JTBMessage jtbMessage, JTBDestination jtbDestination) throws JMSException {
       log.debug("sendMessage {} to {}", jtbMessage, jtbDestination);
-      Message m = jtbMessage.getJmsMessage();
       Destination d = jtbDestination.getJmsDestination();
 
       try (MessageProducer p = jmsSession.createProducer(d);) {
-         if (jtbMessage.getDeliveryMode() != null) {
-            p.setDeliveryMode(jtbMessage.getDeliveryMode().intValue());
-         }
-         if (jtbMessage.getPriority() != null) {
-            p.setPriority(jtbMessage.getPriority());
-         }
-         if (jtbMessage.getTimeToLive() != null) {
-            p.setTimeToLive(jtbMessage.getTimeToLive());
-         }
-         if (jtbMessage.getReplyToDestinationName() != null) {
-            // Destination replyToDest = jmsSession.createTemporaryQueue();
-            Destination replyToDest = jmsSession.createQueue(jtbMessage.getReplyToDestinationName());
-            m.setJMSReplyTo(replyToDest);
-         }
-         if (jtbMessage.getDeliveryDelay() != null) {
-            try {
-               p.setDeliveryDelay(jtbMessage.getDeliveryDelay());
-            } catch (Throwable t) {
-               log.warn("JMS 2.0 feature 'setDeliveryDelay' failed. ignoring. Msg: {}", t.getMessage());
-            }
-         }
-
-         p.send(m);
+         send(p, jtbMessage, false);
       }
 
       jmsSession.commit();
       log.debug("Message sent");
    }
 
+   /**
+    * Send a batch of Messages to the same destination with one producer and one commit
+    */
+   public synchronized void sendMessages(List<JTBMessage> jtbMessages, JTBDestination jtbDestination) throws JMSException {
+      log.debug("sendMessages {} messages to {}", jtbMessages.size(), jtbDestination);
+      Destination d = jtbDestination.getJmsDestination();
+
+      try (MessageProducer p = jmsSession.createProducer(d);) {
+         boolean deliveryDelaySet = false;
+         for (JTBMessage jtbMessage : jtbMessages) {
+            deliveryDelaySet = send(p, jtbMessage, deliveryDelaySet);
+         }
+      }
+
+      jmsSession.commit();
+      log.debug("{} messages sent", jtbMessages.size());
+   }
+
+   // The producer may be reused: attributes not set on the JTBMessage are reset to their default value
+   // Returns true if a delivery delay is set on the producer
+   private boolean send(MessageProducer p, JTBMessage jtbMessage, boolean deliveryDelaySet) throws JMSException {
+      Message m = jtbMessage.getJmsMessage();
+
+      if (jtbMessage.getDeliveryMode() != null) {
+         p.setDeliveryMode(jtbMessage.getDeliveryMode().intValue());
+      } else {
+         p.setDeliveryMode(Message.DEFAULT_DELIVERY_MODE);
+      }
+      if (jtbMessage.getPriority() != null) {
+         p.setPriority(jtbMessage.getPriority());
+      } else {
+         p.setPriority(Message.DEFAULT_PRIORITY);
+      }
+      if (jtbMessage.getTimeToLive() != null) {
+         p.setTimeToLive(jtbMessage.getTimeToLive());
+      } else {
+         p.setTimeToLive(Message.DEFAULT_TIME_TO_LIVE);
+      }
+      if (jtbMessage.getReplyToDestinationName() != null) {
+         // Destination replyToDest = jmsSession.createTemporaryQueue();
+         Destination replyToDest = jmsSession.createQueue(jtbMessage.getReplyToDestinationName());
+         m.setJMSReplyTo(replyToDest);
+      }
+      // Only call the JMS 2.0 API when needed
+      boolean deliveryDelay = jtbMessage.getDeliveryDelay() != null;
+      if (deliveryDelay || deliveryDelaySet) {
+         try {
+            p.setDeliveryDelay(deliveryDelay ? jtbMessage.getDeliveryDelay() : Message.DEFAULT_DELIVERY_DELAY);
+         } catch (Throwable t) {
+            log.warn("JMS 2.0 feature 'setDeliveryDelay' failed. ignoring. Msg: {}", t.getMessage());
+         }
+      }
+
+      p.send(m);
+
+      return deliveryDelay;
+   }
+
    public void sendMessage(JTBMessage jtbMessage) throws JMSException {
       sendMessage(jtbMessage, jtbMessage.getJtbDestination());
    }
@@ -618,9 +868,20 @@ public class JTBConnection {
    // ----------------
    // Topic Consumer
    // ----------------
-   public MessageConsumer createTopicConsumer(JTBTopic jtbTopic,
-                                              TopicListener messageListener,
-                                              String selector) throws JMSException {
+   public synchronized MessageConsumer createTopicConsumer(JTBTopic jtbTopic,
+                                                           TopicListener messageListener,
+                                                           String selector) throws JMSException {
+      MessageConsumer messageConsumer = openTopicConsumer(jtbTopic, messageListener, selector);
+
+      // Keep track of the subscription to restore it on reconnection
+      topicSubscriptions.put(jtbTopic.getName(), new TopicSubscription(jtbTopic, messageListener, selector, messageConsumer));
+
+      return messageConsumer;
+   }
+
+   private MessageConsumer openTopicConsumer(JTBTopic jtbTopic,
+                                             MessageListener messageListener,
+                                             String selector) throws JMSException {
       // JMS does not allow to perform synchronous and asynchronous calls simultaneously
       // We must use a separate session for this per topic
       Session jmsAsynchronousSession = jmsAsynchronousSessions.get(jtbTopic.getName());
@@ -635,9 +896,20 @@ public class JTBConnection {
       return messageConsumer;
    }
 
-   public void closeTopicConsumer(JTBTopic jtbTopic, MessageConsumer messageConsumer) throws JMSException {
+   public synchronized void closeTopicConsumer(JTBTopic jtbTopic, MessageConsumer messageConsumer) throws JMSException {
       log.debug("stopTopicConsumer for {}", jtbTopic);
 
+      // The consumer may have been replaced following a reconnection
+      TopicSubscription ts = topicSubscriptions.remove(jtbTopic.getName());
+      if ((ts != null) && (ts.messageConsumer != messageConsumer)) {
+         try {
+            messageConsumer.close();
+         } catch (Exception e) {
+            log.debug("Exception occurred when closing the consumer of the broken connection. Ignoring: {}", e.getMessage());
+         }
+         messageConsumer = ts.messageConsumer;
+      }
+
       if (messageConsumer != null) {
          messageConsumer.close();
       }
@@ -741,24 +1013,48 @@ public class JTBConnection {
       return jtbMessages;
    }
 
+   /**
+    * Browse all the Messages of a Queue one at a time, without keeping them in memory
+    * 
+    * @return the number of Messages browsed
+    */
+   public int browseQueue(JTBQueue jtbQueue, MessageVisitor visitor) throws Exception {
+      return browseQueue(jtbQueue, "", visitor);
+   }
+
+   /**
+    * Browse the Messages of a Queue matching a selector one at a time, without keeping them in memory
+    * 
+    * @return the number of Messages browsed
+    */
+   public int browseQueue(JTBQueue jtbQueue, String selectorsSearchText, MessageVisitor visitor) throws Exception {
+      log.debug("browseQueue {} with visitor. selectorsSearchText='{}'", jtbQueue, selectorsSearchText);
+
+      int n = 0;
+      try (QueueBrowser browser = jmsSession.createBrowser(jtbQueue.getJmsQueue(), selectorsSearchText);) {
+         Enumeration<?> msgs = browser.getEnumeration();
+         while (msgs.hasMoreElements()) {
+            n++;
+            if (!visitor.visit((Message) msgs.nextElement())) {
+               break;
+            }
+         }
+      }
+
+      jmsSession.commit();
+
+      return n;
+   }
+
    // ------------------------
    // Helpers
    // ------------------------
 
    public JTBDestination getJTBDestinationByName(String destinationName) {
-      for (JTBQueue jtbQueue : jtbQueues) {
-         if (jtbQueue.getName().equals(destinationName)) {
-            return jtbQueue;
-         }
+      if (destinationName == null) {
+         return null;
       }
-
-      for (JTBTopic jtbTopic : jtbTopics) {
-         if (jtbTopic.getName().equals(destinationName)) {
-            return jtbTopic;
-         }
-      }
-
-      return null;
+      return jtbDestinationsByName.get(destinationName);
    }
 
    // ------------------------
@@ -809,8 +1105,61 @@ public class JTBConnection {
       return jmsConnection;
    }
 
+   public ConnectionContext getConnectionContext() {
+      return connectionContext;
+   }
+
    public SessionDef getSessionDef() {
       return sessionDef;
    }
 
+   // ------------------------
+   // Browse visitor
+   // ------------------------
+
+   @FunctionalInterface
+   public interface MessageVisitor {
+
+      /**
+       * @return false to stop browsing
+       */
+      boolean visit(Message message) throws Exception;
+   }
+
+   // ------------------------
+   // Topic subscriptions
+   // ------------------------
+
+   private static final class TopicSubscription {
+      private final JTBTopic        jtbTopic;
+      private final MessageListener messageListener;
+      private final String          selector;
+      private MessageConsumer       messageConsumer;
+
+      private TopicSubscription(JTBTopic jtbTopic,
+                                MessageListener messageListener,
+                                String selector,
+                                MessageConsumer messageConsumer) {
+         this.jtbTopic = jtbTopic;
+         this.messageListener = messageListener;
+         this.selector = selector;
+         this.messageConsumer = messageConsumer;
+      }
+   }
+
+   // A connection opened but not yet used by this JTBConnection
+   private static final class OpenedConnection {
+      private final ConnectionContext connectionContext;
+      private final Session           jmsSession;
+      private String                  metaJMSVersion;
+      private String                  metaJMSProviderName;
+      private List<String>            metaJMSPropertyNames;
+      private String                  metaProviderVersion;
+
+      private OpenedConnection(ConnectionContext connectionContext, Session jmsSession) {
+         this.connectionContext = connectionContext;
+         this.jmsSession = jmsSession;
+      }
+   }
+
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.jms.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.util.Constants;
+
+/**
+ * Job that watches the health of a JTBConnection:
+ * <ul>
+ * <li>periodically "pings" the connection (optional)</li>
+ * <li>when the connection is reported as broken by the ping or by the JMS ExceptionListener, tries to re-establish it with an
+ * exponential backoff between attempts</li>
+ * </ul>
+ * 
+ * @author Denis Forveille
+ *
+ */
+final class JTBConnectionSupervisor extends Job {
+
+   private static final Logger log                = LoggerFactory.getLogger(JTBConnectionSupervisor.class);
+
+   private static final long   INITIAL_BACKOFF_MS = 1000L;
+
+   private final JTBConnection jtbConnection;
+   private final long          pingIntervalMs;
+   private final long          maxBackoffMs;
+
+   private volatile boolean    failed;
+   private volatile boolean    stopped;
+   private int                 nbAttempts;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   JTBConnectionSupervisor(JTBConnection jtbConnection, int pingIntervalSeconds, int maxBackoffSeconds) {
+      super("Connection supervisor for '" + jtbConnection.getSessionName() + "'");
+      this.setSystem(true);
+      this.jtbConnection = jtbConnection;
+      this.pingIntervalMs = TimeUnit.SECONDS.toMillis(pingIntervalSeconds);
+      this.maxBackoffMs = Math.max(INITIAL_BACKOFF_MS, TimeUnit.SECONDS.toMillis(maxBackoffSeconds));
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   void start() {
+      log.debug("Starting '{}'. pingIntervalMs: {} maxBackoffMs: {}", getName(), pingIntervalMs, maxBackoffMs);
+      if (pingIntervalMs > 0) {
+         schedule(pingIntervalMs);
+      }
+   }
+
+   void stop() {
+      log.debug("Stopping '{}'", getName());
+      stopped = true;
+      cancel();
+   }
+
+   // The connection has been reported as broken. Start reconnecting now
+   void connectionFailed() {
+      if (stopped) {
+         return;
+      }
+      if (!failed) {
+         failed = true;
+         schedule();
+      }
+   }
+
+   boolean isFailed() {
+      return failed;
+   }
+
+   @Override
+   protected IStatus run(IProgressMonitor monitor) {
+      if (stopped || monitor.isCanceled()) {
+         return Status.OK_STATUS;
+      }
+
+      // Delay before the next run, -1 to not run again until a problem is reported
+      // Always reschedule, even if an unexpected exception occurs, otherwise the connection is not watched anymore
+      long nextRunDelay = -1;
+      try {
+         if (!failed) {
+            if (jtbConnection.ping()) {
+               nextRunDelay = pingIntervalMs;
+               return Status.OK_STATUS;
+            }
+            failed = true;
+         }
+
+         nbAttempts++;
+         nextRunDelay = Math.min(INITIAL_BACKOFF_MS << Math.min(nbAttempts - 1, 20), maxBackoffMs);
+         log.info("Trying to reconnect session '{}'. Attempt #{}", jtbConnection.getSessionName(), nbAttempts);
+         if (jtbConnection.reconnect()) {
+            log.info("Session '{}' reconnected after {} attempt(s)", jtbConnection.getSessionName(), nbAttempts);
+            failed = false;
+            nbAttempts = 0;
+            nextRunDelay = pingIntervalMs > 0 ? pingIntervalMs : -1;
+         } else {
+            log.debug("Next reconnection attempt for session '{}' in {} ms", jtbConnection.getSessionName(), nextRunDelay);
+         }
+      } catch (RuntimeException e) {
+         log.error("Unexpected exception occurred when supervising session '" + jtbConnection.getSessionName() + "'", e);
+      } finally {
+         if ((!stopped) && (nextRunDelay >= 0)) {
+            schedule(nextRunDelay);
+         }
+      }
+
+      return Status.OK_STATUS;
+   }
+
+   @Override
+   public boolean shouldSchedule() {
+      return !stopped;
+   }
+
+   @Override
+   public boolean belongsTo(Object family) {
+      if (family instanceof String) {
+         return Constants.JTB_JOBS_FAMILY.equals(family);
+      }
+      return false;
+   }
+}
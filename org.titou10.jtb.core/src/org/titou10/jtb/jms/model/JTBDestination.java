@@ -17,28 +17,30 @@
 package org.titou10.jtb.jms.model;
 
 import javax.jms.Destination;
+import javax.jms.JMSException;
 
 /**
  * 
  * Encapsulates a JMS Destination
  * 
+ * The JMS Destination handle is created on first use only, as most of the destinations discovered are never used
+ * 
  * @author Denis Forveille
  * 
  */
 public abstract class JTBDestination implements JTBObject {
 
-   private JTBConnection jtbConnection;
-   private String        name;
-   private Destination   jmsDestination;
+   private JTBConnection        jtbConnection;
+   private String               name;
+   private volatile Destination jmsDestination;
 
    // ------------------------
    // Constructor
    // ------------------------
 
-   public JTBDestination(JTBConnection jtbConnection, String name, Destination jmsDestination) {
+   public JTBDestination(JTBConnection jtbConnection, String name) {
       this.jtbConnection = jtbConnection;
       this.name = name;
-      this.jmsDestination = jmsDestination;
    }
 
    // ------------------------
@@ -76,8 +78,19 @@ public abstract class JTBDestination implements JTBObject {
       return name;
    }
 
-   public Destination getJmsDestination() {
-      return jmsDestination;
+   public Destination getJmsDestination() throws JMSException {
+      // No lock here: in the rare case of a race, the handle is created twice, which is harmless
+      Destination d = jmsDestination;
+      if (d == null) {
+         d = jtbConnection.createJmsDestination(this);
+         jmsDestination = d;
+      }
+      return d;
+   }
+
+   // Used when the JMS connection has been re-established. The handle will be recreated on next use
+   void resetJmsDestination() {
+      this.jmsDestination = null;
    }
 
    public JTBConnection getJtbConnection() {
@@ -420,10 +420,18 @@ public class JTBMessageTemplate implements Serializable {
       return jmsMessageID;
    }
 
+   public void setJmsMessageID(String jmsMessageID) {
+      this.jmsMessageID = jmsMessageID;
+   }
+
    public Long getJmsTimestamp() {
       return jmsTimestamp;
    }
 
+   public void setJmsTimestamp(Long jmsTimestamp) {
+      this.jmsTimestamp = jmsTimestamp;
+   }
+
    public String getJmsType() {
       return jmsType;
    }
@@ -500,10 +508,18 @@ public class JTBMessageTemplate implements Serializable {
       return jmsDeliveryTime;
    }
 
+   public void setJmsDeliveryTime(Long jmsDeliveryTime) {
+      this.jmsDeliveryTime = jmsDeliveryTime;
+   }
+
    public Long getJmsExpiration() {
       return jmsExpiration;
    }
 
+   public void setJmsExpiration(Long jmsExpiration) {
+      this.jmsExpiration = jmsExpiration;
+   }
+
    public void setDeliveryMode(JTBDeliveryMode deliveryMode) {
       this.deliveryMode = deliveryMode;
    }
@@ -16,6 +16,7 @@
  */
 package org.titou10.jtb.jms.model;
 
+import javax.jms.JMSException;
 import javax.jms.Queue;
 
 /**
@@ -33,8 +34,8 @@ public class JTBQueue extends JTBDestination implements Comparable<JTBQueue> {
    // Constructor
    // ------------------------
 
-   public JTBQueue(JTBConnection jtbConnection, String name, Queue jmsQueue, boolean browsable) {
-      super(jtbConnection, name, jmsQueue);
+   public JTBQueue(JTBConnection jtbConnection, String name, boolean browsable) {
+      super(jtbConnection, name);
       this.browsable = browsable;
    }
 
@@ -57,7 +58,7 @@ public class JTBQueue extends JTBDestination implements Comparable<JTBQueue> {
    }
 
    // Helper to avoid casting
-   public Queue getJmsQueue() {
+   public Queue getJmsQueue() throws JMSException {
       return (Queue) getJmsDestination();
    }
 
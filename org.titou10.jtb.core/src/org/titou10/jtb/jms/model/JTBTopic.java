@@ -16,8 +16,6 @@
  */
 package org.titou10.jtb.jms.model;
 
-import javax.jms.Topic;
-
 /**
  * 
  * Encapsulates a JMS Topic
@@ -31,8 +29,8 @@ public class JTBTopic extends JTBDestination implements Comparable<JTBTopic> {
    // Constructor
    // ------------------------
 
-   public JTBTopic(JTBConnection jtbConnection, String name, Topic jmsTopic) {
-      super(jtbConnection, name, jmsTopic);
+   public JTBTopic(JTBConnection jtbConnection, String name) {
+      super(jtbConnection, name);
    }
 
    // -------------
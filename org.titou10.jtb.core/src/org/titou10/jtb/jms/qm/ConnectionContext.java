@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.jms.qm;
+
+import javax.jms.Connection;
+
+/**
+ * Per-connection state of a Q Manager
+ * 
+ * Returned by QManager.connect() and given back to the Q Manager for every operation done on this connection. Q Managers that
+ * keep resources associated to the JMS Connection (administration sessions, JMX connectors...) subclass it to hold them
+ * 
+ * The same instance may be used by several threads at the same time (Background jobs, UI, REST connector...). Subclasses must be
+ * thread-safe: keep the resources created at connection time in final fields, and use concurrent collections for the state
+ * built afterwards
+ * 
+ * @author Denis Forveille
+ * 
+ */
+public class ConnectionContext {
+
+   private final Connection jmsConnection;
+
+   // ------------------------
+   // Constructor
+   // ------------------------
+   public ConnectionContext(Connection jmsConnection) {
+      this.jmsConnection = jmsConnection;
+   }
+
+   // ------------------------
+   // Standard Getters
+   // ------------------------
+   public final Connection getJmsConnection() {
+      return jmsConnection;
+   }
+
+}
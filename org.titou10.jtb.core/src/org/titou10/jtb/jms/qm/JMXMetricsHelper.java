@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.jms.qm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads attributes of MBeans on behalf of the Q Managers that expose their metrics via JMX
+ * 
+ * One instance is created per connection and kept in the ConnectionContext:
+ * <ul>
+ * <li>the ObjectName matching a pattern (eg "...,type=Queue,name=Q1,*") is queried once and kept until the MBean disappears</li>
+ * <li>all the attributes of an MBean are read with one getAttributes call</li>
+ * <li>the attributes of a set of MBeans are read in parallel</li>
+ * <li>each remote call is bounded by a timeout</li>
+ * </ul>
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class JMXMetricsHelper {
+
+   private static final Logger           log              = LoggerFactory.getLogger(JMXMetricsHelper.class);
+
+   private static final int              BULK_MAX_THREADS = 8;
+   private static final int              CALL_MAX_THREADS = 4;
+   private static final int              CALL_MAX_QUEUED  = 64;
+
+   private final String                  name;
+   private final MBeanAccessor           accessor;
+   private final long                    timeout;
+   private final ThreadPoolExecutor      bulkExecutor;
+   private final ThreadPoolExecutor      callExecutor;
+
+   // Set on the threads performing a bulk read
+   private final ThreadLocal<Boolean>    inBulkRead       = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+   // ObjectName per pattern
+   private final Map<String, ObjectName> objectNames      = new ConcurrentHashMap<>();
+
+   /**
+    * Minimal access to an MBean server. Implemented by Q Managers whose JMX client is not an MBeanServerConnection
+    */
+   public interface MBeanAccessor {
+      Set<ObjectName> queryNames(ObjectName pattern) throws Exception;
+
+      AttributeList getAttributes(ObjectName objectName, String[] attributeNames) throws Exception;
+   }
+
+   // ------------
+   // Constructors
+   // ------------
+
+   /**
+    * @param name
+    *           Used to name the threads
+    * @param mbsc
+    *           The MBean server
+    * @param timeout
+    *           Max time in ms for one remote call
+    */
+   public JMXMetricsHelper(String name, MBeanServerConnection mbsc, long timeout) {
+      this(name, new MBeanAccessor() {
+         @Override
+         public Set<ObjectName> queryNames(ObjectName pattern) throws Exception {
+            return mbsc.queryNames(pattern, null);
+         }
+
+         @Override
+         public AttributeList getAttributes(ObjectName objectName, String[] attributeNames) throws Exception {
+            return mbsc.getAttributes(objectName, attributeNames);
+         }
+      }, timeout);
+   }
+
+   public JMXMetricsHelper(String name, MBeanAccessor accessor, long timeout) {
+      this.name = name;
+      this.accessor = accessor;
+      this.timeout = timeout;
+
+      // Threads are only kept while in use. Bulk reads and single calls use distinct bounded pools, so that single calls never
+      // wait behind bulk reads. If the MBean server hangs, the single calls are queued then rejected instead of adding threads
+      AtomicInteger threadNumber = new AtomicInteger();
+      ThreadFactory threadFactory = r -> {
+         Thread t = new Thread(r, "JTB-JMX-" + name + "-" + threadNumber.incrementAndGet());
+         t.setDaemon(true);
+         return t;
+      };
+      this.bulkExecutor = new ThreadPoolExecutor(BULK_MAX_THREADS,
+                                                 BULK_MAX_THREADS,
+                                                 30,
+                                                 TimeUnit.SECONDS,
+                                                 new LinkedBlockingQueue<>(),
+                                                 threadFactory);
+      this.bulkExecutor.allowCoreThreadTimeOut(true);
+      this.callExecutor = new ThreadPoolExecutor(CALL_MAX_THREADS,
+                                                 CALL_MAX_THREADS,
+                                                 30,
+                                                 TimeUnit.SECONDS,
+                                                 new ArrayBlockingQueue<>(CALL_MAX_QUEUED),
+                                                 threadFactory);
+      this.callExecutor.allowCoreThreadTimeOut(true);
+   }
+
+   // ----------------
+   // Business methods
+   // ----------------
+
+   /**
+    * Query the ObjectNames matching the pattern
+    */
+   public Set<ObjectName> queryNames(String pattern) throws Exception {
+      ObjectName on = new ObjectName(pattern);
+      Set<ObjectName> names = call(() -> accessor.queryNames(on));
+      return names == null ? Collections.emptySet() : names;
+   }
+
+   /**
+    * Keep the ObjectName of an MBean found by other means (eg during the discovery of the destinations)
+    */
+   public void cacheObjectName(String pattern, ObjectName objectName) {
+      objectNames.put(pattern, objectName);
+   }
+
+   /**
+    * Forget all the ObjectNames kept so far (eg before a new discovery of the destinations)
+    */
+   public void clearObjectNames() {
+      objectNames.clear();
+   }
+
+   /**
+    * Return the ObjectName matching the pattern, or null if there is none
+    */
+   public ObjectName findObjectName(String pattern) throws Exception {
+      ObjectName on = objectNames.get(pattern);
+      if (on != null) {
+         return on;
+      }
+
+      Set<ObjectName> names = queryNames(pattern);
+      if (names.isEmpty()) {
+         return null;
+      }
+      on = names.iterator().next();
+      objectNames.put(pattern, on);
+      return on;
+   }
+
+   /**
+    * Read the attributes of the MBean matching the pattern. Return null if there is no such MBean
+    */
+   public Map<String, Object> getAttributes(String pattern, String... attributeNames) throws Exception {
+      ObjectName on = findObjectName(pattern);
+      if (on == null) {
+         return null;
+      }
+
+      try {
+         AttributeList attributes = call(() -> accessor.getAttributes(on, attributeNames));
+         Map<String, Object> values = new HashMap<>(attributeNames.length);
+         for (Attribute attribute : attributes.asList()) {
+            values.put(attribute.getName(), attribute.getValue());
+         }
+         return values;
+      } catch (InstanceNotFoundException e) {
+         // The MBean has been removed since the ObjectName was cached
+         objectNames.remove(pattern);
+         return null;
+      }
+   }
+
+   /**
+    * Read the attributes of a set of MBeans in parallel
+    * 
+    * @param patterns
+    *           pattern of the ObjectName for each key
+    * @return the attributes per key. Keys whose MBean does not exist or could not be read are absent
+    */
+   public <K> Map<K, Map<String, Object>> getAttributes(Map<K, String> patterns, String... attributeNames) {
+      Map<K, Map<String, Object>> result = new ConcurrentHashMap<>(patterns.size());
+      if (patterns.isEmpty()) {
+         return result;
+      }
+
+      List<Callable<Void>> tasks = new ArrayList<>(patterns.size());
+      for (Entry<K, String> e : patterns.entrySet()) {
+         tasks.add(() -> {
+            inBulkRead.set(Boolean.TRUE);
+            try {
+               Map<String, Object> values = getAttributes(e.getValue(), attributeNames);
+               if (values != null) {
+                  result.put(e.getKey(), values);
+               }
+            } catch (Exception ex) {
+               log.warn("Exception when reading attributes of '{}'. Ignoring: {}", e.getValue(), ex.getMessage());
+            } finally {
+               inBulkRead.remove();
+            }
+            return null;
+         });
+      }
+
+      // Each task performs at most 2 remote calls. Tasks not done when all the waves of tasks should be finished are cancelled
+      long waves = (tasks.size() + BULK_MAX_THREADS - 1) / BULK_MAX_THREADS;
+      try {
+         bulkExecutor.invokeAll(tasks, 2 * timeout * waves, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+
+      return result;
+   }
+
+   /**
+    * Release the threads. To be called when the connection is closed
+    */
+   public void close() {
+      bulkExecutor.shutdownNow();
+      callExecutor.shutdownNow();
+      objectNames.clear();
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   // Perform a remote call on a pooled thread, bounded by the timeout. Calls made from a bulk read are already bounded and are
+   // performed on the calling thread
+   private <T> T call(Callable<T> callable) throws Exception {
+      if (inBulkRead.get()) {
+         return callable.call();
+      }
+
+      Future<T> future;
+      try {
+         future = callExecutor.submit(callable);
+      } catch (RejectedExecutionException e) {
+         throw new TimeoutException("Too many JMX calls pending on '" + name + "'. The MBean server does not respond");
+      }
+      try {
+         return future.get(timeout, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+         future.cancel(true);
+         throw new TimeoutException("JMX call did not complete within " + timeout + " ms");
+      } catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         throw cause instanceof Exception ? (Exception) cause : e;
+      }
+   }
+}
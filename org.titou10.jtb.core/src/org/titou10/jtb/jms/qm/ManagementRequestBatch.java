@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.jms.qm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+
+/**
+ * Reads attributes of resources via a management queue, for the Q Managers that are administered by JMS messages (eg HornetQ,
+ * Artemis)
+ *
+ * All the requests are sent before waiting for the replies, instead of one round trip per attribute:
+ * <ul>
+ * <li>each request carries a JMSCorrelationID unique to the batch, and the replies are matched on it. Replies without it (ie
+ * servers that do not copy it) are matched in the order of the requests</li>
+ * <li>a temporary queue is used per batch so that replies of a failed batch can not be mixed with those of the next one</li>
+ * </ul>
+ *
+ * JMS Sessions are not thread safe: the caller must serialize the use of the session
+ *
+ * @author Denis Forveille
+ *
+ */
+public final class ManagementRequestBatch {
+
+   /**
+    * Fill the request for an attribute of a resource
+    */
+   @FunctionalInterface
+   public interface RequestWriter {
+      void write(Message request, String resourceName, String attribute) throws Exception;
+   }
+
+   /**
+    * Extract the value from a reply. Returns null if the operation failed
+    */
+   @FunctionalInterface
+   public interface ReplyReader {
+      Object read(Message reply) throws Exception;
+   }
+
+   private ManagementRequestBatch() {
+      // Utility class
+   }
+
+   /**
+    * Read some attributes of a list of resources in one batch
+    *
+    * @return the values resource by resource then attribute by attribute, null when an attribute could not be read
+    * @throws JMSException
+    *            if all the replies have not been received within the timeout
+    */
+   public static List<Object> getAttributes(Session session,
+                                            Queue managementQueue,
+                                            List<String> resourceNames,
+                                            String[] attributes,
+                                            RequestWriter writer,
+                                            ReplyReader reader,
+                                            long timeout) throws Exception {
+      int nbRequests = resourceNames.size() * attributes.length;
+      Object[] results = new Object[nbRequests];
+      if (nbRequests == 0) {
+         return new ArrayList<>(0);
+      }
+
+      String batchId = UUID.randomUUID().toString() + "-";
+
+      TemporaryQueue replyQueue = session.createTemporaryQueue();
+      MessageProducer producer = null;
+      MessageConsumer consumer = null;
+      try {
+         consumer = session.createConsumer(replyQueue);
+         producer = session.createProducer(managementQueue);
+         producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+         int n = 0;
+         for (String resourceName : resourceNames) {
+            for (String attribute : attributes) {
+               Message m = session.createMessage();
+               writer.write(m, resourceName, attribute);
+               m.setJMSCorrelationID(batchId + n++);
+               m.setJMSReplyTo(replyQueue);
+               producer.send(m);
+            }
+         }
+
+         boolean[] received = new boolean[nbRequests];
+         int nbReceived = 0;
+         int nextInOrder = 0;
+         long deadline = System.currentTimeMillis() + timeout;
+         while (nbReceived < nbRequests) {
+            long wait = deadline - System.currentTimeMillis();
+            Message r = wait > 0 ? consumer.receive(wait) : null;
+            if (r == null) {
+               throw new JMSException("Only " + nbReceived + " replies received out of " + nbRequests + " admin requests");
+            }
+
+            int index = indexOf(r.getJMSCorrelationID(), batchId, nbRequests);
+            if (index < 0) {
+               while (received[nextInOrder]) {
+                  nextInOrder++;
+               }
+               index = nextInOrder;
+            } else if (received[index]) {
+               continue; // Duplicate reply
+            }
+            received[index] = true;
+            nbReceived++;
+            results[index] = reader.read(r);
+         }
+      } finally {
+         if (producer != null) {
+            producer.close();
+         }
+         if (consumer != null) {
+            consumer.close();
+         }
+         replyQueue.delete();
+      }
+      return Arrays.asList(results);
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   // Index of the request from the correlation ID of the reply, -1 if the reply does not carry one of this batch
+   private static int indexOf(String correlationID, String batchId, int nbRequests) {
+      if ((correlationID == null) || (!correlationID.startsWith(batchId))) {
+         return -1;
+      }
+      try {
+         int index = Integer.parseInt(correlationID.substring(batchId.length()));
+         return (index >= 0) && (index < nbRequests) ? index : -1;
+      } catch (NumberFormatException e) {
+         return -1;
+      }
+   }
+}
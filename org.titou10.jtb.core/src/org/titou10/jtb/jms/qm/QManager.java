@@ -10,6 +10,7 @@
  * <http://www.gnu.org/licenses/>. */
 package org.titou10.jtb.jms.qm;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -19,7 +20,6 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 
-import javax.jms.Connection;
 import javax.jms.JMSException;
 
 import org.titou10.jtb.config.gen.Properties;
@@ -64,27 +64,40 @@ public abstract class QManager implements JTBObject, Comparable<QManager> {
    // ------------------------
 
    // Connection related
+   // The ConnectionContext returned by connect() is given back to all the other methods. It may be used concurrently by many threads
 
-   public abstract Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception;
+   public abstract ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception;
 
-   public abstract DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception;
+   public abstract DestinationData discoverDestinations(ConnectionContext connectionContext,
+                                                        boolean showSystemObjects) throws Exception;
 
-   public abstract void close(Connection jmsConnection) throws JMSException;
+   public abstract void close(ConnectionContext connectionContext) throws JMSException;
 
    // Destination related
 
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
       return null;
    }
 
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
       return Collections.emptyMap();
    }
 
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
       return Collections.emptyMap();
    }
 
+   // Statistics for many queues at once, in as few calls to the server as possible. Used by the "Queue Depth" view
+   // Return null if not supported. Queues missing from the map are processed one by one with getQueueDepth()
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+      return null;
+   }
+
+   // Number of messages in a queue that match a selector, counted by the server. Return null if not supported
+   public Long countMessages(ConnectionContext connectionContext, String queueName, String selector) {
+      return null;
+   }
+
    // Q provider related
 
    public List<QManagerProperty> getQManagerProperties() {
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.jms.qm;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Statistics of a Queue, collected in bulk by a Q Manager
+ * 
+ * Any value may be null if not provided by the Q Manager
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class QueueStatistics {
+
+   private final Integer             depth;
+   private final Date                firstMessageTimestamp;
+   private final Integer             consumerCount;
+   private final Integer             producerCount;
+
+   // Other metrics specific to the Q Manager (eg pending or received messages), displayed as is
+   private final Map<String, Object> metrics;
+
+   // ------------
+   // Constructors
+   // ------------
+   public QueueStatistics(Integer depth, Date firstMessageTimestamp, Integer consumerCount, Integer producerCount) {
+      this(depth, firstMessageTimestamp, consumerCount, producerCount, Collections.emptyMap());
+   }
+
+   public QueueStatistics(Integer depth,
+                          Date firstMessageTimestamp,
+                          Integer consumerCount,
+                          Integer producerCount,
+                          Map<String, Object> metrics) {
+      this.depth = depth;
+      this.firstMessageTimestamp = firstMessageTimestamp;
+      this.consumerCount = consumerCount;
+      this.producerCount = producerCount;
+      this.metrics = metrics;
+   }
+
+   // ------------------------
+   // Standard Getters
+   // ------------------------
+
+   public Integer getDepth() {
+      return depth;
+   }
+
+   public Date getFirstMessageTimestamp() {
+      return firstMessageTimestamp;
+   }
+
+   public Integer getConsumerCount() {
+      return consumerCount;
+   }
+
+   public Integer getProducerCount() {
+      return producerCount;
+   }
+
+   public Map<String, Object> getMetrics() {
+      return metrics;
+   }
+
+}
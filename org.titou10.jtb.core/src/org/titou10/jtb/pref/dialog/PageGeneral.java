@@ -70,7 +70,12 @@ final class PageGeneral extends PreferencePage {
    private Button              clearScriptLogsOnExecution;
    private Spinner             spinnerMaxMessagesTopic;
    private Text                textConnectionClientId;
+   private Button              autoReconnect;
+   private Spinner             spinnerHealthCheckInterval;
+   private Spinner             spinnerReconnectMaxDelay;
+   private Spinner             spinnerConnectTimeout;
    private Spinner             spinnerXMLindent;
+   private Spinner             spinnerXMLFormatMaxKB;
    private Button              synchronizeSessionBrowser;
    private Combo               comboMessageTabDisplay;
    private ComboViewer         comboCS;
@@ -203,6 +208,25 @@ final class PageGeneral extends PreferencePage {
       Label lbl13 = new Label(cIdent, SWT.LEFT);
       lbl13.setText("chars");
 
+      GridLayout gl2 = new GridLayout(3, false);
+      gl2.marginLeft = -5;
+      Composite cFormatMax = new Composite(gMessage, SWT.NONE);
+      cFormatMax.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, true, false, 2, 1));
+      cFormatMax.setLayout(gl2);
+
+      Label lbl25 = new Label(cFormatMax, SWT.LEFT);
+      lbl25.setText("Show at most ");
+      spinnerXMLFormatMaxKB = new Spinner(cFormatMax, SWT.BORDER);
+      spinnerXMLFormatMaxKB.setToolTipText("Formatting of larger XML payloads is stopped when this size is reached");
+      spinnerXMLFormatMaxKB.setMinimum(1);
+      spinnerXMLFormatMaxKB.setMaximum(99999);
+      spinnerXMLFormatMaxKB.setIncrement(1);
+      spinnerXMLFormatMaxKB.setPageIncrement(1024);
+      spinnerXMLFormatMaxKB.setTextLimit(5);
+      spinnerXMLFormatMaxKB.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, false, false, 1, 1));
+      Label lbl26 = new Label(cFormatMax, SWT.LEFT);
+      lbl26.setText("KB of formatted XML payloads");
+
       Label lbl14 = new Label(gMessage, SWT.LEFT);
       lbl14.setText("Tab selected by default in message viewer:");
       comboMessageTabDisplay = new Combo(gMessage, SWT.DROP_DOWN | SWT.READ_ONLY);
@@ -246,6 +270,40 @@ final class PageGeneral extends PreferencePage {
       trustAllCertificates.setText("Trust all server certificates. Do not check/validate servers certificate authenticity !!!");
       trustAllCertificates.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
 
+      autoReconnect = new Button(gConnection, SWT.CHECK);
+      autoReconnect.setText("Automatically reconnect sessions when the connection to the server is lost");
+      autoReconnect.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+
+      Label lbl15 = new Label(gConnection, SWT.LEFT);
+      lbl15.setText("Check connections health every (seconds, 0 = never): ");
+      spinnerHealthCheckInterval = new Spinner(gConnection, SWT.BORDER);
+      spinnerHealthCheckInterval.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, false, false, 1, 1));
+      spinnerHealthCheckInterval.setMinimum(0);
+      spinnerHealthCheckInterval.setMaximum(3600);
+      spinnerHealthCheckInterval.setIncrement(1);
+      spinnerHealthCheckInterval.setPageIncrement(10);
+      spinnerHealthCheckInterval.setTextLimit(4);
+
+      Label lbl16 = new Label(gConnection, SWT.LEFT);
+      lbl16.setText("Maximum delay between reconnection attempts (seconds): ");
+      spinnerReconnectMaxDelay = new Spinner(gConnection, SWT.BORDER);
+      spinnerReconnectMaxDelay.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, false, false, 1, 1));
+      spinnerReconnectMaxDelay.setMinimum(1);
+      spinnerReconnectMaxDelay.setMaximum(3600);
+      spinnerReconnectMaxDelay.setIncrement(1);
+      spinnerReconnectMaxDelay.setPageIncrement(10);
+      spinnerReconnectMaxDelay.setTextLimit(4);
+
+      Label lbl17 = new Label(gConnection, SWT.LEFT);
+      lbl17.setText("Timeout when connecting several sessions at once (seconds): ");
+      spinnerConnectTimeout = new Spinner(gConnection, SWT.BORDER);
+      spinnerConnectTimeout.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, false, false, 1, 1));
+      spinnerConnectTimeout.setMinimum(1);
+      spinnerConnectTimeout.setMaximum(3600);
+      spinnerConnectTimeout.setIncrement(1);
+      spinnerConnectTimeout.setPageIncrement(10);
+      spinnerConnectTimeout.setTextLimit(4);
+
       // Set Values
       spinnerMaxMessages.setSelection(ps.getInt(Constants.PREF_MAX_MESSAGES));
       spinnerAutoRefreshDelay.setSelection(ps.getInt(Constants.PREF_AUTO_REFRESH_DELAY));
@@ -257,7 +315,12 @@ final class PageGeneral extends PreferencePage {
       clearScriptLogsOnExecution.setSelection(ps.getBoolean(Constants.PREF_CLEAR_LOGS_EXECUTION));
       spinnerMaxMessagesTopic.setSelection(ps.getInt(Constants.PREF_MAX_MESSAGES_TOPIC));
       textConnectionClientId.setText(ps.getString(Constants.PREF_CONN_CLIENT_ID_PREFIX));
+      autoReconnect.setSelection(ps.getBoolean(Constants.PREF_CONN_AUTO_RECONNECT));
+      spinnerHealthCheckInterval.setSelection(ps.getInt(Constants.PREF_CONN_HEALTH_CHECK_INTERVAL));
+      spinnerReconnectMaxDelay.setSelection(ps.getInt(Constants.PREF_CONN_RECONNECT_MAX_DELAY));
+      spinnerConnectTimeout.setSelection(ps.getInt(Constants.PREF_CONN_CONNECT_TIMEOUT));
       spinnerXMLindent.setSelection(ps.getInt(Constants.PREF_XML_INDENT));
+      spinnerXMLFormatMaxKB.setSelection(ps.getInt(Constants.PREF_XML_FORMAT_MAX_KB));
       synchronizeSessionBrowser.setSelection(ps.getBoolean(Constants.PREF_SYNCHRONIZE_SESSIONS_MESSAGES));
 
       String messageTabString = ps.getString(Constants.PREF_MESSAGE_TAB_DISPLAY);
@@ -311,7 +374,12 @@ final class PageGeneral extends PreferencePage {
       clearScriptLogsOnExecution.setSelection(ps.getDefaultBoolean(Constants.PREF_CLEAR_LOGS_EXECUTION));
       spinnerMaxMessagesTopic.setSelection(ps.getDefaultInt(Constants.PREF_MAX_MESSAGES_TOPIC));
       textConnectionClientId.setText(ps.getDefaultString(Constants.PREF_CONN_CLIENT_ID_PREFIX));
+      autoReconnect.setSelection(ps.getDefaultBoolean(Constants.PREF_CONN_AUTO_RECONNECT));
+      spinnerHealthCheckInterval.setSelection(ps.getDefaultInt(Constants.PREF_CONN_HEALTH_CHECK_INTERVAL));
+      spinnerReconnectMaxDelay.setSelection(ps.getDefaultInt(Constants.PREF_CONN_RECONNECT_MAX_DELAY));
+      spinnerConnectTimeout.setSelection(ps.getDefaultInt(Constants.PREF_CONN_CONNECT_TIMEOUT));
       spinnerXMLindent.setSelection(ps.getDefaultInt(Constants.PREF_XML_INDENT));
+      spinnerXMLFormatMaxKB.setSelection(ps.getDefaultInt(Constants.PREF_XML_FORMAT_MAX_KB));
       synchronizeSessionBrowser.setSelection(ps.getDefaultBoolean(Constants.PREF_SYNCHRONIZE_SESSIONS_MESSAGES));
 
       String messageTabString = ps.getDefaultString(Constants.PREF_MESSAGE_TAB_DISPLAY);
@@ -341,7 +409,12 @@ final class PageGeneral extends PreferencePage {
       ps.setValue(Constants.PREF_CLEAR_LOGS_EXECUTION, clearScriptLogsOnExecution.getSelection());
       ps.setValue(Constants.PREF_MAX_MESSAGES_TOPIC, spinnerMaxMessagesTopic.getSelection());
       ps.setValue(Constants.PREF_CONN_CLIENT_ID_PREFIX, textConnectionClientId.getText());
+      ps.setValue(Constants.PREF_CONN_AUTO_RECONNECT, autoReconnect.getSelection());
+      ps.setValue(Constants.PREF_CONN_HEALTH_CHECK_INTERVAL, spinnerHealthCheckInterval.getSelection());
+      ps.setValue(Constants.PREF_CONN_RECONNECT_MAX_DELAY, spinnerReconnectMaxDelay.getSelection());
+      ps.setValue(Constants.PREF_CONN_CONNECT_TIMEOUT, spinnerConnectTimeout.getSelection());
       ps.setValue(Constants.PREF_XML_INDENT, spinnerXMLindent.getSelection());
+      ps.setValue(Constants.PREF_XML_FORMAT_MAX_KB, spinnerXMLFormatMaxKB.getSelection());
       ps.setValue(Constants.PREF_SYNCHRONIZE_SESSIONS_MESSAGES, synchronizeSessionBrowser.getSelection());
 
       int sel = comboMessageTabDisplay.getSelectionIndex();
@@ -86,7 +86,7 @@ public class ScriptExecutionEngine {
    private static final Logger log                     = LoggerFactory.getLogger(ScriptExecutionEngine.class);
 
    private static final String VARIABLE_NAME_SEPARATOR = ",";
-   private static final String MAX_MESSAGES_REACHED    = "MAX_MESSAGES_REACHED";
+   static final String         MAX_MESSAGES_REACHED    = "MAX_MESSAGES_REACHED";
    private static final int    NB_TICKS_VALIDATION     = 7;
    private static final int    NB_TICKS_PER_STEP       = 100000;
 
@@ -149,6 +149,17 @@ public class ScriptExecutionEngine {
    }
 
    public int executeScriptNoUI(String scriptName, final boolean simulation, int nbMessagesMax) throws Exception {
+      AtomicInteger nbMessagePost = new AtomicInteger(0);
+      executeScriptNoUI(scriptName, simulation, nbMessagesMax, new NullProgressMonitor(), nbMessagePost);
+      return nbMessagePost.get();
+   }
+
+   // Execute a script without UI, reporting progress to the monitor and the number of messages posted so far in nbMessagePost
+   public void executeScriptNoUI(String scriptName,
+                                 final boolean simulation,
+                                 int nbMessagesMax,
+                                 IProgressMonitor monitor,
+                                 AtomicInteger nbMessagePost) throws Exception {
       log.info("executeScriptNoUI scriptName '{}' simulation? {} nbMessagesMax {}", scriptName, simulation, nbMessagesMax);
 
       int msgMax = nbMessagesMax == 0 ? Integer.MAX_VALUE : nbMessagesMax;
@@ -161,9 +172,7 @@ public class ScriptExecutionEngine {
       }
 
       // Execute Script
-      AtomicInteger nbMessagePost = new AtomicInteger(0);
-      executeScriptInBackground(new NullProgressMonitor(), simulation, false, msgMax, nbMessagePost, script);
-      return nbMessagePost.get();
+      executeScriptInBackground(monitor, simulation, false, msgMax, nbMessagePost, script);
    }
 
    // -------
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.script;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.util.Constants;
+
+/**
+ * Job executing a script in background, without UI, on behalf of an external connector
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class ScriptJob extends Job {
+
+   private static final Logger log = LoggerFactory.getLogger(ScriptJob.class);
+
+   public enum ScriptJobStatus {
+                                SUBMITTED,
+                                RUNNING,
+                                SUCCESS,
+                                MAX_MESSAGES_REACHED,
+                                CANCELLED,
+                                FAILED;
+
+      public boolean isFinished() {
+         return (this != SUBMITTED) && (this != RUNNING);
+      }
+   }
+
+   private final ScriptExecutionEngine scriptExecutionEngine;
+
+   private final String                id;
+   private final String                scriptName;
+   private final boolean               simulation;
+   private final int                   nbMessagesMax;
+   private final long                  submitTime;
+
+   private final AtomicInteger         nbMessagePost = new AtomicInteger(0);
+   private final TrackingMonitor       trackingMonitor;
+
+   private volatile ScriptJobStatus    status        = ScriptJobStatus.SUBMITTED;
+   private volatile long               startTime;
+   private volatile long               endTime;
+   private volatile String             errorMessage;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   ScriptJob(ScriptExecutionEngine scriptExecutionEngine, String id, String scriptName, boolean simulation, int nbMessagesMax) {
+      super("Execute script '" + scriptName + "'");
+      this.setSystem(true);
+      this.scriptExecutionEngine = scriptExecutionEngine;
+      this.id = id;
+      this.scriptName = scriptName;
+      this.simulation = simulation;
+      this.nbMessagesMax = nbMessagesMax;
+      this.submitTime = System.currentTimeMillis();
+      this.trackingMonitor = new TrackingMonitor();
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   @Override
+   protected IStatus run(IProgressMonitor monitor) {
+      log.info("Starting script job '{}' for script '{}'. simulation? {}", id, scriptName, simulation);
+
+      trackingMonitor.jobMonitor = monitor;
+      startTime = System.currentTimeMillis();
+      status = ScriptJobStatus.RUNNING;
+
+      try {
+         scriptExecutionEngine.executeScriptNoUI(scriptName, simulation, nbMessagesMax, trackingMonitor, nbMessagePost);
+         status = ScriptJobStatus.SUCCESS;
+      } catch (InterruptedException e) {
+         if (ScriptExecutionEngine.MAX_MESSAGES_REACHED.equals(e.getMessage())) {
+            status = ScriptJobStatus.MAX_MESSAGES_REACHED;
+         } else {
+            status = ScriptJobStatus.CANCELLED;
+         }
+      } catch (OperationCanceledException e) {
+         status = ScriptJobStatus.CANCELLED;
+      } catch (Exception e) {
+         log.error("Exception occurred while executing script job '{}'", id, e);
+         errorMessage = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+         status = ScriptJobStatus.FAILED;
+      } finally {
+         endTime = System.currentTimeMillis();
+      }
+
+      log.info("Script job '{}' ended with status {}. {} messages posted", id, status, nbMessagePost.get());
+      return Status.OK_STATUS;
+   }
+
+   @Override
+   protected void canceling() {
+      log.debug("Canceling '{}'", getName());
+      trackingMonitor.setCanceled(true);
+      super.canceling();
+   }
+
+   // Called when the job has been cancelled before being run
+   void cancelledBeforeStart() {
+      log.info("Script job '{}' cancelled before being started", id);
+      trackingMonitor.setCanceled(true);
+      status = ScriptJobStatus.CANCELLED;
+      endTime = System.currentTimeMillis();
+   }
+
+   @Override
+   public boolean belongsTo(Object family) {
+      if (family instanceof String) {
+         return Constants.JTB_JOBS_FAMILY.equals(family);
+      }
+      return false;
+   }
+
+   // Number of messages posted per second, since the start of the job
+   public double getRate() {
+      if (startTime == 0) {
+         return 0;
+      }
+      long end = endTime == 0 ? System.currentTimeMillis() : endTime;
+      long elapsed = Math.max(end - startTime, 1);
+      return nbMessagePost.get() * 1000d / elapsed;
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   // Keeps track of the step currently executed and of the cancellation requests
+   private static final class TrackingMonitor extends NullProgressMonitor {
+      private volatile IProgressMonitor jobMonitor;
+      private volatile String           currentStep;
+
+      @Override
+      public void subTask(String name) {
+         this.currentStep = name;
+      }
+
+      @Override
+      public boolean isCanceled() {
+         return super.isCanceled() || ((jobMonitor != null) && jobMonitor.isCanceled());
+      }
+   }
+
+   // ---------------
+   // Getters/Setters
+   // ---------------
+
+   public String getId() {
+      return id;
+   }
+
+   public String getScriptName() {
+      return scriptName;
+   }
+
+   public boolean isSimulation() {
+      return simulation;
+   }
+
+   public int getNbMessagesMax() {
+      return nbMessagesMax;
+   }
+
+   public ScriptJobStatus getStatus() {
+      return status;
+   }
+
+   public int getNbMessagePost() {
+      return nbMessagePost.get();
+   }
+
+   public String getCurrentStep() {
+      return trackingMonitor.currentStep;
+   }
+
+   public long getSubmitTime() {
+      return submitTime;
+   }
+
+   public long getStartTime() {
+      return startTime;
+   }
+
+   public long getEndTime() {
+      return endTime;
+   }
+
+   public String getErrorMessage() {
+      return errorMessage;
+   }
+
+}
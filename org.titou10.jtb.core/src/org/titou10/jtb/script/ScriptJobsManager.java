@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.script;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.eclipse.e4.core.di.annotations.Creatable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.script.ScriptJob.ScriptJobStatus;
+
+/**
+ * Manage the scripts executed asynchronously as background jobs (REST connector...)
+ * 
+ * Several scripts may run concurrently. Finished jobs are kept for some time so their final status can be retrieved
+ * 
+ * @author Denis Forveille
+ *
+ */
+@Creatable
+@Singleton
+public class ScriptJobsManager {
+
+   private static final Logger          log                 = LoggerFactory.getLogger(ScriptJobsManager.class);
+
+   private static final long            FINISHED_JOB_TTL_MS = TimeUnit.HOURS.toMillis(1);
+
+   @Inject
+   private ScriptExecutionEngine        scriptExecutionEngine;
+
+   @Inject
+   private ScriptsManager               scriptsManager;
+
+   private final Map<String, ScriptJob> scriptJobs          = new ConcurrentHashMap<>();
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   public ScriptJob submitScript(String scriptName, boolean simulation, int nbMessagesMax) throws ScriptValidationException {
+      log.debug("submitScript scriptName '{}' simulation? {} nbMessagesMax {}", scriptName, simulation, nbMessagesMax);
+
+      // Fail fast if the script does not exist
+      String scriptNameForSearch = scriptName.startsWith("/") ? scriptName : "/" + scriptName;
+      if (!scriptsManager.getMapScripts().containsKey(scriptNameForSearch)) {
+         throw new ScriptValidationException("No script with name '" + scriptName + "' found");
+      }
+
+      purgeFinishedJobs();
+
+      String id = UUID.randomUUID().toString();
+      ScriptJob scriptJob = new ScriptJob(scriptExecutionEngine, id, scriptName, simulation, nbMessagesMax);
+      scriptJobs.put(id, scriptJob);
+      scriptJob.schedule();
+
+      log.info("Script '{}' submitted as job '{}'", scriptName, id);
+      return scriptJob;
+   }
+
+   public ScriptJob getScriptJob(String id) {
+      return scriptJobs.get(id);
+   }
+
+   public List<ScriptJob> getScriptJobs() {
+      purgeFinishedJobs();
+      List<ScriptJob> res = new ArrayList<>(scriptJobs.values());
+      res.sort(Comparator.comparingLong(ScriptJob::getSubmitTime));
+      return res;
+   }
+
+   public ScriptJob cancelScriptJob(String id) {
+      ScriptJob scriptJob = scriptJobs.get(id);
+      if (scriptJob == null) {
+         return null;
+      }
+      if (scriptJob.getStatus().isFinished()) {
+         log.debug("Script job '{}' is already finished ({})", id, scriptJob.getStatus());
+         return scriptJob;
+      }
+      log.info("Cancelling script job '{}'", id);
+      if (scriptJob.cancel()) {
+         // The job was not running yet
+         scriptJob.cancelledBeforeStart();
+      }
+      return scriptJob;
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private void purgeFinishedJobs() {
+      long limit = System.currentTimeMillis() - FINISHED_JOB_TTL_MS;
+      scriptJobs.values().removeIf(j -> j.getStatus().isFinished() && j.getEndTime() < limit);
+   }
+
+}
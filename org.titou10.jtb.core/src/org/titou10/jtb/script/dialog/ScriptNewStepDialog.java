@@ -49,7 +49,6 @@ import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.ConfigManager;
 import org.titou10.jtb.jms.model.JTBConnection;
 import org.titou10.jtb.jms.model.JTBDestination;
-import org.titou10.jtb.jms.model.JTBMessageTemplate;
 import org.titou10.jtb.jms.model.JTBSession;
 import org.titou10.jtb.jms.model.JTBSessionClientType;
 import org.titou10.jtb.script.ScriptsManager;
@@ -57,6 +56,7 @@ import org.titou10.jtb.script.gen.DataFile;
 import org.titou10.jtb.script.gen.Script;
 import org.titou10.jtb.script.gen.Step;
 import org.titou10.jtb.sessiontype.SessionTypeManager;
+import org.titou10.jtb.template.TemplateIndexEntry;
 import org.titou10.jtb.template.TemplatesManager;
 import org.titou10.jtb.template.TemplatesManager.TemplateNameStructure;
 import org.titou10.jtb.template.dialog.TemplateChooserDialog;
@@ -457,8 +457,12 @@ public class ScriptNewStepDialog extends Dialog {
       // Payload directory is only valid with Templates of type Text or Bytes
       if (payloadDirectory != null) {
          try {
-            JTBMessageTemplate template = templatesManager.getTemplateFromName(tns.getTemplateFullFileName());
-            switch (template.getJtbMessageType()) {
+            TemplateIndexEntry templateIndexEntry = templatesManager.getTemplateIndexEntry(tns.getTemplateFullFileName());
+            if (templateIndexEntry == null) {
+               MessageDialog.openError(getShell(), "Error", "Template '" + tns.getSyntheticName() + "' does not exist");
+               return;
+            }
+            switch (templateIndexEntry.getJtbMessageType()) {
                case BYTES:
                case TEXT:
                   break;
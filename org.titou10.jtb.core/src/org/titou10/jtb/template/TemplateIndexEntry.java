@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.template;
+
+import org.titou10.jtb.jms.model.JTBMessageTemplate;
+import org.titou10.jtb.jms.model.JTBMessageType;
+
+/**
+ * Lightweight description of a Template file, kept by the TemplatesManager without the template itself
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class TemplateIndexEntry {
+
+   private final String         templateFullFileName;
+   private final JTBMessageType jtbMessageType;
+   private final String         jmsType;
+   private final String         replyToDestinationName;
+   private final int            payloadSize;
+   private final long           fileSize;
+   private final long           lastModified;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   TemplateIndexEntry(String templateFullFileName, JTBMessageTemplate template, long fileSize, long lastModified) {
+      this.templateFullFileName = templateFullFileName;
+      this.jtbMessageType = template.getJtbMessageType();
+      this.jmsType = template.getJmsType();
+      this.replyToDestinationName = template.getReplyToDestinationName();
+      this.fileSize = fileSize;
+      this.lastModified = lastModified;
+
+      int size = 0;
+      if (jtbMessageType != null) {
+         switch (jtbMessageType) {
+            case TEXT:
+               size = template.getPayloadText() == null ? 0 : template.getPayloadText().length();
+               break;
+            case BYTES:
+               size = template.getPayloadBytes() == null ? 0 : template.getPayloadBytes().length;
+               break;
+            case MAP:
+               size = template.getPayloadMap() == null ? 0 : template.getPayloadMap().size();
+               break;
+            default:
+               break;
+         }
+      }
+      this.payloadSize = size;
+   }
+
+   // ------------------------
+   // Standard Getters/Setters
+   // ------------------------
+
+   public String getTemplateFullFileName() {
+      return templateFullFileName;
+   }
+
+   public JTBMessageType getJtbMessageType() {
+      return jtbMessageType;
+   }
+
+   public String getJmsType() {
+      return jmsType;
+   }
+
+   public String getReplyToDestinationName() {
+      return replyToDestinationName;
+   }
+
+   /**
+    * @return number of chars for TEXT, of bytes for BYTES, of entries for MAP templates, 0 otherwise
+    */
+   public int getPayloadSize() {
+      return payloadSize;
+   }
+
+   public long getFileSize() {
+      return fileSize;
+   }
+
+   public long getLastModified() {
+      return lastModified;
+   }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.template;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.jms.model.JTBMessageTemplate;
+
+/**
+ * In memory cache of the parsed Templates and of their index entries, keyed by path.<br>
+ * The template root directories are watched: entries are dropped as soon as the file (or one of its parent directories) changes.
+ * Files outside of the watched directories are checked against their last modification time and size instead
+ * 
+ * @author Denis Forveille
+ *
+ */
+final class TemplatesCache {
+
+   private static final Logger                 log                  = LoggerFactory.getLogger(TemplatesCache.class);
+
+   // Bigger templates are indexed but not kept in memory
+   private static final long                   MAX_CACHED_FILE_SIZE = 1024 * 1024;
+   private static final int                    MAX_CACHED_TEMPLATES = 256;
+
+   private final Map<Path, TemplateIndexEntry> index                = new ConcurrentHashMap<>();
+   private final Map<Path, JTBMessageTemplate> templates;
+
+   // Incremented on each change, to ignore templates parsed while their file was changing
+   private long                                generation;
+
+   private final Map<WatchKey, Path>           watchKeys            = new ConcurrentHashMap<>();
+   private final Set<Path>                     watchedDirs          = ConcurrentHashMap.newKeySet();
+   private WatchService                        watchService;
+   private Thread                              watcher;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   TemplatesCache() {
+      templates = Collections.synchronizedMap(new LinkedHashMap<Path, JTBMessageTemplate>(64, 0.75f, true) {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<Path, JTBMessageTemplate> eldest) {
+            return size() > MAX_CACHED_TEMPLATES;
+         }
+      });
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   /**
+    * (Re)start watching the template root directories. Everything cached so far is dropped
+    */
+   synchronized void watch(Collection<Path> rootDirs) {
+      clear();
+
+      for (WatchKey key : watchKeys.keySet()) {
+         key.cancel();
+      }
+      watchKeys.clear();
+      watchedDirs.clear();
+
+      if (watchService == null) {
+         try {
+            watchService = FileSystems.getDefault().newWatchService();
+         } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Template directories can not be watched. Templates will be checked on each read. Msg: {}", e.getMessage());
+            return;
+         }
+         watcher = new Thread(this::processEvents, "JTB Templates Watcher");
+         watcher.setDaemon(true);
+         watcher.start();
+      }
+
+      for (Path rootDir : rootDirs) {
+         registerAll(rootDir);
+      }
+      log.debug("Watching {} template directories", watchedDirs.size());
+   }
+
+   synchronized void close() {
+      if (watchService != null) {
+         try {
+            watchService.close();
+         } catch (IOException e) {
+            log.warn("Problem when closing the templates watcher", e);
+         }
+         watchService = null;
+      }
+      clear();
+   }
+
+   TemplateIndexEntry getIndexEntry(Path path) {
+      TemplateIndexEntry entry = index.get(path);
+      if ((entry == null) || (isUpToDate(path, entry))) {
+         return entry;
+      }
+      invalidate(path);
+      return null;
+   }
+
+   /**
+    * @return the cached template, to be cloned before being handed over, or null if it is not cached or has changed
+    */
+   JTBMessageTemplate getTemplate(Path path) {
+      JTBMessageTemplate template = templates.get(path);
+      if (template == null) {
+         return null;
+      }
+      // The index entry is dropped at the same time as the template
+      return getIndexEntry(path) == null ? null : template;
+   }
+
+   synchronized long getGeneration() {
+      return generation;
+   }
+
+   /**
+    * Cache a template, unless something changed since "generation" has been read, ie while the template was being read
+    */
+   synchronized void put(Path path, TemplateIndexEntry entry, JTBMessageTemplate template, long generation) {
+      if (generation != this.generation) {
+         return;
+      }
+      index.put(path, entry);
+      if (entry.getFileSize() <= MAX_CACHED_FILE_SIZE) {
+         templates.put(path, template);
+      } else {
+         templates.remove(path);
+      }
+   }
+
+   /**
+    * Drop a file, or all the files of a directory
+    */
+   synchronized void invalidate(Path path) {
+      generation++;
+      index.remove(path);
+      templates.remove(path);
+
+      index.keySet().removeIf(p -> p.startsWith(path));
+      synchronized (templates) {
+         templates.keySet().removeIf(p -> p.startsWith(path));
+      }
+   }
+
+   synchronized void clear() {
+      generation++;
+      index.clear();
+      templates.clear();
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   // Changes to files in watched directories are notified. The other ones are checked
+   private boolean isUpToDate(Path path, TemplateIndexEntry entry) {
+      if (watchedDirs.contains(path.getParent())) {
+         return true;
+      }
+      try {
+         BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+         return (attrs.lastModifiedTime().toMillis() == entry.getLastModified()) && (attrs.size() == entry.getFileSize());
+      } catch (IOException e) {
+         return false;
+      }
+   }
+
+   private void registerAll(Path dir) {
+      try {
+         Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+               WatchKey key = d.register(watchService,
+                                         StandardWatchEventKinds.ENTRY_CREATE,
+                                         StandardWatchEventKinds.ENTRY_DELETE,
+                                         StandardWatchEventKinds.ENTRY_MODIFY);
+               watchKeys.put(key, d);
+               watchedDirs.add(d);
+               return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+               return FileVisitResult.CONTINUE;
+            }
+         });
+      } catch (IOException | ClosedWatchServiceException e) {
+         log.warn("Template directory '{}' can not be watched. Msg: {}", dir, e.getMessage());
+      }
+   }
+
+   private void processEvents() {
+      WatchService ws = watchService;
+      while (true) {
+         WatchKey key;
+         try {
+            key = ws.take();
+         } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.debug("Templates watcher stopped");
+            return;
+         }
+
+         Path dir = watchKeys.get(key);
+         if (dir == null) {
+            key.reset();
+            continue;
+         }
+
+         for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+               log.debug("Templates watcher overflow. Clearing the cache");
+               clear();
+               continue;
+            }
+
+            Path child = dir.resolve((Path) event.context());
+            log.debug("Template '{}' changed ({})", child, event.kind());
+            invalidate(child);
+
+            // Watch new sub directories
+            if ((event.kind() == StandardWatchEventKinds.ENTRY_CREATE) && (Files.isDirectory(child))) {
+               synchronized (this) {
+                  if (ws == watchService) {
+                     registerAll(child);
+                  }
+               }
+            }
+         }
+
+         // The directory is no longer accessible
+         if (!key.reset()) {
+            watchKeys.remove(key);
+            watchedDirs.remove(dir);
+            invalidate(dir);
+         }
+      }
+   }
+}
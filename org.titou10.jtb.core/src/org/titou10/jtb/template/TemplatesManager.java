@@ -32,6 +32,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -44,8 +45,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.jms.JMSException;
@@ -121,6 +125,11 @@ public class TemplatesManager {
 
    private Map<IFileStore, TemplateDirectory>       mapTemplateRootDirs;
 
+   // Parsed templates, by path
+   private final TemplatesCache                     templatesCache           = new TemplatesCache();
+   // Unmarshallers are not thread safe and costly to create
+   private final Queue<Unmarshaller>                unmarshallers            = new ConcurrentLinkedQueue<>();
+
    private int                                      seqNumber                = 0;
 
    @PostConstruct
@@ -178,6 +187,11 @@ public class TemplatesManager {
       log.debug("TemplatesManager initialized");
    }
 
+   @PreDestroy
+   public void shutdown() {
+      templatesCache.close();
+   }
+
    public int getNbTemplates() {
       return mapTemplateRootDirs.size();
    }
@@ -218,11 +232,19 @@ public class TemplatesManager {
       Collections.sort(this.templateRootDirs, ROOT_TEMP_DIR_COMPARATOR);
 
       mapTemplateRootDirs = new HashMap<>(this.templateRootDirs.size());
+      List<java.nio.file.Path> rootDirPaths = new ArrayList<>(this.templateRootDirs.size());
       for (TemplateDirectory td : this.templateRootDirs) {
          IFileStore fileStore = EFS.getStore(URIUtil.toURI(td.getDirectory()));
          mapTemplateRootDirs.put(fileStore, td);
+
+         java.nio.file.Path path = toPath(fileStore);
+         if ((path != null) && (Files.isDirectory(path))) {
+            rootDirPaths.add(path);
+         }
       }
 
+      // Watch the template directories to keep the cache in sync with the files
+      templatesCache.watch(rootDirPaths);
    }
 
    public void importTemplatesDirectoryConfig(InputStream is) throws JAXBException, CoreException, FileNotFoundException {
@@ -444,15 +466,106 @@ public class TemplatesManager {
    public JTBMessageTemplate readTemplate(IFileStore templateFileStore) throws JAXBException, CoreException, IOException {
       log.debug("readTemplate: '{}'", templateFileStore);
 
-      if (!templateFileStore.fetchInfo().exists()) {
+      java.nio.file.Path path = toPath(templateFileStore);
+      if (path == null) {
+         // Not a local file: not cached
+         if (!templateFileStore.fetchInfo().exists()) {
+            return null;
+         }
+         InputStream is = templateFileStore.openInputStream(EFS.NONE, new NullProgressMonitor());
+         try (BufferedInputStream bis = new BufferedInputStream(is, BUFFER_SIZE)) {
+            return unmarshalTemplate(bis);
+         }
+      }
+
+      JTBMessageTemplate template = templatesCache.getTemplate(path);
+      if (template == null) {
+         template = loadTemplate(path);
+         if ((template == null) || (templatesCache.getTemplate(path) != template)) {
+            // Template not cached (too big...): no need to copy it
+            return template;
+         }
+      } else {
+         log.debug("Template '{}' read from cache", path);
+      }
+
+      // Callers may modify the template: never give the cached instance
+      return JTBMessageTemplate.deepClone(template);
+   }
+
+   /**
+    * Return the description of a Template from the index, without reading it if it has not changed
+    */
+   public TemplateIndexEntry getTemplateIndexEntry(String templateFullFileName) throws JAXBException, CoreException, IOException {
+      log.debug("getTemplateIndexEntry: '{}'", templateFullFileName);
+      if (templateFullFileName == null) {
          return null;
       }
 
-      // Unmarshall the template as xml
-      Unmarshaller u = jcJTBMessageTemplate.createUnmarshaller();
-      try (BufferedInputStream bis = new BufferedInputStream(templateFileStore.openInputStream(EFS.NONE, new NullProgressMonitor()),
-                                                             BUFFER_SIZE)) {
-         return (JTBMessageTemplate) u.unmarshal(bis);
+      java.nio.file.Path path = toPath(EFS.getStore(URIUtil.toURI(templateFullFileName)));
+      if (path == null) {
+         return null;
+      }
+
+      TemplateIndexEntry entry = templatesCache.getIndexEntry(path);
+      if (entry != null) {
+         return entry;
+      }
+
+      JTBMessageTemplate template = loadTemplate(path);
+      if (template == null) {
+         return null;
+      }
+      entry = templatesCache.getIndexEntry(path);
+      if (entry == null) {
+         // The file changed while it was read
+         entry = new TemplateIndexEntry(path.toString(), template, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+      }
+      return entry;
+   }
+
+   // Read a template from disk and put it in the cache
+   private JTBMessageTemplate loadTemplate(java.nio.file.Path path) throws JAXBException, IOException {
+      long generation = templatesCache.getGeneration();
+
+      BasicFileAttributes attrs;
+      try {
+         attrs = Files.readAttributes(path, BasicFileAttributes.class);
+      } catch (NoSuchFileException e) {
+         return null;
+      }
+
+      JTBMessageTemplate template;
+      try (BufferedInputStream bis = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+         template = unmarshalTemplate(bis);
+      }
+
+      TemplateIndexEntry entry = new TemplateIndexEntry(path.toString(),
+                                                        template,
+                                                        attrs.size(),
+                                                        attrs.lastModifiedTime().toMillis());
+      templatesCache.put(path, entry, template, generation);
+      return template;
+   }
+
+   private JTBMessageTemplate unmarshalTemplate(InputStream is) throws JAXBException {
+      Unmarshaller u = unmarshallers.poll();
+      if (u == null) {
+         u = jcJTBMessageTemplate.createUnmarshaller();
+      }
+      try {
+         return (JTBMessageTemplate) u.unmarshal(is);
+      } finally {
+         unmarshallers.offer(u);
+      }
+   }
+
+   private java.nio.file.Path toPath(IFileStore fileStore) {
+      try {
+         File f = fileStore.toLocalFile(EFS.NONE, new NullProgressMonitor());
+         return f == null ? null : f.toPath();
+      } catch (CoreException e) {
+         return null;
       }
    }
 
@@ -469,6 +582,12 @@ public class TemplatesManager {
                .openOutputStream(EFS.NONE, new NullProgressMonitor()), BUFFER_SIZE)) {
          m.marshal(template, bos);
       }
+
+      // Do not wait for the watcher
+      java.nio.file.Path path = toPath(templateFileStore);
+      if (path != null) {
+         templatesCache.invalidate(path);
+      }
    }
 
    public boolean createNewTemplate(Shell shell,
@@ -516,13 +635,11 @@ public class TemplatesManager {
          return null;
       }
 
-      IFileStore templateFileStore = EFS.getStore(URIUtil.toURI(templateName));
-      if (!templateFileStore.fetchInfo().exists()) {
+      JTBMessageTemplate template = readTemplate(EFS.getStore(URIUtil.toURI(templateName)));
+      if (template == null) {
          log.debug("'{}' does not exit", templateName);
-         return null;
       }
-
-      return readTemplate(templateFileStore);
+      return template;
    }
 
    // -----------------
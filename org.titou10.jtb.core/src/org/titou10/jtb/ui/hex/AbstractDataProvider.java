@@ -1,10 +1,14 @@
 package org.titou10.jtb.ui.hex;
 
-public class AbstractDataProvider implements IDataProvider {
+public abstract class AbstractDataProvider implements IDataProvider {
 
-   protected byte[] data;
-   protected int    size;
-   protected int    bytesPerRow;
+   private static final int SEARCH_CHUNK_SIZE = 1024 * 1024;
+
+   protected long           size;
+   protected int            bytesPerRow;
+
+   // Copy up to length bytes starting at position into arr, return the number of bytes copied
+   protected abstract int read(long position, byte[] arr, int offset, int length);
 
    @Override
    public void setBytesPerRow(int bpr) {
@@ -17,39 +21,52 @@ public class AbstractDataProvider implements IDataProvider {
       // 1 - 16 : 1
       // 17 - 32: 2
       // ...
-      return (size + bytesPerRow - 1) / bytesPerRow;
+      return (int) ((size + bytesPerRow - 1) / bytesPerRow);
    }
 
-   public int getDataSize() {
+   public long getDataSize() {
       return size;
    }
 
    public String getRowDescriptor(int rowNumber) {
-      String rowStr = Integer.toString(rowNumber * bytesPerRow, 16).toUpperCase();
-      while (rowStr.length() < 8) {
-         rowStr = "0" + rowStr;
-      }
-      return rowStr;
+      return String.format("%08X", (long) rowNumber * bytesPerRow);
    }
 
-   public int getData(Byte[] arr, int rowNumber) {
-      int pos = rowNumber * bytesPerRow;
-      int i = 0;
-      for (i = 0; i < bytesPerRow; i++) {
-         if (pos >= data.length) {
+   public int getData(byte[] arr, int rowNumber) {
+      return read((long) rowNumber * bytesPerRow, arr, 0, bytesPerRow);
+   }
+
+   public long find(byte[] pattern, long fromOffset) {
+      if (pattern.length == 0) {
+         return -1;
+      }
+
+      // Scan chunk by chunk, consecutive chunks overlap by pattern.length - 1 bytes
+      byte[] chunk = new byte[SEARCH_CHUNK_SIZE + pattern.length - 1];
+      long pos = Math.max(0, fromOffset);
+      while (pos + pattern.length <= size) {
+         int n = read(pos, chunk, 0, chunk.length);
+         int last = n - pattern.length;
+         for (int i = 0; i <= last; i++) {
+            if (matches(chunk, i, pattern)) {
+               return pos + i;
+            }
+         }
+         if (n < chunk.length) {
             break;
          }
-         arr[i] = Byte.valueOf(data[pos]);
-         pos++;
-      }
-      int res = i;
-      for (; i < bytesPerRow; i++) {
-         arr[i] = null;
+         pos += n - pattern.length + 1;
       }
-      if (rowNumber == 5) {
-         arr[7] = null;
+      return -1;
+   }
+
+   private static boolean matches(byte[] chunk, int start, byte[] pattern) {
+      for (int j = 0; j < pattern.length; j++) {
+         if (chunk[start + j] != pattern[j]) {
+            return false;
+         }
       }
-      return res;
+      return true;
    }
 
 }
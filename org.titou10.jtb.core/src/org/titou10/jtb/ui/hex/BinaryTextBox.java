@@ -28,7 +28,7 @@ abstract class BinaryTextBox {
    protected int              beforePos[];
    protected int              afterPos[];
 
-   protected Byte             rowTemp[];
+   protected byte             rowTemp[];
    protected StringBuilder    sbTemp;
    protected List<StyleRange> styleRanges;
 
@@ -37,7 +37,7 @@ abstract class BinaryTextBox {
       this.bytesPerRow = bpr;
       beforePos = new int[bpr];
       afterPos = new int[bpr];
-      rowTemp = new Byte[bpr];
+      rowTemp = new byte[bpr];
       calcPositions();
 
       txt = new StyledText(hex, SWT.BORDER | SWT.READ_ONLY | SWT.MULTI);
@@ -53,7 +53,7 @@ abstract class BinaryTextBox {
          }
 
          public void mouseDown(MouseEvent e) {
-            int ca = getAddressByPos(getCaretPos(e.x, e.y));
+            long ca = getAddressByPos(getCaretPos(e.x, e.y));
             hex.setSelectEnd(ca);
             if ((e.stateMask & SWT.SHIFT) == 0) {
                hex.setSelectStart(ca);
@@ -63,7 +63,7 @@ abstract class BinaryTextBox {
          }
 
          public void mouseUp(MouseEvent e) {
-            int ca = getAddressByPos(getCaretPos(e.x, e.y));
+            long ca = getAddressByPos(getCaretPos(e.x, e.y));
             hex.setSelectEnd(ca);
             hex.showSelection();
             txt.setFocus();
@@ -72,7 +72,7 @@ abstract class BinaryTextBox {
       txt.addMouseMoveListener(new MouseMoveListener() {
          public void mouseMove(MouseEvent e) {
             if ((e.stateMask & SWT.BUTTON1) != 0) {
-               int ca = getAddressByPos(getCaretPos(e.x, e.y));
+               long ca = getAddressByPos(getCaretPos(e.x, e.y));
                hex.setSelectEnd(ca);
                // scroll if out of bounds
                if (e.y < 0) {
@@ -95,7 +95,26 @@ abstract class BinaryTextBox {
       txt.addKeyListener(KeyListener.keyReleasedAdapter(e -> {
          // abort all traversal keys
          e.doit = false;
-         int caretAddress = hex.getSelectEnd();
+
+         // Goto offset, find, find next
+         if ((e.stateMask & SWT.MOD1) != 0) {
+            switch (e.keyCode) {
+               case 'g':
+                  hex.promptGotoOffset();
+                  return;
+               case 'f':
+                  hex.promptFind();
+                  return;
+               default:
+                  break;
+            }
+         }
+         if (e.keyCode == SWT.F3) {
+            hex.findNext();
+            return;
+         }
+
+         long caretAddress = hex.getSelectEnd();
 
          // move the caret according to key
          switch (e.keyCode) {
@@ -104,6 +123,7 @@ abstract class BinaryTextBox {
                break;
             case SWT.ARROW_UP:
                caretAddress = caretAddress - bytesPerRow;
+               break;
             case SWT.ARROW_RIGHT:
                caretAddress = caretAddress + 1;
                break;
@@ -146,10 +166,10 @@ abstract class BinaryTextBox {
       return row * charsPerRow + col;
    }
 
-   protected int getAddressByPos(int pos) {
+   protected long getAddressByPos(int pos) {
       int row = pos / charsPerRow;
       int col = pos % charsPerRow;
-      int addr = (hex.getShowStart() + row) * bytesPerRow;
+      long addr = (long) (hex.getShowStart() + row) * bytesPerRow;
       // simulate the printing method, and count position
       for (int i = 0; i < bytesPerRow; i++) {
          if (afterPos[i] > col) {
@@ -160,9 +180,9 @@ abstract class BinaryTextBox {
       return addr;
    }
 
-   protected int getPosByAddress(int address, boolean isForward) {
-      int row = address / bytesPerRow;
-      int col = address % bytesPerRow;
+   protected int getPosByAddress(long address, boolean isForward) {
+      int row = (int) (address / bytesPerRow);
+      int col = (int) (address % bytesPerRow);
       int pos = (row - hex.getShowStart()) * charsPerRow;
       if (isForward) {
          pos += afterPos[col];
@@ -200,7 +220,7 @@ abstract class BinaryTextBox {
       txt.setForeground(color);
    }
 
-   public void showSelection(int startByte, int endByte) {
+   public void showSelection(long startByte, long endByte) {
       if (startByte == endByte) {
          int pos = getPosByAddress(startByte, false);
          pos = HexViewer.fix(pos, txt.getText().length());
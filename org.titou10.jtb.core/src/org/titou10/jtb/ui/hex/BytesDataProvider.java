@@ -2,8 +2,20 @@ package org.titou10.jtb.ui.hex;
 
 public class BytesDataProvider extends AbstractDataProvider {
 
+   private final byte[] data;
+
    public BytesDataProvider(byte[] bytes) {
       size = bytes.length;
       data = bytes;
    }
+
+   @Override
+   protected int read(long position, byte[] arr, int offset, int length) {
+      int len = (int) Math.min(length, size - position);
+      if (len <= 0) {
+         return 0;
+      }
+      System.arraycopy(data, (int) position, arr, offset, len);
+      return len;
+   }
 }
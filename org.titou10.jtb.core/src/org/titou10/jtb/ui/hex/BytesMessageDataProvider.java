@@ -0,0 +1,66 @@
+package org.titou10.jtb.ui.hex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+/**
+ * Serves the payload of a BytesMessage. Small payloads are copied in memory, larger ones are streamed to a temporary file that
+ * is then served by a FileDataProvider, so that a large payload is not copied in the heap
+ */
+public class BytesMessageDataProvider extends AbstractDataProvider {
+
+   private static final int           IN_MEMORY_MAX = 1024 * 1024;
+   private static final int           BUFFER_SIZE   = 64 * 1024;
+
+   private final AbstractDataProvider delegate;
+   private final Path                 tempFile;
+
+   public BytesMessageDataProvider(BytesMessage bm) throws JMSException, IOException {
+      long length = bm.getBodyLength();
+      bm.reset();
+
+      if (length <= IN_MEMORY_MAX) {
+         byte[] b = new byte[(int) length];
+         bm.readBytes(b);
+         delegate = new BytesDataProvider(b);
+         tempFile = null;
+      } else {
+         tempFile = Files.createTempFile("jtb_payload_", ".bin");
+         tempFile.toFile().deleteOnExit();
+         try (OutputStream os = Files.newOutputStream(tempFile)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = bm.readBytes(buffer)) > 0) {
+               os.write(buffer, 0, n);
+            }
+         } catch (JMSException | IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+         }
+         delegate = new FileDataProvider(tempFile);
+      }
+      size = delegate.getDataSize();
+   }
+
+   @Override
+   protected int read(long position, byte[] arr, int offset, int length) {
+      return delegate.read(position, arr, offset, length);
+   }
+
+   @Override
+   public void close() {
+      delegate.close();
+      if (tempFile != null) {
+         try {
+            Files.deleteIfExists(tempFile);
+         } catch (IOException e) {
+            // NOP: deleted on exit
+         }
+      }
+   }
+}
@@ -1,19 +1,78 @@
 package org.titou10.jtb.ui.hex;
 
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
+/**
+ * Serves the content of a file without loading it in the heap: the file is memory-mapped one page at a time, only the page
+ * holding the rows currently read is kept mapped
+ */
 public class FileDataProvider extends AbstractDataProvider {
 
+   private static final long PAGE_SIZE = 16 * 1024 * 1024;
+
+   private FileChannel       channel;
+   private MappedByteBuffer  page;
+   private long              pageStart = -1;
+
    public FileDataProvider(String filename) {
+      this(Paths.get(filename));
+   }
+
+   public FileDataProvider(Path path) {
       try {
-         FileInputStream fis = new FileInputStream(filename);
-         size = fis.available();
-         data = new byte[size];
-         fis.read(data);
-         fis.close();
+         channel = FileChannel.open(path, StandardOpenOption.READ);
+         size = channel.size();
       } catch (Exception e) {
-         data = new byte[0];
+         channel = null;
          size = 0;
       }
    }
+
+   @Override
+   protected synchronized int read(long position, byte[] arr, int offset, int length) {
+      int n = 0;
+      try {
+         while ((n < length) && (position + n < size)) {
+            long p = position + n;
+            long start = p - (p % PAGE_SIZE);
+            if (start != pageStart) {
+               page = channel.map(MapMode.READ_ONLY, start, Math.min(PAGE_SIZE, size - start));
+               pageStart = start;
+            }
+            int inPage = (int) (p - start);
+            int len = Math.min(length - n, page.limit() - inPage);
+            ByteBuffer bb = page.duplicate();
+            bb.position(inPage);
+            bb.get(arr, offset + n, len);
+            n += len;
+         }
+      } catch (IOException e) {
+         // Serve what could be read
+         page = null;
+         pageStart = -1;
+      }
+      return n;
+   }
+
+   @Override
+   public synchronized void close() {
+      page = null;
+      pageStart = -1;
+      if (channel != null) {
+         try {
+            channel.close();
+         } catch (IOException e) {
+            // NOP
+         }
+         channel = null;
+      }
+      size = 0;
+   }
 }
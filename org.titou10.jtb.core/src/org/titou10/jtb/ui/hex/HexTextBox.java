@@ -1,7 +1,5 @@
 package org.titou10.jtb.ui.hex;
 
-import org.eclipse.swt.custom.StyleRange;
-
 class HexTextBox extends BinaryTextBox {
    static String   HEX_VALS   = "0123456789ABCDEF";
    static String[] BYTE_2_STR = null;
@@ -33,13 +31,7 @@ class HexTextBox extends BinaryTextBox {
    public void appendRow(IDataProvider idp, int row, boolean isLastRow) {
       int bytes = idp.getData(rowTemp, row);
       for (int i = 0; i < bytes; i++) {
-         Byte b = rowTemp[i];
-         if (b == null) {
-            styleRanges.add(new StyleRange(sbTemp.length(), 2, null, HexViewer.red));
-            sbTemp.append("??");
-         } else {
-            sbTemp.append(BYTE_2_STR[b.intValue() & 0x0FF]);
-         }
+         sbTemp.append(BYTE_2_STR[rowTemp[i] & 0x0FF]);
          if (i == bytesPerRow - 1) {
             // add new line, unless it is the last row
             if (!isLastRow) {
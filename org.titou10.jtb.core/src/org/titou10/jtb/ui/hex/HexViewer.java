@@ -1,6 +1,13 @@
 package org.titou10.jtb.ui.hex;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jface.dialogs.InputDialog;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.window.Window;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.BusyIndicator;
 import org.eclipse.swt.events.ControlEvent;
 import org.eclipse.swt.events.ControlListener;
 import org.eclipse.swt.events.SelectionListener;
@@ -17,7 +24,6 @@ public class HexViewer extends Composite {
    static Font           fnt         = SWTResourceManager.getFont("Courier New", 10, 0);
    static Color          defaultBack = SWTResourceManager.getColor(255, 255, 255);
    static Color          defaultFore = SWTResourceManager.getColor(0, 0, 0);
-   static Color          red         = SWTResourceManager.getColor(SWT.COLOR_RED);
 
    private RowTextBox    rowText;
    private HexTextBox    hexText;
@@ -33,9 +39,11 @@ public class HexViewer extends Composite {
    private int           maxShowStart;                                                  // maximal start row to show
    private int           rowsInView;                                                    // number of rows fit in the text
                                                                                         // boxes
-   private int           selectStartByte;                                               // selection start
-   private int           selectEndByte;                                                 // selection end
+   private long          selectStartByte;                                               // selection start
+   private long          selectEndByte;                                                 // selection end
    private int           bytesPerRow;                                                   // number of bytes in a row to show
+   private String        lastSearch;                                                    // last search entered
+   private byte[]        lastPattern;                                                   // bytes of the last search
 
    public HexViewer(Composite parent, int style, IDataProvider idp, int bytesPerRow) {
       super(parent, style);
@@ -70,6 +78,11 @@ public class HexViewer extends Composite {
             doResizeCalc();
          }
       });
+      this.addDisposeListener(e -> {
+         if (this.idp != null) {
+            this.idp.close();
+         }
+      });
       doResizeCalc();
    }
 
@@ -98,8 +111,8 @@ public class HexViewer extends Composite {
    }
 
    /// make sure a specific address is shown
-   protected void showCaret(int ca) {
-      int row = ca / bytesPerRow;
+   protected void showCaret(long ca) {
+      int row = (int) (ca / bytesPerRow);
 
       if (row >= rows) {
          // do not continue one line down, if it's the last byte
@@ -161,6 +174,16 @@ public class HexViewer extends Composite {
       return pos;
    }
 
+   static long fix(long pos, long maxpos) {
+      if (pos < 0) {
+         pos = 0;
+      }
+      if (pos > maxpos) {
+         pos = maxpos;
+      }
+      return pos;
+   }
+
    /// shows the current selection in both text boxes
    protected void showSelection() {
       hexText.showSelection(selectStartByte, selectEndByte);
@@ -183,19 +206,19 @@ public class HexViewer extends Composite {
       }));
    }
 
-   public void setSelectEnd(int ca) {
+   public void setSelectEnd(long ca) {
       selectEndByte = ca;
    }
 
-   public int getSelectEnd() {
+   public long getSelectEnd() {
       return selectEndByte;
    }
 
-   public void setSelectStart(int ca) {
+   public void setSelectStart(long ca) {
       selectStartByte = ca;
    }
 
-   public int getSelectStart() {
+   public long getSelectStart() {
       return selectStartByte;
    }
 
@@ -217,7 +240,7 @@ public class HexViewer extends Composite {
       return bytesPerRow;
    }
 
-   public int getDataSize() {
+   public long getDataSize() {
       if (idp == null) {
          return 0;
       }
@@ -229,6 +252,9 @@ public class HexViewer extends Composite {
    }
 
    public void setDataProvider(IDataProvider idp) {
+      if ((this.idp != null) && (this.idp != idp)) {
+         this.idp.close();
+      }
       this.idp = idp;
       if (idp == null) {
          rows = 0;
@@ -245,6 +271,103 @@ public class HexViewer extends Composite {
       showSelection();
    }
 
+   /// move the caret to an offset
+   public void gotoOffset(long offset) {
+      offset = fix(offset, getDataSize());
+      selectStartByte = offset;
+      selectEndByte = offset;
+      showCaret(offset);
+      showSelection();
+   }
+
+   /// search the pattern after the caret and select the first occurrence. Returns false if not found
+   public boolean find(byte[] pattern) {
+      if ((idp == null) || (pattern == null) || (pattern.length == 0)) {
+         return false;
+      }
+      long from = Math.min(selectStartByte, selectEndByte) + (selectStartByte == selectEndByte ? 0 : 1);
+      long[] found = new long[1];
+      BusyIndicator.showWhile(getDisplay(), () -> found[0] = idp.find(pattern, from));
+      if (found[0] < 0) {
+         return false;
+      }
+      selectStartByte = found[0];
+      selectEndByte = found[0] + pattern.length;
+      showCaret(found[0]);
+      showSelection();
+      return true;
+   }
+
+   /// ask for an offset, decimal or hexadecimal when prefixed by "0x", and go there
+   public void promptGotoOffset() {
+      InputDialog dialog = new InputDialog(getShell(),
+                                           "Go to Offset",
+                                           "Offset (decimal, or hexadecimal with prefix 0x), max " + getDataSize() + ":",
+                                           null,
+                                           s -> parseOffset(s) == null ? "Invalid offset" : null);
+      if (dialog.open() == Window.OK) {
+         gotoOffset(parseOffset(dialog.getValue()));
+      }
+   }
+
+   /// ask for hexadecimal bytes (eg "CA FE BA BE") or for a text between double quotes and search it
+   public void promptFind() {
+      InputDialog dialog = new InputDialog(getShell(),
+                                           "Find",
+                                           "Hexadecimal bytes (eg CA FE BA BE), or text between double quotes:",
+                                           lastSearch,
+                                           s -> parsePattern(s) == null ? "Invalid hexadecimal bytes" : null);
+      if (dialog.open() == Window.OK) {
+         lastSearch = dialog.getValue();
+         lastPattern = parsePattern(lastSearch);
+         findNext();
+      }
+   }
+
+   /// search the last pattern again
+   public void findNext() {
+      if (lastPattern == null) {
+         promptFind();
+         return;
+      }
+      if (!find(lastPattern)) {
+         MessageDialog.openInformation(getShell(), "Find", "'" + lastSearch + "' not found");
+      }
+   }
+
+   private static Long parseOffset(String s) {
+      String v = s.trim();
+      try {
+         if (v.startsWith("0x") || v.startsWith("0X")) {
+            return Long.parseLong(v.substring(2), 16);
+         }
+         return Long.parseLong(v);
+      } catch (NumberFormatException e) {
+         return null;
+      }
+   }
+
+   private static byte[] parsePattern(String s) {
+      String v = s.trim();
+      if ((v.length() > 1) && v.startsWith("\"") && v.endsWith("\"")) {
+         return v.substring(1, v.length() - 1).getBytes(StandardCharsets.UTF_8);
+      }
+      v = v.replaceAll("\\s", "");
+      if (v.isEmpty() || (v.length() % 2 != 0)) {
+         return null;
+      }
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(v.length() / 2);
+      for (int i = 0; i < v.length(); i += 2) {
+         int hi = Character.digit(v.charAt(i), 16);
+         int lo = Character.digit(v.charAt(i + 1), 16);
+         if ((hi < 0) || (lo < 0)) {
+            return null;
+         }
+         baos.write((hi << 4) | lo);
+      }
+      return baos.toByteArray();
+   }
+
    public void setBackground(Color color) {
       this.backcolor = color;
       rowText.setBackground(color);
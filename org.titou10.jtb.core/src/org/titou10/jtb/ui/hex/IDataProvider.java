@@ -6,10 +6,18 @@ public interface IDataProvider {
 
    int getRowCount();
 
-   int getDataSize();
+   long getDataSize();
 
    String getRowDescriptor(int rowNumber);
 
-   int getData(Byte[] arr, int rowNumber);
+   int getData(byte[] arr, int rowNumber);
+
+   // Returns the offset of the first occurrence of pattern at or after fromOffset, -1 if not found
+   long find(byte[] pattern, long fromOffset);
+
+   // Release the resources held by the provider (files, mapped buffers...)
+   default void close() {
+      // NOP
+   }
 
 }
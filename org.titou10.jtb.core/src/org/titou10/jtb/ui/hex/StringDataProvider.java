@@ -1,9 +1,8 @@
 package org.titou10.jtb.ui.hex;
 
-public class StringDataProvider extends AbstractDataProvider {
+public class StringDataProvider extends BytesDataProvider {
 
    public StringDataProvider(String text) {
-      size = text.length();
-      data = text.getBytes();
+      super(text.getBytes());
    }
 }
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ui.navigator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.titou10.jtb.jms.model.JTBDestination;
+
+//@formatter:off
+/**
+ * Virtual folder of destinations (Queues or Topics) in the tree
+ * 
+ * The children nodes are built on first use only. When the folder contains a large number of destinations, they are grouped
+ * hierarchically by name segments (ie "A.B.*" then "A.B.C.*"...). The destinations that can not be grouped are split in pages
+ * 
+ * @author Denis Forveille
+ * 
+ */
+//@formatter:on
+public class NodeDestinationFolder extends NodeFolder<NodeAbstract> {
+
+   // Max number of destinations displayed without grouping
+   private static final int                     GROUP_THRESHOLD    = 500;
+   // Max number of destinations displayed in a page
+   private static final int                     PAGE_SIZE          = 500;
+   private static final String                  SEGMENT_SEPARATORS = "./";
+
+   private final List<? extends JTBDestination> jtbDestinations;
+   private final String                         prefix;
+   private final boolean                        page;
+
+   private SortedSet<NodeAbstract>              childrenNodes;
+
+   // -----------
+   // Constructor
+   // -----------
+
+   public NodeDestinationFolder(String folderName, NodeAbstract parentNode, SortedSet<? extends JTBDestination> jtbDestinations) {
+      this(folderName, parentNode, new ArrayList<>(jtbDestinations), "", false);
+   }
+
+   private NodeDestinationFolder(String folderName,
+                                 NodeAbstract parentNode,
+                                 List<? extends JTBDestination> jtbDestinations,
+                                 String prefix,
+                                 boolean page) {
+      super(folderName, parentNode, null);
+      this.jtbDestinations = jtbDestinations;
+      this.prefix = prefix;
+      this.page = page;
+   }
+
+   // -----------
+   // NodeAbstract
+   // -----------
+
+   @Override
+   public SortedSet<NodeAbstract> getChildren() {
+      if (childrenNodes == null) {
+         childrenNodes = buildChildren();
+      }
+      return childrenNodes;
+   }
+
+   @Override
+   public Boolean hasChildren() {
+      return !jtbDestinations.isEmpty();
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   /**
+    * Find the node of a destination in this folder, building only the nodes of the groups on the path to the destination
+    */
+   public NodeAbstract findNode(JTBDestination jtbDestination) {
+      for (NodeAbstract nodeAbstract : getChildren()) {
+         if (nodeAbstract.getBusinessObject() == jtbDestination) {
+            return nodeAbstract;
+         }
+         if (nodeAbstract instanceof NodeDestinationFolder) {
+            NodeDestinationFolder folder = (NodeDestinationFolder) nodeAbstract;
+            if (folder.mayContain(jtbDestination)) {
+               NodeAbstract na = folder.findNode(jtbDestination);
+               if (na != null) {
+                  return na;
+               }
+            }
+         }
+      }
+      return null;
+   }
+
+   public int getNbDestinations() {
+      return jtbDestinations.size();
+   }
+
+   private boolean mayContain(JTBDestination jtbDestination) {
+      String name = jtbDestination.getName();
+      if (page) {
+         return (name.compareTo(jtbDestinations.get(0).getName()) >= 0)
+                && (name.compareTo(jtbDestinations.get(jtbDestinations.size() - 1).getName()) <= 0);
+      }
+      return name.startsWith(prefix);
+   }
+
+   private SortedSet<NodeAbstract> buildChildren() {
+      SortedSet<NodeAbstract> nodes = new TreeSet<>();
+
+      if (page || (jtbDestinations.size() <= GROUP_THRESHOLD)) {
+         for (JTBDestination jtbDestination : jtbDestinations) {
+            nodes.add(buildLeafNode(jtbDestination, this));
+         }
+         return nodes;
+      }
+
+      // Group the destinations by the next segment of their names. Skip the levels with only one group
+      String currentPrefix = prefix;
+      Map<String, List<JTBDestination>> groups;
+      List<JTBDestination> leaves;
+      while (true) {
+         groups = new LinkedHashMap<>();
+         leaves = new ArrayList<>();
+         for (JTBDestination jtbDestination : jtbDestinations) {
+            String name = jtbDestination.getName();
+            int pos = indexOfSeparator(name, currentPrefix.length());
+            if (pos < 0) {
+               leaves.add(jtbDestination);
+            } else {
+               groups.computeIfAbsent(name.substring(0, pos + 1), k -> new ArrayList<>()).add(jtbDestination);
+            }
+         }
+         if ((groups.size() == 1) && (leaves.isEmpty())) {
+            currentPrefix = groups.keySet().iterator().next();
+            continue;
+         }
+         break;
+      }
+
+      for (Map.Entry<String, List<JTBDestination>> e : groups.entrySet()) {
+         List<JTBDestination> group = e.getValue();
+         if (group.size() == 1) {
+            leaves.add(group.get(0));
+         } else {
+            nodes.add(new NodeDestinationFolder(e.getKey() + "*", this, group, e.getKey(), false));
+         }
+      }
+
+      if (leaves.size() <= PAGE_SIZE) {
+         for (JTBDestination jtbDestination : leaves) {
+            nodes.add(buildLeafNode(jtbDestination, this));
+         }
+         return nodes;
+      }
+
+      // Too many destinations at this level, split them in pages
+      leaves.sort((d1, d2) -> d1.getName().compareTo(d2.getName()));
+      for (int i = 0; i < leaves.size(); i += PAGE_SIZE) {
+         List<JTBDestination> pageDestinations = leaves.subList(i, Math.min(i + PAGE_SIZE, leaves.size()));
+         if (pageDestinations.size() == 1) {
+            nodes.add(buildLeafNode(pageDestinations.get(0), this));
+            continue;
+         }
+         String pageName = pageDestinations.get(0).getName() + " .. " + pageDestinations.get(pageDestinations.size() - 1).getName();
+         nodes.add(new NodeDestinationFolder(pageName, this, pageDestinations, currentPrefix, true));
+      }
+      return nodes;
+   }
+
+   private static NodeAbstract buildLeafNode(JTBDestination jtbDestination, NodeAbstract parentNode) {
+      if (jtbDestination.isJTBQueue()) {
+         return new NodeJTBQueue(jtbDestination, parentNode);
+      }
+      return new NodeJTBTopic(jtbDestination, parentNode);
+   }
+
+   private static int indexOfSeparator(String name, int fromIndex) {
+      for (int i = fromIndex; i < name.length() - 1; i++) {
+         if (SEGMENT_SEPARATORS.indexOf(name.charAt(i)) >= 0) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+}
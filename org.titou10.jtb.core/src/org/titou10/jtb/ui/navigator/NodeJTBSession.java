@@ -20,10 +20,8 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.titou10.jtb.jms.model.JTBConnection;
-import org.titou10.jtb.jms.model.JTBQueue;
 import org.titou10.jtb.jms.model.JTBSession;
 import org.titou10.jtb.jms.model.JTBSessionClientType;
-import org.titou10.jtb.jms.model.JTBTopic;
 import org.titou10.jtb.util.Constants;
 
 //@formatter:off
@@ -34,6 +32,8 @@ import org.titou10.jtb.util.Constants;
  * - Queues 
  * - Topics
  * 
+ * The folders are kept until the destinations of the connection change
+ * 
  * @author Denis Forveille
  * 
  */
@@ -41,6 +41,7 @@ import org.titou10.jtb.util.Constants;
 public class NodeJTBSession extends NodeAbstract {
 
    private SortedSet<NodeFolder<?>> folders;
+   private int                      foldersVersion = -1;
    private JTBSessionClientType     jtbSessionClientType;
 
    // -----------
@@ -50,6 +51,7 @@ public class NodeJTBSession extends NodeAbstract {
    public NodeJTBSession(JTBSession jtbSession, JTBSessionClientType jtbSessionClientType) {
       super(jtbSession, null);
       this.jtbSessionClientType = jtbSessionClientType;
+      this.folders = new TreeSet<>();
    }
 
    // -----------
@@ -58,34 +60,33 @@ public class NodeJTBSession extends NodeAbstract {
 
    @Override
    public SortedSet<NodeFolder<?>> getChildren() {
-      return folders;
-   }
-
-   @Override
-   public Boolean hasChildren() {
       JTBSession jtbSession = (JTBSession) getBusinessObject();
 
-      folders = new TreeSet<>();
-
       // No children if the session is not connected
       JTBConnection jtbConnection = jtbSession.getJTBConnection(jtbSessionClientType);
       if (!(jtbConnection.isConnected())) {
-         return false;
+         folders = new TreeSet<>();
+         foldersVersion = -1;
+         return folders;
       }
 
-      SortedSet<NodeJTBQueue> nodeQueues = new TreeSet<>();
-      for (JTBQueue jtbQueue : jtbConnection.getJtbQueuesToDisplay()) {
-         nodeQueues.add(new NodeJTBQueue(jtbQueue, this));
+      // Rebuild the folders only if the destinations changed. The nodes of the destinations are built when the folders are expanded
+      int version = jtbConnection.getDestinationsVersion();
+      if (version != foldersVersion) {
+         folders = new TreeSet<>();
+         folders.add(new NodeDestinationFolder(Constants.NODE_FOLDER_QUEUES_NAME, this, jtbConnection.getJtbQueuesToDisplay()));
+         folders.add(new NodeDestinationFolder(Constants.NODE_FOLDER_TOPICS_NAME, this, jtbConnection.getJtbTopicsToDisplay()));
+         foldersVersion = version;
       }
-      folders.add(new NodeFolder<NodeJTBQueue>(Constants.NODE_FOLDER_QUEUES_NAME, this, nodeQueues));
+      return folders;
+   }
 
-      SortedSet<NodeJTBTopic> nodeTopics = new TreeSet<>();
-      for (JTBTopic jtbTopic : jtbConnection.getJtbTopicsToDisplay()) {
-         nodeTopics.add(new NodeJTBTopic(jtbTopic, this));
-      }
-      folders.add(new NodeFolder<NodeJTBTopic>(Constants.NODE_FOLDER_TOPICS_NAME, this, nodeTopics));
+   @Override
+   public Boolean hasChildren() {
+      JTBSession jtbSession = (JTBSession) getBusinessObject();
 
-      return true;
+      // No children if the session is not connected
+      return jtbSession.getJTBConnection(jtbSessionClientType).isConnected();
    }
 
 }
@@ -136,6 +136,13 @@ public class NodeTreeLabelProvider extends LabelProvider implements IColorProvid
       }
       NodeAbstract node = (NodeAbstract) element;
 
+      // Folders of destinations: display the number of destinations
+      if (node instanceof NodeDestinationFolder) {
+         StyledString folderStyledString = new StyledString(node.getName());
+         folderStyledString.append(" (" + ((NodeDestinationFolder) node).getNbDestinations() + ")", StyledString.COUNTER_STYLER);
+         return folderStyledString;
+      }
+
       if ((!(node instanceof NodeJTBSession)) && (!(node instanceof NodeJTBQueue)) && (!(node instanceof NodeJTBTopic))) {
          return new StyledString(node.getName());
       }
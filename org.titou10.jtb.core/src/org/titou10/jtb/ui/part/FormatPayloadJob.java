@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.ui.part;
+
+import java.util.function.Consumer;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.e4.ui.di.UISynchronize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.titou10.jtb.util.Constants;
+import org.titou10.jtb.util.FormatUtils;
+
+/**
+ * Job that asynchronously pretty prints the xml payload of a Message
+ * 
+ * @author Denis Forveille
+ *
+ */
+public class FormatPayloadJob extends Job {
+
+   private static final Logger    log = LoggerFactory.getLogger(FormatPayloadJob.class);
+
+   private final UISynchronize    sync;
+
+   private final String           text;
+   private final int              indent;
+   private final int              maxChars;
+
+   private final Consumer<String> callback;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   public FormatPayloadJob(UISynchronize sync, String text, int indent, int maxChars, Consumer<String> callback) {
+      super("Format Payload");
+      this.setSystem(true);
+      this.sync = sync;
+
+      this.text = text;
+      this.indent = indent;
+      this.maxChars = maxChars;
+
+      this.callback = callback;
+   }
+
+   // ------------------
+   // Business Interface
+   // ------------------
+
+   @Override
+   protected IStatus run(IProgressMonitor monitor) {
+
+      long start = System.currentTimeMillis();
+
+      String formattedText = FormatUtils.xmlPrettyFormat(text, indent, maxChars, monitor::isCanceled);
+      if ((formattedText == null) || (monitor.isCanceled())) {
+         return Status.CANCEL_STATUS;
+      }
+
+      log.debug("Payload of {} chars formatted in {} ms", text.length(), System.currentTimeMillis() - start);
+
+      // Update UI. The callback is responsible to check that the result is still wanted and the target widget still there
+      sync.asyncExec(new Runnable() {
+         @Override
+         public void run() {
+            callback.accept(formattedText);
+         }
+      });
+
+      return Status.OK_STATUS;
+   }
+
+   @Override
+   protected void canceling() {
+      log.debug("Canceling '{}'", getName());
+      super.canceling();
+   }
+
+   @Override
+   public boolean belongsTo(Object family) {
+      if (family instanceof String) {
+         return Constants.JTB_JOBS_FAMILY.equals(family);
+      }
+      return false;
+   }
+
+}
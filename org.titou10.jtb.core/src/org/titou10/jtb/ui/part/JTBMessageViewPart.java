@@ -16,12 +16,14 @@
  */
 package org.titou10.jtb.ui.part;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.StringWriter;
 import java.util.AbstractMap;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -38,6 +40,7 @@ import javax.jms.TextMessage;
 
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.ui.di.UIEventTopic;
+import org.eclipse.e4.ui.di.UISynchronize;
 import org.eclipse.e4.ui.services.EMenuService;
 import org.eclipse.e4.ui.workbench.modeling.ESelectionService;
 import org.eclipse.jface.layout.TableColumnLayout;
@@ -75,7 +78,7 @@ import org.titou10.jtb.cs.ColumnSystemHeader;
 import org.titou10.jtb.jms.model.JTBMessage;
 import org.titou10.jtb.jms.model.JTBMessageType;
 import org.titou10.jtb.ui.JTBStatusReporter;
-import org.titou10.jtb.ui.hex.BytesDataProvider;
+import org.titou10.jtb.ui.hex.BytesMessageDataProvider;
 import org.titou10.jtb.ui.hex.HexViewer;
 import org.titou10.jtb.ui.hex.IDataProvider;
 import org.titou10.jtb.util.Constants;
@@ -90,9 +93,13 @@ import org.titou10.jtb.util.Utils;
  */
 public class JTBMessageViewPart {
 
-   private static final Logger log = LoggerFactory.getLogger(JTBMessageViewPart.class);
+   private static final Logger log               = LoggerFactory.getLogger(JTBMessageViewPart.class);
 
-   private static final String CR  = "\n";
+   private static final String CR                = "\n";
+
+   private static final String FORMATTING_XML    = "(Formatting the payload...)";
+   private static final int    FORMAT_SYNC_MAX   = 16 * 1024;
+   private static final int    FORMAT_CACHE_SIZE = 20;
 
    private JTBStatusReporter   jtbStatusReporter;
 
@@ -127,6 +134,21 @@ public class JTBMessageViewPart {
 
    private MessageTab          currentMessageTab;
 
+   @Inject
+   private UISynchronize       sync;
+
+   private FormatPayloadJob    formatJob;
+
+   // Formatted xml payloads, per JMSMessageID. Only accessed from the UI thread
+   private Map<String, String> formattedXMLCache = new LinkedHashMap<String, String>(FORMAT_CACHE_SIZE, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+         return size() > FORMAT_CACHE_SIZE;
+      }
+   };
+
    @SuppressWarnings("unchecked")
    @PostConstruct
    public void postConstruct(final Composite parent, EMenuService menuService, final ESelectionService selectionService) {
@@ -306,6 +328,12 @@ public class JTBMessageViewPart {
 
       this.currentJtbMessage = jtbMessage;
 
+      // The payload of the previous message is no longer needed
+      if (formatJob != null) {
+         formatJob.cancel();
+         formatJob = null;
+      }
+
       // Message is null, clear the part and exit
       if (jtbMessage == null) {
 
@@ -330,7 +358,7 @@ public class JTBMessageViewPart {
          tableJMSHeadersViewer.getTable().deselectAll();
          tablePropertiesViewer.getTable().deselectAll();
 
-      } catch (JMSException e) {
+      } catch (JMSException | IOException e) {
          jtbStatusReporter.showError("Problem while showing Message", e, "");
       }
 
@@ -340,7 +368,7 @@ public class JTBMessageViewPart {
    // Helpers
    // -------
 
-   private void populateFields(JTBMessage jtbMessage) throws JMSException {
+   private void populateFields(JTBMessage jtbMessage) throws JMSException, IOException {
 
       // Populate fields
       Message m = jtbMessage.getJmsMessage();
@@ -411,7 +439,7 @@ public class JTBMessageViewPart {
             String txt = tm.getText();
             if (txt != null) {
                txtPayloadText.setText(txt);
-               txtPayloadXML.setText(FormatUtils.xmlPrettyFormat(ps, txt, false));
+               showFormattedXML(jtbMessage, txt);
                tabPayloadText.setText(String.format(Constants.PAYLOAD_TEXT_TITLE, txt.length()));
             } else {
                tabPayloadText.setText(Constants.PAYLOAD_TEXT_TITLE_NULL);
@@ -436,13 +464,11 @@ public class JTBMessageViewPart {
                hvPayLoadHex.setBackground(SWTResourceManager.getColor(SWT.COLOR_WHITE));
             }
 
-            byte[] payloadBytes = new byte[(int) bm.getBodyLength()];
-            bm.reset();
-            bm.readBytes(payloadBytes);
-            IDataProvider idp = new BytesDataProvider(payloadBytes);
+            // Large payloads are streamed to a temporary file instead of being copied in memory
+            IDataProvider idp = new BytesMessageDataProvider(bm);
             hvPayLoadHex.setDataProvider(idp);
 
-            tabPayloadHex.setText(String.format(Constants.PAYLOAD_BYTES_TITLE, payloadBytes.length));
+            tabPayloadHex.setText(String.format(Constants.PAYLOAD_BYTES_TITLE, idp.getDataSize()));
 
             break;
 
@@ -625,6 +651,50 @@ public class JTBMessageViewPart {
       }
    }
 
+   private void showFormattedXML(JTBMessage jtbMessage, String txt) throws JMSException {
+
+      int indent = ps.getInt(Constants.PREF_XML_INDENT);
+      int maxChars = ps.getInt(Constants.PREF_XML_FORMAT_MAX_KB) * 1024;
+
+      // The formatting depends on the preferences that may have changed since the payload has been cached
+      String jmsMessageID = jtbMessage.getJmsMessage().getJMSMessageID();
+      String key = jmsMessageID == null ? null : jmsMessageID + "/" + indent + "/" + maxChars;
+      if (key != null) {
+         String formattedText = formattedXMLCache.get(key);
+         if (formattedText != null) {
+            txtPayloadXML.setText(formattedText);
+            return;
+         }
+      }
+
+      // Small payloads are formatted right away
+      if (txt.length() <= FORMAT_SYNC_MAX) {
+         String formattedText = FormatUtils.xmlPrettyFormat(txt, indent, maxChars, null);
+         txtPayloadXML.setText(formattedText);
+         if (key != null) {
+            formattedXMLCache.put(key, formattedText);
+         }
+         return;
+      }
+
+      // Large payloads are formatted in the background, the previous job has been cancelled in refreshMessage
+      txtPayloadXML.setText(FORMATTING_XML);
+
+      final Text target = txtPayloadXML;
+      FormatPayloadJob job = new FormatPayloadJob(sync, txt, indent, maxChars, formattedText -> {
+         if (key != null) {
+            formattedXMLCache.put(key, formattedText);
+         }
+         // Another message may have been selected in the meantime. Messages may have no JMSMessageID
+         if ((target.isDisposed()) || (target != txtPayloadXML) || (jtbMessage != currentJtbMessage)) {
+            return;
+         }
+         target.setText(formattedText);
+      });
+      formatJob = job;
+      job.schedule();
+   }
+
    private void cleanTabs(boolean cleanText, boolean cleanXML, boolean cleanHex, boolean cleanMap) {
       MessageTab savedMessageTab = currentMessageTab;
       if (cleanText) {
@@ -641,6 +711,8 @@ public class JTBMessageViewPart {
       }
       if (cleanHex) {
          if (tabPayloadHex != null) {
+            // Disposing the HexViewer releases its data provider
+            tabPayloadHex.getControl().dispose();
             tabPayloadHex.dispose();
             tabPayloadHex = null;
          }
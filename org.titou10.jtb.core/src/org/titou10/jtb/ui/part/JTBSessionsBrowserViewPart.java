@@ -63,6 +63,7 @@ import org.titou10.jtb.template.TemplatesManager;
 import org.titou10.jtb.ui.dnd.TransferJTBMessage;
 import org.titou10.jtb.ui.dnd.TransferTemplate;
 import org.titou10.jtb.ui.navigator.NodeAbstract;
+import org.titou10.jtb.ui.navigator.NodeDestinationFolder;
 import org.titou10.jtb.ui.navigator.NodeFolder;
 import org.titou10.jtb.ui.navigator.NodeJTBQueue;
 import org.titou10.jtb.ui.navigator.NodeJTBSession;
@@ -251,7 +252,8 @@ public class JTBSessionsBrowserViewPart {
          if (treeViewer.getExpandedState(nodeJTBSession)) {
             treeViewer.collapseToLevel(nodeJTBSession, AbstractTreeViewer.ALL_LEVELS);
          } else {
-            treeViewer.expandToLevel(nodeJTBSession, AbstractTreeViewer.ALL_LEVELS);
+            // Expand the session and its Queues/Topics folders only. The groups of destinations are expanded on demand
+            treeViewer.expandToLevel(nodeJTBSession, 2);
          }
       } else {
          treeViewer.collapseToLevel(nodeJTBSession, AbstractTreeViewer.ALL_LEVELS);
@@ -337,6 +339,20 @@ public class JTBSessionsBrowserViewPart {
    // Find a Node given a JTBDestination or JTBSession
    private NodeAbstract findNodeDestination(SortedSet<? extends NodeAbstract> listNodesSession, JTBDestination jtbDestination) {
       for (NodeAbstract nodeAbstract : listNodesSession) {
+         // Do not build the nodes of the destinations of the other sessions
+         if (nodeAbstract instanceof NodeJTBSession) {
+            if (!(nodeAbstract.getName().equals(jtbDestination.getJtbConnection().getSessionName()))) {
+               continue;
+            }
+         }
+         // Only build the nodes of the groups on the path to the destination
+         if (nodeAbstract instanceof NodeDestinationFolder) {
+            NodeAbstract na = ((NodeDestinationFolder) nodeAbstract).findNode(jtbDestination);
+            if (na != null) {
+               return na;
+            }
+            continue;
+         }
          if (nodeAbstract.getChildren() != null) {
             if ((nodeAbstract instanceof NodeFolder) || (nodeAbstract instanceof NodeJTBSession)) {
                NodeAbstract na = findNodeDestination(nodeAbstract.getChildren(), jtbDestination);
@@ -28,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.jms.model.JTBQueue;
 import org.titou10.jtb.jms.model.JTBSession;
+import org.titou10.jtb.jms.model.JTBSessionClientType;
 import org.titou10.jtb.util.Constants;
 
 /**
@@ -94,6 +95,11 @@ final class AutoRefreshJob extends Job {
    @Override
    protected IStatus run(IProgressMonitor monitor) {
       while (run) {
+         // The connection is being re-established: skip this refresh, the job resumes once reconnected
+         if (isReconnecting()) {
+            sleep(1);
+            continue;
+         }
          sync.asyncExec(new Runnable() {
             @Override
             public void run() {
@@ -105,16 +111,27 @@ final class AutoRefreshJob extends Job {
                }
             }
          });
-         long n = delaySeconds * 4; // Test every 1/4 second
-         while (run && (n-- > 0)) {
-            try {
-               TimeUnit.MILLISECONDS.sleep(250);
-            } catch (InterruptedException e) {}
-         }
+         sleep(delaySeconds);
       }
       return Status.OK_STATUS;
    }
 
+   private boolean isReconnecting() {
+      if (jtbQueue != null) {
+         return jtbQueue.getJtbConnection().isReconnecting();
+      }
+      return jtbSession.getJTBConnection(JTBSessionClientType.GUI).isReconnecting();
+   }
+
+   private void sleep(long seconds) {
+      long n = seconds * 4; // Test every 1/4 second
+      while (run && (n-- > 0)) {
+         try {
+            TimeUnit.MILLISECONDS.sleep(250);
+         } catch (InterruptedException e) {}
+      }
+   }
+
    @Override
    protected void canceling() {
       log.debug("Canceling '{}'", getName());
@@ -17,8 +17,10 @@
 package org.titou10.jtb.ui.part.content;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 
 import javax.jms.JMSException;
@@ -35,6 +37,7 @@ import org.slf4j.LoggerFactory;
 import org.titou10.jtb.jms.model.JTBConnection;
 import org.titou10.jtb.jms.model.JTBQueue;
 import org.titou10.jtb.jms.qm.QManager;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.util.Constants;
 import org.titou10.jtb.util.Utils;
 
@@ -98,19 +101,48 @@ public class CollectQueueDepthJob extends Job {
 
       List<QueueWithDepth> list = new ArrayList<QueueWithDepth>(jtbConnection.getJtbQueues().size());
 
+      // Ask the Q Manager for the statistics of all the queues at once, if supported
+      List<String> queueNames = new ArrayList<>(jtbQueuesFiltered.size());
+      for (JTBQueue jtbQueue : jtbQueuesFiltered) {
+         queueNames.add(jtbQueue.getName());
+      }
+      Map<String, QueueStatistics> statistics = qm.getQueuesStatistics(jtbConnection.getConnectionContext(), queueNames);
+      if (statistics == null) {
+         statistics = Collections.emptyMap();
+      }
+
+      Integer depth;
       Date firstMessageTimestamp;
       for (JTBQueue jtbQueue : jtbQueuesFiltered) {
 
-         try {
-            firstMessageTimestamp = jtbConnection.getFirstMessageTimestamp(jtbQueue);
-         } catch (JMSException e) {
+         if (monitor.isCanceled()) {
+            return Status.CANCEL_STATUS;
+         }
+
+         QueueStatistics qs = statistics.get(jtbQueue.getName());
+         if (qs == null) {
+            depth = qm.getQueueDepth(jtbConnection.getConnectionContext(), jtbQueue.getName());
             firstMessageTimestamp = null;
-            log.error("JMSException occurred when calling jtbConnection.getFirstMessageTimestamp", e);
+         } else {
+            depth = qs.getDepth();
+            firstMessageTimestamp = qs.getFirstMessageTimestamp();
+         }
+
+         // Browse the first message only when the Q Manager did not provide it and the queue is not empty
+         if ((firstMessageTimestamp == null) && ((depth == null) || (depth > 0))) {
+            try {
+               firstMessageTimestamp = jtbConnection.getFirstMessageTimestamp(jtbQueue);
+            } catch (JMSException e) {
+               log.error("JMSException occurred when calling jtbConnection.getFirstMessageTimestamp", e);
+            }
          }
 
          list.add(new QueueWithDepth(jtbQueue,
-                                     qm.getQueueDepth(jtbConnection.getJmsConnection(), jtbQueue.getName()),
-                                     firstMessageTimestamp));
+                                     depth,
+                                     firstMessageTimestamp,
+                                     qs == null ? null : qs.getConsumerCount(),
+                                     qs == null ? null : qs.getProducerCount(),
+                                     qs == null ? Collections.emptyMap() : qs.getMetrics()));
       }
 
       // Update UI
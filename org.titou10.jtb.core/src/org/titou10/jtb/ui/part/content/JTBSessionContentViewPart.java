@@ -23,7 +23,9 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
@@ -32,10 +34,8 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.jms.JMSException;
 import javax.jms.MessageConsumer;
-import javax.xml.bind.JAXBException;
 
 import org.eclipse.core.commands.ParameterizedCommand;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.e4.core.commands.ECommandService;
 import org.eclipse.e4.core.commands.EHandlerService;
@@ -53,6 +53,7 @@ import org.eclipse.e4.ui.workbench.IPresentationEngine;
 import org.eclipse.e4.ui.workbench.modeling.ESelectionService;
 import org.eclipse.jface.viewers.ArrayContentProvider;
 import org.eclipse.jface.viewers.ColumnLabelProvider;
+import org.eclipse.jface.viewers.ColumnViewerToolTipSupport;
 import org.eclipse.jface.viewers.ComboViewer;
 import org.eclipse.jface.viewers.DoubleClickEvent;
 import org.eclipse.jface.viewers.IDoubleClickListener;
@@ -123,6 +124,7 @@ import org.titou10.jtb.jms.model.JTBQueue;
 import org.titou10.jtb.jms.model.JTBSession;
 import org.titou10.jtb.jms.model.JTBSessionClientType;
 import org.titou10.jtb.jms.model.JTBTopic;
+import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.sessiontype.SessionTypeManager;
 import org.titou10.jtb.template.TemplatesManager;
 import org.titou10.jtb.ui.JTBStatusReporter;
@@ -130,6 +132,7 @@ import org.titou10.jtb.ui.dnd.TransferJTBMessage;
 import org.titou10.jtb.ui.dnd.TransferTemplate;
 import org.titou10.jtb.ui.part.content.TabData.TabDataType;
 import org.titou10.jtb.util.Constants;
+import org.titou10.jtb.util.DestinationFilterMatcher;
 import org.titou10.jtb.util.Utils;
 
 /**
@@ -906,7 +909,16 @@ public class JTBSessionContentViewPart {
             int maxMessages = td.maxMessages == 0 ? Integer.MAX_VALUE : td.maxMessages;
 
             JTBConnection jtbConnection = jtbQueue.getJtbConnection();
-            Integer depth = jtbConnection.getQm().getQueueDepth(jtbConnection.getJmsConnection(), jtbQueue.getName());
+            QManager qm = jtbConnection.getQm();
+            Long depth = null;
+            if (!selectorsSearchText.isEmpty()) {
+               // Number of messages matching the selector, if the Q Manager can count them
+               depth = qm.countMessages(jtbConnection.getConnectionContext(), jtbQueue.getName(), selectorsSearchText);
+            }
+            if (depth == null) {
+               Integer queueDepth = qm.getQueueDepth(jtbConnection.getConnectionContext(), jtbQueue.getName());
+               depth = queueDepth == null ? null : queueDepth.longValue();
+            }
 
             nbMessage = 0;
 
@@ -1489,6 +1501,7 @@ public class JTBSessionContentViewPart {
          table.setHeaderVisible(true);
          table.setLinesVisible(true);
          tabItemSynthetic.setControl(composite);
+         ColumnViewerToolTipSupport.enableFor(tableViewer);
 
          QueueDepthViewerComparator viewerComparator = new QueueDepthViewerComparator();
 
@@ -1529,6 +1542,23 @@ public class JTBSessionContentViewPart {
                QueueWithDepth p = (QueueWithDepth) element;
                return p.depth == null ? "N/A" : p.depth.toString();
             }
+
+            // Other metrics provided by the Q Manager, if any
+            @Override
+            public String getToolTipText(Object element) {
+               QueueWithDepth p = (QueueWithDepth) element;
+               if ((p.metrics == null) || (p.metrics.isEmpty())) {
+                  return null;
+               }
+               StringBuilder sb = new StringBuilder(128);
+               for (Entry<String, Object> e : new TreeMap<>(p.metrics).entrySet()) {
+                  if (sb.length() > 0) {
+                     sb.append("\n");
+                  }
+                  sb.append(e.getKey()).append(": ").append(e.getValue() == null ? "N/A" : e.getValue());
+               }
+               return sb.toString();
+            }
          });
 
          col = createTableViewerColumn(tableViewer, "JMS Timestamp of 1st Message", 160, SWT.LEFT);
@@ -1542,6 +1572,28 @@ public class JTBSessionContentViewPart {
             }
          });
 
+         col = createTableViewerColumn(tableViewer, "Consumers", 70, SWT.RIGHT);
+         tabCol = col.getColumn();
+         tabCol.addSelectionListener(buildQueueDepthSelectionAdapter(tableViewer, viewerComparator, tabCol, 3));
+         col.setLabelProvider(new ColumnLabelProvider() {
+            @Override
+            public String getText(Object element) {
+               QueueWithDepth p = (QueueWithDepth) element;
+               return p.consumerCount == null ? "N/A" : p.consumerCount.toString();
+            }
+         });
+
+         col = createTableViewerColumn(tableViewer, "Producers", 70, SWT.RIGHT);
+         tabCol = col.getColumn();
+         tabCol.addSelectionListener(buildQueueDepthSelectionAdapter(tableViewer, viewerComparator, tabCol, 4));
+         col.setLabelProvider(new ColumnLabelProvider() {
+            @Override
+            public String getText(Object element) {
+               QueueWithDepth p = (QueueWithDepth) element;
+               return p.producerCount == null ? "N/A" : p.producerCount.toString();
+            }
+         });
+
          // Manage selections
          tableViewer.addSelectionChangedListener(new ISelectionChangedListener() {
             public void selectionChanged(SelectionChangedEvent event) {
@@ -1655,8 +1707,8 @@ public class JTBSessionContentViewPart {
       SortedSet<JTBQueue> jtbQueuesFiltered = new TreeSet<>(baseQueues);
       String filter = td.filterText.getText().trim();
       if (!(filter.isEmpty())) {
-         String filterRegexPattern = filter.replaceAll("\\.", "\\\\.").replaceAll("\\?", ".").replaceAll("\\*", ".*");
-         jtbQueuesFiltered = jtbQueuesFiltered.stream().filter(q -> q.getName().matches(filterRegexPattern))
+         DestinationFilterMatcher filterMatcher = DestinationFilterMatcher.compile(filter);
+         jtbQueuesFiltered = jtbQueuesFiltered.stream().filter(q -> filterMatcher.matches(q.getName()))
                   .collect(Collectors.toCollection(() -> new TreeSet<>()));
       }
 
@@ -1776,11 +1828,7 @@ public class JTBSessionContentViewPart {
 
                   log.debug("controlResized width:{} {}", width, tc);
                   u.setDisplayWidth(width);
-                  try {
-                     csManager.saveConfig();
-                  } catch (JAXBException | CoreException e1) {
-                     log.error("Exception occurred when saving ColumnsSets", e1);
-                  }
+                  csManager.saveConfig();
                }
             });
          }
@@ -69,6 +69,14 @@ public class QueueDepthViewerComparator extends ViewerComparator {
             rc = qwd1.firstMessageTimestamp == null ? -1
                      : qwd2.firstMessageTimestamp == null ? 1 : qwd1.firstMessageTimestamp.compareTo(qwd2.firstMessageTimestamp);
             break;
+         case 3:
+            rc = qwd1.consumerCount == null ? -1
+                     : qwd2.consumerCount == null ? 1 : qwd1.consumerCount.compareTo(qwd2.consumerCount);
+            break;
+         case 4:
+            rc = qwd1.producerCount == null ? -1
+                     : qwd2.producerCount == null ? 1 : qwd1.producerCount.compareTo(qwd2.producerCount);
+            break;
          default:
             rc = 0;
       }
@@ -17,6 +17,7 @@
 package org.titou10.jtb.ui.part.content;
 
 import java.util.Date;
+import java.util.Map;
 
 import org.titou10.jtb.jms.model.JTBQueue;
 
@@ -28,14 +29,25 @@ import org.titou10.jtb.jms.model.JTBQueue;
  */
 final class QueueWithDepth {
 
-   JTBQueue jtbQueue;
-   Integer  depth;
-   Date     firstMessageTimestamp;
+   JTBQueue            jtbQueue;
+   Integer             depth;
+   Date                firstMessageTimestamp;
+   Integer             consumerCount;
+   Integer             producerCount;
+   Map<String, Object> metrics;
 
-   QueueWithDepth(JTBQueue jtbQueue, Integer depth, Date firstMessageTimestamp) {
+   QueueWithDepth(JTBQueue jtbQueue,
+                  Integer depth,
+                  Date firstMessageTimestamp,
+                  Integer consumerCount,
+                  Integer producerCount,
+                  Map<String, Object> metrics) {
       this.jtbQueue = jtbQueue;
       this.depth = depth;
       this.firstMessageTimestamp = firstMessageTimestamp;
+      this.consumerCount = consumerCount;
+      this.producerCount = producerCount;
+      this.metrics = metrics;
    }
 
 }
@@ -92,8 +92,18 @@ public final class Constants {
    public static final int      PREF_MAX_MESSAGES_TOPIC_DEFAULT            = 100;
    public static final String   PREF_CONN_CLIENT_ID_PREFIX                 = "connection.client.id.prefix";
    public static final String   PREF_CONN_CLIENT_ID_PREFIX_DEFAULT         = "JMSToolBox";
+   public static final String   PREF_CONN_AUTO_RECONNECT                   = "connection.auto.reconnect";
+   public static final boolean  PREF_CONN_AUTO_RECONNECT_DEFAULT           = true;
+   public static final String   PREF_CONN_HEALTH_CHECK_INTERVAL            = "connection.health.check.interval";
+   public static final int      PREF_CONN_HEALTH_CHECK_INTERVAL_DEFAULT    = 30;
+   public static final String   PREF_CONN_RECONNECT_MAX_DELAY              = "connection.reconnect.max.delay";
+   public static final int      PREF_CONN_RECONNECT_MAX_DELAY_DEFAULT      = 60;
+   public static final String   PREF_CONN_CONNECT_TIMEOUT                  = "connection.connect.timeout";
+   public static final int      PREF_CONN_CONNECT_TIMEOUT_DEFAULT          = 30;
    public static final String   PREF_XML_INDENT                            = "xml.indent";
    public static final int      PREF_XML_INDENT_DEFAULT                    = 3;
+   public static final String   PREF_XML_FORMAT_MAX_KB                     = "xml.format.max.kb";
+   public static final int      PREF_XML_FORMAT_MAX_KB_DEFAULT             = 1024;
    public static final String   PREF_SYNCHRONIZE_SESSIONS_MESSAGES         = "synchronize.sessions.messages";
    public static final boolean  PREF_SYNCHRONIZE_SESSIONS_MESSAGES_DEFAULT = true;
    public static final String   PREF_MESSAGE_TAB_DISPLAY                   = "message.tab.display";
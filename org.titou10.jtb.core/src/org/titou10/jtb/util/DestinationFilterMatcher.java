@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 
+ * Compiled destination name filter
+ * 
+ * The filter is a list of patterns separated by ";" where "*" matches any sequence of characters and "?" any single character. The
+ * patterns that are plain names with "*" only at the start and/or the end are matched without regex. All the other patterns are
+ * combined in a single pre-compiled regex
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class DestinationFilterMatcher {
+
+   private static final String SEPARATOR   = ";";
+   private static final String REGEX_CHARS = "\\^$|+()[]{}?";
+
+   private final String        filterPattern;
+
+   private final List<String>  exactNames  = new ArrayList<>();
+   private final List<String>  prefixes    = new ArrayList<>();
+   private final List<String>  suffixes    = new ArrayList<>();
+   private final List<String>  contains    = new ArrayList<>();
+   private boolean             matchAll;
+   private Pattern             pattern;
+
+   // ------------------------
+   // Constructor
+   // ------------------------
+
+   private DestinationFilterMatcher(String filterPattern) {
+      this.filterPattern = filterPattern;
+
+      StringBuilder regex = new StringBuilder(filterPattern.length() * 2);
+      for (String p : filterPattern.split(SEPARATOR, -1)) {
+         if (isSimple(p)) {
+            boolean startsWithStar = p.startsWith("*");
+            boolean endsWithStar = (p.length() > 1) && p.endsWith("*");
+            String name = p.substring(startsWithStar ? 1 : 0, p.length() - (endsWithStar ? 1 : 0));
+            if (startsWithStar && endsWithStar) {
+               contains.add(name);
+            } else if (startsWithStar) {
+               if (name.isEmpty()) {
+                  matchAll = true;
+               } else {
+                  suffixes.add(name);
+               }
+            } else if (endsWithStar) {
+               prefixes.add(name);
+            } else {
+               exactNames.add(name);
+            }
+         } else {
+            if (regex.length() > 0) {
+               regex.append("|");
+            }
+            regex.append(p.replaceAll("\\.", "\\\\.").replaceAll("\\?", ".").replaceAll("\\*", ".*"));
+         }
+      }
+      if (regex.length() > 0) {
+         pattern = Pattern.compile(regex.toString());
+      }
+   }
+
+   /**
+    * Compile a filter pattern
+    * 
+    * @return the matcher, or null if there is no filter
+    */
+   public static DestinationFilterMatcher compile(String filterPattern) {
+      if (filterPattern == null) {
+         return null;
+      }
+      return new DestinationFilterMatcher(filterPattern);
+   }
+
+   // ------------------------
+   // Matching
+   // ------------------------
+
+   public boolean matches(String destinationName) {
+      if (matchAll) {
+         return true;
+      }
+      for (String s : exactNames) {
+         if (destinationName.equals(s)) {
+            return true;
+         }
+      }
+      for (String s : prefixes) {
+         if (destinationName.startsWith(s)) {
+            return true;
+         }
+      }
+      for (String s : suffixes) {
+         if (destinationName.endsWith(s)) {
+            return true;
+         }
+      }
+      for (String s : contains) {
+         if (destinationName.contains(s)) {
+            return true;
+         }
+      }
+      if (pattern != null) {
+         return pattern.matcher(destinationName).matches();
+      }
+      return false;
+   }
+
+   public String getFilterPattern() {
+      return filterPattern;
+   }
+
+   // ------------------------
+   // Helpers
+   // ------------------------
+
+   // Pattern without regex characters and with "*" only at the start and/or at the end
+   private static boolean isSimple(String p) {
+      for (int i = 0; i < p.length(); i++) {
+         char c = p.charAt(i);
+         if (REGEX_CHARS.indexOf(c) >= 0) {
+            return false;
+         }
+         if ((c == '*') && (i != 0) && (i != p.length() - 1)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+}
@@ -16,37 +16,15 @@
  */
 package org.titou10.jtb.util;
 
-import java.io.ByteArrayInputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.util.HashMap;
-import java.util.Map;
-
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-import javax.json.JsonWriter;
-import javax.json.JsonWriterFactory;
-import javax.json.stream.JsonGenerator;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.JTBPreferenceStore;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
+import org.titou10.jtb.util.PrettyPrinter.BoundedWriter;
 
 /**
  * 
@@ -57,21 +35,14 @@ import org.xml.sax.InputSource;
  */
 public final class FormatUtils {
 
-   private static final Logger                 log                    = LoggerFactory.getLogger(FormatUtils.class);
+   private static final Logger log           = LoggerFactory.getLogger(FormatUtils.class);
 
-   private static final String                 XML_DECLARATION_PREFIX = "<?xml";
-   private static final String                 XML_DECLARATION_SUFFIX = ">";
-   private static final String                 XPATH_REMOTE_SPACES    = "//text()[normalize-space()='']";
+   private static final String CR            = "\n";
+   private static final int    JSON_INDENT   = 4;
 
-   private static final String                 CR                     = "\n";
-   private static final String                 INDENT_STRING          = "{http://xml.apache.org/xslt}indent-amount";
-
-   private static final String                 NOT_XML                = "(A problem occured when formatting the text as xml. The payload was probably not valid xml)";
-   private static final String                 EMPTY_XML              = "(No xml text to show. The payload was probably not valid xml)";
-
-   private static final DocumentBuilderFactory DB_FACTORY             = DocumentBuilderFactory.newInstance();
-   private static final XPath                  X_PATH                 = XPathFactory.newInstance().newXPath();
-   private static final TransformerFactory     T_FACTORY              = TransformerFactory.newInstance();
+   private static final String NOT_XML       = "(A problem occured when formatting the text as xml. The payload was probably not valid xml)";
+   private static final String EMPTY_XML     = "(No xml text to show. The payload was probably not valid xml)";
+   private static final String TRUNCATED_XML = "(... The formatted payload is too long: only its first %d KB are shown)";
 
    public static String jsonPrettyFormat(String unformattedText) {
 
@@ -80,17 +51,8 @@ public final class FormatUtils {
       }
 
       try {
-         JsonReader jr = Json.createReader(new StringReader(unformattedText));
-         JsonObject jobj = jr.readObject();
-
-         Map<String, Boolean> config = new HashMap<>();
-         config.put(JsonGenerator.PRETTY_PRINTING, true);
-         JsonWriterFactory jwf = Json.createWriterFactory(config);
-
-         StringWriter sw = new StringWriter();
-         try (JsonWriter jsonWriter = jwf.createWriter(sw)) {
-            jsonWriter.writeObject(jobj);
-         }
+         StringWriter sw = new StringWriter(unformattedText.length() + (unformattedText.length() / 2));
+         PrettyPrinter.formatJson(new StringReader(unformattedText), sw, JSON_INDENT, null);
          return sw.toString();
       } catch (Exception e) {
          log.warn("Problem occurred when parsing json : {}", e.getMessage());
@@ -100,6 +62,23 @@ public final class FormatUtils {
    }
 
    public static String xmlPrettyFormat(JTBPreferenceStore ps, String unformattedText, boolean sourceIfError) {
+      return xmlPrettyFormat(unformattedText, ps.getInt(Constants.PREF_XML_INDENT), Integer.MAX_VALUE, null, sourceIfError);
+   }
+
+   /**
+    * Pretty print an xml text in a single pass, keeping at most "maxChars" characters of the formatted text
+    * 
+    * @return the formatted text, or null if the formatting has been cancelled
+    */
+   public static String xmlPrettyFormat(String unformattedText, int indent, int maxChars, BooleanSupplier cancelled) {
+      return xmlPrettyFormat(unformattedText, indent, maxChars, cancelled, false);
+   }
+
+   private static String xmlPrettyFormat(String unformattedText,
+                                         int indent,
+                                         int maxChars,
+                                         BooleanSupplier cancelled,
+                                         boolean sourceIfError) {
 
       // Fast Fail
       if (unformattedText == null) {
@@ -113,58 +92,34 @@ public final class FormatUtils {
          }
       }
 
+      BoundedWriter bw = new BoundedWriter(maxChars);
       try {
-         // http://stackoverflow.com/questions/25864316/pretty-print-xml-in-java-8/33541820#33541820
-
-         // Turn xml string into a document
-         DocumentBuilder documentBuilder = DB_FACTORY.newDocumentBuilder();
-         Document document = documentBuilder.parse(new InputSource(new ByteArrayInputStream(unformattedText.getBytes("UTF-8"))));
-
-         // Remove whitespaces outside tags
-         NodeList nodeList = (NodeList) X_PATH.evaluate(XPATH_REMOTE_SPACES, document, XPathConstants.NODESET);
-         for (int i = 0; i < nodeList.getLength(); ++i) {
-            Node node = nodeList.item(i);
-            node.getParentNode().removeChild(node);
-         }
-
-         // Pretty Format
-         Source xmlInput = new DOMSource(document);
-         StringWriter stringWriter = new StringWriter();
-         StreamResult xmlOutput = new StreamResult(stringWriter);
-
-         Transformer transformer = T_FACTORY.newTransformer();
-         transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-         transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-         transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-         transformer.setOutputProperty(INDENT_STRING, String.valueOf(ps.getInt(Constants.PREF_XML_INDENT)));
-
-         transformer.transform(xmlInput, xmlOutput);
-
-         String output = xmlOutput.getWriter().toString();
-
-         // Copy back the XML Declaration if present
-         if (unformattedText.startsWith(XML_DECLARATION_PREFIX)) {
-            int n = unformattedText.indexOf(XML_DECLARATION_SUFFIX);
-            String prefix = unformattedText.substring(0, n + 1);
-            output = prefix + CR + output;
-         }
-         if (output.isEmpty()) {
+         PrettyPrinter.formatXml(new StringReader(unformattedText), bw, indent, cancelled);
+      } catch (CancellationException e) {
+         return null;
+      } catch (Exception e) {
+         // When the output is full, the formatting is stopped on purpose: keep what has been formatted so far
+         if (!bw.isTruncated()) {
+            log.warn("Exception when formatting XML : {}", e.getMessage());
             if (sourceIfError) {
                return unformattedText;
             } else {
-               return EMPTY_XML;
+               return NOT_XML;
             }
-         } else {
-            return output;
          }
-      } catch (Exception e) {
-         log.warn("Exception when formatting XML : {}", e.getMessage());
+      }
+
+      if (bw.length() == 0) {
          if (sourceIfError) {
             return unformattedText;
          } else {
-            return NOT_XML;
+            return EMPTY_XML;
          }
       }
+      if (bw.isTruncated()) {
+         return bw.toString() + CR + String.format(TRUNCATED_XML, maxChars / 1024);
+      }
+      return bw.toString();
    }
 
    // ------------------
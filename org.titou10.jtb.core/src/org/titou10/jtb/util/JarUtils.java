@@ -18,8 +18,13 @@ package org.titou10.jtb.util;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.jar.Attributes;
+import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 
@@ -39,6 +44,16 @@ public final class JarUtils {
 
    private static final String NON_EXISTING_JAR = "\nJAR file '%s' not found for plugin '%s'.\nSessions for this Q Manager will probably not work.";
 
+   // Hash of the bundle content (jars names, sizes and last modification times), to rebuild the bundle only when required
+   private static final String JARS_HASH_HEADER = "JTB-Jars-Hash";
+   // To be changed when the bundle format changes
+   private static final String BUNDLE_FORMAT    = "2";
+
+   /**
+    * Create the resource bundle of a plugin, or keep the existing one if the jars did not change since it has been created
+    * 
+    * @return the name of the bundle file, or null if there is no jar for this plugin
+    */
    public static String createBundle(String workDirectry, String pluginId, List<String> jarFileNames) throws Exception {
 
       // Only create a resource bundle if jars are defined
@@ -51,6 +66,8 @@ public final class JarUtils {
       // Build classpath with external jars
       boolean notFirst = false;
       StringBuilder sb = new StringBuilder(512);
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      md.update(BUNDLE_FORMAT.getBytes(StandardCharsets.UTF_8));
       for (String jarFileName : jarFileNames) {
          String usableJarFileName = jarFileName.replaceAll("\\\\", "/");
 
@@ -67,13 +84,22 @@ public final class JarUtils {
          }
          sb.append("external:" + usableJarFileName);
          notFirst = true;
-      }
 
-      log.debug("pluginId '{}': Creating a bundle with jars: '{}'", pluginId, sb.toString());
+         md.update((usableJarFileName + "|" + f.length() + "|" + f.lastModified() + "\n").getBytes(StandardCharsets.UTF_8));
+      }
+      String jarsHash = toHex(md.digest());
 
       String resourcePluginId = pluginId + ".resource";
       String resourceFileName = workDirectry + "/" + resourcePluginId + ".jar";
 
+      // Keep the bundle created at a previous launch if nothing changed
+      if (jarsHash.equals(readJarsHash(resourceFileName))) {
+         log.debug("pluginId '{}': Bundle is up to date: {}", pluginId, resourceFileName);
+         return resourceFileName;
+      }
+
+      log.debug("pluginId '{}': Creating a bundle with jars: '{}'", pluginId, sb.toString());
+
       // Bundle Manifest
       Manifest manifest = new Manifest();
       Attributes a = manifest.getMainAttributes();
@@ -83,10 +109,12 @@ public final class JarUtils {
       a.putValue("Bundle-SymbolicName", resourcePluginId + ";singleton:=true");
       a.putValue("Automatic-Module-Name", resourcePluginId);
       a.putValue("Bundle-Version", "1.0.0");
+      a.putValue("Bundle-ActivationPolicy", "lazy");
       a.putValue("Import-Package", "javax.jms");
       a.putValue("Require-Bundle", pluginId + ";resolution:=optional");
       a.putValue("Eclipse-RegisterBuddy", pluginId);
       a.putValue("Bundle-ClassPath", sb.toString());
+      a.putValue(JARS_HASH_HEADER, jarsHash);
 
       // Write the bundle/jar file
 
@@ -97,6 +125,32 @@ public final class JarUtils {
       return resourceFileName;
    }
 
+   // -------
+   // Helpers
+   // -------
+
+   private static String readJarsHash(String resourceFileName) {
+      File f = new File(resourceFileName);
+      if (!f.exists()) {
+         return null;
+      }
+      try (JarFile jarFile = new JarFile(f)) {
+         Manifest manifest = jarFile.getManifest();
+         return manifest == null ? null : manifest.getMainAttributes().getValue(JARS_HASH_HEADER);
+      } catch (IOException e) {
+         log.warn("Existing bundle '{}' can not be read. It will be recreated. Msg: {}", resourceFileName, e.getMessage());
+         return null;
+      }
+   }
+
+   private static String toHex(byte[] bytes) {
+      StringBuilder sb = new StringBuilder(bytes.length * 2);
+      for (byte b : bytes) {
+         sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+   }
+
    // ------------------
    // Pure Utility Class
    // ------------------
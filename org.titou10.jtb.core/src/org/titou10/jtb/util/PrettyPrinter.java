@@ -0,0 +1,760 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParsingException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * 
+ * Single pass, streaming pretty printer for xml and json text
+ * 
+ * The text is read with a StAX or JSON-P streaming parser and written to the output as soon as it is parsed, in constant memory. The
+ * text written so far is usable even when the parsing stops before the end (truncated text, cancellation, output buffer full...)
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class PrettyPrinter {
+
+   private static final String          CR            = "\n";
+
+   // The StAX parser of the JDK reports CDATA sections as CHARACTERS unless asked to
+   private static final String          REPORT_CDATA  = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+   private static final XMLInputFactory XML_FACTORY   = createXMLInputFactory();
+
+   private static final String          LT            = "<";
+   private static final String          GT            = ">";
+   private static final String          GT_EMPTY      = "/>";
+   private static final String          LT_END        = "</";
+
+   private static final int             CANCEL_CHECKS = 256;
+
+   private static final String          SPACES        = "                                                                ";
+
+   // ---
+   // XML
+   // ---
+
+   /**
+    * Pretty print an xml text
+    * 
+    * @param in
+    *           the xml text to format
+    * @param out
+    *           where to write the formatted text. Use a BoundedWriter to limit the size of the result
+    * @param indent
+    *           number of spaces for each level of indentation
+    * @param cancelled
+    *           called regularly to check if the formatting must be stopped. May be null
+    * @throws XMLStreamException
+    *            if the text is not well formed xml. The text formatted so far has been written to "out"
+    * @throws CancellationException
+    *            if "cancelled" returned true
+    */
+   public static void formatXml(Reader in, Writer out, int indent, BooleanSupplier cancelled) throws XMLStreamException,
+                                                                                                IOException {
+      formatXml(XML_FACTORY.createXMLStreamReader(in), out, indent, cancelled);
+   }
+
+   /**
+    * Pretty print an xml document, the encoding being read from the xml declaration
+    */
+   public static void formatXml(InputStream in, Writer out, int indent, BooleanSupplier cancelled) throws XMLStreamException,
+                                                                                                     IOException {
+      formatXml(XML_FACTORY.createXMLStreamReader(in), out, indent, cancelled);
+   }
+
+   /**
+    * Check that two xml texts hold the same content, ie that they only differ by the whitespaces between tags (indentation). Used
+    * to verify that a formatted text can replace the original one. Text, CDATA sections and entity references are told apart
+    * 
+    * @return false if they differ or if one of them is not well formed xml
+    */
+   public static boolean isSameXml(String xml1, String xml2) {
+      XMLStreamReader xsr1 = null;
+      XMLStreamReader xsr2 = null;
+      try {
+         xsr1 = XML_FACTORY.createXMLStreamReader(new StringReader(xml1));
+         xsr2 = XML_FACTORY.createXMLStreamReader(new StringReader(xml2));
+         SignificantEvents events1 = new SignificantEvents(xsr1);
+         SignificantEvents events2 = new SignificantEvents(xsr2);
+         while (true) {
+            int event = events1.next();
+            if (event != events2.next()) {
+               return false;
+            }
+            if (event == XMLStreamConstants.END_DOCUMENT) {
+               return true;
+            }
+            if (event == SignificantEvents.TEXT) {
+               if (!events1.getText().equals(events2.getText())) {
+                  return false;
+               }
+               continue;
+            }
+            if (!sameEvent(xsr1, xsr2, event)) {
+               return false;
+            }
+         }
+      } catch (XMLStreamException e) {
+         return false;
+      } finally {
+         close(xsr1);
+         close(xsr2);
+      }
+   }
+
+   private static void formatXml(XMLStreamReader xsr, Writer out, int indent, BooleanSupplier cancelled) throws XMLStreamException,
+                                                                                                         IOException {
+      try {
+         int depth = 0;
+         int nbEvents = 0;
+         boolean startTagOpened = false; // Last start tag is waiting for its closing ">" or "/>"
+         boolean lineStarted = false; // Something has already been written
+         boolean textInElement = false; // Current element contains text, do not indent its end tag
+         StringBuilder spaces = new StringBuilder(); // Whitespaces waiting to know if they are next to text
+
+         // Copy back the XML Declaration if present
+         if (xsr.getVersion() != null) {
+            out.write("<?xml version=\"" + xsr.getVersion() + "\"");
+            if (xsr.getCharacterEncodingScheme() != null) {
+               out.write(" encoding=\"" + xsr.getCharacterEncodingScheme() + "\"");
+            }
+            if (xsr.standaloneSet()) {
+               out.write(xsr.isStandalone() ? " standalone=\"yes\"" : " standalone=\"no\"");
+            }
+            out.write("?>");
+            lineStarted = true;
+         }
+
+         while (xsr.hasNext()) {
+
+            if ((cancelled != null) && (++nbEvents % CANCEL_CHECKS == 0) && (cancelled.getAsBoolean())) {
+               throw new CancellationException();
+            }
+
+            // Whitespaces between two tags are replaced by the indentation. Whitespaces next to text are kept
+            int event = xsr.next();
+            switch (event) {
+               case XMLStreamConstants.CHARACTERS:
+               case XMLStreamConstants.SPACE:
+               case XMLStreamConstants.CDATA:
+               case XMLStreamConstants.ENTITY_REFERENCE:
+                  break;
+               default:
+                  spaces.setLength(0);
+                  break;
+            }
+
+            switch (event) {
+               case XMLStreamConstants.START_ELEMENT:
+                  if (startTagOpened) {
+                     out.write(GT);
+                  }
+                  lineStarted = newLine(out, lineStarted, depth, indent);
+                  out.write(LT);
+                  out.write(qualifiedName(xsr.getPrefix(), xsr.getLocalName()));
+                  for (int i = 0; i < xsr.getNamespaceCount(); i++) {
+                     String prefix = xsr.getNamespacePrefix(i);
+                     out.write((prefix == null) || (prefix.isEmpty()) ? " xmlns" : " xmlns:" + prefix);
+                     writeAttributeValue(out, xsr.getNamespaceURI(i));
+                  }
+                  for (int i = 0; i < xsr.getAttributeCount(); i++) {
+                     out.write(" ");
+                     out.write(qualifiedName(xsr.getAttributePrefix(i), xsr.getAttributeLocalName(i)));
+                     writeAttributeValue(out, xsr.getAttributeValue(i));
+                  }
+                  startTagOpened = true;
+                  textInElement = false;
+                  depth++;
+                  break;
+
+               case XMLStreamConstants.END_ELEMENT:
+                  depth--;
+                  if (startTagOpened) {
+                     out.write(GT_EMPTY);
+                  } else {
+                     if (!textInElement) {
+                        lineStarted = newLine(out, lineStarted, depth, indent);
+                     }
+                     out.write(LT_END);
+                     out.write(qualifiedName(xsr.getPrefix(), xsr.getLocalName()));
+                     out.write(GT);
+                  }
+                  startTagOpened = false;
+                  textInElement = false;
+                  break;
+
+               case XMLStreamConstants.CHARACTERS:
+               case XMLStreamConstants.SPACE:
+                  if ((xsr.isWhiteSpace()) && (!textInElement)) {
+                     spaces.append(xsr.getTextCharacters(), xsr.getTextStart(), xsr.getTextLength());
+                     break;
+                  }
+                  if (startTagOpened) {
+                     out.write(GT);
+                     startTagOpened = false;
+                  }
+                  writeSpaces(out, spaces);
+                  writeText(out, xsr.getTextCharacters(), xsr.getTextStart(), xsr.getTextLength());
+                  textInElement = true;
+                  lineStarted = true;
+                  break;
+
+               case XMLStreamConstants.CDATA:
+                  if (startTagOpened) {
+                     out.write(GT);
+                     startTagOpened = false;
+                  }
+                  writeSpaces(out, spaces);
+                  out.write("<![CDATA[");
+                  out.write(xsr.getTextCharacters(), xsr.getTextStart(), xsr.getTextLength());
+                  out.write("]]>");
+                  textInElement = true;
+                  lineStarted = true;
+                  break;
+
+               case XMLStreamConstants.ENTITY_REFERENCE:
+                  if (startTagOpened) {
+                     out.write(GT);
+                     startTagOpened = false;
+                  }
+                  writeSpaces(out, spaces);
+                  out.write("&" + xsr.getLocalName() + ";");
+                  textInElement = true;
+                  lineStarted = true;
+                  break;
+
+               case XMLStreamConstants.COMMENT:
+                  if (startTagOpened) {
+                     out.write(GT);
+                     startTagOpened = false;
+                  }
+                  lineStarted = newLine(out, lineStarted, depth, indent);
+                  out.write("<!--");
+                  out.write(xsr.getText());
+                  out.write("-->");
+                  break;
+
+               case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                  if (startTagOpened) {
+                     out.write(GT);
+                     startTagOpened = false;
+                  }
+                  lineStarted = newLine(out, lineStarted, depth, indent);
+                  out.write("<?" + xsr.getPITarget());
+                  String data = xsr.getPIData();
+                  if ((data != null) && (!data.isEmpty())) {
+                     out.write(" " + data);
+                  }
+                  out.write("?>");
+                  break;
+
+               case XMLStreamConstants.DTD:
+                  lineStarted = newLine(out, lineStarted, depth, indent);
+                  out.write(xsr.getText());
+                  break;
+
+               default:
+                  break;
+            }
+         }
+      } finally {
+         xsr.close();
+      }
+   }
+
+   // ----
+   // JSON
+   // ----
+
+   /**
+    * Pretty print a json text. Objects and arrays are accepted as root value
+    * 
+    * @param in
+    *           the json text to format
+    * @param out
+    *           where to write the formatted text. Use a BoundedWriter to limit the size of the result
+    * @param indent
+    *           number of spaces for each level of indentation
+    * @param cancelled
+    *           called regularly to check if the formatting must be stopped. May be null
+    * @throws JsonParsingException
+    *            if the text is not valid json. The text formatted so far has been written to "out"
+    * @throws CancellationException
+    *            if "cancelled" returned true
+    */
+   public static void formatJson(Reader in, Writer out, int indent, BooleanSupplier cancelled) throws IOException {
+      try (JsonParser parser = Json.createParser(in)) {
+         formatJson(parser, out, indent, cancelled);
+      }
+   }
+
+   /**
+    * Pretty print a json text, the encoding (UTF-8, UTF-16 or UTF-32) being detected from the first bytes
+    */
+   public static void formatJson(InputStream in, Writer out, int indent, BooleanSupplier cancelled) throws IOException {
+      try (JsonParser parser = Json.createParser(in)) {
+         formatJson(parser, out, indent, cancelled);
+      }
+   }
+
+   private static void formatJson(JsonParser parser, Writer out, int indent, BooleanSupplier cancelled) throws IOException {
+
+      int depth = 0;
+      int nbEvents = 0;
+      boolean needComma = false; // A value has already been written in the current object/array
+      boolean afterKey = false; // A key has just been written, its value goes on the same line
+      boolean emptyContainer = false; // Nothing has been written yet in the current object/array
+
+      while (parser.hasNext()) {
+
+         if ((cancelled != null) && (++nbEvents % CANCEL_CHECKS == 0) && (cancelled.getAsBoolean())) {
+            throw new CancellationException();
+         }
+
+         JsonParser.Event event = parser.next();
+         switch (event) {
+            case START_OBJECT:
+            case START_ARRAY:
+               writeJsonSeparator(out, needComma, afterKey, depth, indent);
+               out.write(event == JsonParser.Event.START_OBJECT ? '{' : '[');
+               depth++;
+               needComma = false;
+               afterKey = false;
+               emptyContainer = true;
+               break;
+
+            case END_OBJECT:
+            case END_ARRAY:
+               depth--;
+               if (!emptyContainer) {
+                  newLine(out, true, depth, indent);
+               }
+               out.write(event == JsonParser.Event.END_OBJECT ? '}' : ']');
+               needComma = true;
+               emptyContainer = false;
+               break;
+
+            case KEY_NAME:
+               writeJsonSeparator(out, needComma, afterKey, depth, indent);
+               writeJsonString(out, parser.getString());
+               out.write(": ");
+               needComma = false;
+               afterKey = true;
+               emptyContainer = false;
+               break;
+
+            case VALUE_STRING:
+               writeJsonSeparator(out, needComma, afterKey, depth, indent);
+               writeJsonString(out, parser.getString());
+               needComma = true;
+               afterKey = false;
+               emptyContainer = false;
+               break;
+
+            case VALUE_NUMBER:
+               // Keep the number as written in the source
+               writeJsonSeparator(out, needComma, afterKey, depth, indent);
+               out.write(parser.getString());
+               needComma = true;
+               afterKey = false;
+               emptyContainer = false;
+               break;
+
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+            case VALUE_NULL:
+               writeJsonSeparator(out, needComma, afterKey, depth, indent);
+               out.write(event == JsonParser.Event.VALUE_TRUE ? "true" : event == JsonParser.Event.VALUE_FALSE ? "false" : "null");
+               needComma = true;
+               afterKey = false;
+               emptyContainer = false;
+               break;
+
+            default:
+               break;
+         }
+      }
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private static void writeJsonSeparator(Writer out, boolean needComma, boolean afterKey, int depth, int indent) throws IOException {
+      if (afterKey) {
+         return;
+      }
+      if (needComma) {
+         out.write(',');
+      }
+      if (depth > 0) {
+         newLine(out, true, depth, indent);
+      }
+   }
+
+   private static void writeJsonString(Writer out, String value) throws IOException {
+      out.write('"');
+      int from = 0;
+      for (int i = 0; i < value.length(); i++) {
+         char c = value.charAt(i);
+         String escape;
+         switch (c) {
+            case '"':
+               escape = "\\\"";
+               break;
+            case '\\':
+               escape = "\\\\";
+               break;
+            case '\n':
+               escape = "\\n";
+               break;
+            case '\r':
+               escape = "\\r";
+               break;
+            case '\t':
+               escape = "\\t";
+               break;
+            case '\b':
+               escape = "\\b";
+               break;
+            case '\f':
+               escape = "\\f";
+               break;
+            default:
+               if (c >= 0x20) {
+                  continue;
+               }
+               escape = String.format("\\u%04x", (int) c);
+               break;
+         }
+         out.write(value, from, i - from);
+         out.write(escape);
+         from = i + 1;
+      }
+      out.write(value, from, value.length() - from);
+      out.write('"');
+   }
+
+   private static boolean newLine(Writer out, boolean lineStarted, int depth, int indent) throws IOException {
+      if (lineStarted) {
+         out.write(CR);
+      }
+      for (int n = depth * indent; n > 0; n -= SPACES.length()) {
+         out.write(SPACES, 0, Math.min(n, SPACES.length()));
+      }
+      return true;
+   }
+
+   private static String qualifiedName(String prefix, String localName) {
+      if ((prefix == null) || (prefix.isEmpty())) {
+         return localName;
+      }
+      return prefix + ":" + localName;
+   }
+
+   private static void writeAttributeValue(Writer out, String value) throws IOException {
+      out.write("=\"");
+      int from = 0;
+      for (int i = 0; i < value.length(); i++) {
+         String entity;
+         switch (value.charAt(i)) {
+            case '<':
+               entity = "&lt;";
+               break;
+            case '&':
+               entity = "&amp;";
+               break;
+            case '"':
+               entity = "&quot;";
+               break;
+            default:
+               continue;
+         }
+         out.write(value, from, i - from);
+         out.write(entity);
+         from = i + 1;
+      }
+      out.write(value, from, value.length() - from);
+      out.write("\"");
+   }
+
+   private static void close(XMLStreamReader xsr) {
+      if (xsr != null) {
+         try {
+            xsr.close();
+         } catch (XMLStreamException e) {
+            // NOP
+         }
+      }
+   }
+
+   private static void writeSpaces(Writer out, StringBuilder spaces) throws IOException {
+      if (spaces.length() > 0) {
+         out.append(spaces);
+         spaces.setLength(0);
+      }
+   }
+
+   private static void writeText(Writer out, char[] text, int start, int length) throws IOException {
+      int from = start;
+      int end = start + length;
+      for (int i = start; i < end; i++) {
+         String entity;
+         switch (text[i]) {
+            case '<':
+               entity = "&lt;";
+               break;
+            case '>':
+               entity = "&gt;";
+               break;
+            case '&':
+               entity = "&amp;";
+               break;
+            default:
+               continue;
+         }
+         out.write(text, from, i - from);
+         out.write(entity);
+         from = i + 1;
+      }
+      out.write(text, from, end - from);
+   }
+
+   private static XMLInputFactory createXMLInputFactory() {
+      XMLInputFactory xif = XMLInputFactory.newInstance();
+      xif.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+      xif.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.FALSE);
+      xif.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+      if (xif.isPropertySupported(REPORT_CDATA)) {
+         xif.setProperty(REPORT_CDATA, Boolean.TRUE);
+      }
+      return xif;
+   }
+
+   private static boolean sameEvent(XMLStreamReader xsr1, XMLStreamReader xsr2, int event) {
+      switch (event) {
+         case XMLStreamConstants.START_ELEMENT:
+            if ((!xsr1.getName().equals(xsr2.getName())) || (xsr1.getAttributeCount() != xsr2.getAttributeCount())
+                || (xsr1.getNamespaceCount() != xsr2.getNamespaceCount())) {
+               return false;
+            }
+            for (int i = 0; i < xsr1.getNamespaceCount(); i++) {
+               if ((!String.valueOf(xsr1.getNamespacePrefix(i)).equals(String.valueOf(xsr2.getNamespacePrefix(i))))
+                   || (!xsr1.getNamespaceURI(i).equals(xsr2.getNamespaceURI(i)))) {
+                  return false;
+               }
+            }
+            for (int i = 0; i < xsr1.getAttributeCount(); i++) {
+               if ((!xsr1.getAttributeName(i).equals(xsr2.getAttributeName(i)))
+                   || (!xsr1.getAttributeValue(i).equals(xsr2.getAttributeValue(i)))) {
+                  return false;
+               }
+            }
+            return true;
+         case XMLStreamConstants.END_ELEMENT:
+            return xsr1.getName().equals(xsr2.getName());
+         case XMLStreamConstants.ENTITY_REFERENCE:
+            return xsr1.getLocalName().equals(xsr2.getLocalName());
+         case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            return xsr1.getPITarget().equals(xsr2.getPITarget()) && String.valueOf(xsr1.getPIData())
+                     .equals(String.valueOf(xsr2.getPIData()));
+         case XMLStreamConstants.COMMENT:
+         case XMLStreamConstants.DTD:
+            return xsr1.getText().equals(xsr2.getText());
+         default:
+            return true;
+      }
+   }
+
+   /**
+    * Reads the events significant for the comparison of two xml texts:
+    * <ul>
+    * <li>consecutive text, CDATA and entity reference events are returned as one TEXT event, the parser may split them
+    * differently. The kind of each part is kept in the text</li>
+    * <li>whitespaces between two tags and the xml declaration are ignored</li>
+    * </ul>
+    */
+   private static final class SignificantEvents {
+
+      private static final int      TEXT   = -1;
+
+      // Not a valid xml char, marks the start of a part of another kind
+      private static final char     MARKER = '\uFFFF';
+
+      private final XMLStreamReader xsr;
+      private final StringBuilder   text   = new StringBuilder();
+      private int                   pendingEvent;
+
+      private SignificantEvents(XMLStreamReader xsr) {
+         this.xsr = xsr;
+         this.pendingEvent = -1;
+      }
+
+      private int next() throws XMLStreamException {
+         text.setLength(0);
+         int lastKind = -1;
+         boolean onlySpaces = true;
+         while (true) {
+            int event;
+            if (pendingEvent != -1) {
+               event = pendingEvent;
+               pendingEvent = -1;
+            } else {
+               event = xsr.hasNext() ? xsr.next() : XMLStreamConstants.END_DOCUMENT;
+            }
+
+            int kind;
+            switch (event) {
+               case XMLStreamConstants.START_DOCUMENT:
+                  continue;
+               case XMLStreamConstants.CHARACTERS:
+               case XMLStreamConstants.SPACE:
+                  kind = XMLStreamConstants.CHARACTERS;
+                  onlySpaces = onlySpaces && xsr.isWhiteSpace();
+                  break;
+               case XMLStreamConstants.CDATA:
+               case XMLStreamConstants.ENTITY_REFERENCE:
+                  kind = event;
+                  onlySpaces = false;
+                  break;
+               default:
+                  if ((text.length() == 0) || (onlySpaces)) {
+                     return event;
+                  }
+                  // The event that ends the text is returned on next call
+                  pendingEvent = event;
+                  return TEXT;
+            }
+
+            if ((kind != lastKind) || (kind == XMLStreamConstants.ENTITY_REFERENCE)) {
+               text.append(MARKER).append(kind);
+               lastKind = kind;
+            }
+            if (kind == XMLStreamConstants.ENTITY_REFERENCE) {
+               text.append(xsr.getLocalName());
+            } else {
+               text.append(xsr.getTextCharacters(), xsr.getTextStart(), xsr.getTextLength());
+            }
+         }
+      }
+
+      private String getText() {
+         return text.toString();
+      }
+   }
+
+   // -------------
+   // Output buffer
+   // -------------
+
+   /**
+    * In-memory output that keeps at most "maxChars" characters. When the limit is reached, the formatting stops with an IOException
+    * and isTruncated() returns true
+    */
+   public static final class BoundedWriter extends Writer {
+
+      private final StringBuilder sb;
+      private final int           maxChars;
+      private boolean             truncated;
+
+      public BoundedWriter(int maxChars) {
+         this.maxChars = maxChars;
+         this.sb = new StringBuilder(Math.min(maxChars, 64 * 1024));
+      }
+
+      @Override
+      public void write(int c) throws IOException {
+         if (sb.length() >= maxChars) {
+            full();
+         }
+         sb.append((char) c);
+      }
+
+      @Override
+      public void write(char[] cbuf, int off, int len) throws IOException {
+         int room = maxChars - sb.length();
+         if (len > room) {
+            sb.append(cbuf, off, room);
+            full();
+         }
+         sb.append(cbuf, off, len);
+      }
+
+      @Override
+      public void write(String str, int off, int len) throws IOException {
+         int room = maxChars - sb.length();
+         if (len > room) {
+            sb.append(str, off, off + room);
+            full();
+         }
+         sb.append(str, off, off + len);
+      }
+
+      @Override
+      public void flush() {
+         // NOP
+      }
+
+      @Override
+      public void close() {
+         // NOP
+      }
+
+      public boolean isTruncated() {
+         return truncated;
+      }
+
+      public int length() {
+         return sb.length();
+      }
+
+      @Override
+      public String toString() {
+         return sb.toString();
+      }
+
+      private void full() throws IOException {
+         truncated = true;
+         throw new IOException("Output limit of " + maxChars + " chars reached");
+      }
+   }
+
+   // ------------------
+   // Pure Utility Class
+   // ------------------
+   private PrettyPrinter() {
+      // NOP
+   }
+
+}
@@ -17,10 +17,7 @@
 package org.titou10.jtb.variable;
 
 import java.io.ByteArrayInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -39,7 +36,6 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
@@ -50,6 +46,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.e4.core.di.annotations.Creatable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.titou10.jtb.config.ConfigFileWriter;
 import org.titou10.jtb.config.ConfigManager;
 import org.titou10.jtb.util.Constants;
 import org.titou10.jtb.util.Utils;
@@ -98,6 +95,7 @@ public class VariablesManager {
    private JAXBContext                    jcVariables;
    private IFile                          variablesIFile;
    private Variables                      variablesDef;
+   private ConfigFileWriter               variablesFileWriter;
 
    private List<Variable>                 variables;
 
@@ -118,6 +116,10 @@ public class VariablesManager {
          }
       }
       variablesDef = parseVariablesFile(this.variablesIFile.getContents());
+      variablesFileWriter = new ConfigFileWriter(Constants.JTB_VARIABLE_CONFIG_FILE_NAME,
+                                                 variablesIFile,
+                                                 jcVariables,
+                                                 () -> variablesDef);
 
       // Build list of variables
       reloadConfig();
@@ -128,7 +130,7 @@ public class VariablesManager {
    // ---------
    // Variables
    // ---------
-   public void importConfig(InputStream is) throws JAXBException, CoreException, FileNotFoundException {
+   public void importConfig(InputStream is) throws JAXBException {
       log.debug("importConfig");
 
       Variables newVars = parseVariablesFile(is);
@@ -158,7 +160,7 @@ public class VariablesManager {
       reloadConfig();
    }
 
-   public void saveConfig() throws JAXBException, CoreException {
+   public void saveConfig() {
       log.debug("saveConfig");
 
       variablesDef.getVariable().clear();
@@ -543,25 +545,9 @@ public class VariablesManager {
       return (Variables) u.unmarshal(is);
    }
 
-   // Write Variables File
-   private void variablesWriteFile() throws JAXBException, CoreException {
-      log.info("Writing Variable file '{}'", Constants.JTB_VARIABLE_CONFIG_FILE_NAME);
-
-      Marshaller m = jcVariables.createMarshaller();
-      m.setProperty(Marshaller.JAXB_ENCODING, ENC);
-      m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
-      StringWriter sw = new StringWriter(2048);
-      m.marshal(variablesDef, sw);
-
-      // TODO Add the logic to temporarily save the previous file in case of crash while saving
-
-      try (InputStream is = new ByteArrayInputStream(sw.toString().getBytes(ENC))) {
-         variablesIFile.setContents(is, false, false, null);
-      } catch (IOException e) {
-         log.error("IOException", e);
-         return;
-      }
+   // Write Variables File, in background
+   private void variablesWriteFile() {
+      variablesFileWriter.requestWrite();
    }
 
    public final static class VariableComparator implements Comparator<Variable> {
@@ -17,15 +17,12 @@
 package org.titou10.jtb.variable.handler;
 
 import javax.inject.Inject;
-import javax.xml.bind.JAXBException;
 
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.e4.core.di.annotations.Execute;
 import org.eclipse.jface.window.Window;
 import org.eclipse.swt.widgets.Shell;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.titou10.jtb.ui.JTBStatusReporter;
 import org.titou10.jtb.variable.VariablesManager;
 import org.titou10.jtb.variable.dialog.VariablesManageDialog;
 
@@ -42,9 +39,6 @@ public class VariablesManageHandler {
    @Inject
    private VariablesManager    variablesManager;
 
-   @Inject
-   private JTBStatusReporter   jtbStatusReporter;
-
    @Execute
    public void execute(Shell shell) {
       log.debug("execute");
@@ -56,12 +50,7 @@ public class VariablesManageHandler {
          return;
       }
 
-      try {
-         variablesManager.saveConfig();
-      } catch (CoreException | JAXBException e) {
-         jtbStatusReporter.showError("Save unsuccessful", e, "");
-         return;
-      }
+      variablesManager.saveConfig();
    }
 
 }
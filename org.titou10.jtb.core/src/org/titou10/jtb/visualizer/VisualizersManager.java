@@ -19,14 +19,12 @@ package org.titou10.jtb.visualizer;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.util.ArrayList;
@@ -50,7 +48,6 @@ import javax.script.ScriptException;
 import javax.script.SimpleBindings;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 
 import org.eclipse.core.resources.IFile;
@@ -61,6 +58,7 @@ import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.Text;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.titou10.jtb.config.ConfigFileWriter;
 import org.titou10.jtb.config.ConfigManager;
 import org.titou10.jtb.jms.model.JTBMessageType;
 import org.titou10.jtb.util.Constants;
@@ -120,6 +118,7 @@ public class VisualizersManager {
    private JAXBContext                              jcVisualizers;
    private IFile                                    visualizersIFile;
    private Visualizers                              visualizersDef;
+   private ConfigFileWriter                         visualizersFileWriter;
 
    private ScriptEngine                             scriptEngine;
    private Compilable                               compilingEngine;
@@ -147,6 +146,10 @@ public class VisualizersManager {
          }
       }
       visualizersDef = parseVisualizersFile(this.visualizersIFile.getContents());
+      visualizersFileWriter = new ConfigFileWriter(Constants.JTB_VISUALIZER_CONFIG_FILE_NAME,
+                                                   visualizersIFile,
+                                                   jcVisualizers,
+                                                   () -> visualizersDef);
 
       // Initialize script engine
       mapCompiledScripts = new HashMap<>();
@@ -164,7 +167,7 @@ public class VisualizersManager {
    // Visualizers
    // ---------
 
-   public void importConfig(InputStream is) throws JAXBException, CoreException, FileNotFoundException {
+   public void importConfig(InputStream is) throws JAXBException {
       log.debug("importConfig");
 
       Visualizers newVisualizers = parseVisualizersFile(is);
@@ -194,7 +197,7 @@ public class VisualizersManager {
       reloadConfig();
    }
 
-   public void saveConfig() throws JAXBException, CoreException {
+   public void saveConfig() {
       log.debug("saveConfig");
 
       visualizersDef.getVisualizer().clear();
@@ -662,25 +665,9 @@ public class VisualizersManager {
       return (Visualizers) u.unmarshal(is);
    }
 
-   // Write Visualizers File
-   private void writeVisualizersFile() throws JAXBException, CoreException {
-      log.info("Writing Visualizers file '{}'", Constants.JTB_VISUALIZER_CONFIG_FILE_NAME);
-
-      Marshaller m = jcVisualizers.createMarshaller();
-      m.setProperty(Marshaller.JAXB_ENCODING, ENC);
-      m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
-      StringWriter sw = new StringWriter(2048);
-      m.marshal(visualizersDef, sw);
-
-      // TODO Add the logic to temporarily save the previous file in case of crash while saving
-
-      try (InputStream is = new ByteArrayInputStream(sw.toString().getBytes(ENC))) {
-         visualizersIFile.setContents(is, false, false, null);
-      } catch (IOException e) {
-         log.error("IOException", e);
-         return;
-      }
+   // Write Visualizers File, in background
+   private void writeVisualizersFile() {
+      visualizersFileWriter.requestWrite();
    }
 
    private Visualizer getVizualiserFromName(String name) {
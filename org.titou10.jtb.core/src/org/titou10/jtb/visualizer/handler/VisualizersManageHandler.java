@@ -17,15 +17,12 @@
 package org.titou10.jtb.visualizer.handler;
 
 import javax.inject.Inject;
-import javax.xml.bind.JAXBException;
 
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.e4.core.di.annotations.Execute;
 import org.eclipse.jface.window.Window;
 import org.eclipse.swt.widgets.Shell;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.titou10.jtb.ui.JTBStatusReporter;
 import org.titou10.jtb.visualizer.VisualizersManager;
 import org.titou10.jtb.visualizer.dialog.VisualizersManageDialog;
 
@@ -39,9 +36,6 @@ public class VisualizersManageHandler {
 
    private static final Logger log = LoggerFactory.getLogger(VisualizersManageHandler.class);
 
-   @Inject
-   private JTBStatusReporter   jtbStatusReporter;
-
    @Inject
    private VisualizersManager  visualizersManager;
 
@@ -55,12 +49,7 @@ public class VisualizersManageHandler {
          return;
       }
 
-      try {
-         visualizersManager.saveConfig();
-      } catch (CoreException | JAXBException e) {
-         jtbStatusReporter.showError("Save unsuccessful", e, "");
-         return;
-      }
+      visualizersManager.saveConfig();
    }
 
 }
@@ -18,10 +18,12 @@ package org.titou10.jtb.qm.activemq;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -51,11 +53,14 @@ import org.apache.activemq.command.ActiveMQTopic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
+import org.titou10.jtb.jms.qm.JMXMetricsHelper;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 /**
@@ -67,48 +72,77 @@ import org.titou10.jtb.jms.qm.TopicData;
  */
 public class ActiveMQQManager extends QManager {
 
-   private static final Logger             log                    = LoggerFactory.getLogger(ActiveMQQManager.class);
+   private static final Logger    log                         = LoggerFactory.getLogger(ActiveMQQManager.class);
 
-   private static final String             JMX_URL_TEMPLATE       = "service:jmx:rmi:///jndi/rmi://%s:%d/%s";
+   private static final String    JMX_URL_TEMPLATE            = "service:jmx:rmi:///jndi/rmi://%s:%d/%s";
 
    // MBeans for Apache Active MQ >= v5.8.0
-   private static final String             JMX_BROKER             = "*:type=Broker,brokerName=*";
-   private static final String             JMX_QUEUES             = "*:type=Broker,destinationType=Queue,*";
-   private static final String             JMX_TOPICS             = "*:type=Broker,destinationType=Topic,*";
-   private static final String             JMX_QUEUE              = "*:type=Broker,destinationType=Queue,destinationName=%s,*";
-   private static final String             JMX_TOPIC              = "*:type=Broker,destinationType=Topic,destinationName=%s,*";
+   private static final String    JMX_BROKER                  = "*:type=Broker,brokerName=*";
+   private static final String    JMX_QUEUES                  = "*:type=Broker,destinationType=Queue,*";
+   private static final String    JMX_TOPICS                  = "*:type=Broker,destinationType=Topic,*";
+   private static final String    JMX_QUEUE                   = "*:type=Broker,destinationType=Queue,destinationName=%s,*";
+   private static final String    JMX_TOPIC                   = "*:type=Broker,destinationType=Topic,destinationName=%s,*";
 
    // MBeans for Apache Active MQ < v5.8.0
-   private static final String             JMX_BROKER_LEGACY      = "org.apache.activemq:Type=Broker,*";
-   private static final String             JMX_QUEUES_LEGACY      = "org.apache.activemq:Type=Queue,*";
-   private static final String             JMX_TOPICS_LEGACY      = "org.apache.activemq:Type=Topic,*";
-   private static final String             JMX_QUEUE_LEGACY       = "org.apache.activemq:Type=Queue,Destination=%s,*";
-   private static final String             JMX_TOPIC_LEGACY       = "org.apache.activemq:Type=Topic,Destination=%s,*";
+   private static final String    JMX_BROKER_LEGACY           = "org.apache.activemq:Type=Broker,*";
+   private static final String    JMX_QUEUES_LEGACY           = "org.apache.activemq:Type=Queue,*";
+   private static final String    JMX_TOPICS_LEGACY           = "org.apache.activemq:Type=Topic,*";
+   private static final String    JMX_QUEUE_LEGACY            = "org.apache.activemq:Type=Queue,Destination=%s,*";
+   private static final String    JMX_TOPIC_LEGACY            = "org.apache.activemq:Type=Topic,Destination=%s,*";
 
    // Class name of the broker is the same in all versions...
-   private static final QueryExp           JMX_BROKER_QUERY       = Query
-            .isInstanceOf(Query.value("org.apache.activemq.broker.jmx.BrokerViewMBean"));
-
-   private static final String             SYSTEM_PREFIX          = "ActiveMQ.";
-
-   private static final String             CR                     = "\n";
-
-   private static final String             P_BROKER_URL           = "brokerURL";
-   private static final String             P_USE_JMX              = "useJMX";
-   private static final String             P_JMX_CONTEXT          = "jmxContext";
-   private static final String             P_KEY_STORE            = "javax.net.ssl.keyStore";
-   private static final String             P_KEY_STORE_PASSWORD   = "javax.net.ssl.keyStorePassword";
-   private static final String             P_TRUST_STORE          = "javax.net.ssl.trustStore";
-   private static final String             P_TRUST_STORE_PASSWORD = "javax.net.ssl.trustStorePassword";
-   private static final String             P_TRUST_ALL_PACKAGES   = "trustAllPackages";
-
-   private static final String             P_JMX_CONTEXT_DEFAULT  = "jmxrmi";
-
-   private List<QManagerProperty>          parameters             = new ArrayList<QManagerProperty>();
-
-   private static final String             HELP_TEXT;
-
-   private final Map<Integer, SessionInfo> sessionsInfo           = new HashMap<>();
+   private static final QueryExp  JMX_BROKER_QUERY            = Query
+   .isInstanceOf(Query.value("org.apache.activemq.broker.jmx.BrokerViewMBean"));
+
+   // Attributes displayed in the Destination Information dialog
+   private static final String[]  QUEUE_ATTRIBUTES            = { "QueueSize", "Paused", "DLQ", "CacheEnabled", "UseCache",
+                                                                  "CursorMemoryUsage", "CursorPercentUsage", "CursorFull",
+                                                                  "MessageGroupType", "MessageGroups", "MemoryPercentUsage",
+                                                                  "MemoryUsagePortion", "MemoryUsageByteCount", "MemoryLimit",
+                                                                  "Options", "SlowConsumerStrategy", "ProducerFlowControl",
+                                                                  "AlwaysRetroactive", "MaxProducersToAudit",
+                                                                  "PrioritizedMessages", "MaxAuditDepth", "AverageMessageSize",
+                                                                  "MaxMessageSize", "MinMessageSize", "MaxPageSize",
+                                                                  "BlockedProducerWarningInterval", "BlockedSends",
+                                                                  "StoreMessageSize", "ProducerCount", "ConsumerCount",
+                                                                  "EnqueueCount", "DequeueCount", "ForwardCount",
+                                                                  "DispatchCount", "InFlightCount", "ExpiredCount",
+                                                                  "AverageEnqueueTime", "MaxEnqueueTime", "MinEnqueueTime",
+                                                                  "AverageBlockedTime" };
+   private static final String[]  TOPIC_ATTRIBUTES            = { "QueueSize", "DLQ", "UseCache", "ProducerCount",
+                                                                  "ConsumerCount", "EnqueueCount", "DequeueCount",
+                                                                  "ForwardCount", "MemoryPercentUsage", "MemoryUsagePortion",
+                                                                  "Options", "MemoryLimit", "MemoryUsageByteCount",
+                                                                  "SlowConsumerStrategy", "ProducerFlowControl",
+                                                                  "AlwaysRetroactive", "MaxProducersToAudit",
+                                                                  "PrioritizedMessages", "AverageMessageSize", "MaxMessageSize",
+                                                                  "MinMessageSize", "MaxAuditDepth", "MaxPageSize",
+                                                                  "BlockedProducerWarningInterval", "BlockedSends",
+                                                                  "StoreMessageSize", "AverageEnqueueTime", "MaxEnqueueTime",
+                                                                  "MinEnqueueTime", "AverageBlockedTime", "TotalBlockedTime",
+                                                                  "DispatchCount", "InFlightCount", "ExpiredCount" };
+   private static final String[]  QUEUE_STATISTICS_ATTRIBUTES = { "QueueSize", "ConsumerCount", "ProducerCount" };
+
+   private static final long      JMX_TIMEOUT                 = 30000;
+
+   private static final String    SYSTEM_PREFIX               = "ActiveMQ.";
+
+   private static final String    CR                          = "\n";
+
+   private static final String    P_BROKER_URL                = "brokerURL";
+   private static final String    P_USE_JMX                   = "useJMX";
+   private static final String    P_JMX_CONTEXT               = "jmxContext";
+   private static final String    P_KEY_STORE                 = "javax.net.ssl.keyStore";
+   private static final String    P_KEY_STORE_PASSWORD        = "javax.net.ssl.keyStorePassword";
+   private static final String    P_TRUST_STORE               = "javax.net.ssl.trustStore";
+   private static final String    P_TRUST_STORE_PASSWORD      = "javax.net.ssl.trustStorePassword";
+   private static final String    P_TRUST_ALL_PACKAGES        = "trustAllPackages";
+
+   private static final String    P_JMX_CONTEXT_DEFAULT       = "jmxrmi";
+
+   private List<QManagerProperty> parameters                  = new ArrayList<QManagerProperty>();
+
+   private static final String    HELP_TEXT;
 
    // ------------------------
    // Constructor
@@ -144,7 +178,7 @@ public class ActiveMQQManager extends QManager {
    }
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       /* <managementContext> <managementContext createConnector="true"/> </managementContext> */
@@ -268,23 +302,20 @@ public class ActiveMQQManager extends QManager {
 
          log.info("connected to {}", sessionDef.getName());
 
-         // Store per connection related data
-         SessionInfo sessionInfo = new SessionInfo(useJMX, jmxc, mbsc, versionAndMaster);
-         sessionsInfo.put(jmsConnection.hashCode(), sessionInfo);
-
-         return jmsConnection;
+         return new SessionInfo(jmsConnection, useJMX, jmxc, mbsc, versionAndMaster);
       } finally {
          restoreSystemProperties();
       }
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      SessionInfo sessionInfo = sessionsInfo.get(jmsConnection.hashCode());
-      return sessionInfo.isUseJMX() ? withJMX(jmsConnection, showSystemObjects) : withoutJMX(jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      SessionInfo sessionInfo = (SessionInfo) connectionContext;
+      return sessionInfo.isUseJMX() ? withJMX(sessionInfo, showSystemObjects)
+               : withoutJMX(sessionInfo.getJmsConnection(), showSystemObjects);
    }
 
-   public DestinationData withoutJMX(Connection jmsConnection, boolean showSystemObjects) throws Exception {
+   private DestinationData withoutJMX(Connection jmsConnection, boolean showSystemObjects) throws Exception {
       log.debug("discoverDestinationsWithoutJMX : {} - {}", jmsConnection, showSystemObjects);
 
       SortedSet<QueueData> listQueueData = new TreeSet<>();
@@ -328,14 +359,14 @@ public class ActiveMQQManager extends QManager {
       return new DestinationData(listQueueData, listTopicData);
    }
 
-   public DestinationData withJMX(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinationsWithJMX : {} - {}", jmsConnection, showSystemObjects);
+   private DestinationData withJMX(SessionInfo sessionInfo, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinationsWithJMX : {} - {}", sessionInfo.getJmsConnection(), showSystemObjects);
 
-      SessionInfo sessionInfo = sessionsInfo.get(jmsConnection.hashCode());
       MBeanServerConnection mbsc = sessionInfo.getMbsc();
       boolean legacy = sessionInfo.isUseLegacys();
 
-      // Discover queues and topics
+      // Discover queues and topics. Keep the ObjectNames for later use, forget those of the destinations that do not exist anymore
+      sessionInfo.jmx.clearObjectNames();
 
       SortedSet<QueueData> listQueueData = new TreeSet<>();
       SortedSet<TopicData> listTopicData = new TreeSet<>();
@@ -351,6 +382,7 @@ public class ActiveMQQManager extends QManager {
                log.warn("Queue has an empty name. Ignore it");
                continue;
             }
+            sessionInfo.jmx.cacheObjectName(queuePattern(sessionInfo, dName), objectName);
             if (showSystemObjects) {
                listQueueData.add(new QueueData(dName));
             } else {
@@ -369,6 +401,7 @@ public class ActiveMQQManager extends QManager {
                log.warn("Topic has an empty name. Ignore it");
                continue;
             }
+            sessionInfo.jmx.cacheObjectName(topicPattern(sessionInfo, dName), objectName);
 
             if (showSystemObjects) {
                listTopicData.add(new TopicData(dName));
@@ -388,6 +421,7 @@ public class ActiveMQQManager extends QManager {
                log.warn("Queue has an empty name. Ignore it");
                continue;
             }
+            sessionInfo.jmx.cacheObjectName(queuePattern(sessionInfo, dName), objectName);
             if (showSystemObjects) {
                listQueueData.add(new QueueData(dName));
             } else {
@@ -406,6 +440,7 @@ public class ActiveMQQManager extends QManager {
                log.warn("Topic has an empty name. Ignore it");
                continue;
             }
+            sessionInfo.jmx.cacheObjectName(topicPattern(sessionInfo, dName), objectName);
             if (showSystemObjects) {
                listTopicData.add(new TopicData(dName));
             } else {
@@ -422,15 +457,17 @@ public class ActiveMQQManager extends QManager {
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext);
 
-      Integer hash = jmsConnection.hashCode();
-      SessionInfo sessionInfo = sessionsInfo.get(hash);
+      SessionInfo sessionInfo = (SessionInfo) connectionContext;
       JMXConnector jmxc = sessionInfo.getJmxc();
 
+      if (sessionInfo.jmx != null) {
+         sessionInfo.jmx.close();
+      }
       try {
-         jmsConnection.close();
+         sessionInfo.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
       }
@@ -441,7 +478,6 @@ public class ActiveMQQManager extends QManager {
             log.warn("Exception occured while closing JMXConnector. Ignore it. Msg={}", e.getMessage());
          }
       }
-      sessionsInfo.remove(hash);
    }
 
    @Override
@@ -450,38 +486,33 @@ public class ActiveMQQManager extends QManager {
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
 
-      SessionInfo sessionInfo = sessionsInfo.get(jmsConnection.hashCode());
+      SessionInfo sessionInfo = (SessionInfo) connectionContext;
 
       if (!sessionInfo.isUseJMX()) {
          // No JMX. Count the nb of message by hand...
          return null;
       }
 
-      MBeanServerConnection mbsc = sessionInfo.getMbsc();
-      boolean legacy = sessionInfo.isUseLegacys();
-
-      Integer depth = null;
+      // The ObjectName of a destination that does not exist anymore is evicted by the JMXMetricsHelper
       try {
-         ObjectName on = new ObjectName(String.format(legacy ? JMX_QUEUE_LEGACY : JMX_QUEUE, queueName));
-         Set<ObjectName> attributesSet = mbsc.queryNames(on, null);
-         if ((attributesSet != null) && (!attributesSet.isEmpty())) {
-            // TODO Long -> Integer !
-            depth = ((Long) mbsc.getAttribute(attributesSet.iterator().next(), "QueueSize")).intValue();
+         Map<String, Object> values = sessionInfo.jmx.getAttributes(queuePattern(sessionInfo, queueName), "QueueSize");
+         if (values != null) {
+            return toInteger(values.get("QueueSize"));
          }
       } catch (Exception e) {
          log.error("Exception when reading queue depth. Ignoring", e);
       }
-      return depth;
+      return null;
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
 
       SortedMap<String, Object> properties = new TreeMap<>();
 
-      SessionInfo sessionInfo = sessionsInfo.get(jmsConnection.hashCode());
+      SessionInfo sessionInfo = (SessionInfo) connectionContext;
 
       if (!sessionInfo.isUseJMX()) {
          // No JMX. No destination Info...
@@ -489,56 +520,10 @@ public class ActiveMQQManager extends QManager {
          return properties;
       }
 
-      MBeanServerConnection mbsc = sessionInfo.getMbsc();
-      boolean legacy = sessionInfo.isUseLegacys();
-
       try {
-         ObjectName on = new ObjectName(String.format(legacy ? JMX_QUEUE_LEGACY : JMX_QUEUE, queueName));
-         Set<ObjectName> attributesSet = mbsc.queryNames(on, null);
-
-         if ((attributesSet != null) && (!attributesSet.isEmpty())) {
-            addInfo(mbsc, properties, attributesSet, "QueueSize");
-            addInfo(mbsc, properties, attributesSet, "Paused");
-            addInfo(mbsc, properties, attributesSet, "DLQ");
-
-            addInfo(mbsc, properties, attributesSet, "CacheEnabled");
-            addInfo(mbsc, properties, attributesSet, "UseCache");
-            addInfo(mbsc, properties, attributesSet, "CursorMemoryUsage");
-            addInfo(mbsc, properties, attributesSet, "CursorPercentUsage");
-            addInfo(mbsc, properties, attributesSet, "CursorFull");
-            addInfo(mbsc, properties, attributesSet, "MessageGroupType");
-            addInfo(mbsc, properties, attributesSet, "MessageGroups");
-            addInfo(mbsc, properties, attributesSet, "MemoryPercentUsage");
-            addInfo(mbsc, properties, attributesSet, "MemoryUsagePortion");
-            addInfo(mbsc, properties, attributesSet, "MemoryUsageByteCount");
-            addInfo(mbsc, properties, attributesSet, "MemoryLimit");
-            addInfo(mbsc, properties, attributesSet, "Options");
-            addInfo(mbsc, properties, attributesSet, "SlowConsumerStrategy");
-            addInfo(mbsc, properties, attributesSet, "ProducerFlowControl");
-            addInfo(mbsc, properties, attributesSet, "AlwaysRetroactive");
-            addInfo(mbsc, properties, attributesSet, "MaxProducersToAudit");
-            addInfo(mbsc, properties, attributesSet, "PrioritizedMessages");
-            addInfo(mbsc, properties, attributesSet, "MaxAuditDepth");
-            addInfo(mbsc, properties, attributesSet, "AverageMessageSize");
-            addInfo(mbsc, properties, attributesSet, "MaxMessageSize");
-            addInfo(mbsc, properties, attributesSet, "MinMessageSize");
-            addInfo(mbsc, properties, attributesSet, "MaxPageSize");
-            addInfo(mbsc, properties, attributesSet, "BlockedProducerWarningInterval");
-            addInfo(mbsc, properties, attributesSet, "BlockedSends");
-            addInfo(mbsc, properties, attributesSet, "StoreMessageSize");
-            addInfo(mbsc, properties, attributesSet, "ProducerCount");
-            addInfo(mbsc, properties, attributesSet, "ConsumerCount");
-            addInfo(mbsc, properties, attributesSet, "EnqueueCount");
-            addInfo(mbsc, properties, attributesSet, "DequeueCount");
-            addInfo(mbsc, properties, attributesSet, "ForwardCount");
-            addInfo(mbsc, properties, attributesSet, "DispatchCount");
-            addInfo(mbsc, properties, attributesSet, "InFlightCount");
-            addInfo(mbsc, properties, attributesSet, "ExpiredCount");
-            addInfo(mbsc, properties, attributesSet, "AverageEnqueueTime");
-            addInfo(mbsc, properties, attributesSet, "MaxEnqueueTime");
-            addInfo(mbsc, properties, attributesSet, "MinEnqueueTime");
-            addInfo(mbsc, properties, attributesSet, "AverageBlockedTime");
-            // addInfo(properties, attributesSet, "Subscriptions");
+         Map<String, Object> values = sessionInfo.jmx.getAttributes(queuePattern(sessionInfo, queueName), QUEUE_ATTRIBUTES);
+         if (values != null) {
+            properties.putAll(values);
          }
       } catch (Exception e) {
          log.error("Exception when reading Queue Information. Ignoring", e);
@@ -548,11 +533,11 @@ public class ActiveMQQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
 
       SortedMap<String, Object> properties = new TreeMap<>();
 
-      SessionInfo sessionInfo = sessionsInfo.get(jmsConnection.hashCode());
+      SessionInfo sessionInfo = (SessionInfo) connectionContext;
 
       if (!sessionInfo.isUseJMX()) {
          // No JMX. No destination Info...
@@ -560,75 +545,58 @@ public class ActiveMQQManager extends QManager {
          return properties;
       }
 
-      MBeanServerConnection mbsc = sessionInfo.getMbsc();
-      boolean legacy = sessionInfo.isUseLegacys();
-
       try {
-         ObjectName on = new ObjectName(String.format(legacy ? JMX_TOPIC_LEGACY : JMX_TOPIC, topicName));
-         Set<ObjectName> attributesSet = mbsc.queryNames(on, null);
-
-         // // Display all attributes
-         // MBeanInfo info = mbsc.getMBeanInfo(attributesSet.iterator().next());
-         // MBeanAttributeInfo[] attrInfo = info.getAttributes();
-         // for (MBeanAttributeInfo attr : attrInfo) {
-         // log.debug(" {} \n", attr.getName());
-         // }
-
-         if ((attributesSet != null) && (!attributesSet.isEmpty())) {
-            addInfo(mbsc, properties, attributesSet, "QueueSize");
-            addInfo(mbsc, properties, attributesSet, "DLQ");
-            addInfo(mbsc, properties, attributesSet, "UseCache");
-
-            addInfo(mbsc, properties, attributesSet, "ProducerCount");
-            addInfo(mbsc, properties, attributesSet, "ConsumerCount");
-            addInfo(mbsc, properties, attributesSet, "EnqueueCount");
-            addInfo(mbsc, properties, attributesSet, "DequeueCount");
-            addInfo(mbsc, properties, attributesSet, "ForwardCount");
-            addInfo(mbsc, properties, attributesSet, "MemoryPercentUsage");
-            addInfo(mbsc, properties, attributesSet, "MemoryUsagePortion");
-            addInfo(mbsc, properties, attributesSet, "Options");
-            addInfo(mbsc, properties, attributesSet, "MemoryLimit");
-            addInfo(mbsc, properties, attributesSet, "MemoryUsageByteCount");
-            addInfo(mbsc, properties, attributesSet, "SlowConsumerStrategy");
-            addInfo(mbsc, properties, attributesSet, "ProducerFlowControl");
-            addInfo(mbsc, properties, attributesSet, "AlwaysRetroactive");
-            addInfo(mbsc, properties, attributesSet, "MaxProducersToAudit");
-            addInfo(mbsc, properties, attributesSet, "PrioritizedMessages");
-            addInfo(mbsc, properties, attributesSet, "AverageMessageSize");
-            addInfo(mbsc, properties, attributesSet, "MaxMessageSize");
-            addInfo(mbsc, properties, attributesSet, "MinMessageSize");
-            addInfo(mbsc, properties, attributesSet, "MaxAuditDepth");
-            addInfo(mbsc, properties, attributesSet, "MaxPageSize");
-            addInfo(mbsc, properties, attributesSet, "BlockedProducerWarningInterval");
-            addInfo(mbsc, properties, attributesSet, "BlockedSends");
-            addInfo(mbsc, properties, attributesSet, "StoreMessageSize");
-            addInfo(mbsc, properties, attributesSet, "AverageEnqueueTime");
-            addInfo(mbsc, properties, attributesSet, "MaxEnqueueTime");
-            addInfo(mbsc, properties, attributesSet, "MinEnqueueTime");
-            addInfo(mbsc, properties, attributesSet, "AverageBlockedTime");
-            addInfo(mbsc, properties, attributesSet, "TotalBlockedTime");
-            addInfo(mbsc, properties, attributesSet, "DispatchCount");
-            addInfo(mbsc, properties, attributesSet, "InFlightCount");
-            addInfo(mbsc, properties, attributesSet, "ExpiredCount");
-            // addInfo(properties, attributesSet, "Subscriptions");
+         Map<String, Object> values = sessionInfo.jmx.getAttributes(topicPattern(sessionInfo, topicName), TOPIC_ATTRIBUTES);
+         if (values != null) {
+            properties.putAll(values);
          }
       } catch (Exception e) {
-         log.error("Exception when reading Queue Information. Ignoring", e);
+         log.error("Exception when reading Topic Information. Ignoring", e);
       }
 
       return properties;
    }
 
-   private void addInfo(MBeanServerConnection mbsc,
-                        Map<String, Object> properties,
-                        Set<ObjectName> attributesSet,
-                        String propertyName) {
+   @Override
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
 
-      try {
-         properties.put(propertyName, mbsc.getAttribute(attributesSet.iterator().next(), propertyName));
-      } catch (Exception e) {
-         log.warn("Exception when reading property '{}' Ignoring.", propertyName, e.getMessage());
+      SessionInfo sessionInfo = (SessionInfo) connectionContext;
+      if (!sessionInfo.isUseJMX()) {
+         return null;
       }
+
+      // The attributes of the queues are read in parallel, one call per queue, with the ObjectNames kept since the discovery
+      Map<String, String> patterns = new HashMap<>(queueNames.size());
+      for (String queueName : queueNames) {
+         patterns.put(queueName, queuePattern(sessionInfo, queueName));
+      }
+
+      Map<String, QueueStatistics> statistics = new HashMap<>(patterns.size());
+      for (Entry<String, Map<String, Object>> e : sessionInfo.jmx.getAttributes(patterns, QUEUE_STATISTICS_ATTRIBUTES).entrySet()) {
+         Map<String, Object> values = e.getValue();
+         statistics.put(e.getKey(),
+                        new QueueStatistics(toInteger(values.get("QueueSize")),
+                                            null,
+                                            toInteger(values.get("ConsumerCount")),
+                                            toInteger(values.get("ProducerCount"))));
+      }
+      return statistics;
+   }
+
+   // ------------------------
+   // Helpers
+   // ------------------------
+
+   private String queuePattern(SessionInfo sessionInfo, String queueName) {
+      return String.format(sessionInfo.isUseLegacys() ? JMX_QUEUE_LEGACY : JMX_QUEUE, queueName);
+   }
+
+   private String topicPattern(SessionInfo sessionInfo, String topicName) {
+      return String.format(sessionInfo.isUseLegacys() ? JMX_TOPIC_LEGACY : JMX_TOPIC, topicName);
+   }
+
+   private Integer toInteger(Object o) {
+      return o instanceof Number ? ((Number) o).intValue() : null;
    }
 
    @Override
@@ -745,17 +713,24 @@ public class ActiveMQQManager extends QManager {
     * @author Denis Forveille
     *
     */
-   private class SessionInfo {
-      private boolean               useJMX;
-      private JMXConnector          jmxc;
-      private MBeanServerConnection mbsc;
-      private Boolean               useLegacys;
-
-      public SessionInfo(boolean useJMX, JMXConnector jmxc, MBeanServerConnection mbsc, Boolean versionAndMaster) {
+   private static final class SessionInfo extends ConnectionContext {
+      private final boolean                 useJMX;
+      private final JMXConnector            jmxc;
+      private final MBeanServerConnection   mbsc;
+      private final Boolean                 useLegacys;
+      private final JMXMetricsHelper        jmx;
+
+      public SessionInfo(Connection jmsConnection,
+                         boolean useJMX,
+                         JMXConnector jmxc,
+                         MBeanServerConnection mbsc,
+                         Boolean versionAndMaster) {
+         super(jmsConnection);
          this.useJMX = useJMX;
          this.jmxc = jmxc;
          this.mbsc = mbsc;
          this.useLegacys = versionAndMaster;
+         this.jmx = mbsc == null ? null : new JMXMetricsHelper("ActiveMQ", mbsc, JMX_TIMEOUT);
       }
 
       public boolean isUseJMX() {
@@ -18,6 +18,7 @@ package org.titou10.jtb.qm.artemis;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,11 +46,14 @@ import org.apache.activemq.artemis.core.remoting.impl.netty.TransportConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
+import org.titou10.jtb.jms.qm.ManagementRequestBatch;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 /**
@@ -61,23 +65,24 @@ import org.titou10.jtb.jms.qm.TopicData;
  */
 public class ActiveMQArtemisQManager extends QManager {
 
-   private static final Logger                log                  = LoggerFactory.getLogger(ActiveMQArtemisQManager.class);
+   private static final Logger    log                         = LoggerFactory.getLogger(ActiveMQArtemisQManager.class);
 
-   private static final String                NA                   = "n/a";
-   private static final String                CR                   = "\n";
+   private static final String    NA                          = "n/a";
+   private static final String    CR                          = "\n";
 
-   private static final String                P_EXTRA_PROPERTIES   = "z_ExtraNettyProperties";
-   private static final String                EXTRA_PROPERTIES_SEP = ";";
-   private static final String                EXTRA_PROPERTIES_VAL = "=";
+   private static final String    P_EXTRA_PROPERTIES          = "z_ExtraNettyProperties";
+   private static final String    EXTRA_PROPERTIES_SEP        = ";";
+   private static final String    EXTRA_PROPERTIES_VAL        = "=";
 
-   private static final String                HELP_TEXT;
+   private static final long      ADMIN_BATCH_TIMEOUT         = 30000;
 
-   private List<QManagerProperty>             parameters           = new ArrayList<QManagerProperty>();
+   private static final String[]  QUEUE_STATISTICS_ATTRIBUTES = { "messageCount", "consumerCount" };
 
-   private Queue                              managementQueue      = ActiveMQJMSClient.createQueue("activemq.management");
+   private static final String    HELP_TEXT;
 
-   private final Map<Integer, Session>        sessionJMSs          = new HashMap<>();
-   private final Map<Integer, QueueRequestor> requestorJMSs        = new HashMap<>();
+   private List<QManagerProperty> parameters                  = new ArrayList<QManagerProperty>();
+
+   private Queue                  managementQueue             = ActiveMQJMSClient.createQueue("activemq.management");
 
    public ActiveMQArtemisQManager() {
       log.debug("Apache Active MQ Artemis v1.x (legacy)");
@@ -114,7 +119,7 @@ public class ActiveMQArtemisQManager extends QManager {
    }
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Save System properties
@@ -185,12 +190,7 @@ public class ActiveMQArtemisQManager extends QManager {
 
          log.info("connected to {}", sessionDef.getName());
 
-         // Store per connection related data
-         Integer hash = jmsConnection.hashCode();
-         sessionJMSs.put(hash, sessionJMS);
-         requestorJMSs.put(hash, requestorJMS);
-
-         return jmsConnection;
+         return new ArtemisConnectionContext(jmsConnection, sessionJMS, requestorJMS);
       } finally {
          restoreSystemProperties();
       }
@@ -198,16 +198,14 @@ public class ActiveMQArtemisQManager extends QManager {
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext, showSystemObjects);
 
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+      ArtemisConnectionContext ctx = (ArtemisConnectionContext) connectionContext;
 
       // Retrieve Queues
       SortedSet<QueueData> listQueueData = new TreeSet<>();
-      Object[] queueNames = sendAdminMessage(Object[].class, sessionJMS, requestorJMS, ResourceNames.JMS_SERVER, "queueNames");
+      Object[] queueNames = sendAdminMessage(Object[].class, ctx, ResourceNames.JMS_SERVER, "queueNames");
       log.debug("queueNames = {} {}", queueNames, queueNames.getClass());
       for (Object o : queueNames) {
          log.debug("q={}", o);
@@ -216,7 +214,7 @@ public class ActiveMQArtemisQManager extends QManager {
 
       // Retrieve Topics
       SortedSet<TopicData> listTopicData = new TreeSet<>();
-      Object[] topicNames = sendAdminMessage(Object[].class, sessionJMS, requestorJMS, ResourceNames.JMS_SERVER, "topicNames");
+      Object[] topicNames = sendAdminMessage(Object[].class, ctx, ResourceNames.JMS_SERVER, "topicNames");
       for (Object o : topicNames) {
          log.debug("t={}", o.toString());
          listTopicData.add(new TopicData((String) o));
@@ -227,69 +225,96 @@ public class ActiveMQArtemisQManager extends QManager {
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
-
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
-
-      if (requestorJMS != null) {
-         try {
-            requestorJMS.close();
-         } catch (Exception e) {
-            log.warn("Exception occured while closing requestorJMS. Ignore it. Msg={}", e.getMessage());
-         }
-         requestorJMSs.remove(hash);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext);
+
+      ArtemisConnectionContext ctx = (ArtemisConnectionContext) connectionContext;
+
+      try {
+         ctx.requestorJMS.close();
+      } catch (Exception e) {
+         log.warn("Exception occured while closing requestorJMS. Ignore it. Msg={}", e.getMessage());
       }
 
-      if (sessionJMS != null) {
-         try {
-            sessionJMS.close();
-         } catch (Exception e) {
-            log.warn("Exception occured while closing sessionJMS. Ignore it. Msg={}", e.getMessage());
-         }
-         sessionJMSs.remove(hash);
+      try {
+         ctx.sessionJMS.close();
+      } catch (Exception e) {
+         log.warn("Exception occured while closing sessionJMS. Ignore it. Msg={}", e.getMessage());
       }
 
       try {
-         jmsConnection.close();
+         ctx.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing jmsConnection. Ignore it. Msg={}", e.getMessage());
       }
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
+      ArtemisConnectionContext ctx = (ArtemisConnectionContext) connectionContext;
 
-      Number n = samNull(Number.class, sessionJMS, requestorJMS, ResourceNames.JMS_QUEUE + queueName, "messageCount");
+      Number n = samNull(Number.class, ctx, ResourceNames.JMS_QUEUE + queueName, "messageCount");
       return n == null ? null : n.intValue();
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+      ArtemisConnectionContext ctx = (ArtemisConnectionContext) connectionContext;
+
+      List<String> names = new ArrayList<>(queueNames);
+      List<String> resourceNames = new ArrayList<>(names.size());
+      for (String queueName : names) {
+         resourceNames.add(ResourceNames.JMS_QUEUE + queueName);
+      }
 
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+      // All the attributes are read in one batch. JMS Sessions are not thread safe: serialize the admin requests
+      List<Object> results;
+      try {
+         synchronized (ctx) {
+            results = ManagementRequestBatch.getAttributes(ctx.sessionJMS,
+                                                           managementQueue,
+                                                           resourceNames,
+                                                           QUEUE_STATISTICS_ATTRIBUTES,
+                                                           JMSManagementHelper::putAttribute,
+                                                           ActiveMQArtemisQManager::readAdminReply,
+                                                           ADMIN_BATCH_TIMEOUT);
+         }
+      } catch (Exception e) {
+         log.warn("Exception occurred when processing admin messages. Ignoring: {}", e.getMessage());
+         return null;
+      }
+
+      // Queues whose depth could not be read are left to getQueueDepth
+      Map<String, QueueStatistics> statistics = new HashMap<>(names.size());
+      for (int i = 0; i < names.size(); i++) {
+         Integer depth = toInteger(results.get(i * QUEUE_STATISTICS_ATTRIBUTES.length));
+         if (depth != null) {
+            Integer consumerCount = toInteger(results.get(i * QUEUE_STATISTICS_ATTRIBUTES.length + 1));
+            statistics.put(names.get(i), new QueueStatistics(depth, null, consumerCount, null));
+         }
+      }
+      return statistics;
+   }
+
+   @Override
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
+
+      ArtemisConnectionContext ctx = (ArtemisConnectionContext) connectionContext;
 
       String jmsQueueName = ResourceNames.JMS_QUEUE + queueName;
 
       SortedMap<String, Object> properties = new TreeMap<>();
-      properties.put("Paused", samNull(Boolean.class, sessionJMS, requestorJMS, jmsQueueName, "paused"));
-      properties.put("Temporary", samNull(Boolean.class, sessionJMS, requestorJMS, jmsQueueName, "temporary"));
-      properties.put("Message Count", samNull(Long.class, sessionJMS, requestorJMS, jmsQueueName, "messageCount"));
-      properties.put("Scheduled Count", samNull(Long.class, sessionJMS, requestorJMS, jmsQueueName, "scheduledCount"));
-      properties.put("Consumer Count", samNull(Integer.class, sessionJMS, requestorJMS, jmsQueueName, "consumerCount"));
-      properties.put("Delivering Count", samNull(Integer.class, sessionJMS, requestorJMS, jmsQueueName, "deliveringCount"));
-      properties.put("Messages Added", samNull(Long.class, sessionJMS, requestorJMS, jmsQueueName, "messagesAdded"));
-      properties.put("Dead Letter Address", samNull(String.class, sessionJMS, requestorJMS, jmsQueueName, "deadLetterAddress"));
-      properties.put("Expiry Address", samNull(String.class, sessionJMS, requestorJMS, jmsQueueName, "expiryAddress"));
-
-      Long fmAge = samNull(Long.class, sessionJMS, requestorJMS, jmsQueueName, "firstMessageAge");
+      properties.put("Paused", samNull(Boolean.class, ctx, jmsQueueName, "paused"));
+      properties.put("Temporary", samNull(Boolean.class, ctx, jmsQueueName, "temporary"));
+      properties.put("Message Count", samNull(Long.class, ctx, jmsQueueName, "messageCount"));
+      properties.put("Scheduled Count", samNull(Long.class, ctx, jmsQueueName, "scheduledCount"));
+      properties.put("Consumer Count", samNull(Integer.class, ctx, jmsQueueName, "consumerCount"));
+      properties.put("Delivering Count", samNull(Integer.class, ctx, jmsQueueName, "deliveringCount"));
+      properties.put("Messages Added", samNull(Long.class, ctx, jmsQueueName, "messagesAdded"));
+      properties.put("Dead Letter Address", samNull(String.class, ctx, jmsQueueName, "deadLetterAddress"));
+      properties.put("Expiry Address", samNull(String.class, ctx, jmsQueueName, "expiryAddress"));
+
+      Long fmAge = samNull(Long.class, ctx, jmsQueueName, "firstMessageAge");
       properties.put("First Message Age",
                      fmAge == null ? NA
                               : Duration.ofMillis(fmAge).toString().replace("PT", " ").replace("H", "h ").replace("M", "m ")
@@ -299,28 +324,26 @@ public class ActiveMQArtemisQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
 
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+      ArtemisConnectionContext ctx = (ArtemisConnectionContext) connectionContext;
 
       String jmsTopicName = ResourceNames.JMS_TOPIC + topicName;
 
       SortedMap<String, Object> properties = new TreeMap<>();
-      properties.put("Temporary", samNull(Boolean.class, sessionJMS, requestorJMS, jmsTopicName, "temporary"));
-      properties.put("Message Count", samNull(Long.class, sessionJMS, requestorJMS, jmsTopicName, "messageCount"));
+      properties.put("Temporary", samNull(Boolean.class, ctx, jmsTopicName, "temporary"));
+      properties.put("Message Count", samNull(Long.class, ctx, jmsTopicName, "messageCount"));
       properties.put("Durable Message Count",
-                     samNull(Integer.class, sessionJMS, requestorJMS, jmsTopicName, "durableMessageCount"));
+                     samNull(Integer.class, ctx, jmsTopicName, "durableMessageCount"));
       properties.put("Non Durable Message Count",
-                     samNull(Integer.class, sessionJMS, requestorJMS, jmsTopicName, "nonDurableMessageCount"));
-      properties.put("Delivering Count", samNull(Integer.class, sessionJMS, requestorJMS, jmsTopicName, "deliveringCount"));
+                     samNull(Integer.class, ctx, jmsTopicName, "nonDurableMessageCount"));
+      properties.put("Delivering Count", samNull(Integer.class, ctx, jmsTopicName, "deliveringCount"));
       properties.put("Durable Subscription Count",
-                     samNull(Integer.class, sessionJMS, requestorJMS, jmsTopicName, "durableSubscriptionCount"));
+                     samNull(Integer.class, ctx, jmsTopicName, "durableSubscriptionCount"));
       properties.put("Non Durable Subscription Count",
-                     samNull(Integer.class, sessionJMS, requestorJMS, jmsTopicName, "nonDurableSubscriptionCount"));
-      properties.put("Subscription Count", samNull(Integer.class, sessionJMS, requestorJMS, jmsTopicName, "subscriptionCount"));
-      properties.put("Messages Added", samNull(Long.class, sessionJMS, requestorJMS, jmsTopicName, "messagesAdded"));
+                     samNull(Integer.class, ctx, jmsTopicName, "nonDurableSubscriptionCount"));
+      properties.put("Subscription Count", samNull(Integer.class, ctx, jmsTopicName, "subscriptionCount"));
+      properties.put("Messages Added", samNull(Long.class, ctx, jmsTopicName, "messagesAdded"));
 
       return properties;
    }
@@ -379,13 +402,16 @@ public class ActiveMQArtemisQManager extends QManager {
 
    @SuppressWarnings("unchecked")
    private <T> T sendAdminMessage(Class<T> clazz,
-                                  Session sessionJMS,
-                                  QueueRequestor requestorJMS,
+                                  ArtemisConnectionContext ctx,
                                   String resourceName,
                                   String methodName) throws Exception {
-      Message m = sessionJMS.createMessage();
-      JMSManagementHelper.putAttribute(m, resourceName, methodName);
-      Message r = requestorJMS.request(m);
+      Message r;
+      // JMS Sessions and QueueRequestors are not thread safe: serialize the admin requests made on the same connection
+      synchronized (ctx) {
+         Message m = ctx.sessionJMS.createMessage();
+         JMSManagementHelper.putAttribute(m, resourceName, methodName);
+         r = ctx.requestorJMS.request(m);
+      }
 
       if (JMSManagementHelper.hasOperationSucceeded(r)) {
          return (T) JMSManagementHelper.getResult(r);
@@ -395,15 +421,35 @@ public class ActiveMQArtemisQManager extends QManager {
       }
    }
 
-   private <T> T samNull(Class<T> clazz, Session sessionJMS, QueueRequestor requestorJMS, String resourceName, String methodName) {
+   private <T> T samNull(Class<T> clazz, ArtemisConnectionContext ctx, String resourceName, String methodName) {
       try {
-         return sendAdminMessage(clazz, sessionJMS, requestorJMS, resourceName, methodName);
+         return sendAdminMessage(clazz, ctx, resourceName, methodName);
       } catch (Exception e) {
          log.warn("Exception occurred when processing an admin message: {}", e);
          return null;
       }
    }
 
+   private static Object readAdminReply(Message r) throws Exception {
+      return JMSManagementHelper.hasOperationSucceeded(r) ? JMSManagementHelper.getResult(r) : null;
+   }
+
+   private Integer toInteger(Object o) {
+      return o instanceof Number ? ((Number) o).intValue() : null;
+   }
+
+   // Per connection data
+   private static final class ArtemisConnectionContext extends ConnectionContext {
+      private final Session        sessionJMS;
+      private final QueueRequestor requestorJMS;
+
+      private ArtemisConnectionContext(Connection jmsConnection, Session sessionJMS, QueueRequestor requestorJMS) {
+         super(jmsConnection);
+         this.sessionJMS = sessionJMS;
+         this.requestorJMS = requestorJMS;
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
@@ -20,10 +20,13 @@ package org.titou10.jtb.qm.artemis2;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
@@ -36,7 +39,13 @@ import javax.jms.Queue;
 import javax.jms.QueueRequestor;
 import javax.jms.QueueSession;
 import javax.jms.Session;
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
 
+import org.apache.activemq.artemis.api.core.JsonUtil;
 import org.apache.activemq.artemis.api.core.TransportConfiguration;
 import org.apache.activemq.artemis.api.core.management.ResourceNames;
 import org.apache.activemq.artemis.api.jms.ActiveMQJMSClient;
@@ -46,13 +55,16 @@ import org.apache.activemq.artemis.core.remoting.impl.netty.NettyConnectorFactor
 import org.apache.activemq.artemis.core.remoting.impl.netty.TransportConstants;
 import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
 import org.apache.activemq.artemis.jms.client.ActiveMQSession;
+import org.apache.activemq.artemis.utils.SelectorTranslator;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 /**
@@ -64,29 +76,29 @@ import org.titou10.jtb.jms.qm.TopicData;
  */
 public class ActiveMQArtemis2QManager extends QManager {
 
-   private static final org.slf4j.Logger      log                         = LoggerFactory.getLogger(ActiveMQArtemis2QManager.class);
+   private static final org.slf4j.Logger log                         = LoggerFactory.getLogger(ActiveMQArtemis2QManager.class);
 
-   private static final SimpleDateFormat      SDF                         = new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss:SSS");
-   private static final String                CR                          = "\n";
-   private static final String                NA                          = "n/a";
+   private static final SimpleDateFormat SDF                         = new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss:SSS");
+   private static final String           CR                          = "\n";
+   private static final String           NA                          = "n/a";
 
-   private static final String                V200                        = "2.0.0";
-   private static final String                V200_GET_ROUTING_MTD        = "deliveryModesAsJSON";
-   private static final String                V201_GET_ROUTING_MTD        = "routingTypesAsJSON";
+   private static final String           V200                        = "2.0.0";
+   private static final String           V200_GET_ROUTING_MTD        = "deliveryModesAsJSON";
+   private static final String           V201_GET_ROUTING_MTD        = "routingTypesAsJSON";
 
-   private static final String                P_EXTRA_PROPERTIES          = "z_ExtraNettyProperties";
-   private static final String                EXTRA_PROPERTIES_SEP        = ";";
-   private static final String                EXTRA_PROPERTIES_VAL        = "=";
+   private static final String           P_EXTRA_PROPERTIES          = "z_ExtraNettyProperties";
+   private static final String           EXTRA_PROPERTIES_SEP        = ";";
+   private static final String           EXTRA_PROPERTIES_VAL        = "=";
 
-   private static final String                P_CF_MIN_LARGE_MESSAGE_SIZE = "minLargeMessageSize";
-   private static final String                P_CF_COMPRESS_LARGE_MESSAGE = "compressLargeMessage";
+   private static final String           P_CF_MIN_LARGE_MESSAGE_SIZE = "minLargeMessageSize";
+   private static final String           P_CF_COMPRESS_LARGE_MESSAGE = "compressLargeMessage";
 
-   private static final String                HELP_TEXT;
+   private static final String           LIST_QUEUES_NO_FILTER       = "{\"field\":\"\",\"operation\":\"\",\"value\":\"\"}";
+   private static final int              LIST_QUEUES_PAGE_SIZE       = 500;
 
-   private List<QManagerProperty>             parameters                  = new ArrayList<QManagerProperty>();
+   private static final String           HELP_TEXT;
 
-   private final Map<Integer, Session>        sessionJMSs                 = new HashMap<>();
-   private final Map<Integer, QueueRequestor> requestorJMSs               = new HashMap<>();
+   private List<QManagerProperty>        parameters                  = new ArrayList<QManagerProperty>();
 
    public ActiveMQArtemis2QManager() {
       log.debug("Apache Active MQ Artemis v2.x+");
@@ -135,7 +147,7 @@ public class ActiveMQArtemis2QManager extends QManager {
    }
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Save System properties
@@ -222,29 +234,22 @@ public class ActiveMQArtemis2QManager extends QManager {
 
          log.info("connected to {}", sessionDef.getName());
 
-         // Store per connection related data
-         Integer hash = jmsConnection.hashCode();
-         sessionJMSs.put(hash, sessionJMS);
-         requestorJMSs.put(hash, requestorJMS);
-
-         return jmsConnection;
+         return new Artemis2ConnectionContext(jmsConnection, sessionJMS, requestorJMS);
       } finally {
          restoreSystemProperties();
       }
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
 
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+      log.debug("discoverDestinations : {} - {}", connectionContext, showSystemObjects);
 
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+      Artemis2ConnectionContext ctx = (Artemis2ConnectionContext) connectionContext;
 
       // Determine server version
       // in v2.0.0, deliveryModesAsJSON is used. In v2.0.1+, getRoutingTypesAsJSON is used
-      String version = sendAdminMessage(String.class, sessionJMS, requestorJMS, ResourceNames.BROKER, "version");
+      String version = sendAdminMessage(String.class, ctx, ResourceNames.BROKER, "version");
       log.info("Apache Active MQ Artemis Server is version '{}'", version);
       String getRoutingTypeMtd = version.equals(V200) ? V200_GET_ROUTING_MTD : V201_GET_ROUTING_MTD;
 
@@ -254,21 +259,19 @@ public class ActiveMQArtemis2QManager extends QManager {
 
       SortedSet<QueueData> listQueueData = new TreeSet<>();
       SortedSet<TopicData> listTopicData = new TreeSet<>();
-      Object[] addressNames = sendAdminMessage(Object[].class, sessionJMS, requestorJMS, ResourceNames.BROKER, "addressNames");
+      Object[] addressNames = sendAdminMessage(Object[].class, ctx, ResourceNames.BROKER, "addressNames");
       for (Object o : addressNames) {
          log.debug("addressName: {}", o);
 
          String addressName = (String) o;
 
          String deliveryMode = sendAdminMessage(String.class,
-                                                sessionJMS,
-                                                requestorJMS,
+                                                ctx,
                                                 ResourceNames.ADDRESS + addressName,
                                                 getRoutingTypeMtd);
 
          Object[] queues = sendAdminMessage(Object[].class,
-                                            sessionJMS,
-                                            requestorJMS,
+                                            ctx,
                                             ResourceNames.ADDRESS + addressName,
                                             "queueNames");
 
@@ -300,8 +303,7 @@ public class ActiveMQArtemis2QManager extends QManager {
 
          //
          // Object[] queueNames = sendAdminMessage(Object[].class,
-         // sessionJMS,
-         // requestorJMS,
+         // ctx,
          // ResourceNames.ADDRESS + addressName,
          // "queueNames");
          //
@@ -309,8 +311,7 @@ public class ActiveMQArtemis2QManager extends QManager {
          // log.debug("addressName: {} queueName: {}", addressName, queueName);
          //
          // Boolean temporary = sendAdminMessage(Boolean.class,
-         // sessionJMS,
-         // requestorJMS,
+         // ctx,
          // ResourceNames.QUEUE + queueName,
          // "temporary");
          // if (!showSystemObjects && temporary) {
@@ -329,8 +330,7 @@ public class ActiveMQArtemis2QManager extends QManager {
          SortedSet<QueueData> listQueueDataTemp = new TreeSet<>();
          for (QueueData queueData : listQueueData) {
             Boolean temporary = sendAdminMessage(Boolean.class,
-                                                 sessionJMS,
-                                                 requestorJMS,
+                                                 ctx,
                                                  ResourceNames.QUEUE + queueData.getName(),
                                                  "temporary");
             if (temporary) {
@@ -346,55 +346,43 @@ public class ActiveMQArtemis2QManager extends QManager {
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
-
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
-
-      if (requestorJMS != null) {
-         try {
-            requestorJMS.close();
-         } catch (Exception e) {
-            log.warn("Exception occurred while closing requestorJMS. Ignore it. Msg={}", e.getMessage());
-         }
-         requestorJMSs.remove(hash);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext);
+
+      Artemis2ConnectionContext ctx = (Artemis2ConnectionContext) connectionContext;
+
+      try {
+         ctx.requestorJMS.close();
+      } catch (Exception e) {
+         log.warn("Exception occurred while closing requestorJMS. Ignore it. Msg={}", e.getMessage());
       }
 
-      if (sessionJMS != null) {
-         try {
-            sessionJMS.close();
-         } catch (Exception e) {
-            log.warn("Exception occurred while closing sessionJMS. Ignore it. Msg={}", e.getMessage());
-         }
-         sessionJMSs.remove(hash);
+      try {
+         ctx.sessionJMS.close();
+      } catch (Exception e) {
+         log.warn("Exception occurred while closing sessionJMS. Ignore it. Msg={}", e.getMessage());
       }
 
       try {
-         jmsConnection.close();
+         ctx.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occurred while closing jmsConnection. Ignore it. Msg={}", e.getMessage());
       }
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
+      Artemis2ConnectionContext ctx = (Artemis2ConnectionContext) connectionContext;
 
-      // Number n = samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "messageCount");
-      Number n = samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.ADDRESS + queueName, "messageCount");
+      // Number n = samNull(Long.class, ctx, ResourceNames.QUEUE + queueName, "messageCount");
+      Number n = samNull(Long.class, ctx, ResourceNames.ADDRESS + queueName, "messageCount");
       return n == null ? null : n.intValue();
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
 
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+      Artemis2ConnectionContext ctx = (Artemis2ConnectionContext) connectionContext;
 
       // Source: org.apache.activemq.artemis.api.core.management.QueueControl
 
@@ -402,42 +390,42 @@ public class ActiveMQArtemis2QManager extends QManager {
       try {
 
          properties.put("Consumer Count",
-                        samNull(Integer.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "consumerCount"));
+                        samNull(Integer.class, ctx, ResourceNames.QUEUE + queueName, "consumerCount"));
          properties.put("Dead Letter Address",
-                        samNull(String.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "deadLetterAddress"));
+                        samNull(String.class, ctx, ResourceNames.QUEUE + queueName, "deadLetterAddress"));
          properties.put("Delivering Count",
-                        samNull(Integer.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "deliveringCount"));
+                        samNull(Integer.class, ctx, ResourceNames.QUEUE + queueName, "deliveringCount"));
          properties.put("Expiry Address",
-                        samNull(String.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "ExpiryAddress"));
-         properties.put("Filter", samNull(String.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "filter"));
+                        samNull(String.class, ctx, ResourceNames.QUEUE + queueName, "ExpiryAddress"));
+         properties.put("Filter", samNull(String.class, ctx, ResourceNames.QUEUE + queueName, "filter"));
          properties.put("Max Consumers",
-                        samNull(Integer.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "maxConsumers"));
+                        samNull(Integer.class, ctx, ResourceNames.QUEUE + queueName, "maxConsumers"));
          properties.put("Message Count",
-                        samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "messageCount"));
+                        samNull(Long.class, ctx, ResourceNames.QUEUE + queueName, "messageCount"));
          properties.put("Message Acknowledged",
-                        samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "messagesAcknowledged"));
+                        samNull(Long.class, ctx, ResourceNames.QUEUE + queueName, "messagesAcknowledged"));
          properties.put("Message Added",
-                        samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "messagesAdded"));
+                        samNull(Long.class, ctx, ResourceNames.QUEUE + queueName, "messagesAdded"));
          properties.put("Message Expired",
-                        samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "messagesExpired"));
+                        samNull(Long.class, ctx, ResourceNames.QUEUE + queueName, "messagesExpired"));
          properties.put("Message Killed",
-                        samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "messagesKilled"));
+                        samNull(Long.class, ctx, ResourceNames.QUEUE + queueName, "messagesKilled"));
          properties.put("Scheduled Count",
-                        samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "scheduledCount"));
-         properties.put("Durable", samNull(Boolean.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "durable"));
-         properties.put("Paused", samNull(Boolean.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "paused"));
+                        samNull(Long.class, ctx, ResourceNames.QUEUE + queueName, "scheduledCount"));
+         properties.put("Durable", samNull(Boolean.class, ctx, ResourceNames.QUEUE + queueName, "durable"));
+         properties.put("Paused", samNull(Boolean.class, ctx, ResourceNames.QUEUE + queueName, "paused"));
          properties.put("Purge on no Consumers",
-                        samNull(Boolean.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "purgeOnNoConsumers"));
+                        samNull(Boolean.class, ctx, ResourceNames.QUEUE + queueName, "purgeOnNoConsumers"));
          properties.put("Temporary",
-                        samNull(Boolean.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "temporary"));
+                        samNull(Boolean.class, ctx, ResourceNames.QUEUE + queueName, "temporary"));
 
-         Long fmAge = samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "firstMessageAge");
+         Long fmAge = samNull(Long.class, ctx, ResourceNames.QUEUE + queueName, "firstMessageAge");
          properties.put("First Message Age",
                         fmAge == null ? NA
                                  : Duration.ofMillis(fmAge.longValue()).toString().replace("PT", " ").replace("H", "h ")
                                           .replace("M", "m ").replace("S", "s"));
 
-         Long ts = samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.QUEUE + queueName, "firstMessageTimestamp");
+         Long ts = samNull(Long.class, ctx, ResourceNames.QUEUE + queueName, "firstMessageTimestamp");
          properties.put("First Message Timestamp", ts == null ? NA : SDF.format(new Date(ts.longValue())));
 
       } catch (Exception e) {
@@ -448,10 +436,8 @@ public class ActiveMQArtemis2QManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
+      Artemis2ConnectionContext ctx = (Artemis2ConnectionContext) connectionContext;
 
       // Source: org.apache.activemq.artemis.api.core.management.AddressControl
 
@@ -459,17 +445,17 @@ public class ActiveMQArtemis2QManager extends QManager {
       try {
 
          properties.put("AddressSize",
-                        samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.ADDRESS + topicName, "addressSize"));
+                        samNull(Long.class, ctx, ResourceNames.ADDRESS + topicName, "addressSize"));
          properties.put("Message Count",
-                        samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.ADDRESS + topicName, "messageCount"));
+                        samNull(Long.class, ctx, ResourceNames.ADDRESS + topicName, "messageCount"));
          properties.put("Nb of bytes per page",
-                        samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.ADDRESS + topicName, "numberOfBytesPerPage"));
+                        samNull(Long.class, ctx, ResourceNames.ADDRESS + topicName, "numberOfBytesPerPage"));
          properties.put("Nb of messages",
-                        samNull(Long.class, sessionJMS, requestorJMS, ResourceNames.ADDRESS + topicName, "numberOfMessages"));
+                        samNull(Long.class, ctx, ResourceNames.ADDRESS + topicName, "numberOfMessages"));
          properties.put("Nb of pages",
-                        samNull(Integer.class, sessionJMS, requestorJMS, ResourceNames.ADDRESS + topicName, "numberOfPages"));
+                        samNull(Integer.class, ctx, ResourceNames.ADDRESS + topicName, "numberOfPages"));
 
-         properties.put("Paging", samNull(Boolean.class, sessionJMS, requestorJMS, ResourceNames.ADDRESS + topicName, "paging"));
+         properties.put("Paging", samNull(Boolean.class, ctx, ResourceNames.ADDRESS + topicName, "paging"));
 
       } catch (Exception e) {
          log.error("Exception occurred in getTopicInformation()", e);
@@ -478,6 +464,65 @@ public class ActiveMQArtemis2QManager extends QManager {
       return properties;
    }
 
+   @Override
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+      Artemis2ConnectionContext ctx = (Artemis2ConnectionContext) connectionContext;
+
+      // All the queues are listed by the broker in one management call per page of LIST_QUEUES_PAGE_SIZE queues
+      Set<String> names = new HashSet<>(queueNames);
+      Map<String, QueueStatistics> statistics = new HashMap<>(names.size());
+      try {
+         int page = 1;
+         int nbRead = 0;
+         int count;
+         do {
+            String json = sendAdminOperation(String.class,
+                                             ctx,
+                                             ResourceNames.BROKER,
+                                             "listQueues",
+                                             LIST_QUEUES_NO_FILTER,
+                                             page++,
+                                             LIST_QUEUES_PAGE_SIZE);
+            JsonObject result = JsonUtil.readJsonObject(json);
+            count = result.getInt("count");
+            JsonArray data = result.getJsonArray("data");
+            for (JsonValue v : data) {
+               JsonObject q = (JsonObject) v;
+               String name = q.getString("name");
+               if (names.contains(name)) {
+                  statistics.put(name,
+                                 new QueueStatistics(jsonInteger(q, "messageCount"), null, jsonInteger(q, "consumerCount"), null));
+               }
+            }
+            nbRead += data.size();
+            if (data.isEmpty()) {
+               break;
+            }
+         } while (nbRead < count);
+      } catch (Exception e) {
+         // listQueues is not available on older v2.x servers
+         log.warn("Exception occurred when listing queues. Ignoring: {}", e.getMessage());
+         return null;
+      }
+
+      return statistics;
+   }
+
+   @Override
+   public Long countMessages(ConnectionContext connectionContext, String queueName, String selector) {
+      Artemis2ConnectionContext ctx = (Artemis2ConnectionContext) connectionContext;
+
+      // The management operation expects a core filter, not a JMS selector
+      String filter = SelectorTranslator.convertToActiveMQFilterString(selector);
+      try {
+         Number n = sendAdminOperation(Number.class, ctx, ResourceNames.QUEUE + queueName, "countMessages", filter);
+         return n == null ? null : n.longValue();
+      } catch (Exception e) {
+         log.warn("Exception occurred when counting messages. Ignoring: {}", e.getMessage());
+         return null;
+      }
+   }
+
    @Override
    public String getHelpText() {
       return HELP_TEXT;
@@ -536,25 +581,79 @@ public class ActiveMQArtemis2QManager extends QManager {
 
    @SuppressWarnings("unchecked")
    private <T> T sendAdminMessage(Class<T> clazz,
-                                  Session sessionJMS,
-                                  QueueRequestor requestorJMS,
+                                  Artemis2ConnectionContext ctx,
                                   String resourceName,
                                   String methodName) throws Exception {
-      Message m = sessionJMS.createMessage();
-      JMSManagementHelper.putAttribute(m, resourceName, methodName);
-      Message r = requestorJMS.request(m);
-      return (T) JMSManagementHelper.getResult(r);
+      // JMS Sessions and QueueRequestors are not thread safe: serialize the admin requests made on the same connection
+      synchronized (ctx) {
+         Message m = ctx.sessionJMS.createMessage();
+         JMSManagementHelper.putAttribute(m, resourceName, methodName);
+         Message r = ctx.requestorJMS.request(m);
+         return (T) JMSManagementHelper.getResult(r);
+      }
    }
 
-   private <T> T samNull(Class<T> clazz, Session sessionJMS, QueueRequestor requestorJMS, String resourceName, String methodName) {
+   @SuppressWarnings("unchecked")
+   private <T> T sendAdminOperation(Class<T> clazz,
+                                    Artemis2ConnectionContext ctx,
+                                    String resourceName,
+                                    String operationName,
+                                    Object... parameters) throws Exception {
+      Message r;
+      synchronized (ctx) {
+         Message m = ctx.sessionJMS.createMessage();
+         JMSManagementHelper.putOperationInvocation(m, resourceName, operationName, parameters);
+         r = ctx.requestorJMS.request(m);
+      }
+
+      if (JMSManagementHelper.hasOperationSucceeded(r)) {
+         return (T) JMSManagementHelper.getResult(r, clazz);
+      } else {
+         throw new Exception(String.valueOf(JMSManagementHelper.getResult(r)));
+      }
+   }
+
+   // Values returned by listQueues are strings or numbers depending on the version of the broker
+   private Integer jsonInteger(JsonObject o, String name) {
+      JsonValue v = o.get(name);
+      if (v == null) {
+         return null;
+      }
+      switch (v.getValueType()) {
+         case NUMBER:
+            return ((JsonNumber) v).intValue();
+         case STRING:
+            try {
+               return Integer.valueOf(((JsonString) v).getString());
+            } catch (NumberFormatException e) {
+               return null;
+            }
+         default:
+            return null;
+      }
+   }
+
+   private <T> T samNull(Class<T> clazz, Artemis2ConnectionContext ctx, String resourceName, String methodName) {
       try {
-         return sendAdminMessage(clazz, sessionJMS, requestorJMS, resourceName, methodName);
+         return sendAdminMessage(clazz, ctx, resourceName, methodName);
       } catch (Exception e) {
          log.warn("Exception occurred when processing an admin message: {}", e);
          return null;
       }
    }
 
+   // Per connection data
+   private static final class Artemis2ConnectionContext extends ConnectionContext {
+      private final Session        sessionJMS;
+      private final QueueRequestor requestorJMS;
+
+      private Artemis2ConnectionContext(Connection jmsConnection, Session sessionJMS, QueueRequestor requestorJMS) {
+         super(jmsConnection);
+         this.sessionJMS = sessionJMS;
+         this.requestorJMS = requestorJMS;
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
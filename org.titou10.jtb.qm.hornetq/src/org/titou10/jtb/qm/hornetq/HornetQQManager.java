@@ -17,6 +17,7 @@
 package org.titou10.jtb.qm.hornetq;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,11 +46,14 @@ import org.hornetq.jms.client.HornetQDestination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
+import org.titou10.jtb.jms.qm.ManagementRequestBatch;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 /**
@@ -62,22 +66,21 @@ import org.titou10.jtb.jms.qm.TopicData;
  *
  */
 public class HornetQQManager extends QManager {
-   private static final Logger                log             = LoggerFactory.getLogger(HornetQQManager.class);
+   private static final Logger    log                         = LoggerFactory.getLogger(HornetQQManager.class);
 
-   private static final String                CR              = "\n";
+   private static final String    CR                          = "\n";
 
-   private static final String                P_USE_CORE_MODE = "use_CORE_queues_instead_of_JMS_destinations";
+   private static final String    P_USE_CORE_MODE             = "use_CORE_queues_instead_of_JMS_destinations";
 
-   private static final String                Q_PREFIX        = ResourceNames.CORE_QUEUE + ResourceNames.JMS_QUEUE;
+   private static final String    Q_PREFIX                    = ResourceNames.CORE_QUEUE + ResourceNames.JMS_QUEUE;
 
-   private static final String                HELP_TEXT;
+   private static final long      ADMIN_BATCH_TIMEOUT         = 30000;
 
-   private List<QManagerProperty>             parameters      = new ArrayList<QManagerProperty>();
+   private static final String[]  QUEUE_STATISTICS_ATTRIBUTES = { "messageCount", "consumerCount" };
 
-   private final Map<Integer, Session>        sessionJMSs     = new HashMap<>();
-   private final Map<Integer, QueueRequestor> requestorJMSs   = new HashMap<>();
+   private static final String    HELP_TEXT;
 
-   private Boolean                            useCoreMode;
+   private List<QManagerProperty> parameters                  = new ArrayList<QManagerProperty>();
 
    public HornetQQManager() {
       log.debug("Instantiate HornetQQManager");
@@ -106,7 +109,7 @@ public class HornetQQManager extends QManager {
    }
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Save System properties
@@ -120,7 +123,7 @@ public class HornetQQManager extends QManager {
          String httpEnabled = mapProperties.get(TransportConstants.HTTP_ENABLED_PROP_NAME);
          String trustStore = mapProperties.get(TransportConstants.TRUSTSTORE_PATH_PROP_NAME);
          String trustStorePassword = mapProperties.get(TransportConstants.TRUSTSTORE_PASSWORD_PROP_NAME);
-         useCoreMode = Boolean.valueOf(mapProperties.get(P_USE_CORE_MODE));
+         boolean useCoreMode = Boolean.valueOf(mapProperties.get(P_USE_CORE_MODE));
 
          // Netty Connection Properties
          Map<String, Object> connectionParams = new HashMap<String, Object>();
@@ -157,34 +160,23 @@ public class HornetQQManager extends QManager {
 
          log.info("connected to {}", sessionDef.getName());
 
-         // Store per connection related data
-         Integer hash = jmsConnection.hashCode();
-         sessionJMSs.put(hash, sessionJMS);
-         requestorJMSs.put(hash, requestorJMS);
-
-         return jmsConnection;
+         return new HornetQConnectionContext(jmsConnection, sessionJMS, managementQueue, requestorJMS, useCoreMode);
       } finally {
          restoreSystemProperties();
       }
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext, showSystemObjects);
 
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+      HornetQConnectionContext ctx = (HornetQConnectionContext) connectionContext;
 
       SortedSet<QueueData> listQueueData = new TreeSet<>();
       SortedSet<TopicData> listTopicData = new TreeSet<>();
 
-      Message m = sessionJMS.createMessage();
-      Message r;
-      if (useCoreMode) {
-         JMSManagementHelper.putAttribute(m, ResourceNames.CORE_SERVER, "queueNames");
-         r = requestorJMS.request(m);
-         Object q = JMSManagementHelper.getResult(r);
+      if (ctx.useCoreMode) {
+         Object q = getAttribute(ctx, ResourceNames.CORE_SERVER, "queueNames");
          if (q instanceof Object[]) {
             log.debug("queueNames = {}", q);
             for (Object o : (Object[]) q) {
@@ -206,9 +198,7 @@ public class HornetQQManager extends QManager {
             log.warn("queueNames failed");
          }
       } else {
-         JMSManagementHelper.putAttribute(m, ResourceNames.JMS_SERVER, "queueNames");
-         r = requestorJMS.request(m);
-         Object q = JMSManagementHelper.getResult(r);
+         Object q = getAttribute(ctx, ResourceNames.JMS_SERVER, "queueNames");
          if (q instanceof Object[]) {
             log.debug("queueNames = {}", q);
             for (Object o : (Object[]) q) {
@@ -224,11 +214,8 @@ public class HornetQQManager extends QManager {
       }
 
       // Topics exist only in JMS Mode
-      if (!useCoreMode) {
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, ResourceNames.JMS_SERVER, "topicNames");
-         r = requestorJMS.request(m);
-         Object t = JMSManagementHelper.getResult(r);
+      if (!ctx.useCoreMode) {
+         Object t = getAttribute(ctx, ResourceNames.JMS_SERVER, "topicNames");
          if (t instanceof Object[]) {
             log.debug("topicNames = {}", t);
             for (Object o : (Object[]) t) {
@@ -245,51 +232,37 @@ public class HornetQQManager extends QManager {
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
-
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
-
-      if (requestorJMS != null) {
-         try {
-            requestorJMS.close();
-         } catch (Exception e) {
-            log.warn("Exception occured while closing requestorJMS. Ignore it. Msg={}", e.getMessage());
-         }
-         requestorJMSs.remove(hash);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext);
+
+      HornetQConnectionContext ctx = (HornetQConnectionContext) connectionContext;
+
+      try {
+         ctx.requestorJMS.close();
+      } catch (Exception e) {
+         log.warn("Exception occured while closing requestorJMS. Ignore it. Msg={}", e.getMessage());
       }
 
-      if (sessionJMS != null) {
-         try {
-            sessionJMS.close();
-         } catch (Exception e) {
-            log.warn("Exception occured while closing sessionJMS. Ignore it. Msg={}", e.getMessage());
-         }
-         sessionJMSs.remove(hash);
+      try {
+         ctx.sessionJMS.close();
+      } catch (Exception e) {
+         log.warn("Exception occured while closing sessionJMS. Ignore it. Msg={}", e.getMessage());
       }
 
       try {
-         jmsConnection.close();
+         ctx.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing jmsConnection. Ignore it. Msg={}", e.getMessage());
       }
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
 
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+      HornetQConnectionContext ctx = (HornetQConnectionContext) connectionContext;
 
       try {
-         Message m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, Q_PREFIX + queueName, "messageCount");
-         Message r = requestorJMS.request(m);
-         Integer count = (Integer) JMSManagementHelper.getResult(r);
-         return count;
+         return (Integer) getAttribute(ctx, Q_PREFIX + queueName, "messageCount");
       } catch (Exception e) {
          log.error("exception occurred in getQueueDepth()", e);
          return null;
@@ -297,65 +270,63 @@ public class HornetQQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
 
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+      HornetQConnectionContext ctx = (HornetQConnectionContext) connectionContext;
 
-      String jmsQueueName = Q_PREFIX + queueName;
+      List<String> names = new ArrayList<>(queueNames);
+      List<String> resourceNames = new ArrayList<>(names.size());
+      for (String queueName : names) {
+         resourceNames.add(Q_PREFIX + queueName);
+      }
+
+      // All the attributes are read in one batch. JMS Sessions are not thread safe: serialize the admin requests
+      List<Object> results;
+      try {
+         synchronized (ctx) {
+            results = ManagementRequestBatch.getAttributes(ctx.sessionJMS,
+                                                           ctx.managementQueue,
+                                                           resourceNames,
+                                                           QUEUE_STATISTICS_ATTRIBUTES,
+                                                           JMSManagementHelper::putAttribute,
+                                                           HornetQQManager::readAdminReply,
+                                                           ADMIN_BATCH_TIMEOUT);
+         }
+      } catch (Exception e) {
+         log.error("Exception occurred in getQueuesStatistics()", e);
+         return null;
+      }
 
-      Message m;
-      Message r;
+      // Queues whose depth could not be read are left to getQueueDepth
+      Map<String, QueueStatistics> statistics = new HashMap<>(names.size());
+      for (int i = 0; i < names.size(); i++) {
+         Integer depth = toInteger(results.get(i * QUEUE_STATISTICS_ATTRIBUTES.length));
+         if (depth != null) {
+            Integer consumerCount = toInteger(results.get(i * QUEUE_STATISTICS_ATTRIBUTES.length + 1));
+            statistics.put(names.get(i), new QueueStatistics(depth, null, consumerCount, null));
+         }
+      }
+      return statistics;
+   }
+
+   @Override
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
+
+      HornetQConnectionContext ctx = (HornetQConnectionContext) connectionContext;
+
+      String jmsQueueName = Q_PREFIX + queueName;
 
       SortedMap<String, Object> properties = new TreeMap<>();
       try {
-         m = sessionJMS.createMessage();
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsQueueName, "paused");
-         r = requestorJMS.request(m);
-         properties.put("Paused", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsQueueName, "temporary");
-         r = requestorJMS.request(m);
-         properties.put("Temporary", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsQueueName, "messageCount");
-         r = requestorJMS.request(m);
-         properties.put("Message Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsQueueName, "scheduledCount");
-         r = requestorJMS.request(m);
-         properties.put("Scheduled Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsQueueName, "consumerCount");
-         r = requestorJMS.request(m);
-         properties.put("Consumer Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsQueueName, "deliveringCount");
-         r = requestorJMS.request(m);
-         properties.put("Delivering Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsQueueName, "messagesAdded");
-         r = requestorJMS.request(m);
-         properties.put("Messages Added", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsQueueName, "deadLetterAddress");
-         r = requestorJMS.request(m);
-         properties.put("Dead Letter Address", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsQueueName, "expiryAddress");
-         r = requestorJMS.request(m);
-         properties.put("Expiry Address", JMSManagementHelper.getResult(r));
+         properties.put("Paused", getAttribute(ctx, jmsQueueName, "paused"));
+         properties.put("Temporary", getAttribute(ctx, jmsQueueName, "temporary"));
+         properties.put("Message Count", getAttribute(ctx, jmsQueueName, "messageCount"));
+         properties.put("Scheduled Count", getAttribute(ctx, jmsQueueName, "scheduledCount"));
+         properties.put("Consumer Count", getAttribute(ctx, jmsQueueName, "consumerCount"));
+         properties.put("Delivering Count", getAttribute(ctx, jmsQueueName, "deliveringCount"));
+         properties.put("Messages Added", getAttribute(ctx, jmsQueueName, "messagesAdded"));
+         properties.put("Dead Letter Address", getAttribute(ctx, jmsQueueName, "deadLetterAddress"));
+         properties.put("Expiry Address", getAttribute(ctx, jmsQueueName, "expiryAddress"));
 
       } catch (Exception e) {
          log.error("Exception occurred in getQueueInformation()", e);
@@ -366,65 +337,23 @@ public class HornetQQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
 
-      Integer hash = jmsConnection.hashCode();
-      QueueRequestor requestorJMS = requestorJMSs.get(hash);
-      Session sessionJMS = sessionJMSs.get(hash);
+      HornetQConnectionContext ctx = (HornetQConnectionContext) connectionContext;
 
       String jmsTopicName = ResourceNames.JMS_TOPIC + topicName;
 
-      Message m;
-      Message r;
-
       SortedMap<String, Object> properties = new TreeMap<>();
       try {
-         m = sessionJMS.createMessage();
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsTopicName, "temporary");
-         r = requestorJMS.request(m);
-         properties.put("Temporary", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsTopicName, "messageCount");
-         r = requestorJMS.request(m);
-         properties.put("Message Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsTopicName, "durableMessageCount");
-         r = requestorJMS.request(m);
-         properties.put("Durable Message Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsTopicName, "nonDurableMessageCount");
-         r = requestorJMS.request(m);
-         properties.put("Non Durable Message Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsTopicName, "deliveringCount");
-         r = requestorJMS.request(m);
-         properties.put("Delivering Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsTopicName, "durableSubscriptionCount");
-         r = requestorJMS.request(m);
-         properties.put("Durable Subscription Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsTopicName, "nonDurableSubscriptionCount");
-         r = requestorJMS.request(m);
-         properties.put("Non Durable Subscription Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsTopicName, "subscriptionCount");
-         r = requestorJMS.request(m);
-         properties.put("Subscription Count", JMSManagementHelper.getResult(r));
-
-         m = sessionJMS.createMessage();
-         JMSManagementHelper.putAttribute(m, jmsTopicName, "messagesAdded");
-         r = requestorJMS.request(m);
-         properties.put("Messages Added", JMSManagementHelper.getResult(r));
+         properties.put("Temporary", getAttribute(ctx, jmsTopicName, "temporary"));
+         properties.put("Message Count", getAttribute(ctx, jmsTopicName, "messageCount"));
+         properties.put("Durable Message Count", getAttribute(ctx, jmsTopicName, "durableMessageCount"));
+         properties.put("Non Durable Message Count", getAttribute(ctx, jmsTopicName, "nonDurableMessageCount"));
+         properties.put("Delivering Count", getAttribute(ctx, jmsTopicName, "deliveringCount"));
+         properties.put("Durable Subscription Count", getAttribute(ctx, jmsTopicName, "durableSubscriptionCount"));
+         properties.put("Non Durable Subscription Count", getAttribute(ctx, jmsTopicName, "nonDurableSubscriptionCount"));
+         properties.put("Subscription Count", getAttribute(ctx, jmsTopicName, "subscriptionCount"));
+         properties.put("Messages Added", getAttribute(ctx, jmsTopicName, "messagesAdded"));
 
       } catch (Exception e) {
          log.error("Exception occurred in getQueueInformation()", e);
@@ -471,6 +400,48 @@ public class HornetQQManager extends QManager {
 
       HELP_TEXT = sb.toString();
    }
+   // ------------------------
+   // Helpers
+   // ------------------------
+
+   private Object getAttribute(HornetQConnectionContext ctx, String resourceName, String attribute) throws Exception {
+      // JMS Sessions and QueueRequestors are not thread safe: serialize the admin requests made on the same connection
+      synchronized (ctx) {
+         Message m = ctx.sessionJMS.createMessage();
+         JMSManagementHelper.putAttribute(m, resourceName, attribute);
+         Message r = ctx.requestorJMS.request(m);
+         return JMSManagementHelper.getResult(r);
+      }
+   }
+
+   private static Object readAdminReply(Message r) throws Exception {
+      return JMSManagementHelper.hasOperationSucceeded(r) ? JMSManagementHelper.getResult(r) : null;
+   }
+
+   private Integer toInteger(Object o) {
+      return o instanceof Number ? ((Number) o).intValue() : null;
+   }
+
+   // Per connection data
+   private static final class HornetQConnectionContext extends ConnectionContext {
+      private final Session        sessionJMS;
+      private final Queue          managementQueue;
+      private final QueueRequestor requestorJMS;
+      private final boolean        useCoreMode;
+
+      private HornetQConnectionContext(Connection jmsConnection,
+                                       Session sessionJMS,
+                                       Queue managementQueue,
+                                       QueueRequestor requestorJMS,
+                                       boolean useCoreMode) {
+         super(jmsConnection);
+         this.sessionJMS = sessionJMS;
+         this.managementQueue = managementQueue;
+         this.requestorJMS = requestorJMS;
+         this.useCoreMode = useCoreMode;
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
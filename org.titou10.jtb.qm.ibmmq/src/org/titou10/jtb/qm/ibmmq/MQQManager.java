@@ -20,15 +20,25 @@ import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jms.Connection;
 import javax.jms.JMSException;
@@ -36,11 +46,13 @@ import javax.jms.JMSException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 import com.ibm.mq.MQException;
@@ -68,43 +80,44 @@ import com.ibm.msg.client.wmq.WMQConstants;
 @SuppressWarnings("deprecation")
 public class MQQManager extends QManager {
 
-   private static final Logger                 log                      = LoggerFactory.getLogger(MQQManager.class);
+   private static final Logger           log                      = LoggerFactory.getLogger(MQQManager.class);
 
-   private static final SimpleDateFormat       SDF                      = new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss:SSS");
-   private static final String                 CR                       = "\n";
+   private static final SimpleDateFormat SDF                      = new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss:SSS");
+   private static final String           CR                       = "\n";
    // private static final String SERVER_PORT = "%s(%d)";
 
-   private static final String                 P_QUEUE_MANAGER          = "queueManager";
-   private static final String                 P_CHANNEL                = "channel";
-   private static final String                 P_SECURITY_EXIT          = "channelSecurityExit";
-   private static final String                 P_SECURITY_EXIT_DATA     = "channelSecurityExitUserData";
-   private static final String                 P_RECEIVE_EXIT           = "channelReceiveExit";
-   private static final String                 P_RECEIVE_EXIT_DATA      = "channelReceiveExitUserData";
-   private static final String                 P_SEND_EXIT              = "channelSendExit";
-   private static final String                 P_SEND_EXIT_DATA         = "channelSendExitUserData";
+   private static final String           P_QUEUE_MANAGER          = "queueManager";
+   private static final String           P_CHANNEL                = "channel";
+   private static final String           P_SECURITY_EXIT          = "channelSecurityExit";
+   private static final String           P_SECURITY_EXIT_DATA     = "channelSecurityExitUserData";
+   private static final String           P_RECEIVE_EXIT           = "channelReceiveExit";
+   private static final String           P_RECEIVE_EXIT_DATA      = "channelReceiveExitUserData";
+   private static final String           P_SEND_EXIT              = "channelSendExit";
+   private static final String           P_SEND_EXIT_DATA         = "channelSendExitUserData";
 
-   private static final String                 P_SSL_CIPHER_SUITE       = "sslCipherSuite";
-   private static final String                 P_SSL_FIPS_REQUIRED      = "sslFipsRequired";
+   private static final String           P_SSL_CIPHER_SUITE       = "sslCipherSuite";
+   private static final String           P_SSL_FIPS_REQUIRED      = "sslFipsRequired";
 
-   private static final String                 P_KEY_STORE              = "javax.net.ssl.keyStore";
-   private static final String                 P_KEY_STORE_PASSWORD     = "javax.net.ssl.keyStorePassword";
-   private static final String                 P_KEY_STORE_TYPE         = "javax.net.ssl.keyStoreType";
+   private static final String           P_KEY_STORE              = "javax.net.ssl.keyStore";
+   private static final String           P_KEY_STORE_PASSWORD     = "javax.net.ssl.keyStorePassword";
+   private static final String           P_KEY_STORE_TYPE         = "javax.net.ssl.keyStoreType";
 
-   private static final String                 P_TRUST_STORE            = "javax.net.ssl.trustStore";
-   private static final String                 P_TRUST_STORE_PASSWORD   = "javax.net.ssl.trustStorePassword";
-   private static final String                 P_TRUST_STORE_TYPE       = "javax.net.ssl.trustStoreType";
+   private static final String           P_TRUST_STORE            = "javax.net.ssl.trustStore";
+   private static final String           P_TRUST_STORE_PASSWORD   = "javax.net.ssl.trustStorePassword";
+   private static final String           P_TRUST_STORE_TYPE       = "javax.net.ssl.trustStoreType";
 
-   private static final String                 P_USE_IBM_CIPHER_MAPPING = "com.ibm.mq.cfg.useIBMCipherMappings";
+   private static final String           P_USE_IBM_CIPHER_MAPPING = "com.ibm.mq.cfg.useIBMCipherMappings";
 
-   private static final List<String>           SYSTEM_PREFIXES_1        = Arrays.asList("LOOPBACK");
-   private static final List<String>           SYSTEM_PREFIXES_2        = Arrays.asList("LOOPBACK", "AMQ.", "SYSTEM.");
+   private static final List<String>     SYSTEM_PREFIXES_1        = Arrays.asList("LOOPBACK");
+   private static final List<String>     SYSTEM_PREFIXES_2        = Arrays.asList("LOOPBACK", "AMQ.", "SYSTEM.");
 
-   private static final String                 HELP_TEXT;
+   private static final int              PCF_AGENTS_MAX           = 4;
+   private static final long             PCF_AGENT_WAIT_MS        = 30000;
+   private static final long             PCF_AGENT_POLL_MS        = 500;
 
-   private List<QManagerProperty>              parameters               = new ArrayList<QManagerProperty>();
+   private static final String           HELP_TEXT;
 
-   private final Map<Integer, MQQueueManager>  queueManagers            = new HashMap<>();
-   private final Map<Integer, PCFMessageAgent> mqAgents                 = new HashMap<>();
+   private List<QManagerProperty>        parameters               = new ArrayList<QManagerProperty>();
 
    // ------------------------
    // Constructor
@@ -157,7 +170,7 @@ public class MQQManager extends QManager {
 
    @Override
    @SuppressWarnings({ "unchecked", "rawtypes" })
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Trace
@@ -390,11 +403,7 @@ public class MQQManager extends QManager {
 
          log.info("connected to {}", sessionDef.getName());
 
-         // Store per connection related data
-         queueManagers.put(jmsConnection.hashCode(), queueManager);
-         mqAgents.put(jmsConnection.hashCode(), agent);
-
-         return jmsConnection;
+         return new MQConnectionContext(jmsConnection, queueManager, agent);
 
       } finally {
          restoreSystemProperties();
@@ -402,52 +411,65 @@ public class MQQManager extends QManager {
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext, showSystemObjects);
 
-      Integer hash = jmsConnection.hashCode();
-      PCFMessageAgent agent = mqAgents.get(hash);
+      MQConnectionContext ctx = (MQConnectionContext) connectionContext;
 
       List<String> excludedPrefixes = showSystemObjects ? SYSTEM_PREFIXES_1 : SYSTEM_PREFIXES_2;
 
       // Get list of Queues and Topics
-      SortedSet<QueueData> listQueueData = buildQueueList(agent, excludedPrefixes);
-      SortedSet<TopicData> listTopicData = buildTopicList(agent, excludedPrefixes);
+      PCFMessageAgent agent = ctx.borrowAgent();
+      try {
+         SortedSet<QueueData> listQueueData = buildQueueList(agent, excludedPrefixes);
+         SortedSet<TopicData> listTopicData = buildTopicList(agent, excludedPrefixes);
 
-      return new DestinationData(listQueueData, listTopicData);
+         return new DestinationData(listQueueData, listTopicData);
+      } catch (PCFException e) {
+         throw e;
+      } catch (Exception e) {
+         ctx.discardAgent(agent);
+         agent = null;
+         throw e;
+      } finally {
+         if (agent != null) {
+            ctx.releaseAgent(agent);
+         }
+      }
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext);
 
-      Integer hash = jmsConnection.hashCode();
-      MQQueueManager queueManager = queueManagers.get(hash);
-      PCFMessageAgent agent = mqAgents.get(hash);
+      MQConnectionContext ctx = (MQConnectionContext) connectionContext;
 
       try {
-         jmsConnection.close();
+         ctx.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
       }
 
+      ctx.disconnectAgents();
+
       try {
-         agent.disconnect();
-         queueManager.disconnect();
-         queueManager.close();
+         ctx.queueManager.disconnect();
+         ctx.queueManager.close();
       } catch (MQException | MQDataException e) {
          throw new JMSException(e.getMessage());
       }
-
-      mqAgents.remove(hash);
-      queueManagers.remove(hash);
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
+
+      // Local queues: use the PCF agents of the connection
+      Map<String, QueueStatistics> statistics = getQueuesStatistics(connectionContext, Collections.singletonList(queueName));
+      if ((statistics != null) && (statistics.containsKey(queueName))) {
+         return statistics.get(queueName).getDepth();
+      }
 
-      Integer hash = jmsConnection.hashCode();
-      MQQueueManager queueManager = queueManagers.get(hash);
+      MQQueueManager queueManager = ((MQConnectionContext) connectionContext).queueManager;
 
       MQQueue destQueue = null;
       Integer depth = null;
@@ -469,10 +491,66 @@ public class MQQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+
+      MQConnectionContext ctx = (MQConnectionContext) connectionContext;
+
+      // One wildcard request for all the local queues, unless only one queue is requested
+      // The age of the oldest message is only available if queue monitoring is enabled on the Q Manager (MONQ)
+      PCFMessage request = new PCFMessage(CMQCFC.MQCMD_INQUIRE_Q_STATUS);
+      request.addParameter(CMQC.MQCA_Q_NAME, queueNames.size() == 1 ? queueNames.iterator().next() : "*");
+      request.addParameter(CMQCFC.MQIACF_Q_STATUS_ATTRS,
+                           new int[] { CMQC.MQCA_Q_NAME, CMQC.MQIA_CURRENT_Q_DEPTH, CMQC.MQIA_OPEN_INPUT_COUNT,
+                                       CMQC.MQIA_OPEN_OUTPUT_COUNT, CMQCFC.MQIACF_OLDEST_MSG_AGE });
+
+      Set<String> names = new HashSet<>(queueNames);
+      Map<String, QueueStatistics> statistics = new HashMap<>(names.size());
+
+      PCFMessageAgent agent = null;
+      try {
+         agent = ctx.borrowAgent();
+         PCFMessage[] responses = agent.send(request);
+         long now = System.currentTimeMillis();
+         for (PCFMessage r : responses) {
+            String qName = r.getStringParameterValue(CMQC.MQCA_Q_NAME).trim();
+            if (!names.contains(qName)) {
+               continue;
+            }
+            Integer depth = (Integer) r.getParameterValue(CMQC.MQIA_CURRENT_Q_DEPTH);
+            Integer age = (Integer) r.getParameterValue(CMQCFC.MQIACF_OLDEST_MSG_AGE); // In seconds, -1 if not available
+            Date firstMessageTimestamp = null;
+            if ((depth != null) && (depth > 0) && (age != null) && (age >= 0)) {
+               firstMessageTimestamp = new Date(now - (age * 1000L));
+            }
+            statistics.put(qName,
+                           new QueueStatistics(depth,
+                                               firstMessageTimestamp,
+                                               (Integer) r.getParameterValue(CMQC.MQIA_OPEN_INPUT_COUNT),
+                                               (Integer) r.getParameterValue(CMQC.MQIA_OPEN_OUTPUT_COUNT)));
+         }
+      } catch (PCFException e) {
+         // Non local queues (alias, remote...) or not authorized
+         log.debug("PCFException when inquiring queues status. Ignoring. Reason={}", e.getReason());
+         return null;
+      } catch (Exception e) {
+         log.warn("Exception when inquiring queues status. Ignoring. {}", e.getMessage());
+         ctx.discardAgent(agent);
+         agent = null;
+         return null;
+      } finally {
+         if (agent != null) {
+            ctx.releaseAgent(agent);
+         }
+      }
+
+      log.debug("Statistics collected for {} queue(s)", statistics.size());
+      return statistics;
+   }
+
+   @Override
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
 
-      Integer hash = jmsConnection.hashCode();
-      MQQueueManager queueManager = queueManagers.get(hash);
+      MQQueueManager queueManager = ((MQConnectionContext) connectionContext).queueManager;
 
       SortedMap<String, Object> properties = new TreeMap<>();
       MQQueue destQueue = null;
@@ -811,17 +889,15 @@ public class MQQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
 
-      Integer hash = jmsConnection.hashCode();
-      MQQueueManager queueManager = queueManagers.get(hash);
+      MQConnectionContext ctx = (MQConnectionContext) connectionContext;
 
       Map<String, Object> properties = new LinkedHashMap<>();
 
-      // DF: could be done by
       PCFMessageAgent agent = null;
       try {
-         agent = new PCFMessageAgent(queueManager);
+         agent = ctx.borrowAgent();
 
          PCFMessage request = new PCFMessage(CMQCFC.MQCMD_INQUIRE_TOPIC);
          request.addParameter(CMQC.MQCA_TOPIC_NAME, topicName);
@@ -1088,16 +1164,20 @@ public class MQQManager extends QManager {
          } catch (PCFException e) {
             log.warn("Exception when reading Wildcard Operation. Ignoring" + e.getMessage());
          }
+      } catch (PCFException e) {
+         log.warn("Exception when inquiring topic. Ignoring" + e.getMessage());
       } catch (IOException | MQDataException e) {
          log.warn("Exception when getting PCF Agent. Ignoring" + e.getMessage());
+         ctx.discardAgent(agent);
+         agent = null;
+      } catch (TimeoutException | IllegalStateException e) {
+         log.warn("No PCF Agent available. Ignoring" + e.getMessage());
+      } catch (InterruptedException e) {
+         log.warn("Interrupted while waiting for a PCF Agent. Ignoring");
+         Thread.currentThread().interrupt();
       } finally {
-         // Disconnect/Close
          if (agent != null) {
-            try {
-               agent.disconnect();
-            } catch (MQDataException e) {
-               log.error("MQException occurred when disconnecting agent", e);
-            }
+            ctx.releaseAgent(agent);
          }
       }
 
@@ -1223,6 +1303,85 @@ public class MQQManager extends QManager {
       return topics;
    }
 
+   // Per connection data
+   // PCFMessageAgents are not thread safe: each one is used by one thread at a time, up to PCF_AGENTS_MAX are opened on demand
+   // An agent whose call failed for another reason than a PCF command error may have lost its connection: it is discarded
+   private static final class MQConnectionContext extends ConnectionContext {
+      private final MQQueueManager                 queueManager;
+      private final BlockingQueue<PCFMessageAgent> idleAgents = new LinkedBlockingQueue<>();
+      private final AtomicInteger                  nbAgents   = new AtomicInteger(1);
+      private volatile boolean                     closed;
+
+      private MQConnectionContext(Connection jmsConnection, MQQueueManager queueManager, PCFMessageAgent agent) {
+         super(jmsConnection);
+         this.queueManager = queueManager;
+         this.idleAgents.add(agent);
+      }
+
+      private PCFMessageAgent borrowAgent() throws MQDataException, InterruptedException, TimeoutException {
+         long deadline = System.currentTimeMillis() + PCF_AGENT_WAIT_MS;
+         while (true) {
+            if (closed) {
+               throw new IllegalStateException("The connection is closed");
+            }
+            PCFMessageAgent agent = idleAgents.poll();
+            if (agent != null) {
+               return agent;
+            }
+            if (nbAgents.incrementAndGet() <= PCF_AGENTS_MAX) {
+               try {
+                  return new PCFMessageAgent(queueManager);
+               } catch (MQDataException e) {
+                  nbAgents.decrementAndGet();
+                  throw e;
+               }
+            }
+            nbAgents.decrementAndGet();
+
+            // Wait in short steps to notice a close or a discarded agent
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+               throw new TimeoutException("No PCF Agent available after " + PCF_AGENT_WAIT_MS + " ms");
+            }
+            agent = idleAgents.poll(Math.min(remaining, PCF_AGENT_POLL_MS), TimeUnit.MILLISECONDS);
+            if (agent != null) {
+               return agent;
+            }
+         }
+      }
+
+      private void releaseAgent(PCFMessageAgent agent) {
+         if (closed) {
+            disconnectAgent(agent);
+         } else {
+            idleAgents.offer(agent);
+         }
+      }
+
+      private void discardAgent(PCFMessageAgent agent) {
+         if (agent != null) {
+            nbAgents.decrementAndGet();
+            disconnectAgent(agent);
+         }
+      }
+
+      private void disconnectAgents() {
+         closed = true;
+         PCFMessageAgent agent;
+         while ((agent = idleAgents.poll()) != null) {
+            disconnectAgent(agent);
+         }
+      }
+
+      private void disconnectAgent(PCFMessageAgent agent) {
+         try {
+            agent.disconnect();
+         } catch (MQDataException e) {
+            log.warn("MQDataException occurred when disconnecting agent. Ignore it. Msg={}", e.getMessage());
+         }
+      }
+   }
+
    // ------------------------
    // MQ Types
    // ------------------------
@@ -18,9 +18,11 @@ package org.titou10.jtb.qm.liberty;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -38,11 +40,14 @@ import javax.management.remote.JMXServiceURL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
+import org.titou10.jtb.jms.qm.JMXMetricsHelper;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 import com.ibm.websphere.sib.api.jms.JmsConnectionFactory;
@@ -57,33 +62,35 @@ import com.ibm.websphere.sib.api.jms.JmsFactoryFactory;
  */
 public class LibertyQManager extends QManager {
 
-   private static final Logger                       log                      = LoggerFactory.getLogger(LibertyQManager.class);
+   private static final Logger    log                      = LoggerFactory.getLogger(LibertyQManager.class);
 
-   private static final String                       JMX_URL_TEMPLATE         = "service:jmx:rest://%s:%d/IBMJMXConnectorREST";
+   private static final String    JMX_URL_TEMPLATE         = "service:jmx:rest://%s:%d/IBMJMXConnectorREST";
 
-   private static final String                       ON_QUEUES                = "WebSphere:feature=wasJmsServer,type=Queue,name=*";
-   private static final String                       ON_TOPICS                = "WebSphere:feature=wasJmsServer,type=Topic,name=*";
+   private static final String    ON_QUEUES                = "WebSphere:feature=wasJmsServer,type=Queue,name=*";
+   private static final String    ON_TOPICS                = "WebSphere:feature=wasJmsServer,type=Topic,name=*";
 
-   private static final String                       ON_QUEUE                 = "WebSphere:feature=wasJmsServer,type=Queue,name=%s,*";
-   private static final String                       ON_TOPIC                 = "WebSphere:feature=wasJmsServer,type=Topic,name=%s,*";
+   private static final String    ON_QUEUE                 = "WebSphere:feature=wasJmsServer,type=Queue,name=%s,*";
+   private static final String    ON_TOPIC                 = "WebSphere:feature=wasJmsServer,type=Topic,name=%s,*";
 
-   private static final String                       SYSTEM_PREFIX            = "_";
+   private static final String    SYSTEM_PREFIX            = "_";
 
-   private static final String                       CR                       = "\n";
+   private static final String    CR                       = "\n";
 
-   private static final String                       P_BUS_NAME               = "busName";
-   private static final String                       P_PROVIDER_ENDPOINTS     = "providerEndPoints";
-   private static final String                       P_TARGET_TRANSPORT_CHAIN = "targetTransportChain";
-   private static final String                       P_TRUST_STORE            = "javax.net.ssl.trustStore";
-   private static final String                       P_TRUST_STORE_PASSWORD   = "javax.net.ssl.trustStorePassword";
-   private static final String                       P_TRUST_STORE_TYPE       = "javax.net.ssl.trustStoreType";
+   private static final long      JMX_TIMEOUT              = 30000;
 
-   private static final String                       HELP_TEXT;
+   private static final String[]  QUEUE_ATTRIBUTES         = { "Id", "State", "SendAllowed", "MaxQueueDepth", "Depth" };
+   private static final String[]  TOPIC_ATTRIBUTES         = { "Id", "SendAllowed", "MaxQueueSize", "Depth" };
 
-   private List<QManagerProperty>                    parameters               = new ArrayList<QManagerProperty>();
+   private static final String    P_BUS_NAME               = "busName";
+   private static final String    P_PROVIDER_ENDPOINTS     = "providerEndPoints";
+   private static final String    P_TARGET_TRANSPORT_CHAIN = "targetTransportChain";
+   private static final String    P_TRUST_STORE            = "javax.net.ssl.trustStore";
+   private static final String    P_TRUST_STORE_PASSWORD   = "javax.net.ssl.trustStorePassword";
+   private static final String    P_TRUST_STORE_TYPE       = "javax.net.ssl.trustStoreType";
 
-   private final Map<Integer, JMXConnector>          jmxcs                    = new HashMap<>();
-   private final Map<Integer, MBeanServerConnection> mbscs                    = new HashMap<>();
+   private static final String    HELP_TEXT;
+
+   private List<QManagerProperty> parameters               = new ArrayList<QManagerProperty>();
 
    public LibertyQManager() {
       //
@@ -113,7 +120,7 @@ public class LibertyQManager extends QManager {
    }
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Save System properties
@@ -182,12 +189,7 @@ public class LibertyQManager extends QManager {
 
          log.info("connected to {}", sessionDef.getName());
 
-         // Store per connection related data
-         Integer hash = jmsConnection.hashCode();
-         jmxcs.put(hash, jmxc);
-         mbscs.put(hash, mbsc);
-
-         return jmsConnection;
+         return new LibertyConnectionContext(jmsConnection, jmxc, mbsc);
 
       } finally {
          restoreSystemProperties();
@@ -195,11 +197,11 @@ public class LibertyQManager extends QManager {
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext.getJmsConnection(), showSystemObjects);
 
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
+      LibertyConnectionContext ctx = (LibertyConnectionContext) connectionContext;
+      MBeanServerConnection mbsc = ctx.mbsc;
 
       // Discover Queues and Topics
 
@@ -215,6 +217,7 @@ public class LibertyQManager extends QManager {
                continue;
             }
          }
+         ctx.jmx.cacheObjectName(String.format(ON_QUEUE, name), objectQueue);
          listQueueData.add(new QueueData(name));
       }
 
@@ -227,6 +230,7 @@ public class LibertyQManager extends QManager {
                continue;
             }
          }
+         ctx.jmx.cacheObjectName(String.format(ON_TOPIC, name), objectTopic);
          listTopicData.add(new TopicData(name));
       }
 
@@ -234,14 +238,16 @@ public class LibertyQManager extends QManager {
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext.getJmsConnection());
+
+      LibertyConnectionContext ctx = (LibertyConnectionContext) connectionContext;
+      JMXConnector jmxc = ctx.jmxc;
 
-      Integer hash = jmsConnection.hashCode();
-      JMXConnector jmxc = jmxcs.get(hash);
+      ctx.jmx.close();
 
       try {
-         jmsConnection.close();
+         connectionContext.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
       }
@@ -252,25 +258,20 @@ public class LibertyQManager extends QManager {
          } catch (IOException e) {
             log.warn("Exception occured while closing JMXConnector. Ignore it. Msg={}", e.getMessage());
          }
-         jmxcs.remove(hash);
-         mbscs.remove(hash);
       }
 
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
 
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
+      JMXMetricsHelper jmx = ((LibertyConnectionContext) connectionContext).jmx;
 
       Integer depth = null;
       try {
-         ObjectName on = new ObjectName(String.format(ON_QUEUE, queueName));
-         Set<ObjectName> queueSet = mbsc.queryNames(on, null);
-         if ((queueSet != null) && (!queueSet.isEmpty())) {
-            // TODO Long -> Integer !
-            depth = ((Long) mbsc.getAttribute(queueSet.iterator().next(), "Depth")).intValue();
+         Map<String, Object> values = jmx.getAttributes(String.format(ON_QUEUE, queueName), "Depth");
+         if (values != null) {
+            depth = toInteger(values.get("Depth"));
          }
       } catch (Exception e) {
          log.error("Exception when reading queue depth. Ignoring", e);
@@ -279,30 +280,33 @@ public class LibertyQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
 
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
+      JMXMetricsHelper jmx = ((LibertyConnectionContext) connectionContext).jmx;
+
+      Map<String, String> patterns = new HashMap<>(queueNames.size());
+      for (String queueName : queueNames) {
+         patterns.put(queueName, String.format(ON_QUEUE, queueName));
+      }
+
+      Map<String, QueueStatistics> statistics = new HashMap<>(queueNames.size());
+      for (Entry<String, Map<String, Object>> e : jmx.getAttributes(patterns, "Depth").entrySet()) {
+         statistics.put(e.getKey(), new QueueStatistics(toInteger(e.getValue().get("Depth")), null, null, null));
+      }
+      return statistics;
+   }
+
+   @Override
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
+
+      JMXMetricsHelper jmx = ((LibertyConnectionContext) connectionContext).jmx;
 
       SortedMap<String, Object> properties = new TreeMap<>();
 
       try {
-         ObjectName on = new ObjectName(String.format(ON_QUEUE, queueName));
-         Set<ObjectName> attributesSet = mbsc.queryNames(on, null);
-
-         // Display all attributes
-         // MBeanInfo info = mbsc.getMBeanInfo(attributesSet.iterator().next());
-         // MBeanAttributeInfo[] attrInfo = info.getAttributes();
-         // for (MBeanAttributeInfo attr : attrInfo) {
-         // System.out.println(" " + attr.getName() + "\n");
-         // }
-
-         if ((attributesSet != null) && (!attributesSet.isEmpty())) {
-            addInfo(mbsc, properties, attributesSet, "Id");
-            addInfo(mbsc, properties, attributesSet, "State");
-            addInfo(mbsc, properties, attributesSet, "SendAllowed");
-            addInfo(mbsc, properties, attributesSet, "MaxQueueDepth");
-            addInfo(mbsc, properties, attributesSet, "Depth");
+         Map<String, Object> values = jmx.getAttributes(String.format(ON_QUEUE, queueName), QUEUE_ATTRIBUTES);
+         if (values != null) {
+            properties.putAll(values);
          }
       } catch (Exception e) {
          log.error("Exception when reading Queue Information. Ignoring", e);
@@ -312,22 +316,16 @@ public class LibertyQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
 
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
+      JMXMetricsHelper jmx = ((LibertyConnectionContext) connectionContext).jmx;
 
       SortedMap<String, Object> properties = new TreeMap<>();
 
       try {
-         ObjectName on = new ObjectName(String.format(ON_TOPIC, topicName));
-         Set<ObjectName> attributesSet = mbsc.queryNames(on, null);
-
-         if ((attributesSet != null) && (!attributesSet.isEmpty())) {
-            addInfo(mbsc, properties, attributesSet, "Id");
-            addInfo(mbsc, properties, attributesSet, "SendAllowed");
-            addInfo(mbsc, properties, attributesSet, "MaxQueueSize");
-            addInfo(mbsc, properties, attributesSet, "Depth");
+         Map<String, Object> values = jmx.getAttributes(String.format(ON_TOPIC, topicName), TOPIC_ATTRIBUTES);
+         if (values != null) {
+            properties.putAll(values);
          }
       } catch (Exception e) {
          log.error("Exception when reading Queue Information. Ignoring", e);
@@ -336,15 +334,8 @@ public class LibertyQManager extends QManager {
       return properties;
    }
 
-   private void addInfo(MBeanServerConnection mbsc,
-                        Map<String, Object> properties,
-                        Set<ObjectName> attributesSet,
-                        String propertyName) {
-      try {
-         properties.put(propertyName, mbsc.getAttribute(attributesSet.iterator().next(), propertyName));
-      } catch (Exception e) {
-         log.warn("Exception when reading " + propertyName + " Ignoring. " + e.getMessage());
-      }
+   private Integer toInteger(Object o) {
+      return o instanceof Number ? ((Number) o).intValue() : null;
    }
 
    @Override
@@ -389,6 +380,20 @@ public class LibertyQManager extends QManager {
       HELP_TEXT = sb.toString();
    }
 
+   // Per connection data
+   private static final class LibertyConnectionContext extends ConnectionContext {
+      private final JMXConnector          jmxc;
+      private final MBeanServerConnection mbsc;
+      private final JMXMetricsHelper      jmx;
+
+      private LibertyConnectionContext(Connection jmsConnection, JMXConnector jmxc, MBeanServerConnection mbsc) {
+         super(jmsConnection);
+         this.jmxc = jmxc;
+         this.mbsc = mbsc;
+         this.jmx = new JMXMetricsHelper("Liberty", mbsc, JMX_TIMEOUT);
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
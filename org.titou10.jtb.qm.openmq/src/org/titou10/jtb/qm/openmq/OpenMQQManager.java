@@ -18,9 +18,11 @@ package org.titou10.jtb.qm.openmq;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -30,17 +32,21 @@ import java.util.TreeSet;
 import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.management.MBeanServerConnection;
+import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import javax.management.remote.JMXConnector;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
+import org.titou10.jtb.jms.qm.JMXMetricsHelper;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 import com.sun.messaging.AdminConnectionConfiguration;
@@ -63,28 +69,57 @@ public class OpenMQQManager extends QManager {
    // http://docs.oracle.com/cd/E19798-01/821-1797/gchjb/index.html
    // imqcmd -list jmx (u=admin =admin)
 
-   private static final Logger                       log                    = LoggerFactory.getLogger(OpenMQQManager.class);
+   private static final Logger    log                         = LoggerFactory.getLogger(OpenMQQManager.class);
 
-   private static final String                       AC_TEMPLATE            = "%s:%d";
-   private static final String                       AC_TEMPLATE_SSL        = "mq://%s:%d/ssljmxrmi";
+   private static final String    AC_TEMPLATE                 = "%s:%d";
+   private static final String    AC_TEMPLATE_SSL             = "mq://%s:%d/ssljmxrmi";
 
    // private static final String JMX_URL_TEMPLATE = "service:jmx:rmi:///jndi/rmi://%s:%d/server";
 
-   private static final String                       ON_QUEUES              = "com.sun.messaging.jms.server:type=Destination,subtype=Config,desttype=q,*";
-   private static final String                       ON_TOPICS              = "com.sun.messaging.jms.server:type=Destination,subtype=Config,desttype=t,*";
-
-   private static final String                       CR                     = "\n";
-
-   private static final String                       P_SSL_ENABLED          = "sslEnabled";
-   private static final String                       P_TRUST_STORE          = "javax.net.ssl.trustStore";
-   private static final String                       P_TRUST_STORE_PASSWORD = "javax.net.ssl.trustStorePassword";
-
-   private static final String                       HELP_TEXT;
-
-   private List<QManagerProperty>                    parameters             = new ArrayList<QManagerProperty>();
-
-   private final Map<Integer, JMXConnector>          jmxcs                  = new HashMap<>();
-   private final Map<Integer, MBeanServerConnection> mbscs                  = new HashMap<>();
+   private static final String    ON_QUEUES                   = "com.sun.messaging.jms.server:type=Destination,subtype=Config,desttype=q,*";
+   private static final String    ON_TOPICS                   = "com.sun.messaging.jms.server:type=Destination,subtype=Config,desttype=t,*";
+
+   private static final String    CR                          = "\n";
+
+   private static final long      JMX_TIMEOUT                 = 30000;
+
+   private static final String[]  QUEUE_STATISTICS_ATTRIBUTES = { "NumMsgs", "NumConsumers", "NumProducers" };
+
+   private static final String[]  QUEUE_ATTRIBUTES            = { "State", "StateLabel", "NextMessageID", "Temporary",
+                                                                  "CreatedByAdmin", "AvgNumActiveConsumers",
+                                                                  "AvgNumBackupConsumers", "AvgNumConsumers", "AvgNumMsgs",
+                                                                  "AvgTotalMsgBytes", "DiskReserved", "DiskUsed",
+                                                                  "DiskUtilizationRatio", "MsgBytesIn", "MsgBytesOut",
+                                                                  "NumActiveConsumers", "NumBackupConsumers", "NumConsumers",
+                                                                  "NumWildcards", "NumWildcardConsumers", "NumWildcardProducers",
+                                                                  "NumMsgs", "NumMsgsRemote", "NumMsgsHeldInTransaction",
+                                                                  "NumMsgsIn", "NumMsgsOut", "NumMsgsPendingAcks", "NumProducers",
+                                                                  "PeakMsgBytes", "PeakNumActiveConsumers",
+                                                                  "PeakNumBackupConsumers", "PeakNumConsumers", "PeakNumMsgs",
+                                                                  "PeakTotalMsgBytes", "TotalMsgBytes", "TotalMsgBytesRemote",
+                                                                  "TotalMsgBytesHeldInTransaction" };
+
+   private static final String[]  TOPIC_ATTRIBUTES            = { "StateLabel", "State", "Temporary", "CreatedByAdmin",
+                                                                  "AvgNumActiveConsumers", "AvgNumBackupConsumers",
+                                                                  "AvgNumConsumers", "AvgNumMsgs", "AvgTotalMsgBytes",
+                                                                  "DiskReserved", "DiskUsed", "DiskUtilizationRatio",
+                                                                  "MsgBytesIn", "MsgBytesOut", "NumActiveConsumers",
+                                                                  "NumBackupConsumers", "NumConsumers", "NumWildcards",
+                                                                  "NumWildcardConsumers", "NumWildcardProducers", "NumMsgs",
+                                                                  "NumMsgsRemote", "NumMsgsHeldInTransaction", "NumMsgsIn",
+                                                                  "NumMsgsOut", "NumMsgsPendingAcks", "NumProducers",
+                                                                  "PeakMsgBytes", "PeakNumActiveConsumers",
+                                                                  "PeakNumBackupConsumers", "PeakNumConsumers", "PeakNumMsgs",
+                                                                  "PeakTotalMsgBytes", "NextMessageID", "TotalMsgBytes",
+                                                                  "TotalMsgBytesRemote", "TotalMsgBytesHeldInTransaction" };
+
+   private static final String    P_SSL_ENABLED               = "sslEnabled";
+   private static final String    P_TRUST_STORE               = "javax.net.ssl.trustStore";
+   private static final String    P_TRUST_STORE_PASSWORD      = "javax.net.ssl.trustStorePassword";
+
+   private static final String    HELP_TEXT;
+
+   private List<QManagerProperty> parameters                  = new ArrayList<QManagerProperty>();
 
    public OpenMQQManager() {
       log.debug("Instantiate OpenMQ");
@@ -95,7 +130,7 @@ public class OpenMQQManager extends QManager {
    }
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Save System properties
@@ -170,25 +205,19 @@ public class OpenMQQManager extends QManager {
 
          log.info("connected to {}", sessionDef.getName());
 
-         // Store per connection related data
-         Integer hash = jmsConnection.hashCode();
-         jmxcs.put(hash, jmxc);
-         mbscs.put(hash, mbsc);
-
-         return jmsConnection;
+         return new OpenMQConnectionContext(jmsConnection, jmxc, mbsc);
       } finally {
          restoreSystemProperties();
       }
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext.getJmsConnection(), showSystemObjects);
 
       // Discover Queues and Topics
 
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
+      MBeanServerConnection mbsc = ((OpenMQConnectionContext) connectionContext).mbsc;
 
       SortedSet<QueueData> listQueueData = new TreeSet<>();
       SortedSet<TopicData> listTopicData = new TreeSet<>();
@@ -213,14 +242,16 @@ public class OpenMQQManager extends QManager {
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext.getJmsConnection());
+
+      OpenMQConnectionContext ctx = (OpenMQConnectionContext) connectionContext;
+      JMXConnector jmxc = ctx.jmxc;
 
-      Integer hash = jmsConnection.hashCode();
-      JMXConnector jmxc = jmxcs.get(hash);
+      ctx.jmx.close();
 
       try {
-         jmsConnection.close();
+         connectionContext.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
       }
@@ -231,24 +262,19 @@ public class OpenMQQManager extends QManager {
          } catch (IOException e) {
             log.warn("Exception occured while closing JMXConnector. Ignore it. Msg={}", e.getMessage());
          }
-         jmxcs.remove(hash);
-         mbscs.remove(hash);
       }
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
 
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
+      JMXMetricsHelper jmx = ((OpenMQConnectionContext) connectionContext).jmx;
 
       Integer depth = null;
       try {
-         ObjectName on = MQObjectName.createDestinationMonitor(DestinationType.QUEUE, queueName);
-         Set<ObjectName> attributesSet = mbsc.queryNames(on, null);
-         if ((attributesSet != null) && (!attributesSet.isEmpty())) {
-            // TODO Long -> Integer !
-            depth = ((Long) mbsc.getAttribute(attributesSet.iterator().next(), "NumMsgs")).intValue();
+         Map<String, Object> values = jmx.getAttributes(monitorPattern(DestinationType.QUEUE, queueName), "NumMsgs");
+         if (values != null) {
+            depth = toInteger(values.get("NumMsgs"));
          }
       } catch (Exception e) {
          log.error("Exception when reading queue depth. Ignoring", e);
@@ -257,64 +283,43 @@ public class OpenMQQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+
+      JMXMetricsHelper jmx = ((OpenMQConnectionContext) connectionContext).jmx;
+
+      Map<String, String> patterns = new HashMap<>(queueNames.size());
+      try {
+         for (String queueName : queueNames) {
+            patterns.put(queueName, monitorPattern(DestinationType.QUEUE, queueName));
+         }
+      } catch (MalformedObjectNameException e) {
+         log.error("Exception when building queues ObjectNames. Ignoring", e);
+         return null;
+      }
+
+      Map<String, QueueStatistics> statistics = new HashMap<>(queueNames.size());
+      for (Entry<String, Map<String, Object>> e : jmx.getAttributes(patterns, QUEUE_STATISTICS_ATTRIBUTES).entrySet()) {
+         Map<String, Object> values = e.getValue();
+         statistics.put(e.getKey(),
+                        new QueueStatistics(toInteger(values.get("NumMsgs")),
+                                            null,
+                                            toInteger(values.get("NumConsumers")),
+                                            toInteger(values.get("NumProducers"))));
+      }
+      return statistics;
+   }
+
+   @Override
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
 
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
+      JMXMetricsHelper jmx = ((OpenMQConnectionContext) connectionContext).jmx;
 
       SortedMap<String, Object> properties = new TreeMap<>();
 
       try {
-         ObjectName on = MQObjectName.createDestinationMonitor(DestinationType.QUEUE, queueName);
-         Set<ObjectName> attributesSet = mbsc.queryNames(on, null);
-
-         // Display all attributes
-         // MBeanInfo info = mbsc.getMBeanInfo(attributesSet.iterator().next());
-         // MBeanAttributeInfo[] attrInfo = info.getAttributes();
-         // for (MBeanAttributeInfo attr : attrInfo) {
-         // System.out.println(" " + attr.getName() + "\n");
-         // }
-
-         if ((attributesSet != null) && (!attributesSet.isEmpty())) {
-            addInfo(mbsc, properties, attributesSet, "State");
-            addInfo(mbsc, properties, attributesSet, "StateLabel");
-            addInfo(mbsc, properties, attributesSet, "NextMessageID");
-            addInfo(mbsc, properties, attributesSet, "Temporary");
-            addInfo(mbsc, properties, attributesSet, "CreatedByAdmin");
-
-            addInfo(mbsc, properties, attributesSet, "AvgNumActiveConsumers");
-            addInfo(mbsc, properties, attributesSet, "AvgNumBackupConsumers");
-            addInfo(mbsc, properties, attributesSet, "AvgNumConsumers");
-            addInfo(mbsc, properties, attributesSet, "AvgNumMsgs");
-            addInfo(mbsc, properties, attributesSet, "AvgTotalMsgBytes");
-            addInfo(mbsc, properties, attributesSet, "DiskReserved");
-            addInfo(mbsc, properties, attributesSet, "DiskUsed");
-            addInfo(mbsc, properties, attributesSet, "DiskUtilizationRatio");
-            addInfo(mbsc, properties, attributesSet, "MsgBytesIn");
-            addInfo(mbsc, properties, attributesSet, "MsgBytesOut");
-            addInfo(mbsc, properties, attributesSet, "NumActiveConsumers");
-            addInfo(mbsc, properties, attributesSet, "NumBackupConsumers");
-            addInfo(mbsc, properties, attributesSet, "NumConsumers");
-            addInfo(mbsc, properties, attributesSet, "NumWildcards");
-            addInfo(mbsc, properties, attributesSet, "NumWildcardConsumers");
-            addInfo(mbsc, properties, attributesSet, "NumWildcardProducers");
-            addInfo(mbsc, properties, attributesSet, "NumMsgs");
-            addInfo(mbsc, properties, attributesSet, "NumMsgsRemote");
-            addInfo(mbsc, properties, attributesSet, "NumMsgsHeldInTransaction");
-            addInfo(mbsc, properties, attributesSet, "NumMsgsIn");
-            addInfo(mbsc, properties, attributesSet, "NumMsgsOut");
-            addInfo(mbsc, properties, attributesSet, "NumMsgsPendingAcks");
-            addInfo(mbsc, properties, attributesSet, "NumProducers");
-            addInfo(mbsc, properties, attributesSet, "PeakMsgBytes");
-            addInfo(mbsc, properties, attributesSet, "PeakNumActiveConsumers");
-            addInfo(mbsc, properties, attributesSet, "PeakNumBackupConsumers");
-            addInfo(mbsc, properties, attributesSet, "PeakNumConsumers");
-            addInfo(mbsc, properties, attributesSet, "PeakNumMsgs");
-            addInfo(mbsc, properties, attributesSet, "PeakTotalMsgBytes");
-            addInfo(mbsc, properties, attributesSet, "TotalMsgBytes");
-            addInfo(mbsc, properties, attributesSet, "TotalMsgBytesRemote");
-            addInfo(mbsc, properties, attributesSet, "TotalMsgBytesHeldInTransaction");
-
+         Map<String, Object> values = jmx.getAttributes(monitorPattern(DestinationType.QUEUE, queueName), QUEUE_ATTRIBUTES);
+         if (values != null) {
+            properties.putAll(values);
          }
       } catch (Exception e) {
          log.error("Exception when reading Queue Information. Ignoring", e);
@@ -324,56 +329,16 @@ public class OpenMQQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
 
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
+      JMXMetricsHelper jmx = ((OpenMQConnectionContext) connectionContext).jmx;
 
       SortedMap<String, Object> properties = new TreeMap<>();
 
       try {
-         ObjectName on = MQObjectName.createDestinationMonitor(DestinationType.TOPIC, topicName);
-         Set<ObjectName> attributesSet = mbsc.queryNames(on, null);
-
-         if ((attributesSet != null) && (!attributesSet.isEmpty())) {
-            addInfo(mbsc, properties, attributesSet, "StateLabel");
-            addInfo(mbsc, properties, attributesSet, "State");
-            addInfo(mbsc, properties, attributesSet, "Temporary");
-            addInfo(mbsc, properties, attributesSet, "CreatedByAdmin");
-
-            addInfo(mbsc, properties, attributesSet, "AvgNumActiveConsumers");
-            addInfo(mbsc, properties, attributesSet, "AvgNumBackupConsumers");
-            addInfo(mbsc, properties, attributesSet, "AvgNumConsumers");
-            addInfo(mbsc, properties, attributesSet, "AvgNumMsgs");
-            addInfo(mbsc, properties, attributesSet, "AvgTotalMsgBytes");
-            addInfo(mbsc, properties, attributesSet, "DiskReserved");
-            addInfo(mbsc, properties, attributesSet, "DiskUsed");
-            addInfo(mbsc, properties, attributesSet, "DiskUtilizationRatio");
-            addInfo(mbsc, properties, attributesSet, "MsgBytesIn");
-            addInfo(mbsc, properties, attributesSet, "MsgBytesOut");
-            addInfo(mbsc, properties, attributesSet, "NumActiveConsumers");
-            addInfo(mbsc, properties, attributesSet, "NumBackupConsumers");
-            addInfo(mbsc, properties, attributesSet, "NumConsumers");
-            addInfo(mbsc, properties, attributesSet, "NumWildcards");
-            addInfo(mbsc, properties, attributesSet, "NumWildcardConsumers");
-            addInfo(mbsc, properties, attributesSet, "NumWildcardProducers");
-            addInfo(mbsc, properties, attributesSet, "NumMsgs");
-            addInfo(mbsc, properties, attributesSet, "NumMsgsRemote");
-            addInfo(mbsc, properties, attributesSet, "NumMsgsHeldInTransaction");
-            addInfo(mbsc, properties, attributesSet, "NumMsgsIn");
-            addInfo(mbsc, properties, attributesSet, "NumMsgsOut");
-            addInfo(mbsc, properties, attributesSet, "NumMsgsPendingAcks");
-            addInfo(mbsc, properties, attributesSet, "NumProducers");
-            addInfo(mbsc, properties, attributesSet, "PeakMsgBytes");
-            addInfo(mbsc, properties, attributesSet, "PeakNumActiveConsumers");
-            addInfo(mbsc, properties, attributesSet, "PeakNumBackupConsumers");
-            addInfo(mbsc, properties, attributesSet, "PeakNumConsumers");
-            addInfo(mbsc, properties, attributesSet, "PeakNumMsgs");
-            addInfo(mbsc, properties, attributesSet, "PeakTotalMsgBytes");
-            addInfo(mbsc, properties, attributesSet, "NextMessageID");
-            addInfo(mbsc, properties, attributesSet, "TotalMsgBytes");
-            addInfo(mbsc, properties, attributesSet, "TotalMsgBytesRemote");
-            addInfo(mbsc, properties, attributesSet, "TotalMsgBytesHeldInTransaction");
+         Map<String, Object> values = jmx.getAttributes(monitorPattern(DestinationType.TOPIC, topicName), TOPIC_ATTRIBUTES);
+         if (values != null) {
+            properties.putAll(values);
          }
       } catch (Exception e) {
          log.error("Exception when reading Queue Information. Ignoring", e);
@@ -382,15 +347,12 @@ public class OpenMQQManager extends QManager {
       return properties;
    }
 
-   private void addInfo(MBeanServerConnection mbsc,
-                        Map<String, Object> properties,
-                        Set<ObjectName> attributesSet,
-                        String propertyName) {
-      try {
-         properties.put(propertyName, mbsc.getAttribute(attributesSet.iterator().next(), propertyName));
-      } catch (Exception e) {
-         log.warn("Exception when reading " + propertyName + " Ignoring. " + e.getMessage());
-      }
+   private String monitorPattern(String destinationType, String destinationName) throws MalformedObjectNameException {
+      return MQObjectName.createDestinationMonitor(destinationType, destinationName).toString();
+   }
+
+   private Integer toInteger(Object o) {
+      return o instanceof Number ? ((Number) o).intValue() : null;
    }
 
    @Override
@@ -423,6 +385,20 @@ public class OpenMQQManager extends QManager {
       HELP_TEXT = sb.toString();
    }
 
+   // Per connection data
+   private static final class OpenMQConnectionContext extends ConnectionContext {
+      private final JMXConnector          jmxc;
+      private final MBeanServerConnection mbsc;
+      private final JMXMetricsHelper      jmx;
+
+      private OpenMQConnectionContext(Connection jmsConnection, JMXConnector jmxc, MBeanServerConnection mbsc) {
+         super(jmsConnection);
+         this.jmxc = jmxc;
+         this.mbsc = mbsc;
+         this.jmx = new JMXMetricsHelper("OpenMQ", mbsc, JMX_TIMEOUT);
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.qm.rabbitmq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of RabbitMQManagementClient against a local stand-in of the management HTTP API
+ *
+ * @author Denis Forveille
+ *
+ */
+public class RabbitMQManagementClientTest {
+
+   private static final String QUEUES = "[{\"name\":\"Q1\",\"messages\":12,\"messages_ready\":10,\"consumers\":2},"
+                                        + "{\"name\":\"Q2\",\"messages\":0,\"messages_ready\":0,\"consumers\":0}]";
+
+   private ManagementAPIStandIn api;
+
+   @Before
+   public void startAPI() throws IOException {
+      api = new ManagementAPIStandIn();
+   }
+
+   @After
+   public void stopAPI() throws IOException {
+      api.close();
+   }
+
+   @Test
+   public void readsAllTheQueuesOfTheVirtualHostInOneRequest() throws IOException {
+      api.reply(200, QUEUES);
+      RabbitMQManagementClient client = new RabbitMQManagementClient(api.getURL(), "/", "guest", "secret", 60000);
+
+      Map<String, Map<String, Object>> queues = client.getQueues(false);
+
+      assertEquals(2, queues.size());
+      assertEquals(12, ((Number) queues.get("Q1").get("messages")).intValue());
+      assertEquals(2, ((Number) queues.get("Q1").get("consumers")).intValue());
+      assertEquals(0, ((Number) queues.get("Q2").get("messages")).intValue());
+
+      assertEquals(1, api.getRequests().size());
+      String request = api.getRequests().get(0);
+      assertTrue(request, request.startsWith("GET /api/queues/%2F?columns=name,"));
+      assertTrue(request, request.contains("Authorization: Basic Z3Vlc3Q6c2VjcmV0"));
+   }
+
+   @Test
+   public void servesTheQueuesFromTheSnapshotWithinTheTTL() throws IOException {
+      api.reply(200, QUEUES);
+      RabbitMQManagementClient client = new RabbitMQManagementClient(api.getURL(), "/", null, null, 60000);
+
+      assertEquals(12, ((Number) client.getQueue("Q1").get("messages")).intValue());
+      assertEquals(0, ((Number) client.getQueue("Q2").get("messages")).intValue());
+      assertNull(client.getQueue("unknown"));
+      assertEquals(1, api.getRequests().size());
+      assertFalse(api.getRequests().get(0).contains("Authorization:"));
+
+      // Discovery always reads the queues again
+      client.getQueues(true);
+      assertEquals(2, api.getRequests().size());
+   }
+
+   @Test
+   public void readsTheQueuesAgainWhenTheTTLHasExpired() throws Exception {
+      api.reply(200, QUEUES);
+      RabbitMQManagementClient client = new RabbitMQManagementClient(api.getURL(), "vh1", null, null, 1);
+
+      client.getQueue("Q1");
+      Thread.sleep(20);
+      client.getQueue("Q1");
+
+      assertEquals(2, api.getRequests().size());
+      assertTrue(api.getRequests().get(1).startsWith("GET /api/queues/vh1?"));
+   }
+
+   @Test
+   public void reportsHTTPErrors() throws IOException {
+      api.reply(401, "{\"error\":\"not_authorised\"}");
+      RabbitMQManagementClient client = new RabbitMQManagementClient(api.getURL(), "/", "guest", "bad", 60000);
+
+      try {
+         client.getQueues(false);
+         fail("IOException expected");
+      } catch (IOException e) {
+         assertTrue(e.getMessage(), e.getMessage().contains("401"));
+         assertTrue(e.getMessage(), e.getMessage().contains("not_authorised"));
+      }
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   // Minimal HTTP server that records the requests and answers them all with the same response
+   private static final class ManagementAPIStandIn implements Closeable {
+
+      private final ServerSocket serverSocket;
+      private final List<String> requests = new CopyOnWriteArrayList<>();
+      private volatile int       status;
+      private volatile String    body;
+
+      private ManagementAPIStandIn() throws IOException {
+         serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+         Thread t = new Thread(this::serve, "RabbitMQ management API stand-in");
+         t.setDaemon(true);
+         t.start();
+      }
+
+      private void reply(int status, String body) {
+         this.status = status;
+         this.body = body;
+      }
+
+      private String getURL() {
+         return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/";
+      }
+
+      private List<String> getRequests() {
+         return requests;
+      }
+
+      private void serve() {
+         while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+               BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                                StandardCharsets.ISO_8859_1));
+               StringBuilder request = new StringBuilder(512);
+               String line;
+               while (((line = reader.readLine()) != null) && (!line.isEmpty())) {
+                  request.append(line).append("\n");
+               }
+               requests.add(request.toString());
+
+               byte[] content = body.getBytes(StandardCharsets.UTF_8);
+               StringBuilder header = new StringBuilder(256);
+               header.append("HTTP/1.1 ").append(status).append(" Stand-in\r\n");
+               header.append("Content-Type: application/json\r\n");
+               header.append("Content-Length: ").append(content.length).append("\r\n");
+               header.append("Connection: close\r\n\r\n");
+               OutputStream os = socket.getOutputStream();
+               os.write(header.toString().getBytes(StandardCharsets.ISO_8859_1));
+               os.write(content);
+               os.flush();
+            } catch (IOException e) {
+               // Closed
+            }
+         }
+      }
+
+      @Override
+      public void close() throws IOException {
+         serverSocket.close();
+      }
+   }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.qm.rabbitmq;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.tools.json.JSONReader;
+
+/**
+ * 
+ * Minimal client for the RabbitMQ management HTTP API
+ * 
+ * The state of all the queues of the virtual host is read in one call to "/api/queues/{vhost}" and kept for a short time, so that
+ * a refresh of the depth of all the queues results in a single HTTP request. The HTTP connection is kept alive between calls
+ * 
+ * @author Denis Forveille
+ *
+ */
+final class RabbitMQManagementClient {
+
+   private static final Logger              log            = LoggerFactory.getLogger(RabbitMQManagementClient.class);
+
+   private static final String              QUEUES_PATH    = "%s/api/queues/%s?columns=%s";
+   private static final String              QUEUES_COLUMNS = "name,state,durable,auto_delete,exclusive,"
+                                                             + "messages,messages_ready,messages_unacknowledged,consumers,memory,"
+                                                             + "message_stats.publish_details.rate,"
+                                                             + "message_stats.deliver_get_details.rate,"
+                                                             + "message_stats.ack_details.rate";
+
+   private static final int                 TIMEOUT        = 10000;
+
+   private final URL                        queuesURL;
+   private final String                     authorization;
+   private final long                       cacheTTL;
+
+   private Map<String, Map<String, Object>> queues;
+   private long                             queuesTimestamp;
+
+   // ------------
+   // Constructors
+   // ------------
+
+   RabbitMQManagementClient(String managementURL, String vhost, String userid, String password, long ttl) throws IOException {
+      String baseURL = managementURL.endsWith("/") ? managementURL.substring(0, managementURL.length() - 1) : managementURL;
+      String encodedVHost = URLEncoder.encode(vhost, StandardCharsets.UTF_8.name());
+      this.queuesURL = new URL(String.format(QUEUES_PATH, baseURL, encodedVHost, QUEUES_COLUMNS));
+      this.cacheTTL = ttl;
+
+      if (userid == null) {
+         this.authorization = null;
+      } else {
+         String credentials = userid + ":" + (password == null ? "" : password);
+         this.authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+      }
+   }
+
+   // ----------------
+   // Business methods
+   // ----------------
+
+   // Returns the state of all the queues of the virtual host, by queue name
+   synchronized Map<String, Map<String, Object>> getQueues(boolean refresh) throws IOException {
+      long now = System.currentTimeMillis();
+      if (refresh || (queues == null) || (now - queuesTimestamp > cacheTTL)) {
+         Map<String, Map<String, Object>> m = new HashMap<>();
+         for (Object o : (List<?>) get(queuesURL)) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> queue = (Map<String, Object>) o;
+            m.put((String) queue.get("name"), queue);
+         }
+         queues = Collections.unmodifiableMap(m);
+         queuesTimestamp = now;
+      }
+      return queues;
+   }
+
+   Map<String, Object> getQueue(String queueName) throws IOException {
+      return getQueues(false).get(queueName);
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private Object get(URL url) throws IOException {
+      log.debug("GET {}", url);
+
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      connection.setConnectTimeout(TIMEOUT);
+      connection.setReadTimeout(TIMEOUT);
+      connection.setRequestProperty("Accept", "application/json");
+      if (authorization != null) {
+         connection.setRequestProperty("Authorization", authorization);
+      }
+
+      // The body is always fully read so that the underlying connection can be reused
+      int responseCode = connection.getResponseCode();
+      if (responseCode != HttpURLConnection.HTTP_OK) {
+         InputStream es = connection.getErrorStream();
+         String error = es == null ? "" : readFully(es);
+         throw new IOException("RabbitMQ management API returned HTTP " + responseCode + " for " + url + ": " + error);
+      }
+
+      return new JSONReader().read(readFully(connection.getInputStream()));
+   }
+
+   private static String readFully(InputStream is) throws IOException {
+      try (InputStream in = is) {
+         ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+         byte[] buffer = new byte[8192];
+         int n;
+         while ((n = in.read(buffer)) != -1) {
+            baos.write(buffer, 0, n);
+         }
+         return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+      }
+   }
+}
@@ -17,6 +17,8 @@
 package org.titou10.jtb.qm.rabbitmq;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
@@ -30,10 +32,14 @@ import javax.jms.JMSException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
+import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
+import org.titou10.jtb.jms.qm.TopicData;
 
 import com.rabbitmq.client.ConnectionFactory;
 
@@ -52,28 +58,67 @@ import com.rabbitmq.client.ConnectionFactory;
  */
 public class RabbitMQQManager extends QManager {
 
-   private static final Logger    log             = LoggerFactory.getLogger(RabbitMQQManager.class);
+   private static final Logger    log                  = LoggerFactory.getLogger(RabbitMQQManager.class);
 
-   private static final String    CR              = "\n";
+   private static final String    CR                   = "\n";
 
-   private List<QManagerProperty> parameters      = new ArrayList<QManagerProperty>();
-   private SortedSet<String>      queueNames      = new TreeSet<>();
-   private SortedSet<String>      topicNames      = new TreeSet<>();
+   private List<QManagerProperty> parameters           = new ArrayList<QManagerProperty>();
+   private SortedSet<String>      queueNames           = new TreeSet<>();
+   private SortedSet<String>      topicNames           = new TreeSet<>();
 
-   private static final String    P_QUEUE_MANAGER = "queueManager";
+   private static final String    P_QUEUE_MANAGER      = "queueManager";
+   private static final String    P_MANAGEMENT_URL     = "managementURL";
+   private static final String    P_VIRTUAL_HOST       = "virtualHost";
+   private static final String    P_CACHE_TTL          = "managementCacheTTL";
+
+   private static final String    DEFAULT_VIRTUAL_HOST = "/";
+   private static final long      DEFAULT_CACHE_TTL    = 2000;
 
    public RabbitMQQManager() {
       log.debug("Instantiate MQQManager");
 
       parameters.add(new QManagerProperty(P_QUEUE_MANAGER, true, JMSPropertyKind.STRING));
+      parameters.add(new QManagerProperty(P_MANAGEMENT_URL,
+                                          false,
+                                          JMSPropertyKind.STRING,
+                                          false,
+                                          "URL of the management HTTP API (eg 'http://localhost:15672')",
+                                          null));
+      parameters.add(new QManagerProperty(P_VIRTUAL_HOST,
+                                          false,
+                                          JMSPropertyKind.STRING,
+                                          false,
+                                          "Virtual host of the queues",
+                                          DEFAULT_VIRTUAL_HOST));
+      parameters.add(new QManagerProperty(P_CACHE_TTL,
+                                          false,
+                                          JMSPropertyKind.LONG,
+                                          false,
+                                          "Time in ms the state of the queues read from the management API is kept",
+                                          String.valueOf(DEFAULT_CACHE_TTL)));
    }
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // TODO To be implemented
 
+      Map<String, String> mapProperties = extractProperties(sessionDef);
+
+      // Optional access to the management HTTP API, used to get the state of the queues
+      RabbitMQManagementClient managementClient = null;
+      String managementURL = mapProperties.get(P_MANAGEMENT_URL);
+      if (managementURL != null) {
+         String vhost = mapProperties.get(P_VIRTUAL_HOST);
+         String ttl = mapProperties.get(P_CACHE_TTL);
+         managementClient = new RabbitMQManagementClient(managementURL,
+                                                         vhost == null ? DEFAULT_VIRTUAL_HOST : vhost,
+                                                         sessionDef.getActiveUserid(),
+                                                         sessionDef.getActivePassword(),
+                                                         ttl == null ? DEFAULT_CACHE_TTL : Long.parseLong(ttl));
+      }
+
       ConnectionFactory factory = new ConnectionFactory();
       factory.setHost(sessionDef.getHost());
       factory.setPort(sessionDef.getPort());
@@ -84,33 +129,53 @@ public class RabbitMQQManager extends QManager {
          factory.setPassword(sessionDef.getPassword());
       }
 
-      @SuppressWarnings("unused")
       com.rabbitmq.client.Connection connection = factory.newConnection();
 
       log.info("connected to {}", sessionDef.getName());
 
-      return null;
+      // TODO No JMS Connection yet
+      return new RabbitMQConnectionContext(null, connection, managementClient);
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext.getJmsConnection(), showSystemObjects);
 
       // Discover Queues and Topics
 
-      // TODO To be implemented
+      RabbitMQManagementClient managementClient = ((RabbitMQConnectionContext) connectionContext).managementClient;
+      if (managementClient == null) {
+         // TODO To be implemented
+         return null;
+      }
 
-      return null;
+      SortedSet<QueueData> listQueueData = new TreeSet<>();
+      for (String queueName : managementClient.getQueues(true).keySet()) {
+         log.debug("Found Queue '{}'", queueName);
+         listQueueData.add(new QueueData(queueName));
+      }
+
+      return new DestinationData(listQueueData, new TreeSet<TopicData>());
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext.getJmsConnection());
+
+      RabbitMQConnectionContext ctx = (RabbitMQConnectionContext) connectionContext;
+
+      if (connectionContext.getJmsConnection() != null) {
+         try {
+            connectionContext.getJmsConnection().close();
+         } catch (Exception e) {
+            log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
+         }
+      }
 
       try {
-         jmsConnection.close();
+         ctx.rabbitConnection.close();
       } catch (Exception e) {
-         log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
+         log.warn("Exception occured while closing RabbitMQ connection. Ignore it. Msg={}", e.getMessage());
       }
 
       queueNames.clear();
@@ -118,18 +183,78 @@ public class RabbitMQQManager extends QManager {
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
-      return null;
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
+      RabbitMQManagementClient managementClient = ((RabbitMQConnectionContext) connectionContext).managementClient;
+      if (managementClient == null) {
+         return null;
+      }
+
+      try {
+         Map<String, Object> queue = managementClient.getQueue(queueName);
+         return queue == null ? null : toInteger(queue.get("messages"));
+      } catch (Exception e) {
+         log.warn("Exception occured while reading Q depth for {}. Msg={}", queueName, e.getMessage());
+         return null;
+      }
+   }
+
+   @Override
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+      RabbitMQManagementClient managementClient = ((RabbitMQConnectionContext) connectionContext).managementClient;
+      if (managementClient == null) {
+         return null;
+      }
+
+      // All the queues are read in one call to the management API
+      Map<String, Map<String, Object>> queues;
+      try {
+         queues = managementClient.getQueues(false);
+      } catch (Exception e) {
+         log.warn("Exception occured while reading Q statistics. Msg={}", e.getMessage());
+         return null;
+      }
+
+      Map<String, QueueStatistics> statistics = new HashMap<>(queueNames.size());
+      for (String queueName : queueNames) {
+         Map<String, Object> queue = queues.get(queueName);
+         if (queue != null) {
+            Map<String, Object> metrics = new HashMap<>(4);
+            metrics.put("Messages Ready", queue.get("messages_ready"));
+            metrics.put("Messages Unacknowledged", queue.get("messages_unacknowledged"));
+            statistics.put(queueName,
+                           new QueueStatistics(toInteger(queue.get("messages")),
+                                               null,
+                                               toInteger(queue.get("consumers")),
+                                               null,
+                                               metrics));
+         }
+      }
+      return statistics;
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
       SortedMap<String, Object> properties = new TreeMap<>();
+
+      RabbitMQManagementClient managementClient = ((RabbitMQConnectionContext) connectionContext).managementClient;
+      if (managementClient == null) {
+         return properties;
+      }
+
+      try {
+         Map<String, Object> queue = managementClient.getQueue(queueName);
+         if (queue == null) {
+            return null;
+         }
+         addProperties(properties, null, queue);
+      } catch (Exception e) {
+         log.error("An exception occured when reading information for queue {}. Msg={}", queueName, e);
+      }
       return properties;
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
       SortedMap<String, Object> properties = new TreeMap<>();
       return properties;
    }
@@ -149,9 +274,49 @@ public class RabbitMQQManager extends QManager {
       sb.append("Properties values:").append(CR);
       sb.append("---------------").append(CR);
       sb.append("queueManager                : Queue Manager Name").append(CR);
+      sb.append("managementURL               : URL of the management HTTP API (eg 'http://localhost:15672')").append(CR);
+      sb.append("                              If not set, the depth of the queues is not available").append(CR);
+      sb.append("virtualHost                 : Virtual host of the queues (Default: '/')").append(CR);
+      sb.append("managementCacheTTL          : Time in ms the state of the queues read from the API is kept (Default: 2000)")
+               .append(CR);
       return sb.toString();
    }
 
+   // -------
+   // Helpers
+   // -------
+
+   // Nested objects (eg "message_stats") are flattened with a "." separated key
+   @SuppressWarnings("unchecked")
+   private void addProperties(Map<String, Object> properties, String prefix, Map<String, Object> values) {
+      for (Map.Entry<String, Object> e : values.entrySet()) {
+         String key = prefix == null ? e.getKey() : prefix + "." + e.getKey();
+         if (e.getValue() instanceof Map) {
+            addProperties(properties, key, (Map<String, Object>) e.getValue());
+         } else {
+            properties.put(key, e.getValue());
+         }
+      }
+   }
+
+   private Integer toInteger(Object o) {
+      return o instanceof Number ? ((Number) o).intValue() : null;
+   }
+
+   // Per connection data
+   private static final class RabbitMQConnectionContext extends ConnectionContext {
+      private final com.rabbitmq.client.Connection rabbitConnection;
+      private final RabbitMQManagementClient       managementClient;
+
+      private RabbitMQConnectionContext(Connection jmsConnection,
+                                        com.rabbitmq.client.Connection rabbitConnection,
+                                        RabbitMQManagementClient managementClient) {
+         super(jmsConnection);
+         this.rabbitConnection = rabbitConnection;
+         this.managementClient = managementClient;
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
@@ -17,6 +17,7 @@
 package org.titou10.jtb.qm.sonicmq;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
@@ -36,10 +37,12 @@ import javax.management.ReflectionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 import com.sonicsw.mf.jmx.client.JMSConnectorAddress;
@@ -58,28 +61,25 @@ import progress.message.jclient.ConnectionFactory;
  */
 public class SonicMQQManager extends QManager {
 
-   private static final Logger                    log                     = LoggerFactory.getLogger(SonicMQQManager.class);
+   private static final Logger          log                     = LoggerFactory.getLogger(SonicMQQManager.class);
 
-   private static final String                    CR                      = "\n";
+   private static final String          CR                      = "\n";
 
-   private static final String                    P_BROKER                = "brokerName";                                  // MgmtBroker
-   private static final String                    P_CONTAINER             = "containerName";                               // DomainManager
-   private static final String                    P_DOMAIN                = "domainName";                                  // Domain1
+   private static final String          P_BROKER                = "brokerName";                                  // MgmtBroker
+   private static final String          P_CONTAINER             = "containerName";                               // DomainManager
+   private static final String          P_DOMAIN                = "domainName";                                  // Domain1
    // tcp, ssl, https
-   private static final String                    P_PROTOCOL              = "connectionProtocol";
+   private static final String          P_PROTOCOL              = "connectionProtocol";
 
-   private static final String[]                  INVOKE_STRING_SIGNATURE = { String.class.getName() };
-   private static final Object[]                  INVOKE_EMPTY_PARAMS     = { null };
-   private static final String                    GQ_INVOKE_METHOD        = "getQueues";
-   private static final String                    GUDS_INVOKE_METHOD      = "getUsersWithDurableSubscriptions";
-   private static final String                    GDS_INVOKE_METHOD       = "getDurableSubscriptions";
+   private static final String[]        INVOKE_STRING_SIGNATURE = { String.class.getName() };
+   private static final Object[]        INVOKE_EMPTY_PARAMS     = { null };
+   private static final String          GQ_INVOKE_METHOD        = "getQueues";
+   private static final String          GUDS_INVOKE_METHOD      = "getUsersWithDurableSubscriptions";
+   private static final String          GDS_INVOKE_METHOD       = "getDurableSubscriptions";
 
-   private static final String                    HELP_TEXT;
+   private static final String          HELP_TEXT;
 
-   private final List<QManagerProperty>           parameters              = new ArrayList<QManagerProperty>();
-
-   private final Map<Integer, JMSConnectorClient> jmxConnectors           = new HashMap<>();
-   private final Map<Integer, ObjectName>         brokerObjectNames       = new HashMap<>();
+   private final List<QManagerProperty> parameters              = new ArrayList<QManagerProperty>();
 
    public SonicMQQManager() {
       log.debug("Instantiate SonicMQQManager");
@@ -108,7 +108,7 @@ public class SonicMQQManager extends QManager {
 
    @Override
    @SuppressWarnings({ "rawtypes", "unchecked" })
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Extract properties
@@ -189,22 +189,17 @@ public class SonicMQQManager extends QManager {
 
       log.info("connected to {}", sessionDef.getName());
 
-      // Store per connection related data
-      Integer hash = jmsConnection.hashCode();
-      jmxConnectors.put(hash, jmxConnector);
-      brokerObjectNames.put(hash, brokerObjectName);
-
-      return jmsConnection;
+      return new SonicMQConnectionContext(jmsConnection, jmxConnector, brokerObjectName);
    }
 
    @Override
    @SuppressWarnings("unchecked")
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext.getJmsConnection(), showSystemObjects);
 
-      Integer hash = jmsConnection.hashCode();
-      JMSConnectorClient jmxConnector = jmxConnectors.get(hash);
-      ObjectName brokerObjectName = brokerObjectNames.get(hash);
+      SonicMQConnectionContext ctx = (SonicMQConnectionContext) connectionContext;
+      JMSConnectorClient jmxConnector = ctx.jmxConnector;
+      ObjectName brokerObjectName = ctx.brokerObjectName;
 
       SortedSet<org.titou10.jtb.jms.qm.QueueData> listQueueData = new TreeSet<>();
       List<QueueData> qd = (List<QueueData>) jmxConnector
@@ -260,14 +255,13 @@ public class SonicMQQManager extends QManager {
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext.getJmsConnection());
 
-      Integer hash = jmsConnection.hashCode();
-      JMSConnectorClient jmxConnector = jmxConnectors.get(hash);
+      JMSConnectorClient jmxConnector = ((SonicMQConnectionContext) connectionContext).jmxConnector;
 
       try {
-         jmsConnection.close();
+         connectionContext.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
       }
@@ -278,10 +272,7 @@ public class SonicMQQManager extends QManager {
          } catch (Exception e) {
             log.warn("Exception occured while disconnect JMX connector. Ignore it. Msg={}", e.getMessage());
          }
-         jmxConnectors.remove(hash);
       }
-
-      brokerObjectNames.remove(hash);
    }
 
    @Override
@@ -290,9 +281,9 @@ public class SonicMQQManager extends QManager {
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
       try {
-         QueueData qd = getQueueData(jmsConnection, queueName);
+         QueueData qd = getQueueData(connectionContext, queueName);
          if (qd == null) {
             return null;
          }
@@ -304,11 +295,38 @@ public class SonicMQQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   @SuppressWarnings("unchecked")
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+
+      SonicMQConnectionContext ctx = (SonicMQConnectionContext) connectionContext;
+      JMSConnectorClient jmxConnector = ctx.jmxConnector;
+      ObjectName brokerObjectName = ctx.brokerObjectName;
+
+      // The broker returns the data of all the queues in one call
+      List<QueueData> qd;
+      try {
+         qd = (List<QueueData>) jmxConnector
+                  .invoke(brokerObjectName, GQ_INVOKE_METHOD, INVOKE_EMPTY_PARAMS, INVOKE_STRING_SIGNATURE);
+      } catch (InstanceNotFoundException | MBeanException | ReflectionException e) {
+         log.error("An exception occured when reading queues statistics", e);
+         return null;
+      }
+
+      Map<String, QueueStatistics> statistics = new HashMap<>(queueNames.size());
+      for (QueueData queueData : qd) {
+         if (queueNames.contains(queueData.getQueueName())) {
+            statistics.put(queueData.getQueueName(), new QueueStatistics(queueData.getMessageCount(), null, null, null));
+         }
+      }
+      return statistics;
+   }
+
+   @Override
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
       SortedMap<String, Object> properties = new TreeMap<>();
 
       try {
-         QueueData qd = getQueueData(jmsConnection, queueName);
+         QueueData qd = getQueueData(connectionContext, queueName);
          if (qd == null) {
             return null;
          }
@@ -332,11 +350,11 @@ public class SonicMQQManager extends QManager {
 
    @Override
    @SuppressWarnings("unchecked")
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
 
-      Integer hash = jmsConnection.hashCode();
-      JMSConnectorClient jmxConnector = jmxConnectors.get(hash);
-      ObjectName brokerObjectName = brokerObjectNames.get(hash);
+      SonicMQConnectionContext ctx = (SonicMQConnectionContext) connectionContext;
+      JMSConnectorClient jmxConnector = ctx.jmxConnector;
+      ObjectName brokerObjectName = ctx.brokerObjectName;
 
       SortedMap<String, Object> properties = new TreeMap<>();
 
@@ -403,12 +421,12 @@ public class SonicMQQManager extends QManager {
    // ------------------------
 
    @SuppressWarnings("unchecked")
-   private QueueData getQueueData(Connection jmsConnection, String queueName) throws InstanceNotFoundException, MBeanException,
-                                                                              ReflectionException {
+   private QueueData getQueueData(ConnectionContext connectionContext,
+                                  String queueName) throws InstanceNotFoundException, MBeanException, ReflectionException {
 
-      Integer hash = jmsConnection.hashCode();
-      JMSConnectorClient jmxConnector = jmxConnectors.get(hash);
-      ObjectName brokerObjectName = brokerObjectNames.get(hash);
+      SonicMQConnectionContext ctx = (SonicMQConnectionContext) connectionContext;
+      JMSConnectorClient jmxConnector = ctx.jmxConnector;
+      ObjectName brokerObjectName = ctx.brokerObjectName;
 
       Object[] params = { queueName };
       List<QueueData> qd = (List<QueueData>) jmxConnector
@@ -416,6 +434,18 @@ public class SonicMQQManager extends QManager {
       return qd.get(0);
    }
 
+   // Per connection data
+   private static final class SonicMQConnectionContext extends ConnectionContext {
+      private final JMSConnectorClient jmxConnector;
+      private final ObjectName         brokerObjectName;
+
+      private SonicMQConnectionContext(Connection jmsConnection, JMSConnectorClient jmxConnector, ObjectName brokerObjectName) {
+         super(jmsConnection);
+         this.jmxConnector = jmxConnector;
+         this.brokerObjectName = brokerObjectName;
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
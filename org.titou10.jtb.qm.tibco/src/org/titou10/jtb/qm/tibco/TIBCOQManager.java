@@ -17,6 +17,7 @@
 package org.titou10.jtb.qm.tibco;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,11 +32,13 @@ import javax.jms.JMSException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 import com.tibco.tibjms.TibjmsConnectionFactory;
@@ -55,20 +58,21 @@ import com.tibco.tibjms.admin.TopicInfo;
  */
 public class TIBCOQManager extends QManager {
 
-   private static final Logger             log                   = LoggerFactory.getLogger(TIBCOQManager.class);
+   private static final Logger    log                   = LoggerFactory.getLogger(TIBCOQManager.class);
 
-   private static final String             CR                    = "\n";
+   private static final String    CR                    = "\n";
 
-   private static final String             P_PROTOCOL            = "connectionProtocol";
+   private static final String    P_PROTOCOL            = "connectionProtocol";
 
-   private static final String             HELP_TEXT;
+   private static final String    HELP_TEXT;
 
-   private List<QManagerProperty>          parameters            = new ArrayList<QManagerProperty>();
+   private List<QManagerProperty> parameters            = new ArrayList<QManagerProperty>();
 
-   private static final String             SYSTEM_PREFIX         = "$sys.";
-   private static final String             INVALID_SYSTEM_PREFIX = ">";
+   private static final String    SYSTEM_PREFIX         = "$sys.";
+   private static final String    INVALID_SYSTEM_PREFIX = ">";
 
-   private final Map<Integer, TibjmsAdmin> queueManagers         = new HashMap<>();
+   // Max age of the snapshot of the destinations. Short enough to be refreshed on every refresh cycle
+   private static final long      SNAPSHOT_TTL          = 2000;
 
    public TIBCOQManager() {
       log.debug("Instantiate TIBCOQManager");
@@ -123,7 +127,7 @@ public class TIBCOQManager extends QManager {
    }
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Extract properties
@@ -229,23 +233,18 @@ public class TIBCOQManager extends QManager {
 
       log.info("connected to {}", sessionDef.getName());
 
-      // Store per connection related data
-      queueManagers.put(jmsConnection.hashCode(), tibcoAdmin);
-
-      return jmsConnection;
+      return new TIBCOConnectionContext(jmsConnection, tibcoAdmin);
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext.getJmsConnection(), showSystemObjects);
 
-      Integer hash = jmsConnection.hashCode();
-      TibjmsAdmin tibcoAdmin = queueManagers.get(hash);
+      TIBCOConnectionContext ctx = (TIBCOConnectionContext) connectionContext;
 
       // Lookup for Queues
       SortedSet<QueueData> listQueueData = new TreeSet<>();
-      QueueInfo[] queues = tibcoAdmin.getQueues();
-      for (QueueInfo queueInfo : queues) {
+      for (QueueInfo queueInfo : ctx.getQueueInfos(true).values()) {
          String queueName = queueInfo.getName();
          log.debug("Found Queue {}. Temporary? {}", queueName, queueInfo.isTemporary());
 
@@ -270,8 +269,7 @@ public class TIBCOQManager extends QManager {
 
       // Lookup for Topics
       SortedSet<TopicData> listTopicData = new TreeSet<>();
-      TopicInfo[] topics = tibcoAdmin.getTopics();
-      for (TopicInfo topicInfo : topics) {
+      for (TopicInfo topicInfo : ctx.getTopicInfos(true).values()) {
          String topicName = topicInfo.getName();
          log.debug("Found Topic {}. Temporary? {}", topicName, topicInfo.isTemporary());
 
@@ -298,14 +296,13 @@ public class TIBCOQManager extends QManager {
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext.getJmsConnection());
 
-      Integer hash = jmsConnection.hashCode();
-      TibjmsAdmin tibcoAdmin = queueManagers.get(hash);
+      TibjmsAdmin tibcoAdmin = ((TIBCOConnectionContext) connectionContext).tibcoAdmin;
 
       try {
-         jmsConnection.close();
+         connectionContext.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
       }
@@ -316,7 +313,6 @@ public class TIBCOQManager extends QManager {
          } catch (TibjmsAdminException e) {
             log.warn("Exception occured while closing TibjmsAdmin. Ignore it. Msg={}", e.getMessage());
          }
-         queueManagers.remove(hash);
       }
    }
 
@@ -326,15 +322,15 @@ public class TIBCOQManager extends QManager {
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
-      Integer hash = jmsConnection.hashCode();
-      TibjmsAdmin tibcoAdmin = queueManagers.get(hash);
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
+      TIBCOConnectionContext ctx = (TIBCOConnectionContext) connectionContext;
 
       try {
-         QueueInfo queueInfo = tibcoAdmin.getQueue(queueName);
-         Long depth = queueInfo.getOutboundStatistics().getTotalMessages();
-
-         return depth.intValue();
+         QueueInfo queueInfo = ctx.getQueueInfo(queueName);
+         if (queueInfo == null) {
+            return null;
+         }
+         return getDepth(queueInfo);
       } catch (TibjmsAdminException e) {
          log.warn("Exception occured while reading Q depth for {}. Msg={}", queueName, e.getMessage());
          return null;
@@ -342,14 +338,37 @@ public class TIBCOQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+      TIBCOConnectionContext ctx = (TIBCOConnectionContext) connectionContext;
+
+      // All the queues with their statistics are returned by one admin call. This is the only place, with the discovery, where the
+      // snapshot of the queues is rebuilt
+      Map<String, QueueInfo> queueInfos;
+      try {
+         queueInfos = ctx.getQueueInfos(false);
+      } catch (TibjmsAdminException e) {
+         log.warn("Exception occured while reading Q statistics. Msg={}", e.getMessage());
+         return null;
+      }
+
+      Map<String, QueueStatistics> statistics = new HashMap<>(queueNames.size());
+      for (String queueName : queueNames) {
+         QueueInfo queueInfo = queueInfos.get(queueName);
+         if (queueInfo != null) {
+            statistics.put(queueName, new QueueStatistics(getDepth(queueInfo), null, queueInfo.getConsumerCount(), null));
+         }
+      }
+      return statistics;
+   }
+
+   @Override
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
       SortedMap<String, Object> properties = new TreeMap<>();
 
-      Integer hash = jmsConnection.hashCode();
-      TibjmsAdmin tibcoAdmin = queueManagers.get(hash);
+      TIBCOConnectionContext ctx = (TIBCOConnectionContext) connectionContext;
 
       try {
-         QueueInfo queueInfo = tibcoAdmin.getQueue(queueName);
+         QueueInfo queueInfo = ctx.getQueueInfo(queueName);
          if (queueInfo == null) {
             return null;
          }
@@ -393,14 +412,13 @@ public class TIBCOQManager extends QManager {
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
       SortedMap<String, Object> properties = new TreeMap<>();
 
-      Integer hash = jmsConnection.hashCode();
-      TibjmsAdmin tibcoAdmin = queueManagers.get(hash);
+      TIBCOConnectionContext ctx = (TIBCOConnectionContext) connectionContext;
 
       try {
-         TopicInfo topicInfo = tibcoAdmin.getTopic(topicName);
+         TopicInfo topicInfo = ctx.getTopicInfo(topicName);
          if (topicInfo == null) {
             return null;
          }
@@ -476,6 +494,80 @@ public class TIBCOQManager extends QManager {
       HELP_TEXT = sb.toString();
    }
 
+   // -------
+   // Helpers
+   // -------
+
+   private static Integer getDepth(QueueInfo queueInfo) {
+      return (int) queueInfo.getOutboundStatistics().getTotalMessages();
+   }
+
+   // Per connection data
+   private static final class TIBCOConnectionContext extends ConnectionContext {
+      private final TibjmsAdmin      tibcoAdmin;
+
+      // Snapshots of the destinations returned by getQueues()/getTopics(), shared by all lookups done within SNAPSHOT_TTL
+      private Map<String, QueueInfo> queueInfos;
+      private long                   queueInfosTimestamp;
+      private Map<String, TopicInfo> topicInfos;
+      private long                   topicInfosTimestamp;
+
+      private TIBCOConnectionContext(Connection jmsConnection, TibjmsAdmin tibcoAdmin) {
+         super(jmsConnection);
+         this.tibcoAdmin = tibcoAdmin;
+      }
+
+      private synchronized Map<String, QueueInfo> getQueueInfos(boolean refresh) throws TibjmsAdminException {
+         long now = System.currentTimeMillis();
+         if (refresh || (queueInfos == null) || (now - queueInfosTimestamp > SNAPSHOT_TTL)) {
+            QueueInfo[] queues = tibcoAdmin.getQueues();
+            Map<String, QueueInfo> m = new HashMap<>(queues.length);
+            for (QueueInfo queueInfo : queues) {
+               m.put(queueInfo.getName(), queueInfo);
+            }
+            queueInfos = m;
+            queueInfosTimestamp = now;
+         }
+         return queueInfos;
+      }
+
+      private synchronized Map<String, TopicInfo> getTopicInfos(boolean refresh) throws TibjmsAdminException {
+         long now = System.currentTimeMillis();
+         if (refresh || (topicInfos == null) || (now - topicInfosTimestamp > SNAPSHOT_TTL)) {
+            TopicInfo[] topics = tibcoAdmin.getTopics();
+            Map<String, TopicInfo> m = new HashMap<>(topics.length);
+            for (TopicInfo topicInfo : topics) {
+               m.put(topicInfo.getName(), topicInfo);
+            }
+            topicInfos = m;
+            topicInfosTimestamp = now;
+         }
+         return topicInfos;
+      }
+
+      // Single destination lookups never rebuild the snapshots: they use it only when it is fresh, otherwise the destination is read
+      // directly. This also covers the destinations created after the snapshot was taken
+      private QueueInfo getQueueInfo(String queueName) throws TibjmsAdminException {
+         QueueInfo queueInfo = null;
+         synchronized (this) {
+            if ((queueInfos != null) && (System.currentTimeMillis() - queueInfosTimestamp <= SNAPSHOT_TTL)) {
+               queueInfo = queueInfos.get(queueName);
+            }
+         }
+         return queueInfo == null ? tibcoAdmin.getQueue(queueName) : queueInfo;
+      }
+
+      private TopicInfo getTopicInfo(String topicName) throws TibjmsAdminException {
+         TopicInfo topicInfo = null;
+         synchronized (this) {
+            if ((topicInfos != null) && (System.currentTimeMillis() - topicInfosTimestamp <= SNAPSHOT_TTL)) {
+               topicInfo = topicInfos.get(topicName);
+            }
+         }
+         return topicInfo == null ? tibcoAdmin.getTopic(topicName) : topicInfo;
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
@@ -19,14 +19,19 @@ package org.titou10.jtb.qm.um;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.jms.Connection;
 import javax.jms.JMSException;
@@ -34,11 +39,13 @@ import javax.jms.JMSException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 import com.pcbsys.nirvana.base.nConstants;
@@ -50,6 +57,10 @@ import com.pcbsys.nirvana.client.nQueueDetails;
 import com.pcbsys.nirvana.client.nSessionAttributes;
 import com.pcbsys.nirvana.nAdmin.nAdminSession;
 import com.pcbsys.nirvana.nAdmin.nAdminSessionFactory;
+import com.pcbsys.nirvana.nAdminAPI.nContainer;
+import com.pcbsys.nirvana.nAdminAPI.nLeafNode;
+import com.pcbsys.nirvana.nAdminAPI.nNode;
+import com.pcbsys.nirvana.nAdminAPI.nRealmNode;
 import com.pcbsys.nirvana.nJMS.ConnectionFactoryImpl;
 
 /**
@@ -61,26 +72,27 @@ import com.pcbsys.nirvana.nJMS.ConnectionFactoryImpl;
  */
 public class UMQManager extends QManager {
 
-   private static final Logger               log                        = LoggerFactory.getLogger(UMQManager.class);
+   private static final Logger    log                        = LoggerFactory.getLogger(UMQManager.class);
 
-   private static final String               CR                         = "\n";
-   private static final String               HELP_TEXT;
+   private static final String    CR                         = "\n";
+   private static final String    HELP_TEXT;
 
-   private static final String               RNAME_TEMPLATE             = "%s://%s:%d";
+   private static final String    RNAME_TEMPLATE             = "%s://%s:%d";
 
-   // http://tech.forums.softwareag.com/techjforum/posts/list/57967.page
-   private static final String               P_PROTOCOL                 = "protocol";
-   private static final String               P_SSL_PROTOCOL             = "ssl_protocol";
-   private static final String               P_SSL_ENABLED_CIPHERS      = "ssl_enabled_ciphers";
-   private static final String               P_SSL_KEY_STORE            = "ssl_keyStore_path";
-   private static final String               P_SSL_KEY_STORE_PASSWORD   = "ssl_keyStore_password";
-   private static final String               P_SSL_KEY_STORE_CERT       = "ssl_keyStore_certificate";
-   private static final String               P_SSL_TRUST_STORE          = "ssl_trustStore_path";
-   private static final String               P_SSL_TRUST_STORE_PASSWORD = "ssl_trustStore_password";
+   // Max time to wait for the realm namespace to be loaded, in the background
+   private static final long      REALM_NAMESPACE_TIMEOUT    = 30000;
 
-   private List<QManagerProperty>            parameters                 = new ArrayList<QManagerProperty>();
+   // http://tech.forums.softwareag.com/techjforum/posts/list/57967.page
+   private static final String    P_PROTOCOL                 = "protocol";
+   private static final String    P_SSL_PROTOCOL             = "ssl_protocol";
+   private static final String    P_SSL_ENABLED_CIPHERS      = "ssl_enabled_ciphers";
+   private static final String    P_SSL_KEY_STORE            = "ssl_keyStore_path";
+   private static final String    P_SSL_KEY_STORE_PASSWORD   = "ssl_keyStore_password";
+   private static final String    P_SSL_KEY_STORE_CERT       = "ssl_keyStore_certificate";
+   private static final String    P_SSL_TRUST_STORE          = "ssl_trustStore_path";
+   private static final String    P_SSL_TRUST_STORE_PASSWORD = "ssl_trustStore_password";
 
-   private final Map<Integer, nAdminSession> adminSessions              = new HashMap<>();
+   private List<QManagerProperty> parameters                 = new ArrayList<QManagerProperty>();
 
    // ------------------------
    // Constructor
@@ -128,7 +140,7 @@ public class UMQManager extends QManager {
    // Business Interface
    // ------------------------
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Extract properties
@@ -221,11 +233,9 @@ public class UMQManager extends QManager {
          jmsConnection.setClientID(clientID);
          jmsConnection.start();
 
-         // Store per connection related data
-         Integer hash = jmsConnection.hashCode();
-         adminSessions.put(hash, adminSession);
-
-         return jmsConnection;
+         UMConnectionContext ctx = new UMConnectionContext(jmsConnection, adminSession);
+         ctx.loadRealmNode(adminSessionAttributes, sessionDef.getActiveUserid(), sessionDef.getActivePassword());
+         return ctx;
 
       } finally {
          restoreSystemProperties();
@@ -233,14 +243,28 @@ public class UMQManager extends QManager {
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext.getJmsConnection(), showSystemObjects);
 
-      Integer hash = jmsConnection.hashCode();
-      nAdminSession adminSession = adminSessions.get(hash);
+      UMConnectionContext ctx = (UMConnectionContext) connectionContext;
+      nAdminSession adminSession = ctx.adminSession;
 
       SortedSet<QueueData> listQueueData = new TreeSet<>();
       SortedSet<TopicData> listTopicData = new TreeSet<>();
+
+      // The realm model already holds all the channels, once loaded
+      if (ctx.realmNode != null) {
+         for (Map.Entry<String, nLeafNode> e : ctx.leafNodes.entrySet()) {
+            log.debug("Found leaf node '{}'. Queue? {}", e.getKey(), e.getValue().isQueue());
+            if (e.getValue().isQueue()) {
+               listQueueData.add(new QueueData(e.getKey()));
+            } else {
+               listTopicData.add(new TopicData(e.getKey()));
+            }
+         }
+         return new DestinationData(listQueueData, listTopicData);
+      }
+
       nQueue queue;
       nChannel topic;
       for (nChannelAttributes channelAttributes : adminSession.getChannels()) {
@@ -250,11 +274,13 @@ public class UMQManager extends QManager {
                topic = adminSession.findChannel(channelAttributes);
                log.debug("Found Topic '{}'", topic.getName());
                listTopicData.add(new TopicData(topic.getName()));
+               ctx.topics.put(topic.getName(), topic);
                break;
             case nConstants.CHAN_MODE_QUEUE:
                queue = adminSession.findQueue(channelAttributes);
                log.debug("Found Queue '{}'", queue.getName());
                listQueueData.add(new QueueData(queue.getName()));
+               ctx.queues.put(queue.getName(), queue);
                break;
             default:
                log.debug("channelAttributes with channelMode '{}' not managed by JMSToolBox", channelAttributes.getChannelMode());
@@ -266,53 +292,77 @@ public class UMQManager extends QManager {
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext.getJmsConnection());
 
-      Integer hash = jmsConnection.hashCode();
-      nAdminSession adminSession = adminSessions.get(hash);
+      UMConnectionContext ctx = (UMConnectionContext) connectionContext;
+      nAdminSession adminSession = ctx.adminSession;
 
       try {
-         jmsConnection.close();
+         connectionContext.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
       }
 
+      ctx.closeRealmNode();
+
       if (adminSession != null) {
          try {
             adminSession.close();
          } catch (Exception e) {
             log.warn("Exception occured while closing nAdminSession. Ignore it. Msg={}", e.getMessage());
          }
-         adminSessions.remove(hash);
       }
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
-      Integer hash = jmsConnection.hashCode();
-      nAdminSession adminSession = adminSessions.get(hash);
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
+      UMConnectionContext ctx = (UMConnectionContext) connectionContext;
+
+      nLeafNode leafNode = ctx.leafNodes.get(queueName);
+      if (leafNode != null) {
+         return (int) leafNode.getCurrentNumberOfEvents();
+      }
 
       try {
-         nChannelAttributes x = new nChannelAttributes(queueName);
-         nQueue queue = adminSession.findQueue(x);
-         return queue.getDetails().getNoOfEvents();
+         return ctx.findQueue(queueName).getDetails().getNoOfEvents();
       } catch (Exception e) {
+         ctx.queues.remove(queueName);
          log.error("Exception occurred while reading depth for Queue '{}'", queueName, e);
          return null;
       }
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+      UMConnectionContext ctx = (UMConnectionContext) connectionContext;
+      if (ctx.realmNode == null) {
+         return null;
+      }
+
+      // Served from the realm model, without any round trip
+      Map<String, QueueStatistics> statistics = new HashMap<>(queueNames.size());
+      for (String queueName : queueNames) {
+         nLeafNode leafNode = ctx.leafNodes.get(queueName);
+         if (leafNode != null) {
+            statistics.put(queueName,
+                           new QueueStatistics((int) leafNode.getCurrentNumberOfEvents(),
+                                               null,
+                                               (int) leafNode.getCurrentNoOfConnections(),
+                                               null));
+         }
+      }
+      return statistics;
+   }
+
+   @Override
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
       SortedMap<String, Object> properties = new TreeMap<>();
 
-      Integer hash = jmsConnection.hashCode();
-      nAdminSession adminSession = adminSessions.get(hash);
+      UMConnectionContext ctx = (UMConnectionContext) connectionContext;
 
       try {
-         nChannelAttributes x = new nChannelAttributes(queueName);
-         nQueue queue = adminSession.findQueue(x);
+         nQueue queue = ctx.findQueue(queueName);
          nQueueDetails details = queue.getDetails();
 
          long fet = details.getFirstEventTime();
@@ -333,21 +383,20 @@ public class UMQManager extends QManager {
 
          addChannelAttributes(properties, queue.getQueueAttributes());
       } catch (Exception e) {
+         ctx.queues.remove(queueName);
          log.error("Exception occurred while reading depth for Queue '{}'", queueName, e);
       }
       return properties;
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
       SortedMap<String, Object> properties = new TreeMap<>();
 
-      Integer hash = jmsConnection.hashCode();
-      nAdminSession adminSession = adminSessions.get(hash);
+      UMConnectionContext ctx = (UMConnectionContext) connectionContext;
 
       try {
-         nChannelAttributes x = new nChannelAttributes(topicName);
-         nChannel topic = adminSession.findChannel(x);
+         nChannel topic = ctx.findTopic(topicName);
 
          properties.put("EventCount", topic.getEventCount());
          properties.put("LastEID", topic.getLastEID());
@@ -355,6 +404,7 @@ public class UMQManager extends QManager {
 
          addChannelAttributes(properties, topic.getChannelAttributes());
       } catch (Exception e) {
+         ctx.topics.remove(topicName);
          log.error("Exception occurred while reading depth for Queue '{}'", topicName, e);
       }
       return properties;
@@ -451,6 +501,147 @@ public class UMQManager extends QManager {
       HELP_TEXT = sb.toString();
    }
 
+   // -------
+   // Helpers
+   // -------
+
+   // Per connection data
+   private static final class UMConnectionContext extends ConnectionContext implements Observer {
+      private final nAdminSession          adminSession;
+
+      // Live model of the realm, kept up to date by the server. Used to read the number of events of the channels without any
+      // round trip. Null until loaded: the admin session is used meanwhile, or if it can not be loaded
+      private volatile nRealmNode          realmNode;
+      private boolean                      closed;
+
+      // Channels of the realm model, by channel name. Kept current by the namespace change events sent by the realm
+      private final Map<String, nLeafNode> leafNodes = new ConcurrentHashMap<>();
+
+      // Handles on the channels, by channel name
+      private final Map<String, nQueue>    queues    = new ConcurrentHashMap<>();
+      private final Map<String, nChannel>  topics    = new ConcurrentHashMap<>();
+
+      private UMConnectionContext(Connection jmsConnection, nAdminSession adminSession) {
+         super(jmsConnection);
+         this.adminSession = adminSession;
+      }
+
+      // The namespace of a large realm may take a long time to load: load it in the background to not delay the connection
+      private void loadRealmNode(nSessionAttributes sessionAttributes, String userId, String password) {
+         Thread t = new Thread(() -> {
+            nRealmNode node = null;
+            try {
+               node = new nRealmNode(sessionAttributes, userId, password);
+               node.waitForEntireNameSpace(REALM_NAMESPACE_TIMEOUT);
+               synchronized (this) {
+                  if (!closed) {
+                     addContainer(node);
+                     realmNode = node;
+                     node = null;
+                  }
+               }
+            } catch (Exception e) {
+               log.warn("Exception occured while loading the realm namespace. Ignore it. Msg={}", e.getMessage());
+            } finally {
+               if (node != null) {
+                  node.close();
+               }
+            }
+         }, "JTB-UM-RealmNode");
+         t.setDaemon(true);
+         t.start();
+      }
+
+      private void closeRealmNode() {
+         nRealmNode node;
+         synchronized (this) {
+            closed = true;
+            node = realmNode;
+            realmNode = null;
+         }
+         if (node != null) {
+            try {
+               node.close();
+            } catch (Exception e) {
+               log.warn("Exception occured while closing nRealmNode. Ignore it. Msg={}", e.getMessage());
+            }
+         }
+      }
+
+      private nQueue findQueue(String queueName) throws nBaseClientException {
+         nQueue queue = queues.get(queueName);
+         if (queue == null) {
+            queue = adminSession.findQueue(new nChannelAttributes(queueName));
+            queues.put(queueName, queue);
+         }
+         return queue;
+      }
+
+      private nChannel findTopic(String topicName) throws nBaseClientException {
+         nChannel topic = topics.get(topicName);
+         if (topic == null) {
+            topic = adminSession.findChannel(new nChannelAttributes(topicName));
+            topics.put(topicName, topic);
+         }
+         return topic;
+      }
+
+      // Register the channels of the container and observe it. Do not cross into other realms (ie cluster or joined realms)
+      private void addContainer(nContainer container) throws nBaseClientException {
+         container.addObserver(this);
+         Enumeration<?> nodes = container.getNodes();
+         while (nodes.hasMoreElements()) {
+            addNode(nodes.nextElement());
+         }
+      }
+
+      private void addNode(Object node) throws nBaseClientException {
+         if (node instanceof nLeafNode) {
+            nLeafNode leafNode = (nLeafNode) node;
+            leafNodes.put(leafNode.getAttributes().getFullName(), leafNode);
+            return;
+         }
+         if ((node instanceof nContainer) && (!(node instanceof nRealmNode))) {
+            addContainer((nContainer) node);
+         }
+      }
+
+      private void removeNode(Object node) throws nBaseClientException {
+         if (node instanceof nLeafNode) {
+            String name = ((nLeafNode) node).getAttributes().getFullName();
+            leafNodes.remove(name);
+            queues.remove(name);
+            topics.remove(name);
+            return;
+         }
+         if (node instanceof nContainer) {
+            nContainer container = (nContainer) node;
+            container.deleteObserver(this);
+            Enumeration<?> nodes = container.getNodes();
+            while (nodes.hasMoreElements()) {
+               removeNode(nodes.nextElement());
+            }
+         }
+      }
+
+      // Namespace change event: a node has been added to or removed from the observed container
+      @Override
+      public void update(Observable o, Object arg) {
+         if (!(o instanceof nContainer) || !(arg instanceof nNode)) {
+            return;
+         }
+         try {
+            if (((nContainer) o).findNode((nNode) arg) == null) {
+               removeNode(arg);
+            } else {
+               addNode(arg);
+            }
+         } catch (Exception e) {
+            log.warn("Exception occured while processing a realm namespace change. Ignore it. Msg={}", e.getMessage());
+         }
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
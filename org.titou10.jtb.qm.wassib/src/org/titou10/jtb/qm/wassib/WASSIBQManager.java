@@ -17,9 +17,11 @@
 package org.titou10.jtb.qm.wassib;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -28,16 +30,21 @@ import java.util.TreeSet;
 
 import javax.jms.Connection;
 import javax.jms.JMSException;
+import javax.management.AttributeList;
 import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
+import org.titou10.jtb.jms.qm.JMXMetricsHelper;
+import org.titou10.jtb.jms.qm.JMXMetricsHelper.MBeanAccessor;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 import com.ibm.websphere.management.AdminClient;
@@ -54,31 +61,33 @@ import com.ibm.websphere.sib.api.jms.JmsFactoryFactory;
  */
 public class WASSIBQManager extends QManager {
 
-   private static final Logger             log                      = LoggerFactory.getLogger(WASSIBQManager.class);
+   private static final Logger    log                      = LoggerFactory.getLogger(WASSIBQManager.class);
 
-   private static final String             ON_QUEUES_TEMPLATE       = "WebSphere:SIBus=%s,type=SIBQueuePoint,*";
-   private static final String             ON_TOPICS_TEMPLATE       = "WebSphere:SIBus=%s,type=SIBPublicationPoint,*";
+   private static final String    ON_QUEUES_TEMPLATE       = "WebSphere:SIBus=%s,type=SIBQueuePoint,*";
+   private static final String    ON_TOPICS_TEMPLATE       = "WebSphere:SIBus=%s,type=SIBPublicationPoint,*";
 
-   private static final String             ON_QUEUE                 = "WebSphere:SIBus=%s,type=SIBQueuePoint,name=%s,*";
-   private static final String             ON_TOPIC                 = "WebSphere:SIBus=%s,type=SIBPublicationPoint,name=%s,*";
+   private static final String    ON_QUEUE                 = "WebSphere:SIBus=%s,type=SIBQueuePoint,name=%s,*";
+   private static final String    ON_TOPIC                 = "WebSphere:SIBus=%s,type=SIBPublicationPoint,name=%s,*";
 
-   private static final String             SYSTEM_PREFIX            = "_";
+   private static final String    SYSTEM_PREFIX            = "_";
 
-   private static final String             CR                       = "\n";
+   private static final String    CR                       = "\n";
 
-   private static final String             P_BUS_NAME               = "busName";
-   private static final String             P_PROVIDER_ENDPOINTS     = "providerEndPoints";
-   private static final String             P_TARGET_TRANSPORT_CHAIN = "targetTransportChain";
+   private static final long      JMX_TIMEOUT              = 30000;
 
-   private static final String             P_TRUST_STORE            = "javax.net.ssl.trustStore";
-   private static final String             P_TRUST_STORE_PASSWORD   = "javax.net.ssl.trustStorePassword";
+   private static final String[]  QUEUE_ATTRIBUTES         = { "id", "sendAllowed", "state", "highMessageThreshold", "depth" };
+   private static final String[]  TOPIC_ATTRIBUTES         = { "id", "sendAllowed", "highMessageThreshold", "depth" };
 
-   private static final String             HELP_TEXT;
+   private static final String    P_BUS_NAME               = "busName";
+   private static final String    P_PROVIDER_ENDPOINTS     = "providerEndPoints";
+   private static final String    P_TARGET_TRANSPORT_CHAIN = "targetTransportChain";
 
-   private List<QManagerProperty>          parameters               = new ArrayList<QManagerProperty>();
+   private static final String    P_TRUST_STORE            = "javax.net.ssl.trustStore";
+   private static final String    P_TRUST_STORE_PASSWORD   = "javax.net.ssl.trustStorePassword";
 
-   private final Map<Integer, AdminClient> adminClients             = new HashMap<>();
-   private final Map<Integer, String>      busNames                 = new HashMap<>();
+   private static final String    HELP_TEXT;
+
+   private List<QManagerProperty> parameters               = new ArrayList<QManagerProperty>();
 
    public WASSIBQManager() {
       log.debug("Instantiate LibertyQManager");
@@ -108,7 +117,7 @@ public class WASSIBQManager extends QManager {
    }
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Save System properties
@@ -180,12 +189,7 @@ public class WASSIBQManager extends QManager {
 
          log.info("connected to {}", sessionDef.getName());
 
-         // Store per connection related data
-         Integer hash = jmsConnection.hashCode();
-         adminClients.put(hash, adminClient);
-         busNames.put(hash, busName);
-
-         return jmsConnection;
+         return new WASSIBConnectionContext(jmsConnection, adminClient, busName);
 
       } finally {
          restoreSystemProperties();
@@ -194,12 +198,12 @@ public class WASSIBQManager extends QManager {
 
    @Override
    @SuppressWarnings("unchecked")
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext.getJmsConnection(), showSystemObjects);
 
-      Integer hash = jmsConnection.hashCode();
-      AdminClient adminClient = adminClients.get(hash);
-      String busName = busNames.get(hash);
+      WASSIBConnectionContext ctx = (WASSIBConnectionContext) connectionContext;
+      AdminClient adminClient = ctx.adminClient;
+      String busName = ctx.busName;
 
       // Discover Queue and Topics
 
@@ -216,6 +220,7 @@ public class WASSIBQManager extends QManager {
                continue;
             }
          }
+         ctx.jmx.cacheObjectName(String.format(ON_QUEUE, busName, name), o);
          listQueueData.add(new QueueData(name));
       }
 
@@ -229,6 +234,7 @@ public class WASSIBQManager extends QManager {
                continue;
             }
          }
+         ctx.jmx.cacheObjectName(String.format(ON_TOPIC, busName, name), o);
          listTopicData.add(new TopicData(name));
       }
 
@@ -236,35 +242,28 @@ public class WASSIBQManager extends QManager {
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext.getJmsConnection());
+
+      ((WASSIBConnectionContext) connectionContext).jmx.close();
 
       try {
-         jmsConnection.close();
+         connectionContext.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
       }
-
-      Integer hash = jmsConnection.hashCode();
-      adminClients.remove(hash);
-      busNames.remove(hash);
    }
 
    @Override
-   @SuppressWarnings("unchecked")
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
 
-      Integer hash = jmsConnection.hashCode();
-      AdminClient adminClient = adminClients.get(hash);
-      String busName = busNames.get(hash);
+      WASSIBConnectionContext ctx = (WASSIBConnectionContext) connectionContext;
 
       Integer depth = null;
       try {
-         ObjectName on = new ObjectName(String.format(ON_QUEUE, busName, queueName));
-         Set<ObjectName> queueSet = adminClient.queryNames(on, null);
-         if ((queueSet != null) && (!queueSet.isEmpty())) {
-            // TODO Long -> Integer !
-            depth = ((Long) adminClient.getAttribute(queueSet.iterator().next(), "depth")).intValue();
+         Map<String, Object> values = ctx.jmx.getAttributes(String.format(ON_QUEUE, ctx.busName, queueName), "depth");
+         if (values != null) {
+            depth = toInteger(values.get("depth"));
          }
       } catch (Exception e) {
          log.error("Exception when reading queue depth. Ignoring", e);
@@ -273,24 +272,33 @@ public class WASSIBQManager extends QManager {
    }
 
    @Override
-   @SuppressWarnings("unchecked")
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+
+      WASSIBConnectionContext ctx = (WASSIBConnectionContext) connectionContext;
+
+      Map<String, String> patterns = new HashMap<>(queueNames.size());
+      for (String queueName : queueNames) {
+         patterns.put(queueName, String.format(ON_QUEUE, ctx.busName, queueName));
+      }
+
+      Map<String, QueueStatistics> statistics = new HashMap<>(queueNames.size());
+      for (Entry<String, Map<String, Object>> e : ctx.jmx.getAttributes(patterns, "depth").entrySet()) {
+         statistics.put(e.getKey(), new QueueStatistics(toInteger(e.getValue().get("depth")), null, null, null));
+      }
+      return statistics;
+   }
 
-      Integer hash = jmsConnection.hashCode();
-      AdminClient adminClient = adminClients.get(hash);
-      String busName = busNames.get(hash);
+   @Override
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
+
+      WASSIBConnectionContext ctx = (WASSIBConnectionContext) connectionContext;
 
       SortedMap<String, Object> properties = new TreeMap<>();
 
       try {
-         ObjectName on = new ObjectName(String.format(ON_QUEUE, busName, queueName));
-         Set<ObjectName> attributesSet = adminClient.queryNames(on, null);
-         if ((attributesSet != null) && (!attributesSet.isEmpty())) {
-            addInfo(adminClient, properties, attributesSet, "id");
-            addInfo(adminClient, properties, attributesSet, "sendAllowed");
-            addInfo(adminClient, properties, attributesSet, "state");
-            addInfo(adminClient, properties, attributesSet, "highMessageThreshold");
-            addInfo(adminClient, properties, attributesSet, "depth");
+         Map<String, Object> values = ctx.jmx.getAttributes(String.format(ON_QUEUE, ctx.busName, queueName), QUEUE_ATTRIBUTES);
+         if (values != null) {
+            properties.putAll(values);
          }
       } catch (Exception e) {
          log.error("Exception when reading Queue Information. Ignoring", e);
@@ -300,31 +308,16 @@ public class WASSIBQManager extends QManager {
    }
 
    @Override
-   @SuppressWarnings("unchecked")
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
 
-      Integer hash = jmsConnection.hashCode();
-      AdminClient adminClient = adminClients.get(hash);
-      String busName = busNames.get(hash);
+      WASSIBConnectionContext ctx = (WASSIBConnectionContext) connectionContext;
 
       SortedMap<String, Object> properties = new TreeMap<>();
 
       try {
-         ObjectName on = new ObjectName(String.format(ON_TOPIC, busName, topicName));
-         Set<ObjectName> attributesSet = adminClient.queryNames(on, null);
-
-         // // Display all attributes
-         // MBeanInfo info = adminClient.getMBeanInfo(attributesSet.iterator().next());
-         // MBeanAttributeInfo[] attrInfo = info.getAttributes();
-         // for (MBeanAttributeInfo attr : attrInfo) {
-         // System.out.println(" " + attr.getName() + "\n");
-         // }
-
-         if ((attributesSet != null) && (!attributesSet.isEmpty())) {
-            addInfo(adminClient, properties, attributesSet, "id");
-            addInfo(adminClient, properties, attributesSet, "sendAllowed");
-            addInfo(adminClient, properties, attributesSet, "highMessageThreshold");
-            addInfo(adminClient, properties, attributesSet, "depth");
+         Map<String, Object> values = ctx.jmx.getAttributes(String.format(ON_TOPIC, ctx.busName, topicName), TOPIC_ATTRIBUTES);
+         if (values != null) {
+            properties.putAll(values);
          }
       } catch (Exception e) {
          log.error("Exception when reading Topic Information. Ignoring", e);
@@ -333,15 +326,8 @@ public class WASSIBQManager extends QManager {
       return properties;
    }
 
-   private void addInfo(AdminClient adminClient,
-                        Map<String, Object> properties,
-                        Set<ObjectName> attributesSet,
-                        String propertyName) {
-      try {
-         properties.put(propertyName, adminClient.getAttribute(attributesSet.iterator().next(), propertyName));
-      } catch (Exception e) {
-         log.warn("Exception when reading attribute '" + propertyName + "'. Ignoring: " + e.getMessage());
-      }
+   private Integer toInteger(Object o) {
+      return o instanceof Number ? ((Number) o).intValue() : null;
    }
 
    @Override
@@ -388,6 +374,33 @@ public class WASSIBQManager extends QManager {
       HELP_TEXT = sb.toString();
    }
 
+   // Per connection data
+   private static final class WASSIBConnectionContext extends ConnectionContext {
+      private final AdminClient      adminClient;
+      private final String           busName;
+      private final JMXMetricsHelper jmx;
+
+      private WASSIBConnectionContext(Connection jmsConnection, AdminClient adminClient, String busName) {
+         super(jmsConnection);
+         this.adminClient = adminClient;
+         this.busName = busName;
+
+         // AdminClient is not an MBeanServerConnection
+         this.jmx = new JMXMetricsHelper("WASSIB", new MBeanAccessor() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Set<ObjectName> queryNames(ObjectName pattern) throws Exception {
+               return adminClient.queryNames(pattern, null);
+            }
+
+            @Override
+            public AttributeList getAttributes(ObjectName objectName, String[] attributeNames) throws Exception {
+               return adminClient.getAttributes(objectName, attributeNames);
+            }
+         }, JMX_TIMEOUT);
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
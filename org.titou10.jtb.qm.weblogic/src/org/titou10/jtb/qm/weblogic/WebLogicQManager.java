@@ -19,20 +19,21 @@ package org.titou10.jtb.qm.weblogic;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
-import javax.management.Attribute;
-import javax.management.AttributeList;
 import javax.management.MBeanServerConnection;
 import javax.management.ObjectName;
 import javax.management.remote.JMXConnector;
@@ -45,11 +46,14 @@ import javax.naming.directory.InitialDirContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
+import org.titou10.jtb.jms.qm.JMXMetricsHelper;
 import org.titou10.jtb.jms.qm.QManager;
 import org.titou10.jtb.jms.qm.QManagerProperty;
 import org.titou10.jtb.jms.qm.QueueData;
+import org.titou10.jtb.jms.qm.QueueStatistics;
 import org.titou10.jtb.jms.qm.TopicData;
 
 /**
@@ -61,64 +65,61 @@ import org.titou10.jtb.jms.qm.TopicData;
  */
 public class WebLogicQManager extends QManager {
 
-   private static final Logger                          log                              = LoggerFactory
-            .getLogger(WebLogicQManager.class);
+   private static final Logger    log                              = LoggerFactory.getLogger(WebLogicQManager.class);
 
    // service:jmx:t3://localhost:7001/jndi/weblogic.management.mbeanservers.domainruntime
    // service:jmx:t3s://localhost:7001/jndi/weblogic.management.mbeanservers.domainruntime
    // private static final String JMX_URL = "service:jmx:%s://%s:%d/jndi/%s";
-   private static final String                          PROVIDER_URL                     = "%s://%s:%d";
-   private static final String                          WLS_DEFAULT_CONNECTION_FACTORY   = "weblogic.jms.ConnectionFactory";
-
-   private static final String                          ON_JMSRUNTIME                    = "com.bea:Type=ServerRuntime,Name=%s";
-
-   private static final String[]                        WLS_DESTINATION_ATTRIBUTES_NAMES = { "BytesCurrentCount", "BytesHighCount",
-                                                                                             "BytesPendingCount",
-                                                                                             "BytesReceivedCount",
-                                                                                             "BytesThresholdTime",
-                                                                                             "CachingDisabled",
-                                                                                             "ConsumersCurrentCount",
-                                                                                             "ConsumersHighCount",
-                                                                                             "ConsumersTotalCount",
-                                                                                             "ConsumptionPaused",
-                                                                                             "ConsumptionPausedState",
-                                                                                             "DestinationType", "InsertionPaused",
-                                                                                             "InsertionPausedState",
-                                                                                             "MessagesCurrentCount",
-                                                                                             "MessagesDeletedCurrentCount",
-                                                                                             "MessagesHighCount",
-                                                                                             "MessagesMovedCurrentCount",
-                                                                                             "MessagesPendingCount",
-                                                                                             "MessagesReceivedCount",
-                                                                                             "MessagesThresholdTime", "Paused",
-                                                                                             "ProductionPaused",
-                                                                                             "ProductionPausedState", "Registered",
-                                                                                             "State" };
-
-   private static final String                          P_JMX_CONNECTION_PROTOCOL        = "JMX connection protocol";
+   private static final String    PROVIDER_URL                     = "%s://%s:%d";
+   private static final String    WLS_DEFAULT_CONNECTION_FACTORY   = "weblogic.jms.ConnectionFactory";
+
+   private static final String    ON_JMSRUNTIME                    = "com.bea:Type=ServerRuntime,Name=%s";
+
+   private static final String[]  WLS_DESTINATION_ATTRIBUTES_NAMES = { "BytesCurrentCount", "BytesHighCount",
+                                                                       "BytesPendingCount",
+                                                                       "BytesReceivedCount",
+                                                                       "BytesThresholdTime",
+                                                                       "CachingDisabled",
+                                                                       "ConsumersCurrentCount",
+                                                                       "ConsumersHighCount",
+                                                                       "ConsumersTotalCount",
+                                                                       "ConsumptionPaused",
+                                                                       "ConsumptionPausedState",
+                                                                       "DestinationType", "InsertionPaused",
+                                                                       "InsertionPausedState",
+                                                                       "MessagesCurrentCount",
+                                                                       "MessagesDeletedCurrentCount",
+                                                                       "MessagesHighCount",
+                                                                       "MessagesMovedCurrentCount",
+                                                                       "MessagesPendingCount",
+                                                                       "MessagesReceivedCount",
+                                                                       "MessagesThresholdTime", "Paused",
+                                                                       "ProductionPaused",
+                                                                       "ProductionPausedState", "Registered",
+                                                                       "State" };
+
+   private static final String[]  WLS_DESTINATION_TYPE             = { "DestinationType" };
+   private static final String[]  WLS_QUEUE_STATISTICS_ATTRIBUTES  = { "MessagesCurrentCount", "ConsumersCurrentCount",
+                                                                       "MessagesPendingCount", "MessagesHighCount",
+                                                                       "MessagesReceivedCount" };
+   private static final String[]  WLS_JMS_SERVER_DESTINATIONS      = { "Destinations" };
+
+   private static final long      JMX_TIMEOUT                      = 30000;
+
+   private static final String    P_JMX_CONNECTION_PROTOCOL        = "JMX connection protocol";
    // private static final String P_JMX_MBEAN_SERVER_NAME = "JMX MBean Server Name";
-   private static final String                          P_SERVER_RUNTIME_NAME            = "Server Runtime Name";
-   private static final String                          P_JNDI_CONNECTION_PROTOCOL       = "JNDI connection protocol";
+   private static final String    P_SERVER_RUNTIME_NAME            = "Server Runtime Name";
+   private static final String    P_JNDI_CONNECTION_PROTOCOL       = "JNDI connection protocol";
 
-   private static final String                          P_TRUST_STORE                    = "javax.net.ssl.trustStore";
-   private static final String                          P_TRUST_STORE_PASSWORD           = "javax.net.ssl.trustStorePassword";
-   private static final String                          P_TRUST_STORE_TYPE               = "javax.net.ssl.trustStoreType";
+   private static final String    P_TRUST_STORE                    = "javax.net.ssl.trustStore";
+   private static final String    P_TRUST_STORE_PASSWORD           = "javax.net.ssl.trustStorePassword";
+   private static final String    P_TRUST_STORE_TYPE               = "javax.net.ssl.trustStoreType";
 
-   private static final String                          CR                               = "\n";
+   private static final String    CR                               = "\n";
 
-   private static final String                          HELP_TEXT;
+   private static final String    HELP_TEXT;
 
-   private List<QManagerProperty>                       parameters                       = new ArrayList<QManagerProperty>();
-
-   private final Map<Integer, JMXConnector>             jmxcs                            = new HashMap<>();
-   private final Map<Integer, MBeanServerConnection>    mbscs                            = new HashMap<>();
-   private final Map<Integer, ObjectName>               serversRuntimeON                 = new HashMap<>();
-
-   // Keep JMX ObjectName corresponding to the destinationName because the ON must be fully qualified to work
-   // ie including Location=...
-   // ObjectName :
-   // com.bea:ServerRuntime=AdminServer,Name=SystemModule-0!Queue-2,Type=JMSDestinationRuntime,JMSServerRuntime=JMSServer-0
-   private final Map<Integer, Map<Integer, ObjectName>> destinationONPerConnection       = new HashMap<>();
+   private List<QManagerProperty> parameters                       = new ArrayList<QManagerProperty>();
 
    // ------------------------
    // Constructor
@@ -162,7 +163,7 @@ public class WebLogicQManager extends QManager {
    // ------------------------
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Save System properties
@@ -250,26 +251,23 @@ public class WebLogicQManager extends QManager {
 
          log.info("connected to {}", sessionDef.getName());
 
-         // Store per connection related data
-         Integer hash = jmsConnection.hashCode();
-         jmxcs.put(hash, jmxc);
-         mbscs.put(hash, mbsc);
-         serversRuntimeON.put(hash, new ObjectName(String.format(ON_JMSRUNTIME, serverRuntimeName)));
-         destinationONPerConnection.put(hash, new HashMap<>());
-
-         return jmsConnection;
+         return new WebLogicConnectionContext(jmsConnection,
+                                              jmxc,
+                                              mbsc,
+                                              new ObjectName(String.format(ON_JMSRUNTIME, serverRuntimeName)));
       } finally {
          restoreSystemProperties();
       }
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
 
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
-      Map<Integer, ObjectName> destinationObjectNames = destinationONPerConnection.get(hash);
-      ObjectName serverRuntimeON = serversRuntimeON.get(hash);
+      WebLogicConnectionContext ctx = (WebLogicConnectionContext) connectionContext;
+      MBeanServerConnection mbsc = ctx.mbsc;
+      Map<String, ObjectName> destinationObjectNames = ctx.destinationObjectNames;
+      ObjectName serverRuntimeON = ctx.serverRuntimeON;
+      JMXMetricsHelper jmx = ctx.jmx;
 
       // Discover Queues and Topics in all the JMSServers attached to the Server
 
@@ -281,39 +279,83 @@ public class WebLogicQManager extends QManager {
       ObjectName jmsRuntimeON = (ObjectName) mbsc.getAttribute(serverRuntimeON, "JMSRuntime");
       ObjectName[] jmsServersON = (ObjectName[]) mbsc.getAttribute(jmsRuntimeON, "JMSServers");
 
-      // Iterate on each JMSServer and get the attached destinations
+      // Get the destinations attached to each JMSServer, in parallel
+      Map<ObjectName, String> jmsServerPatterns = new HashMap<>(jmsServersON.length);
+      for (ObjectName jmsServerON : jmsServersON) {
+         jmsServerPatterns.put(jmsServerON, jmsServerON.getCanonicalName());
+      }
+      Map<String, ObjectName> discoveredObjectNames = new HashMap<>();
+      Map<ObjectName, Map<String, Object>> jmsServerValues = jmx.getAttributes(jmsServerPatterns, WLS_JMS_SERVER_DESTINATIONS);
       for (ObjectName jmsServerON : jmsServersON) {
-         ObjectName[] destinationsON = (ObjectName[]) mbsc.getAttribute(jmsServerON, "Destinations");
+         Map<String, Object> values = jmsServerValues.get(jmsServerON);
+         if (values == null) {
+            log.warn("Destinations of JMSServer {} could not be read. Ignoring it", jmsServerON);
+            continue;
+         }
          String jmsServerName = jmsServerON.getKeyProperty("Name");
-         for (ObjectName onDestination : destinationsON) {
+         for (ObjectName onDestination : (ObjectName[]) values.get("Destinations")) {
             log.debug("q={}", onDestination);
-
             String destinationName = onDestination.getKeyProperty("Name");
-            String jmsDestinationName = buildJMSDestinationName(jmsServerName, destinationName);
+            discoveredObjectNames.put(buildJMSDestinationName(jmsServerName, destinationName), onDestination);
+         }
+      }
 
-            String type = (String) mbsc.getAttribute(onDestination, "DestinationType");
-            if (type.equals("Queue")) {
-               listQueueData.add(new QueueData(jmsDestinationName));
-            } else {
-               listTopicData.add(new TopicData(jmsDestinationName));
-            }
+      // The ObjectNames of the destinations that do not exist anymore are forgotten
+      jmx.clearObjectNames();
+      for (ObjectName onDestination : discoveredObjectNames.values()) {
+         jmx.cacheObjectName(onDestination.getCanonicalName(), onDestination);
+      }
 
-            destinationObjectNames.put(jmsDestinationName.hashCode(), onDestination);
+      // The type of a destination never changes: only read it for destinations not seen before, in parallel
+      Map<ObjectName, String> destinationTypes = ctx.destinationTypes;
+      Map<ObjectName, String> typePatterns = new HashMap<>();
+      for (ObjectName onDestination : discoveredObjectNames.values()) {
+         if (!destinationTypes.containsKey(onDestination)) {
+            typePatterns.put(onDestination, onDestination.getCanonicalName());
+         }
+      }
+      for (Entry<ObjectName, Map<String, Object>> e : jmx.getAttributes(typePatterns, WLS_DESTINATION_TYPE).entrySet()) {
+         String type = (String) e.getValue().get("DestinationType");
+         if (type != null) {
+            destinationTypes.put(e.getKey(), type);
          }
       }
 
+      for (Entry<String, ObjectName> e : discoveredObjectNames.entrySet()) {
+         String type = destinationTypes.get(e.getValue());
+         if (type == null) {
+            // The bulk read failed for this destination. Read its type directly
+            Map<String, Object> values = jmx.getAttributes(e.getValue().getCanonicalName(), WLS_DESTINATION_TYPE);
+            type = values == null ? null : (String) values.get("DestinationType");
+            if (type == null) {
+               log.warn("Type of destination '{}' could not be read. Ignoring it", e.getKey());
+               continue;
+            }
+            destinationTypes.put(e.getValue(), type);
+         }
+         if (type.equals("Queue")) {
+            listQueueData.add(new QueueData(e.getKey()));
+         } else {
+            listTopicData.add(new TopicData(e.getKey()));
+         }
+      }
+      destinationObjectNames.keySet().retainAll(discoveredObjectNames.keySet());
+      destinationObjectNames.putAll(discoveredObjectNames);
+      destinationTypes.keySet().retainAll(discoveredObjectNames.values());
+
       return new DestinationData(listQueueData, listTopicData);
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext.getJmsConnection());
 
-      Integer hash = jmsConnection.hashCode();
-      JMXConnector jmxc = jmxcs.get(hash);
+      WebLogicConnectionContext ctx = (WebLogicConnectionContext) connectionContext;
+      JMXConnector jmxc = ctx.jmxc;
 
+      ctx.jmx.close();
       try {
-         jmsConnection.close();
+         connectionContext.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
       }
@@ -324,37 +366,66 @@ public class WebLogicQManager extends QManager {
          } catch (IOException e) {
             log.warn("Exception occured while closing JMXConnector. Ignore it. Msg={}", e.getMessage());
          }
-         jmxcs.remove(hash);
-         mbscs.remove(hash);
-         destinationONPerConnection.remove(hash);
-         serversRuntimeON.remove(hash);
       }
    }
 
    @Override
-   public Integer getQueueDepth(Connection jmsConnection, String queueName) {
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
-      Map<Integer, ObjectName> destinationObjectNames = destinationONPerConnection.get(hash);
+   public Integer getQueueDepth(ConnectionContext connectionContext, String queueName) {
+      WebLogicConnectionContext ctx = (WebLogicConnectionContext) connectionContext;
 
-      Integer depth = null;
+      ObjectName on = ctx.destinationObjectNames.get(queueName);
+      if (on == null) {
+         return null;
+      }
       try {
-         Long mcc = (Long) mbsc.getAttribute(destinationObjectNames.get(queueName.hashCode()), "MessagesCurrentCount");
-         return mcc.intValue();
+         Map<String, Object> values = ctx.jmx.getAttributes(on.getCanonicalName(), "MessagesCurrentCount");
+         if (values != null) {
+            return toInteger(values.get("MessagesCurrentCount"));
+         }
       } catch (Exception e) {
          log.error("Exception when reading queue depth. Ignoring", e);
       }
-      return depth;
+      return null;
    }
 
    @Override
-   public Map<String, Object> getQueueInformation(Connection jmsConnection, String queueName) {
-      return getDestinationInformation(jmsConnection, queueName);
+   public Map<String, QueueStatistics> getQueuesStatistics(ConnectionContext connectionContext, Collection<String> queueNames) {
+      WebLogicConnectionContext ctx = (WebLogicConnectionContext) connectionContext;
+
+      // One getAttributes call per queue, in parallel
+      Map<String, String> patterns = new HashMap<>(queueNames.size());
+      for (String queueName : queueNames) {
+         ObjectName on = ctx.destinationObjectNames.get(queueName);
+         if (on != null) {
+            patterns.put(queueName, on.getCanonicalName());
+         }
+      }
+
+      Map<String, QueueStatistics> statistics = new HashMap<>(patterns.size());
+      for (Entry<String, Map<String, Object>> e : ctx.jmx.getAttributes(patterns, WLS_QUEUE_STATISTICS_ATTRIBUTES).entrySet()) {
+         Map<String, Object> values = e.getValue();
+         Map<String, Object> metrics = new HashMap<>(4);
+         metrics.put("Messages Pending", values.get("MessagesPendingCount"));
+         metrics.put("Messages High", values.get("MessagesHighCount"));
+         metrics.put("Messages Received", values.get("MessagesReceivedCount"));
+         statistics.put(e.getKey(),
+                        new QueueStatistics(toInteger(values.get("MessagesCurrentCount")),
+                                            null,
+                                            toInteger(values.get("ConsumersCurrentCount")),
+                                            null,
+                                            metrics));
+      }
+      return statistics;
    }
 
    @Override
-   public Map<String, Object> getTopicInformation(Connection jmsConnection, String topicName) {
-      return getDestinationInformation(jmsConnection, topicName);
+   public Map<String, Object> getQueueInformation(ConnectionContext connectionContext, String queueName) {
+      return getDestinationInformation(connectionContext, queueName);
+   }
+
+   @Override
+   public Map<String, Object> getTopicInformation(ConnectionContext connectionContext, String topicName) {
+      return getDestinationInformation(connectionContext, topicName);
    }
 
    @Override
@@ -404,19 +475,19 @@ public class WebLogicQManager extends QManager {
    // Utilities
    // ---------
 
-   private Map<String, Object> getDestinationInformation(Connection jmsConnection, String destinationName) {
-      Integer hash = jmsConnection.hashCode();
-      MBeanServerConnection mbsc = mbscs.get(hash);
-      Map<Integer, ObjectName> destinationObjectNames = destinationONPerConnection.get(hash);
+   private Map<String, Object> getDestinationInformation(ConnectionContext connectionContext, String destinationName) {
+      WebLogicConnectionContext ctx = (WebLogicConnectionContext) connectionContext;
 
       SortedMap<String, Object> properties = new TreeMap<>();
 
+      ObjectName on = ctx.destinationObjectNames.get(destinationName);
+      if (on == null) {
+         return properties;
+      }
       try {
-         AttributeList attributes = mbsc.getAttributes(destinationObjectNames.get(destinationName.hashCode()),
-                                                       WLS_DESTINATION_ATTRIBUTES_NAMES);
-         for (Object object : attributes) {
-            Attribute a = (Attribute) object;
-            properties.put(a.getName(), a.getValue());
+         Map<String, Object> values = ctx.jmx.getAttributes(on.getCanonicalName(), WLS_DESTINATION_ATTRIBUTES_NAMES);
+         if (values != null) {
+            properties.putAll(values);
          }
       } catch (Exception e) {
          log.error("Exception when reading destination attributes. Ignoring", e);
@@ -425,6 +496,10 @@ public class WebLogicQManager extends QManager {
       return properties;
    }
 
+   private Integer toInteger(Object o) {
+      return o instanceof Number ? ((Number) o).intValue() : null;
+   }
+
    private String buildJMSDestinationName(String jmsServerName, String destinationName) {
       if (destinationName == null) {
          return null;
@@ -432,6 +507,34 @@ public class WebLogicQManager extends QManager {
       return jmsServerName + "/" + destinationName;
    }
 
+   // Per connection data
+   private static final class WebLogicConnectionContext extends ConnectionContext {
+      private final JMXConnector            jmxc;
+      private final MBeanServerConnection   mbsc;
+      private final ObjectName              serverRuntimeON;
+      private final JMXMetricsHelper        jmx;
+
+      // Keep JMX ObjectName corresponding to the destinationName because the ON must be fully qualified to work
+      // ie including Location=...
+      // ObjectName :
+      // com.bea:ServerRuntime=AdminServer,Name=SystemModule-0!Queue-2,Type=JMSDestinationRuntime,JMSServerRuntime=JMSServer-0
+      private final Map<String, ObjectName> destinationObjectNames = new ConcurrentHashMap<>();
+
+      // DestinationType of the destinations already discovered
+      private final Map<ObjectName, String> destinationTypes       = new ConcurrentHashMap<>();
+
+      private WebLogicConnectionContext(Connection jmsConnection,
+                                        JMXConnector jmxc,
+                                        MBeanServerConnection mbsc,
+                                        ObjectName serverRuntimeON) {
+         super(jmsConnection);
+         this.jmxc = jmxc;
+         this.mbsc = mbsc;
+         this.serverRuntimeON = serverRuntimeON;
+         this.jmx = new JMXMetricsHelper("WebLogic", mbsc, JMX_TIMEOUT);
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
@@ -17,7 +17,6 @@
 package org.titou10.jtb.qm.websphere;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedList;
@@ -41,6 +40,7 @@ import javax.naming.directory.InitialDirContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.config.gen.SessionDef;
+import org.titou10.jtb.jms.qm.ConnectionContext;
 import org.titou10.jtb.jms.qm.DestinationData;
 import org.titou10.jtb.jms.qm.JMSPropertyKind;
 import org.titou10.jtb.jms.qm.QManager;
@@ -72,8 +72,6 @@ public class WASQManager extends QManager {
 
    private List<QManagerProperty>          parameters         = new ArrayList<QManagerProperty>();
 
-   private final Map<Integer, Context>     jndiContexts       = new HashMap<>();
-
    public WASQManager() {
       log.debug("Instantiate WASQManager");
 
@@ -104,7 +102,7 @@ public class WASQManager extends QManager {
    }
 
    @Override
-   public Connection connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
+   public ConnectionContext connect(SessionDef sessionDef, boolean showSystemObjects, String clientID) throws Exception {
       log.info("connecting to {} - {}", sessionDef.getName(), clientID);
 
       // Save System properties
@@ -148,44 +146,39 @@ public class WASQManager extends QManager {
 
          log.info("connected to {}", sessionDef.getName());
 
-         // Store per connection related data
-         Integer hash = jmsConnection.hashCode();
-         jndiContexts.put(hash, ctx);
-
-         return jmsConnection;
+         return new WASConnectionContext(jmsConnection, ctx);
       } finally {
          restoreSystemProperties();
       }
    }
 
    @Override
-   public DestinationData discoverDestinations(Connection jmsConnection, boolean showSystemObjects) throws Exception {
-      log.debug("discoverDestinations : {} - {}", jmsConnection, showSystemObjects);
+   public DestinationData discoverDestinations(ConnectionContext connectionContext, boolean showSystemObjects) throws Exception {
+      log.debug("discoverDestinations : {} - {}", connectionContext.getJmsConnection(), showSystemObjects);
 
-      Integer hash = jmsConnection.hashCode();
-      Context ctx = jndiContexts.get(hash);
+      Context ctx = ((WASConnectionContext) connectionContext).jndiContext;
 
       // Build Queues/Topics lists
       SortedSet<QueueData> listQueueData = new TreeSet<>();
       SortedSet<TopicData> listTopicData = new TreeSet<>();
 
-      listContext(null, ctx, new HashSet<String>(), listQueueData, listTopicData);
+      // JNDI contexts are not thread safe
+      synchronized (ctx) {
+         listContext(null, ctx, new HashSet<String>(), listQueueData, listTopicData);
+      }
 
       return new DestinationData(listQueueData, listTopicData);
    }
 
    @Override
-   public void close(Connection jmsConnection) throws JMSException {
-      log.debug("close connection {}", jmsConnection);
+   public void close(ConnectionContext connectionContext) throws JMSException {
+      log.debug("close connection {}", connectionContext.getJmsConnection());
 
       try {
-         jmsConnection.close();
+         connectionContext.getJmsConnection().close();
       } catch (Exception e) {
          log.warn("Exception occured while closing connection. Ignore it. Msg={}", e.getMessage());
       }
-
-      Integer hash = jmsConnection.hashCode();
-      jndiContexts.remove(hash);
    }
 
    @Override
@@ -280,6 +273,16 @@ public class WASQManager extends QManager {
       }
    }
 
+   // Per connection data
+   private static final class WASConnectionContext extends ConnectionContext {
+      private final Context jndiContext;
+
+      private WASConnectionContext(Connection jmsConnection, Context jndiContext) {
+         super(jmsConnection);
+         this.jndiContext = jndiContext;
+      }
+   }
+
    // ------------------------
    // Standard Getters/Setters
    // ------------------------
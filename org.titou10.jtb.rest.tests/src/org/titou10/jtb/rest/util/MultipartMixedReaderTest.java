@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.rest.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests of MultipartMixedReader
+ *
+ * @author Denis Forveille
+ *
+ */
+public class MultipartMixedReaderTest {
+
+   private static final String BOUNDARY = "jtb-1234";
+
+   @Test
+   public void readsThePartsAndTheirHeaders() throws IOException {
+      String body = "preamble\r\n" + "--jtb-1234\r\n" + "Content-Type: text/plain\r\n" + "JMS-Property: a=1\r\n"
+                    + "JMS-Property: b=2\r\n" + "\r\n" + "line 1\r\nline 2\r\n" + "--jtb-1234  \r\n" + "\r\n"
+                    + "second" + "\r\n--jtb-1234--\r\n" + "epilogue";
+      MultipartMixedReader reader = new MultipartMixedReader(stream(body), BOUNDARY);
+
+      assertTrue(reader.nextPart());
+      assertEquals(Collections.singletonList("text/plain"), reader.getPartHeaders().get("content-type"));
+      assertEquals(Arrays.asList("a=1", "b=2"), reader.getPartHeaders().get("JMS-PROPERTY"));
+      assertEquals("line 1\r\nline 2", read(reader.getPartBody()));
+
+      // Transport padding after the boundary, no headers
+      assertTrue(reader.nextPart());
+      assertTrue(reader.getPartHeaders().isEmpty());
+      assertEquals("second", read(reader.getPartBody()));
+
+      assertFalse(reader.nextPart());
+      assertFalse(reader.nextPart());
+   }
+
+   @Test
+   public void skipsWhatHasNotBeenReadFromAPart() throws IOException {
+      String body = "--jtb-1234\r\n\r\nfirst part, not read\r\n--jtb-1234\r\n\r\nsecond\r\n--jtb-1234--";
+      MultipartMixedReader reader = new MultipartMixedReader(stream(body), BOUNDARY);
+
+      assertTrue(reader.nextPart());
+      assertEquals('f', reader.getPartBody().read());
+      assertTrue(reader.nextPart());
+      assertEquals("second", read(reader.getPartBody()));
+      assertFalse(reader.nextPart());
+   }
+
+   @Test
+   public void keepsWhatOnlyLooksLikeADelimiter() throws IOException {
+      String payload = "a\r\n--jtb-12\r\n--jtb-123x\r\n-";
+      String body = "--jtb-1234\r\n\r\n" + payload + "\r\n--jtb-1234--\r\n";
+      MultipartMixedReader reader = new MultipartMixedReader(stream(body), BOUNDARY);
+
+      assertTrue(reader.nextPart());
+      assertEquals(payload, read(reader.getPartBody()));
+      assertFalse(reader.nextPart());
+   }
+
+   @Test
+   public void readsABodyWithoutPart() throws IOException {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      RawMessageCodec.writeCloseDelimiter(baos, BOUNDARY);
+
+      MultipartMixedReader reader = new MultipartMixedReader(new ByteArrayInputStream(baos.toByteArray()), BOUNDARY);
+
+      assertFalse(reader.nextPart());
+   }
+
+   @Test(expected = EOFException.class)
+   public void failsOnATruncatedPart() throws IOException {
+      MultipartMixedReader reader = new MultipartMixedReader(stream("--jtb-1234\r\n\r\ntruncated"), BOUNDARY);
+
+      assertTrue(reader.nextPart());
+      read(reader.getPartBody());
+   }
+
+   @Test(expected = EOFException.class)
+   public void failsWithoutCloseDelimiter() throws IOException {
+      MultipartMixedReader reader = new MultipartMixedReader(stream("--jtb-1234\r\n\r\npart\r\n--jtb-1234"), BOUNDARY);
+
+      assertTrue(reader.nextPart());
+      reader.nextPart();
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private static InputStream stream(String s) {
+      return new ByteArrayInputStream(s.getBytes(StandardCharsets.ISO_8859_1));
+   }
+
+   private static String read(InputStream is) throws IOException {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      byte[] b = new byte[3];
+      int n;
+      while ((n = is.read(b)) != -1) {
+         baos.write(b, 0, n);
+      }
+      return new String(baos.toByteArray(), StandardCharsets.ISO_8859_1);
+   }
+}
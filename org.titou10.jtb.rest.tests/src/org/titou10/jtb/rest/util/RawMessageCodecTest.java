@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.rest.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.titou10.jtb.connector.transport.MessageInput;
+import org.titou10.jtb.connector.transport.MessageInput.MessageInputType;
+import org.titou10.jtb.connector.transport.RawMessageAttributes;
+import org.titou10.jtb.jms.util.JTBDeliveryMode;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests of RawMessageCodec: HTTP headers <-> message attributes and properties, map payloads
+ *
+ * @author Denis Forveille
+ *
+ */
+public class RawMessageCodecTest {
+
+   private final ObjectMapper objectMapper = new ObjectMapper();
+
+   @Test
+   public void encodesTheCharactersThatCanNotBePartOfAHeaderValue() {
+      String value = "a,b%c=dé\n";
+
+      String encoded = RawMessageCodec.encode(value, false);
+      assertEquals("a%2Cb%25c=d%C3%A9%0A", encoded);
+      assertEquals(value, RawMessageCodec.decode(encoded));
+
+      // '=' separates the name from the value of a property
+      assertEquals("a%3Db", RawMessageCodec.encode("a=b", true));
+
+      // Nothing to encode: same instance
+      String plain = "plain value";
+      assertSame(plain, RawMessageCodec.encode(plain, false));
+      assertSame(plain, RawMessageCodec.decode(plain));
+   }
+
+   @Test
+   public void buildsTheMessageInputFromTheHeaders() {
+      Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      headers.put("jtb-messagetype", Collections.singletonList("text"));
+      headers.put(RawMessageAttributes.JMS_PRIORITY, Collections.singletonList(" 7 "));
+      headers.put(RawMessageAttributes.JMS_DELIVERY_MODE, Collections.singletonList("non_persistent"));
+      headers.put(RawMessageAttributes.JMS_TYPE, Collections.singletonList("t%2C1"));
+      // Properties merged in one header by a proxy, or sent as separate headers
+      headers.put(RawMessageCodec.H_PROPERTY, Arrays.asList("p1=v1, p%3D2=a%2Cb", "p3=x=y"));
+
+      MessageInput messageInput = RawMessageCodec.toMessageInput(headers);
+
+      assertEquals(MessageInputType.TEXT, messageInput.getType());
+      assertEquals(Integer.valueOf(7), messageInput.getPriority());
+      assertEquals(JTBDeliveryMode.NON_PERSISTENT, messageInput.getDeliveryMode());
+      assertEquals("t,1", messageInput.getJmsType());
+      assertEquals(3, messageInput.getProperties().size());
+      assertEquals("v1", messageInput.getProperties().get("p1"));
+      assertEquals("a,b", messageInput.getProperties().get("p=2"));
+      assertEquals("x=y", messageInput.getProperties().get("p3"));
+   }
+
+   @Test
+   public void defaultsToABytesMessage() {
+      MessageInput messageInput = RawMessageCodec.toMessageInput(Collections.emptyMap());
+
+      assertEquals(MessageInputType.BYTES, messageInput.getType());
+      assertNull(messageInput.getProperties());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void rejectsAPropertyWithoutValue() {
+      RawMessageCodec.toMessageInput(Collections.singletonMap(RawMessageCodec.H_PROPERTY, Collections.singletonList("p1")));
+   }
+
+   @Test
+   public void readsAMapPayloadWrittenAsJSON() throws IOException {
+      Map<String, Object> payloadMap = new LinkedHashMap<>();
+      payloadMap.put("s", "text");
+      payloadMap.put("i", 42);
+      payloadMap.put("b", Boolean.TRUE);
+      payloadMap.put("n", null);
+      payloadMap.put("l", Arrays.asList(1, 2));
+
+      // Same serialization as RawMessageCodec.writePayload
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      objectMapper.writeValue(baos, payloadMap);
+
+      MessageInput messageInput = mapMessageInput();
+      InputStream payload = RawMessageCodec.readPayload(messageInput, new ByteArrayInputStream(baos.toByteArray()), objectMapper);
+
+      assertNull(payload);
+      Map<String, String> read = messageInput.getPayloadMap();
+      assertEquals(4, read.size());
+      assertEquals("text", read.get("s"));
+      assertEquals("42", read.get("i"));
+      assertEquals("true", read.get("b"));
+      assertEquals("[1,2]", read.get("l"));
+      assertFalse(read.containsKey("n"));
+   }
+
+   @Test
+   public void readsAnEmptyMapPayloadAsNoPayload() throws IOException {
+      MessageInput messageInput = mapMessageInput();
+
+      assertNull(RawMessageCodec.readPayload(messageInput, new ByteArrayInputStream(new byte[0]), objectMapper));
+      assertNull(messageInput.getPayloadMap());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void rejectsAMapPayloadThatIsNotAJSONObject() throws IOException {
+      RawMessageCodec.readPayload(mapMessageInput(), stream("[1,2]"), objectMapper);
+   }
+
+   @Test(expected = IOException.class)
+   public void rejectsAMapPayloadThatIsNotJSON() throws IOException {
+      RawMessageCodec.readPayload(mapMessageInput(), stream("k=v"), objectMapper);
+   }
+
+   @Test
+   public void passesTheOtherPayloadsThrough() throws IOException {
+      MessageInput messageInput = new MessageInput();
+      messageInput.setType(MessageInputType.TEXT);
+      InputStream is = stream("{\"k\":\"v\"}");
+
+      assertSame(is, RawMessageCodec.readPayload(messageInput, is, objectMapper));
+      assertNull(messageInput.getPayloadMap());
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private static MessageInput mapMessageInput() {
+      MessageInput messageInput = new MessageInput();
+      messageInput.setType(MessageInputType.MAP);
+      return messageInput;
+   }
+
+   private static InputStream stream(String s) {
+      return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+   }
+}
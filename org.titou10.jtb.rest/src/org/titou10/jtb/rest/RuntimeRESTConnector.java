@@ -61,8 +61,9 @@ public class RuntimeRESTConnector {
       servletCtxHandler = new ServletContextHandler();
       servletCtxHandler.addServlet(servletHolder, "/rest/*");
 
+      // Always start the listener when running headless, this is the only thing the application is here for
       boolean autostart = ps.getBoolean(Constants.PREF_REST_AUTOSTART);
-      if (autostart) {
+      if (autostart || eConfigManager.isHeadless()) {
          start();
       }
    }
@@ -16,7 +16,10 @@
  */
 package org.titou10.jtb.rest.service;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.UUID;
 
 import javax.inject.Singleton;
 import javax.ws.rs.Consumes;
@@ -29,8 +32,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +52,10 @@ import org.titou10.jtb.connector.ex.UnknownTemplateException;
 import org.titou10.jtb.connector.transport.MessageInput;
 import org.titou10.jtb.connector.transport.MessageOutput;
 import org.titou10.jtb.rest.util.Constants;
+import org.titou10.jtb.rest.util.MultipartMixedReader;
+import org.titou10.jtb.rest.util.RawMessageCodec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * 
@@ -56,7 +68,11 @@ import org.titou10.jtb.rest.util.Constants;
 @Singleton
 public class MessageServices {
 
-   private static final Logger      log = LoggerFactory.getLogger(MessageServices.class);
+   private static final Logger      log          = LoggerFactory.getLogger(MessageServices.class);
+
+   private static final String      BINARY_QS    = ";qs=0.5";
+
+   private final ObjectMapper       objectMapper = new ObjectMapper();
 
    private ExternalConnectorManager eConfigManager;
 
@@ -95,6 +111,82 @@ public class MessageServices {
       }
    }
 
+   // -----------------------------------------------------------------------
+   // Browse the first message (or the first message matching the selector) from a Session:Queue, as raw bytes
+   // GET /rest/message/<sessionName>/<destinationName>?selector=s
+   // Accept: application/octet-stream
+   // JMS headers and properties are returned as HTTP headers
+   // -----------------------------------------------------------------------
+
+   @GET
+   @Path("/{" + Constants.P_SESSION_NAME + "}/{" + Constants.P_DESTINATION_NAME + "}")
+   @Produces(MediaType.APPLICATION_OCTET_STREAM + BINARY_QS)
+   public Response browseMessageRaw(@PathParam(Constants.P_SESSION_NAME) String sessionName,
+                                    @PathParam(Constants.P_DESTINATION_NAME) String destinationName,
+                                    @QueryParam(Constants.P_SELECTOR) String selector) {
+      log.debug("browseMessageRaw. sessionName={} destinationName={} selector={}", sessionName, destinationName, selector);
+
+      try {
+
+         List<MessageOutput> messages = eConfigManager.browseMessages(sessionName, destinationName, 1, selector);
+         if (messages.isEmpty()) {
+            return Response.noContent().build();
+         }
+
+         MessageOutput message = messages.get(0);
+         StreamingOutput so = os -> RawMessageCodec.writePayload(message, os, objectMapper);
+         ResponseBuilder rb = Response.ok(so, MediaType.APPLICATION_OCTET_STREAM_TYPE);
+         RawMessageCodec.addHeaders(rb, message);
+         return rb.build();
+
+      } catch (ExecutionException e) {
+         return Response.serverError().build();
+      } catch (UnknownSessionException | UnknownDestinationException | UnknownQueueException e) {
+         return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+      }
+   }
+
+   // -----------------------------------------------------------------------
+   // Browse Messages from a Session:Queue, as a multipart/mixed body with one part per message
+   // GET /rest/message/<sessionName>/<destinationName>?&limit=n&selector=s
+   // Accept: multipart/mixed
+   // defaults: limit=200
+   // Messages are written as they are browsed. An empty queue gives a body with the close delimiter only
+   // -----------------------------------------------------------------------
+
+   @GET
+   @Path("/{" + Constants.P_SESSION_NAME + "}/{" + Constants.P_DESTINATION_NAME + "}")
+   @Produces(Constants.MULTIPART_MIXED + BINARY_QS)
+   public Response browseMessagesMultipart(@PathParam(Constants.P_SESSION_NAME) String sessionName,
+                                           @PathParam(Constants.P_DESTINATION_NAME) String destinationName,
+                                           @DefaultValue("200") @QueryParam(Constants.P_LIMIT) int limit,
+                                           @QueryParam(Constants.P_SELECTOR) String selector) {
+      log.debug("browseMessagesMultipart. sessionName={} destinationName={} limit={} selector={}",
+                sessionName,
+                destinationName,
+                limit,
+                selector);
+
+      // The session and the queue are checked before the first part is written, ie before the response is committed
+      String boundary = "jtb-" + UUID.randomUUID().toString();
+      StreamingOutput so = os -> {
+         try {
+            int n = eConfigManager.browseMessages(sessionName,
+                                                  destinationName,
+                                                  limit,
+                                                  selector,
+                                                  message -> RawMessageCodec.writePart(os, boundary, message, objectMapper));
+            log.debug("nb messages : {}", n);
+            RawMessageCodec.writeCloseDelimiter(os, boundary);
+         } catch (ExecutionException e) {
+            throw new WebApplicationException(e, Response.serverError().build());
+         } catch (UnknownSessionException | UnknownDestinationException | UnknownQueueException e) {
+            throw new WebApplicationException(e, Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build());
+         }
+      };
+      return Response.ok(so, Constants.MULTIPART_MIXED + ";" + Constants.MULTIPART_BOUNDARY + "=" + boundary).build();
+   }
+
    // -----------------------------------------------------------------------
    // Post/Publish a message to Session:Destination
    // POST /rest/message/<sessionName>/<destinationName>
@@ -121,6 +213,80 @@ public class MessageServices {
 
    }
 
+   // -----------------------------------------------------------------------
+   // Post/Publish a message to Session:Destination, with the payload as raw bytes
+   // POST /rest/message/<sessionName>/<destinationName>
+   // Content-Type: application/octet-stream
+   // JMS headers and properties are passed as HTTP headers. Default message type is BYTES
+   // -----------------------------------------------------------------------
+
+   @POST
+   @Path("/{" + Constants.P_SESSION_NAME + "}/{" + Constants.P_DESTINATION_NAME + "}")
+   @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+   public Response postMessageRaw(@PathParam(Constants.P_SESSION_NAME) String sessionName,
+                                  @PathParam(Constants.P_DESTINATION_NAME) String destinationName,
+                                  @Context HttpHeaders httpHeaders,
+                                  InputStream payload) {
+      log.debug("postMessageRaw. sessionName={} destinationName={}", sessionName, destinationName);
+
+      try {
+
+         MessageInput message = RawMessageCodec.toMessageInput(httpHeaders.getRequestHeaders());
+         InputStream messagePayload = RawMessageCodec.readPayload(message, payload, objectMapper);
+         eConfigManager.postMessage(sessionName, destinationName, message, messagePayload);
+         log.debug("postMessageRaw OK");
+         return Response.status(Response.Status.CREATED).build();
+      } catch (ExecutionException e) {
+         return Response.serverError().build();
+      } catch (IOException | IllegalArgumentException | UnknownSessionException | UnknownDestinationException
+               | EmptyMessageException e) {
+         return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+      }
+   }
+
+   // -----------------------------------------------------------------------
+   // Post/Publish a batch of messages to Session:Destination, one message per part
+   // POST /rest/message/<sessionName>/<destinationName>
+   // Content-Type: multipart/mixed; boundary=...
+   // Returns the number of messages posted
+   // -----------------------------------------------------------------------
+
+   @POST
+   @Path("/{" + Constants.P_SESSION_NAME + "}/{" + Constants.P_DESTINATION_NAME + "}")
+   @Consumes(Constants.MULTIPART_MIXED)
+   @Produces(MediaType.TEXT_PLAIN)
+   public Response postMessagesMultipart(@PathParam(Constants.P_SESSION_NAME) String sessionName,
+                                         @PathParam(Constants.P_DESTINATION_NAME) String destinationName,
+                                         @Context HttpHeaders httpHeaders,
+                                         InputStream body) {
+      log.debug("postMessagesMultipart. sessionName={} destinationName={}", sessionName, destinationName);
+
+      String boundary = httpHeaders.getMediaType().getParameters().get(Constants.MULTIPART_BOUNDARY);
+      if ((boundary == null) || (boundary.isEmpty())) {
+         return Response.status(Response.Status.BAD_REQUEST).entity("boundary is mandatory").build();
+      }
+
+      int n = 0;
+      try {
+
+         MultipartMixedReader reader = new MultipartMixedReader(body, boundary);
+         while (reader.nextPart()) {
+            MessageInput message = RawMessageCodec.toMessageInput(reader.getPartHeaders());
+            InputStream messagePayload = RawMessageCodec.readPayload(message, reader.getPartBody(), objectMapper);
+            eConfigManager.postMessage(sessionName, destinationName, message, messagePayload);
+            n++;
+         }
+         log.debug("postMessagesMultipart OK. {} messages posted", n);
+         return Response.status(Response.Status.CREATED).entity(String.valueOf(n)).build();
+      } catch (ExecutionException e) {
+         return Response.serverError().entity(n + " messages posted before the error").build();
+      } catch (IOException | IllegalArgumentException | UnknownSessionException | UnknownDestinationException
+               | EmptyMessageException e) {
+         return Response.status(Response.Status.BAD_REQUEST).entity(n + " messages posted before the error: " + e.getMessage())
+                  .build();
+      }
+   }
+
    // -----------------------------------------------------------------------
    // Post/Publish a message to Session:Destination from a Template
    // POST /rest/message/<sessionName>/<destinationName>/<templateName>
@@ -16,19 +16,31 @@
  */
 package org.titou10.jtb.rest.service;
 
+import java.util.List;
+
 import javax.inject.Singleton;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.titou10.jtb.connector.ExternalConnectorManager;
+import org.titou10.jtb.connector.ex.UnknownScriptException;
+import org.titou10.jtb.connector.ex.UnknownScriptJobException;
 import org.titou10.jtb.connector.transport.ScriptInput;
+import org.titou10.jtb.connector.transport.ScriptJobOutput;
 import org.titou10.jtb.connector.transport.ScriptOutput;
+import org.titou10.jtb.rest.util.Constants;
 
 /**
  * 
@@ -76,4 +88,81 @@ public class ScriptServices {
          return Response.status(Response.Status.INTERNAL_SERVER_ERROR).type(MediaType.TEXT_PLAIN).entity(e.getMessage()).build();
       }
    }
+
+   // -----------------------------------------------------------------------
+   // Submit a script for asynchronous execution
+   // POST /rest/script/jobs
+   // -----------------------------------------------------------------------
+
+   @POST
+   @Path("/jobs")
+   public Response submitScript(ScriptInput scriptInput, @Context UriInfo uriInfo) {
+      log.debug("submitScript. {}", scriptInput);
+
+      boolean simulation = scriptInput.getSimulation() == null ? false : scriptInput.getSimulation();
+      int nbMessagesMax = scriptInput.getNbMessagesMax() == null ? 0 : scriptInput.getNbMessagesMax();
+      String scriptName = scriptInput.getScriptName();
+      if ((scriptName == null) || (scriptName.trim().isEmpty())) {
+         return Response.status(Response.Status.BAD_REQUEST).type(MediaType.TEXT_PLAIN).entity("scriptName is mandatory").build();
+      }
+
+      try {
+         ScriptJobOutput scriptJobOutput = eConfigManager.submitScript(scriptName, simulation, nbMessagesMax);
+         return Response.accepted(scriptJobOutput).location(uriInfo.getAbsolutePathBuilder().path(scriptJobOutput.getJobId()).build())
+                  .build();
+      } catch (UnknownScriptException e) {
+         return Response.status(Response.Status.BAD_REQUEST).type(MediaType.TEXT_PLAIN).entity(e.getMessage()).build();
+      }
+   }
+
+   // -----------------------------------------------------------------------
+   // List the scripts submitted for asynchronous execution
+   // GET /rest/script/jobs
+   // -----------------------------------------------------------------------
+
+   @GET
+   @Path("/jobs")
+   public Response getScriptJobs() {
+      log.debug("getScriptJobs");
+
+      List<ScriptJobOutput> scriptJobs = eConfigManager.getScriptJobs();
+      if (scriptJobs.isEmpty()) {
+         return Response.noContent().build();
+      }
+      return Response.ok(new GenericEntity<List<ScriptJobOutput>>(scriptJobs) {}).build();
+   }
+
+   // -----------------------------------------------------------------------
+   // Get the status/progress of a script submitted for asynchronous execution
+   // GET /rest/script/jobs/<jobId>
+   // -----------------------------------------------------------------------
+
+   @GET
+   @Path("/jobs/{" + Constants.P_JOB_ID + "}")
+   public Response getScriptJob(@PathParam(Constants.P_JOB_ID) String jobId) {
+      log.debug("getScriptJob. jobId={}", jobId);
+
+      try {
+         return Response.ok(eConfigManager.getScriptJob(jobId)).build();
+      } catch (UnknownScriptJobException e) {
+         return Response.status(Response.Status.NOT_FOUND).type(MediaType.TEXT_PLAIN).entity(e.getMessage()).build();
+      }
+   }
+
+   // -----------------------------------------------------------------------
+   // Cancel a script submitted for asynchronous execution
+   // DELETE /rest/script/jobs/<jobId>
+   // -----------------------------------------------------------------------
+
+   @DELETE
+   @Path("/jobs/{" + Constants.P_JOB_ID + "}")
+   public Response cancelScriptJob(@PathParam(Constants.P_JOB_ID) String jobId) {
+      log.debug("cancelScriptJob. jobId={}", jobId);
+
+      try {
+         return Response.ok(eConfigManager.cancelScriptJob(jobId)).build();
+      } catch (UnknownScriptJobException e) {
+         return Response.status(Response.Status.NOT_FOUND).type(MediaType.TEXT_PLAIN).entity(e.getMessage()).build();
+      }
+   }
 }
@@ -49,6 +49,12 @@ public final class Constants {
    public static final String  P_SCRIPT_NAME                 = "scriptName";
    public static final String  P_MODE                        = "mode";
    public static final String  P_LIMIT                       = "limit";
+   public static final String  P_JOB_ID                      = "jobId";
+   public static final String  P_SELECTOR                    = "selector";
+
+   // Media types
+   public static final String  MULTIPART_MIXED               = "multipart/mixed";
+   public static final String  MULTIPART_BOUNDARY            = "boundary";
 
    private Constants() {
       // NOP
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.rest.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Streaming reader for "multipart/mixed" bodies (RFC 2046).
+ * 
+ * Parts are read one after the other, the body of each part is exposed as an InputStream that ends at the next boundary, so parts
+ * are never buffered in memory
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class MultipartMixedReader {
+
+   private static final int          BUFFER_SIZE = 64 * 1024;
+
+   private final BufferedInputStream in;
+   private final byte[]              delimiter;
+
+   private PartInputStream           currentPart;
+   private Map<String, List<String>> partHeaders;
+   private boolean                   finished;
+
+   public MultipartMixedReader(InputStream is, String boundary) {
+      // The first boundary may not be preceded by a CRLF: add one to handle all delimiters the same way
+      this.in = new BufferedInputStream(new SequenceInputStream(new ByteArrayInputStream(new byte[] { '\r', '\n' }), is),
+                                        BUFFER_SIZE);
+      this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+   }
+
+   // Move to the next part, skipping what remains of the current one (or the preamble). Return false when there is no more parts
+   public boolean nextPart() throws IOException {
+      if (finished) {
+         return false;
+      }
+
+      // Skip the remaining of the current part or the preamble
+      PartInputStream part = currentPart == null ? new PartInputStream() : currentPart;
+      byte[] skipBuffer = new byte[4096];
+      while (part.read(skipBuffer, 0, skipBuffer.length) != -1) {
+         // NOP
+      }
+
+      // Close delimiter or transport padding + CRLF
+      int c1 = in.read();
+      int c2 = in.read();
+      if ((c1 == '-') && (c2 == '-')) {
+         finished = true;
+         currentPart = null;
+         return false;
+      }
+      while (!((c1 == '\r') && (c2 == '\n'))) {
+         if (c2 == -1) {
+            throw new EOFException("Unexpected end of multipart stream");
+         }
+         c1 = c2;
+         c2 = in.read();
+      }
+
+      partHeaders = readPartHeaders();
+      currentPart = new PartInputStream();
+      return true;
+   }
+
+   // Headers of the current part. Names are case insensitive
+   public Map<String, List<String>> getPartHeaders() {
+      return partHeaders;
+   }
+
+   // Body of the current part
+   public InputStream getPartBody() {
+      return currentPart;
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private Map<String, List<String>> readPartHeaders() throws IOException {
+      Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      String line;
+      while (!(line = readLine()).isEmpty()) {
+         int pos = line.indexOf(':');
+         if (pos <= 0) {
+            continue;
+         }
+         String name = line.substring(0, pos).trim();
+         String value = line.substring(pos + 1).trim();
+         headers.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+      }
+      return headers;
+   }
+
+   private String readLine() throws IOException {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+      int c;
+      while ((c = in.read()) != '\n') {
+         if (c == -1) {
+            throw new EOFException("Unexpected end of multipart stream");
+         }
+         if (c != '\r') {
+            baos.write(c);
+         }
+      }
+      return new String(baos.toByteArray(), StandardCharsets.ISO_8859_1);
+   }
+
+   // Stream on the body of a part, ending just before the next delimiter
+   private final class PartInputStream extends InputStream {
+      private boolean eof;
+
+      @Override
+      public int read() throws IOException {
+         if (eof) {
+            return -1;
+         }
+         int b = in.read();
+         if (b == -1) {
+            throw new EOFException("Unexpected end of multipart stream");
+         }
+         if (b == delimiter[0]) {
+            in.mark(delimiter.length);
+            int i = 1;
+            while ((i < delimiter.length) && (in.read() == delimiter[i])) {
+               i++;
+            }
+            if (i == delimiter.length) {
+               eof = true;
+               return -1;
+            }
+            in.reset();
+         }
+         return b;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+         if (eof) {
+            return -1;
+         }
+         int n = 0;
+         while (n < len) {
+            int c = read();
+            if (c == -1) {
+               break;
+            }
+            b[off + n++] = (byte) c;
+         }
+         return ((n == 0) && eof) ? -1 : n;
+      }
+   }
+}
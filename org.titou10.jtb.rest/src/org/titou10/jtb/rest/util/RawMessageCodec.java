@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2019 Denis Forveille titou10.titou10@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.titou10.jtb.rest.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import org.titou10.jtb.connector.transport.MessageInput;
+import org.titou10.jtb.connector.transport.MessageInput.MessageInputType;
+import org.titou10.jtb.connector.transport.MessageOutput;
+import org.titou10.jtb.connector.transport.RawMessageAttributes;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Maps messages to/from "raw" HTTP representations: the payload is the HTTP body (or the body of a multipart part), the JMS
+ * headers are HTTP headers and each JMS property is a "JMS-Property: name=value" HTTP header
+ * 
+ * Header values are percent-encoded (UTF-8) for characters outside of printable US-ASCII, and for '%'. The '=' in property names are
+ * also encoded
+ * 
+ * @author Denis Forveille
+ *
+ */
+public final class RawMessageCodec {
+
+   public static final String  H_PROPERTY       = "JMS-Property";
+
+   private static final String TYPE_TEXT        = "TEXT";
+   private static final String TYPE_BYTES       = "BYTES";
+   private static final String TYPE_MAP         = "MAP";
+
+   private static final String TEXT_UTF8        = MediaType.TEXT_PLAIN + ";charset=UTF-8";
+   private static final byte[] CRLF             = { '\r', '\n' };
+   private static final char[] HEX             = "0123456789ABCDEF".toCharArray();
+
+   // ------------------
+   // Message -> HTTP
+   // ------------------
+
+   // HTTP headers describing the message, in order
+   public static Map<String, String> toHeaders(MessageOutput messageOutput) {
+      Map<String, String> headers = new LinkedHashMap<>();
+      for (Entry<String, String> e : RawMessageAttributes.fromMessageOutput(messageOutput).entrySet()) {
+         headers.put(e.getKey(), encode(e.getValue(), false));
+      }
+      return headers;
+   }
+
+   // Values of the "JMS-Property" HTTP headers of the message
+   public static List<String> toPropertyHeaders(MessageOutput messageOutput) {
+      List<String> res = new ArrayList<>();
+      if (messageOutput.getProperties() != null) {
+         for (Entry<String, String> e : messageOutput.getProperties().entrySet()) {
+            res.add(encode(e.getKey(), true) + "=" + encode(e.getValue(), false));
+         }
+      }
+      return res;
+   }
+
+   public static void addHeaders(ResponseBuilder rb, MessageOutput messageOutput) {
+      for (Entry<String, String> e : toHeaders(messageOutput).entrySet()) {
+         rb.header(e.getKey(), e.getValue());
+      }
+      for (String p : toPropertyHeaders(messageOutput)) {
+         rb.header(H_PROPERTY, p);
+      }
+   }
+
+   // Content-Type of the payload when sent in a multipart part
+   public static String getContentType(MessageOutput messageOutput) {
+      String type = getMessageType(messageOutput);
+      switch (type) {
+         case TYPE_TEXT:
+            return TEXT_UTF8;
+         case TYPE_MAP:
+            return MediaType.APPLICATION_JSON;
+         default:
+            return MediaType.APPLICATION_OCTET_STREAM;
+      }
+   }
+
+   // Write the payload of the message: bytes as is, text as UTF-8, map as JSON. Other kinds of messages have no payload
+   public static void writePayload(MessageOutput messageOutput, OutputStream os, ObjectMapper objectMapper) throws IOException {
+      String type = getMessageType(messageOutput);
+      switch (type) {
+         case TYPE_BYTES:
+            if (messageOutput.getPayloadBytesBase64() != null) {
+               os.write(messageOutput.getPayloadBytesBase64());
+            }
+            break;
+         case TYPE_TEXT:
+            if (messageOutput.getPayloadText() != null) {
+               os.write(messageOutput.getPayloadText().getBytes(StandardCharsets.UTF_8));
+            }
+            break;
+         case TYPE_MAP:
+            if (messageOutput.getPayloadMap() != null) {
+               objectMapper.writeValue(new NonClosingOutputStream(os), messageOutput.getPayloadMap());
+            }
+            break;
+         default:
+            break;
+      }
+   }
+
+   // Write the message as one part of a multipart/mixed body
+   public static void writePart(OutputStream os,
+                                String boundary,
+                                MessageOutput messageOutput,
+                                ObjectMapper objectMapper) throws IOException {
+      StringBuilder sb = new StringBuilder(512);
+      sb.append("--").append(boundary).append("\r\n");
+      sb.append("Content-Type: ").append(getContentType(messageOutput)).append("\r\n");
+      for (Entry<String, String> e : toHeaders(messageOutput).entrySet()) {
+         sb.append(e.getKey()).append(": ").append(e.getValue()).append("\r\n");
+      }
+      for (String p : toPropertyHeaders(messageOutput)) {
+         sb.append(H_PROPERTY).append(": ").append(p).append("\r\n");
+      }
+      sb.append("\r\n");
+      os.write(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+      writePayload(messageOutput, os, objectMapper);
+      os.write(CRLF);
+   }
+
+   public static void writeCloseDelimiter(OutputStream os, String boundary) throws IOException {
+      os.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+   }
+
+   // ------------------
+   // HTTP -> Message
+   // ------------------
+
+   // Build a MessageInput from HTTP headers. Names must be looked up case insensitively
+   public static MessageInput toMessageInput(Map<String, List<String>> headers) {
+      Map<String, String> attributes = new HashMap<>();
+      for (String name : new String[] { RawMessageAttributes.MESSAGE_TYPE, RawMessageAttributes.JMS_TYPE,
+                                        RawMessageAttributes.JMS_CORRELATION_ID, RawMessageAttributes.JMS_PRIORITY,
+                                        RawMessageAttributes.JMS_DELIVERY_MODE, RawMessageAttributes.JMS_REPLY_TO,
+                                        RawMessageAttributes.JMS_TIME_TO_LIVE, RawMessageAttributes.JMS_DELIVERY_DELAY }) {
+         List<String> values = headers.get(name);
+         if ((values != null) && (!values.isEmpty())) {
+            attributes.put(name, decode(values.get(0)));
+         }
+      }
+
+      Map<String, String> properties = new HashMap<>();
+      List<String> propertyHeaders = headers.get(H_PROPERTY);
+      if (propertyHeaders != null) {
+         for (String header : propertyHeaders) {
+            // Some stacks merge multiple headers with the same name in one comma separated header
+            for (String p : header.split(",")) {
+               int pos = p.indexOf('=');
+               if (pos <= 0) {
+                  throw new IllegalArgumentException("Invalid " + H_PROPERTY + " header: '" + p + "'. Expected 'name=value'");
+               }
+               properties.put(decode(p.substring(0, pos).trim()), decode(p.substring(pos + 1).trim()));
+            }
+         }
+      }
+
+      return RawMessageAttributes.toMessageInput(attributes, properties);
+   }
+
+   // Returns the payload stream to pass to ExternalConnectorManager.postMessage
+   // A map payload is read here from its JSON form, as written by writePayload, and set in the MessageInput
+   public static InputStream readPayload(MessageInput messageInput,
+                                         InputStream payload,
+                                         ObjectMapper objectMapper) throws IOException {
+      if (messageInput.getType() != MessageInputType.MAP) {
+         return payload;
+      }
+      messageInput.setPayloadMap(readPayloadMap(payload, objectMapper));
+      return null;
+   }
+
+   // Read a JSON object. Values are kept as text. An empty body means no payload
+   static Map<String, String> readPayloadMap(InputStream is, ObjectMapper objectMapper) throws IOException {
+      JsonNode root;
+      try (JsonParser parser = objectMapper.getFactory().createParser(is)) {
+         parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+         root = objectMapper.readTree(parser);
+      }
+      if ((root == null) || (root.isMissingNode()) || (root.isNull())) {
+         return null;
+      }
+      if (!root.isObject()) {
+         throw new IllegalArgumentException("The payload of a MAP message must be a JSON object");
+      }
+
+      Map<String, String> map = new LinkedHashMap<>();
+      Iterator<Entry<String, JsonNode>> fields = root.fields();
+      while (fields.hasNext()) {
+         Entry<String, JsonNode> field = fields.next();
+         JsonNode value = field.getValue();
+         if (value.isNull()) {
+            continue;
+         }
+         map.put(field.getKey(), value.isValueNode() ? value.asText() : value.toString());
+      }
+      return map;
+   }
+
+   // -------
+   // Helpers
+   // -------
+
+   private static String getMessageType(MessageOutput messageOutput) {
+      String type = RawMessageAttributes.fromMessageOutput(messageOutput).get(RawMessageAttributes.MESSAGE_TYPE);
+      return type == null ? "" : type;
+   }
+
+   // Percent-encode characters that can not be part of an HTTP header value, '%' and ',' (used to merge headers)
+   static String encode(String value, boolean isName) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      StringBuilder sb = null;
+      for (int i = 0; i < bytes.length; i++) {
+         int b = bytes[i] & 0xFF;
+         boolean mustEncode = (b < 0x20) || (b > 0x7E) || (b == '%') || (b == ',') || (isName && (b == '='));
+         if (mustEncode && (sb == null)) {
+            sb = new StringBuilder(bytes.length + 16);
+            sb.append(new String(bytes, 0, i, StandardCharsets.US_ASCII));
+         }
+         if (sb != null) {
+            if (mustEncode) {
+               sb.append('%').append(HEX[b >> 4]).append(HEX[b & 0x0F]);
+            } else {
+               sb.append((char) b);
+            }
+         }
+      }
+      return sb == null ? value : sb.toString();
+   }
+
+   static String decode(String value) {
+      if (value.indexOf('%') < 0) {
+         return value;
+      }
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(value.length());
+      for (int i = 0; i < value.length(); i++) {
+         char c = value.charAt(i);
+         if ((c == '%') && (i + 2 < value.length())) {
+            baos.write(Integer.parseInt(value.substring(i + 1, i + 3), 16));
+            i += 2;
+         } else {
+            baos.write((byte) c);
+         }
+      }
+      return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+   }
+
+   // Jackson closes the stream it writes to by default
+   private static final class NonClosingOutputStream extends FilterOutputStream {
+      NonClosingOutputStream(OutputStream os) {
+         super(os);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+         out.write(b, off, len);
+      }
+
+      @Override
+      public void close() throws IOException {
+         flush();
+      }
+   }
+
+   // ------------------
+   // Pure Utility Class
+   // ------------------
+   private RawMessageCodec() {
+      // NOP
+   }
+}